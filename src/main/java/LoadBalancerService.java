@@ -1,60 +1,283 @@
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.http.HttpClient;
-import java.util.concurrent.Executor;
+import java.nio.file.Path;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
 
 import com.sun.net.httpserver.HttpServer;
 
+import config.ConfigFileWatcher;
+import config.LiveConfig;
 import config.LoadBalancerConfig;
 import health.HealthCheckService;
+import metrics.MetricsRegistry;
 import health.HealthCheckServiceMain;
+import health.damping.FlapDamper;
+import health.latency.ProbeLatencyTracker;
+import health.lease.LeaseManager;
+import health.load.BackendLoadReports;
+import health.passive.PassiveHealthSignals;
 import health.ping.HealthCheckPingFactory;
+import health.ping.HealthProbeHttp;
+import health.ping.HealthProbeTcp;
+import health.types.BackendPodStatus;
+import logging.LoggerFactory;
 import health.ping.Probeable;
 import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
 import repository.BackendPodInMemoryStore;
+import repository.discovery.FilePodDiscovery;
+import repository.durable.RegistryJournal;
+import repository.replication.PodReplicator;
+import server.LeastConnectionsLoadBalancer;
+import server.LoadDistributable;
+import server.LoadBalancingStrategy;
 import server.RoundRobinLoadBalancer;
+import server.SwitchableLoadBalancer;
+import server.WeightedLoadBalancer;
+import server.handler.Http2ProxyHandler;
+import server.handler.utils.ResponseCompression;
+import server.load.LatencyWeigher;
+import server.load.PodWeigher;
+import server.load.PodDrainer;
+import server.load.PodLoadTracker;
+import server.load.ReportedLoadWeigher;
 import server.serverType.LoadBalancerHttpService;
+import server.serverType.h2c.Http2CleartextService;
+import server.serverType.tunnel.UpgradeTunnelService;
+import server.upstream.UpstreamPoolRegistry;
+import server.upstream.UpstreamPoolWarmer;
+import server.watch.PodWatchHub;
 import utils.argparse.LobalancerArguments;
-import utils.network.NetworkMethod;
+import utils.event.RingBufferEventBus;
+import utils.network.dns.CachingResolverProvider;
+import utils.network.dns.DnsCache;
+import utils.network.dns.SystemHostResolver;
 import utils.time.RealTimeProvider;
 
 public class LoadBalancerService {
+    private static final Logger logger = LoggerFactory.getLogger(LoadBalancerService.class);
 
+    // the config at startup; settings applied while running are read from liveConfig
     private final LoadBalancerConfig config;
+    private final LiveConfig liveConfig;
+    private final ConfigFileWatcher configWatcher;
     private final BackendPodInMemoryStore inMemoryStore;
     private final RealTimeProvider timeProvider;
     private final HealthCheckService<BackendPod> healthService;
-    private final RoundRobinLoadBalancer loadBalancerAlgorithm;
+    private final SwitchableLoadBalancer loadBalancerAlgorithm;
+    private final PodLoadTracker loadTracker;
     private final LoadBalancerHttpService loadBalancerServer;
     private final ExecutorService executor;
     private final Probeable<BackendPod> probeService;
+    private final UpstreamPoolRegistry upstreamPools;
+    private final Http2CleartextService h2cServer;
+    private final UpgradeTunnelService tunnelServer;
+    private final MetricsRegistry metrics;
+    private final UpstreamPoolWarmer poolWarmer;
+    private final DnsCache dnsCache;
+    private final PassiveHealthSignals passiveSignals;
+    private final BackendLoadReports loadReports;
+    private final LeaseManager leases;
+    private final RegistryJournal journal;
+    private final PodWatchHub watchHub;
+    private final FilePodDiscovery discovery;
+    private final PodDrainer drainer;
+    private final PodReplicator replicator;
 
     public LoadBalancerService(LobalancerArguments arguments) throws IOException {
         this.config = LoadBalancerConfig.fromConfigFile(arguments.getConfigFilePath());
-        this.inMemoryStore = BackendPodInMemoryStore.getStore();
+        this.liveConfig = new LiveConfig(config);
+        this.metrics = new MetricsRegistry();
+        this.inMemoryStore = config.eventBus().async() ? createAsyncStore() : BackendPodInMemoryStore.getStore();
         this.executor = Executors.newVirtualThreadPerTaskExecutor();
         this.timeProvider = new RealTimeProvider();
-        this.probeService = HealthCheckPingFactory.create(NetworkMethod.HTTP, config, executor);
-        this.healthService = new HealthCheckServiceMain(
+        this.dnsCache = config.dns().enabled() ? createDnsCache() : null;
+        this.passiveSignals = new PassiveHealthSignals(timeProvider);
+        var latencyTracker = new ProbeLatencyTracker(config.weighting().latencyEwmaAlpha(), metrics);
+        this.loadReports = new BackendLoadReports(inMemoryStore, config.weighting().loadHeader(),
+                config.weighting().loadReportMaxAgeMs(), timeProvider);
+        this.probeService = HealthCheckPingFactory.create(config.networkMethod(), config, executor, loadReports);
+        var healthCheckService = new HealthCheckServiceMain(
             executor,
             config,
             inMemoryStore,
             timeProvider,
-            probeService
+            probeService,
+            passiveSignals,
+            latencyTracker
             );
-        this.loadBalancerAlgorithm = new RoundRobinLoadBalancer(this.inMemoryStore);
+        this.healthService = healthCheckService;
+        this.loadTracker = new PodLoadTracker();
+        // pods reporting their own load are weighed by it on top of their probe latency
+        var weigher = new LatencyWeigher(latencyTracker).times(new ReportedLoadWeigher(loadReports));
+        double minWeight = config.weighting().minWeight();
+        this.loadBalancerAlgorithm = new SwitchableLoadBalancer(inMemoryStore, config.strategy(),
+                strategy -> createLoadBalancer(strategy, weigher, minWeight));
         var httpServer = HttpServer.create(new InetSocketAddress(config.port()), 0);
         httpServer.setExecutor(executor);
-        var httpClient = HttpClient.newBuilder()
-                .executor(executor)
-                .build();
-        this.loadBalancerServer = new LoadBalancerHttpService(httpServer, httpClient, loadBalancerAlgorithm, executor, inMemoryStore);
+        registerHealthMetrics(healthCheckService.flapDamper());
+        this.leases = config.lease().enabled()
+                ? new LeaseManager(inMemoryStore, config.lease(), timeProvider, executor)
+                : null;
+        if (this.leases != null) {
+            this.metrics.gauge("lb_leases_active", leases::activeLeases);
+            this.metrics.gauge("lb_lease_expirations_total", leases::expirations);
+        }
+        this.upstreamPools = new UpstreamPoolRegistry(config.upstream(), executor, inMemoryStore, metrics);
+        if (this.dnsCache != null) {
+            // connections opened before the address change keep pointing at the old address
+            this.dnsCache.addAddressChangeListener(upstreamPools::closePool);
+        }
+        this.poolWarmer = new UpstreamPoolWarmer(config.prewarm(), upstreamPools, executor, inMemoryStore, metrics,
+                config.healthCheckPath().toString(), config.timeout(), timeProvider);
+        this.watchHub = config.watch().enabled() ? createWatchHub() : null;
+        this.drainer = new PodDrainer(inMemoryStore, loadBalancerAlgorithm, loadTracker, config.drain(), timeProvider, executor);
+        this.metrics.gauge("lb_pods_drained_total", drainer::drained);
+        this.metrics.gauge("lb_pod_drains_cut_off_total", drainer::cutOff);
+        this.h2cServer = config.http2().enabled()
+                ? new Http2CleartextService(config.http2(), executor, new Http2ProxyHandler(
+                        upstreamPools, loadBalancerAlgorithm, new ResponseCompression(config.compression()), loadTracker, passiveSignals, loadReports))
+                : null;
+        this.tunnelServer = config.tunnel().enabled()
+                ? new UpgradeTunnelService(config.tunnel(), config.upstream(), loadBalancerAlgorithm, loadTracker, executor)
+                : null;
+        // restored last, once every subscriber is listening
+        this.journal = config.durability().enabled() ? openJournal() : null;
+        this.discovery = config.discovery().enabled()
+                ? new FilePodDiscovery(config.discovery(), inMemoryStore, timeProvider)
+                : null;
+        if (this.discovery != null) {
+            this.metrics.gauge("lb_discovered_pods", discovery::listed);
+        }
+        // after the restore, so restored pods never override what the other replicas learned meanwhile
+        this.replicator = config.replication().enabled() ? createReplicator(healthCheckService) : null;
+        this.loadBalancerServer = new LoadBalancerHttpService(httpServer, upstreamPools, loadBalancerAlgorithm, loadTracker, executor, inMemoryStore, config, metrics, passiveSignals, loadReports, leases, watchHub, drainer, replicator);
+        this.configWatcher = arguments.getConfigFilePath() != null && config.reload().enabled()
+                ? new ConfigFileWatcher(arguments.getConfigFilePath(), liveConfig, timeProvider)
+                : null;
+        this.liveConfig.addChangeListener(next -> applyConfig(next, healthCheckService));
+    }
+
+    private LoadDistributable<BackendPod> createLoadBalancer(LoadBalancingStrategy strategy, PodWeigher weigher, double minWeight) {
+        return switch (strategy) {
+            case ROUND_ROBIN -> new RoundRobinLoadBalancer(this.inMemoryStore);
+            case LEAST_CONNECTIONS -> new LeastConnectionsLoadBalancer(this.inMemoryStore, this.loadTracker, weigher, minWeight);
+            case WEIGHTED -> new WeightedLoadBalancer(this.inMemoryStore, weigher, minWeight);
+        };
+    }
+
+    private void applyConfig(LoadBalancerConfig next, HealthCheckServiceMain healthCheckService) {
+        switch (this.probeService) {
+            case HealthProbeHttp http -> http.setTimeout(next.timeout()).setHealthCheckPath(next.healthCheckPath());
+            case HealthProbeTcp tcp -> tcp.setTimeout(next.timeout());
+            default -> { }
+        }
+        healthCheckService.applyConfig(next);
+        this.loadBalancerAlgorithm.switchTo(next.strategy());
+    }
+
+    private RegistryJournal openJournal() throws IOException {
+        var recovered = RegistryJournal.recover(Path.of(config.durability().directory()));
+        var registryJournal = new RegistryJournal(config.durability(), inMemoryStore, timeProvider);
+        inMemoryStore.addChangeListener(registryJournal);
+        inMemoryStore.restore(recovered.generation(), recovered.pods());
+        logger.info("Restored {} pods from the registry journal in {}ms ({} from the snapshot, {} changes replayed)",
+                recovered.pods().size(), TimeUnit.NANOSECONDS.toMillis(recovered.recoveryNanos()),
+                recovered.snapshotPods(), recovered.replayedChanges());
+        this.metrics.gauge("lb_registry_journal_appends_total", registryJournal::appended);
+        this.metrics.gauge("lb_registry_journal_failures_total", registryJournal::failures);
+        return registryJournal;
+    }
+
+    private PodReplicator createReplicator(HealthCheckServiceMain healthCheckService) {
+        if (config.replication().self().isBlank() && !config.replication().peers().isEmpty()) {
+            // peers share the pods by the names replicas give themselves, and every replica would be localhost
+            throw new IllegalArgumentException("replication.self must be set when replication has peers");
+        }
+        var self = config.replication().self().isBlank()
+                ? "http://localhost:%d".formatted(config.port())
+                : config.replication().self();
+        var podReplicator = new PodReplicator(config.replication(), self, inMemoryStore, healthCheckService,
+                loadBalancerAlgorithm, timeProvider, executor);
+        this.metrics.gauge("lb_replication_peers_alive", podReplicator::alivePeers);
+        this.metrics.gauge("lb_replication_merged_total", podReplicator::merged);
+        return podReplicator;
+    }
+
+    private PodWatchHub createWatchHub() {
+        var hub = new PodWatchHub(inMemoryStore, config.watch());
+        inMemoryStore.addChangeListener(hub);
+        this.metrics.gauge("lb_watchers", hub::watchers);
+        this.metrics.gauge("lb_watch_resyncs_total", hub::resyncs);
+        return hub;
+    }
+
+    private void registerHealthMetrics(FlapDamper flapDamper) {
+        this.metrics.gauge("lb_pod_flaps_total", flapDamper::flaps);
+        for (var status : BackendPodStatus.values()) {
+            this.metrics.gauge("lb_pods", () -> inMemoryStore.count(status), "status", status.name());
+        }
+        for (var from : BackendPodStatus.values()) {
+            for (var to : BackendPodStatus.values()) {
+                if (from != to) {
+                    this.metrics.gauge("lb_pod_status_transitions_total", () -> flapDamper.transitions(from, to),
+                            "from", from.name(), "to", to.name());
+                }
+            }
+        }
+    }
+
+    private BackendPodInMemoryStore createAsyncStore() {
+        // a slow subscriber only holds back its own deliveries, not registration or health checking
+        var eventBus = new RingBufferEventBus<BackendPodEvent, BackendPodEventContext>(
+                "pods", config.eventBus().capacity(), config.eventBus().backPressure());
+        this.metrics.gauge("lb_event_bus_depth", eventBus::depth);
+        this.metrics.gauge("lb_event_bus_dropped_total", eventBus::dropped);
+        this.metrics.gauge("lb_event_publish_micros", () -> eventBus.publishLatency().percentileMicros(0.5),
+                "quantile", "0.5");
+        this.metrics.gauge("lb_event_publish_micros", () -> eventBus.publishLatency().percentileMicros(0.99),
+                "quantile", "0.99");
+        return BackendPodInMemoryStore.initStore(eventBus);
+    }
+
+    private DnsCache createDnsCache() {
+        var cache = new DnsCache(config.dns(), new SystemHostResolver(), timeProvider, inMemoryStore);
+        CachingResolverProvider.install(cache);
+        return cache;
     }
 
-    public void start() {
+    public void start() throws IOException {
+        if (this.dnsCache != null) {
+            this.dnsCache.start(executor);
+        }
+        if (this.journal != null) {
+            this.journal.start(executor);
+        }
+        if (this.watchHub != null) {
+            this.watchHub.start(executor);
+        }
+        if (this.discovery != null) {
+            this.discovery.start(executor);
+        }
+        if (this.configWatcher != null) {
+            this.configWatcher.start(executor);
+        }
+        if (this.replicator != null) {
+            this.replicator.start(executor);
+        }
         this.healthService.start();
+        this.poolWarmer.start();
         this.loadBalancerServer.start();
+        if (this.h2cServer != null) {
+            this.h2cServer.start();
+        }
+        if (this.tunnelServer != null) {
+            this.tunnelServer.start();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package config;
+
+/**
+ * Settings for adapting each pod's health check interval to how stable the pod has been.
+ * <p>
+ * Intervals are expressed relative to the configured check {@code duration}, which stays the base interval.
+ *
+ * @param enabled               whether intervals adapt; when disabled every pod is checked once per duration
+ * @param stableChecks          successful checks in a row before a pod's interval starts to grow
+ * @param growthFactor          the interval is multiplied by this for every further successful check
+ * @param maxIntervalMultiplier upper bound of the interval, as a multiple of the base interval
+ * @param recoveryIntervalRatio interval of unresponsive, initializing and recently recovered pods, as a
+ *                              fraction of the base interval
+ * @param recoveryChecks        checks a recovered pod stays on the short interval for
+ * @param passiveWindowRatio    a successful proxied request younger than this fraction of the base interval
+ *                              stands in for an active check
+ */
+public record AdaptiveHealthConfig(
+        boolean enabled,
+        int stableChecks,
+        double growthFactor,
+        double maxIntervalMultiplier,
+        double recoveryIntervalRatio,
+        int recoveryChecks,
+        double passiveWindowRatio) {
+
+    private static final int DEFAULT_STABLE_CHECKS = 3;
+    private static final double DEFAULT_GROWTH_FACTOR = 2.0;
+    private static final double DEFAULT_MAX_INTERVAL_MULTIPLIER = 8.0;
+    private static final double DEFAULT_RECOVERY_INTERVAL_RATIO = 0.25;
+    private static final int DEFAULT_RECOVERY_CHECKS = 3;
+    private static final double DEFAULT_PASSIVE_WINDOW_RATIO = 1.0;
+
+    public AdaptiveHealthConfig {
+        if (stableChecks < 0) {
+            stableChecks = DEFAULT_STABLE_CHECKS;
+        }
+        if (!(growthFactor >= 1.0)) {
+            growthFactor = DEFAULT_GROWTH_FACTOR;
+        }
+        if (!(maxIntervalMultiplier >= 1.0)) {
+            maxIntervalMultiplier = DEFAULT_MAX_INTERVAL_MULTIPLIER;
+        }
+        if (!(recoveryIntervalRatio > 0 && recoveryIntervalRatio <= 1.0)) {
+            recoveryIntervalRatio = DEFAULT_RECOVERY_INTERVAL_RATIO;
+        }
+        if (recoveryChecks < 0) {
+            recoveryChecks = DEFAULT_RECOVERY_CHECKS;
+        }
+        if (!(passiveWindowRatio >= 0)) {
+            passiveWindowRatio = DEFAULT_PASSIVE_WINDOW_RATIO;
+        }
+    }
+
+    public static AdaptiveHealthConfig defaults() {
+        return new AdaptiveHealthConfig(true, DEFAULT_STABLE_CHECKS, DEFAULT_GROWTH_FACTOR,
+                DEFAULT_MAX_INTERVAL_MULTIPLIER, DEFAULT_RECOVERY_INTERVAL_RATIO, DEFAULT_RECOVERY_CHECKS,
+                DEFAULT_PASSIVE_WINDOW_RATIO);
+    }
+}
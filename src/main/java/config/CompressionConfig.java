@@ -0,0 +1,48 @@
+package config;
+
+import java.util.List;
+
+/**
+ * Settings for compressing backend responses at the load balancer.
+ *
+ * @param enabled      whether responses may be compressed at all
+ * @param minSizeBytes responses with a known length below this size are sent as-is
+ * @param mimeTypes    content types (without parameters) that are worth compressing;
+ *                     entries ending in "/*" match a whole type family
+ * @param level        deflater level, 1 (fastest) to 9 (smallest)
+ */
+public record CompressionConfig(
+        boolean enabled,
+        int minSizeBytes,
+        List<String> mimeTypes,
+        int level) {
+
+    private static final int DEFAULT_MIN_SIZE_BYTES = 1024;
+    private static final int DEFAULT_LEVEL = 6;
+    private static final List<String> DEFAULT_MIME_TYPES = List.of(
+            "text/*",
+            "application/json",
+            "application/javascript",
+            "application/xml",
+            "image/svg+xml"
+    );
+
+    public CompressionConfig {
+        if (minSizeBytes <= 0) {
+            minSizeBytes = DEFAULT_MIN_SIZE_BYTES;
+        }
+        if (mimeTypes == null || mimeTypes.isEmpty()) {
+            mimeTypes = DEFAULT_MIME_TYPES;
+        }
+        if (level < 1 || level > 9) {
+            level = DEFAULT_LEVEL;
+        }
+    }
+
+    /**
+     * @return compression enabled with the default threshold, allowlist and level
+     */
+    public static CompressionConfig defaults() {
+        return new CompressionConfig(true, DEFAULT_MIN_SIZE_BYTES, DEFAULT_MIME_TYPES, DEFAULT_LEVEL);
+    }
+}
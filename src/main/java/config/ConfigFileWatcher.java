@@ -0,0 +1,61 @@
+package config;
+
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+import utils.filesystem.DebouncedFileWatcher;
+import utils.time.TimeProvider;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Reloads the config file whenever it changes and publishes the result through {@link LiveConfig}.
+ * <p>
+ * A file that cannot be read, does not parse or holds an invalid value changes nothing: the balancer keeps
+ * running with the config it has, and the file is read again on its next change.
+ */
+public class ConfigFileWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigFileWatcher.class);
+
+    private final Path file;
+    private final LiveConfig liveConfig;
+    private final DebouncedFileWatcher watcher;
+
+    public ConfigFileWatcher(Path file, LiveConfig liveConfig, TimeProvider timeProvider) {
+        this.file = file.toAbsolutePath();
+        this.liveConfig = liveConfig;
+        this.watcher = new DebouncedFileWatcher(this.file, liveConfig.get().reload().debounceMs(), timeProvider,
+                this::reloadQuietly);
+    }
+
+    /**
+     * Watch the file for changes until {@link #stop()} is called.
+     */
+    public void start(ExecutorService executor) throws IOException {
+        watcher.start(executor);
+    }
+
+    public void stop() throws IOException {
+        watcher.stop();
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Could not reload the config from {}, keeping the current config", file, e);
+        }
+    }
+
+    /**
+     * Read the file and publish its config.
+     *
+     * @return whether the config changed
+     * @throws IOException              when the file cannot be read
+     * @throws IllegalArgumentException when the file is not a valid config
+     */
+    public boolean reload() throws IOException {
+        return liveConfig.update(LoadBalancerConfig.readConfigFile(file));
+    }
+}
@@ -0,0 +1,25 @@
+package config;
+
+/**
+ * Settings for reloading the config file while the balancer runs.
+ *
+ * @param enabled    whether the config file is watched and its changes applied
+ * @param debounceMs quiet time after a change of the file before it is read again, so a file written in
+ *                   several steps is read once
+ */
+public record ConfigReloadConfig(
+        boolean enabled,
+        long debounceMs) {
+
+    private static final long DEFAULT_DEBOUNCE_MS = 500;
+
+    public ConfigReloadConfig {
+        if (debounceMs < 0) {
+            debounceMs = DEFAULT_DEBOUNCE_MS;
+        }
+    }
+
+    public static ConfigReloadConfig defaults() {
+        return new ConfigReloadConfig(true, DEFAULT_DEBOUNCE_MS);
+    }
+}
@@ -0,0 +1,32 @@
+package config;
+
+/**
+ * Settings for discovering pods from a file, next to those registering themselves.
+ *
+ * @param enabled    whether the file is read on startup and watched for changes
+ * @param file       the pods, either a JSON array of URIs or of registration requests, or one URI per line
+ *                   with {@code #} starting a comment
+ * @param debounceMs quiet time after a change of the file before it is read again, so a file written in
+ *                   several steps is read once
+ */
+public record DiscoveryConfig(
+        boolean enabled,
+        String file,
+        long debounceMs) {
+
+    private static final String DEFAULT_FILE = "pods.json";
+    private static final long DEFAULT_DEBOUNCE_MS = 500;
+
+    public DiscoveryConfig {
+        if (file == null || file.isBlank()) {
+            file = DEFAULT_FILE;
+        }
+        if (debounceMs < 0) {
+            debounceMs = DEFAULT_DEBOUNCE_MS;
+        }
+    }
+
+    public static DiscoveryConfig defaults() {
+        return new DiscoveryConfig(false, DEFAULT_FILE, DEFAULT_DEBOUNCE_MS);
+    }
+}
@@ -0,0 +1,36 @@
+package config;
+
+/**
+ * Settings for the balancer's cache of pod host name resolutions.
+ *
+ * @param enabled        whether pod host names are resolved and cached by the balancer
+ * @param ttlMs          how long a resolution is considered fresh
+ * @param refreshAheadMs entries are re-resolved in the background this long before they expire
+ * @param maxStaleMs     how long an expired entry keeps being served while the resolver fails
+ */
+public record DnsConfig(
+        boolean enabled,
+        long ttlMs,
+        long refreshAheadMs,
+        long maxStaleMs) {
+
+    private static final long DEFAULT_TTL_MS = 30_000;
+    private static final long DEFAULT_REFRESH_AHEAD_MS = 5_000;
+    private static final long DEFAULT_MAX_STALE_MS = 300_000;
+
+    public DnsConfig {
+        if (ttlMs <= 0) {
+            ttlMs = DEFAULT_TTL_MS;
+        }
+        if (refreshAheadMs <= 0 || refreshAheadMs >= ttlMs) {
+            refreshAheadMs = Math.min(DEFAULT_REFRESH_AHEAD_MS, ttlMs / 2);
+        }
+        if (maxStaleMs < 0) {
+            maxStaleMs = DEFAULT_MAX_STALE_MS;
+        }
+    }
+
+    public static DnsConfig defaults() {
+        return new DnsConfig(true, DEFAULT_TTL_MS, DEFAULT_REFRESH_AHEAD_MS, DEFAULT_MAX_STALE_MS);
+    }
+}
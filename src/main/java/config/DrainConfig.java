@@ -0,0 +1,29 @@
+package config;
+
+/**
+ * Settings for draining pods before they are removed.
+ *
+ * @param deadlineMs      longest a draining pod is given to finish its requests and tunnels; it is removed
+ *                        then even if some are still open
+ * @param checkIntervalMs how often a draining pod is checked for work still open
+ */
+public record DrainConfig(
+        long deadlineMs,
+        long checkIntervalMs) {
+
+    private static final long DEFAULT_DEADLINE_MS = 30_000;
+    private static final long DEFAULT_CHECK_INTERVAL_MS = 100;
+
+    public DrainConfig {
+        if (deadlineMs <= 0) {
+            deadlineMs = DEFAULT_DEADLINE_MS;
+        }
+        if (checkIntervalMs <= 0) {
+            checkIntervalMs = DEFAULT_CHECK_INTERVAL_MS;
+        }
+    }
+
+    public static DrainConfig defaults() {
+        return new DrainConfig(DEFAULT_DEADLINE_MS, DEFAULT_CHECK_INTERVAL_MS);
+    }
+}
@@ -0,0 +1,37 @@
+package config;
+
+/**
+ * Settings for persisting the pod registry across restarts in a write-ahead log and snapshot.
+ *
+ * @param enabled              whether registry changes are logged and the registry is restored on startup
+ * @param directory            where the log segments and the snapshot are kept
+ * @param syncIntervalMs       how often the log is forced to disk; 0 forces after every batch of changes the
+ *                             journal appends, which store writers never wait for
+ * @param compactAfterChanges  changes logged before a new snapshot replaces the log written so far
+ */
+public record DurabilityConfig(
+        boolean enabled,
+        String directory,
+        long syncIntervalMs,
+        int compactAfterChanges) {
+
+    private static final String DEFAULT_DIRECTORY = "data/registry";
+    private static final long DEFAULT_SYNC_INTERVAL_MS = 1_000;
+    private static final int DEFAULT_COMPACT_AFTER_CHANGES = 10_000;
+
+    public DurabilityConfig {
+        if (directory == null || directory.isBlank()) {
+            directory = DEFAULT_DIRECTORY;
+        }
+        if (syncIntervalMs < 0) {
+            syncIntervalMs = DEFAULT_SYNC_INTERVAL_MS;
+        }
+        if (compactAfterChanges <= 0) {
+            compactAfterChanges = DEFAULT_COMPACT_AFTER_CHANGES;
+        }
+    }
+
+    public static DurabilityConfig defaults() {
+        return new DurabilityConfig(false, DEFAULT_DIRECTORY, DEFAULT_SYNC_INTERVAL_MS, DEFAULT_COMPACT_AFTER_CHANGES);
+    }
+}
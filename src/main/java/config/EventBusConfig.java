@@ -0,0 +1,32 @@
+package config;
+
+import utils.event.BackPressure;
+
+/**
+ * Settings for the bus the pod store publishes its events on.
+ *
+ * @param async        whether subscribers are called on their own threads through a ring buffer, rather
+ *                     than on the publishing thread
+ * @param capacity     events the ring holds before back-pressure applies, rounded up to a power of two
+ * @param backPressure what publishing does while the slowest subscriber lags a full ring behind
+ */
+public record EventBusConfig(
+        boolean async,
+        int capacity,
+        BackPressure backPressure) {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    public EventBusConfig {
+        if (capacity <= 0) {
+            capacity = DEFAULT_CAPACITY;
+        }
+        if (backPressure == null) {
+            backPressure = BackPressure.BLOCK;
+        }
+    }
+
+    public static EventBusConfig defaults() {
+        return new EventBusConfig(true, DEFAULT_CAPACITY, BackPressure.BLOCK);
+    }
+}
@@ -0,0 +1,44 @@
+package config;
+
+/**
+ * Settings for damping pods whose health keeps flapping.
+ * <p>
+ * The number of successful checks needed to bring a suspended pod back is the top-level
+ * {@code successiveSuccessThreshold}.
+ *
+ * @param failureThreshold failed probes in a row before an ALIVE pod is suspended
+ * @param basePenaltyMs    hold-down after the second flap; every further flap doubles it
+ * @param maxPenaltyMs     upper bound of the hold-down
+ * @param flapMemoryMs     a pod that stays ALIVE this long has its flaps forgotten
+ */
+public record FlapDampingConfig(
+        int failureThreshold,
+        long basePenaltyMs,
+        long maxPenaltyMs,
+        long flapMemoryMs) {
+
+    private static final int DEFAULT_FAILURE_THRESHOLD = 2;
+    private static final long DEFAULT_BASE_PENALTY_MS = 10_000;
+    private static final long DEFAULT_MAX_PENALTY_MS = 300_000;
+    private static final long DEFAULT_FLAP_MEMORY_MS = 600_000;
+
+    public FlapDampingConfig {
+        if (failureThreshold <= 0) {
+            failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+        }
+        if (basePenaltyMs < 0) {
+            basePenaltyMs = DEFAULT_BASE_PENALTY_MS;
+        }
+        if (maxPenaltyMs < basePenaltyMs) {
+            maxPenaltyMs = Math.max(basePenaltyMs, DEFAULT_MAX_PENALTY_MS);
+        }
+        if (flapMemoryMs <= 0) {
+            flapMemoryMs = DEFAULT_FLAP_MEMORY_MS;
+        }
+    }
+
+    public static FlapDampingConfig defaults() {
+        return new FlapDampingConfig(DEFAULT_FAILURE_THRESHOLD, DEFAULT_BASE_PENALTY_MS, DEFAULT_MAX_PENALTY_MS,
+                DEFAULT_FLAP_MEMORY_MS);
+    }
+}
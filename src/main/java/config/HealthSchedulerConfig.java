@@ -0,0 +1,61 @@
+package config;
+
+/**
+ * Settings for the timer wheel that schedules health checks and for the global probe budget.
+ *
+ * @param tickMs              resolution of the wheel; checks run at most one tick late
+ * @param wheelSize           buckets per round of the wheel
+ * @param maxConcurrentChecks probes allowed in flight at the same time, further probes wait
+ * @param jitterRatio         each check deadline is moved by up to this fraction of the interval, so checks
+ *                            of pods added together do not stay aligned
+ * @param maxProbesPerSecond  probes started per second across all pods, retries included
+ * @param probeBurst          probes that may start at once after an idle period
+ * @param priorityWeight      waiting probes of initializing and unresponsive pods are started this many
+ *                            times for every waiting probe of a healthy pod
+ */
+public record HealthSchedulerConfig(
+        long tickMs,
+        int wheelSize,
+        int maxConcurrentChecks,
+        double jitterRatio,
+        double maxProbesPerSecond,
+        int probeBurst,
+        int priorityWeight) {
+
+    private static final long DEFAULT_TICK_MS = 10;
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final int DEFAULT_MAX_CONCURRENT_CHECKS = 256;
+    private static final double DEFAULT_JITTER_RATIO = 0.1;
+    private static final double DEFAULT_MAX_PROBES_PER_SECOND = 1000;
+    private static final int DEFAULT_PRIORITY_WEIGHT = 4;
+
+    public HealthSchedulerConfig {
+        if (tickMs <= 0) {
+            tickMs = DEFAULT_TICK_MS;
+        }
+        if (wheelSize <= 0) {
+            wheelSize = DEFAULT_WHEEL_SIZE;
+        }
+        if (maxConcurrentChecks <= 0) {
+            maxConcurrentChecks = DEFAULT_MAX_CONCURRENT_CHECKS;
+        }
+        if (jitterRatio < 0 || jitterRatio > 0.5 || Double.isNaN(jitterRatio)) {
+            jitterRatio = DEFAULT_JITTER_RATIO;
+        }
+        if (!(maxProbesPerSecond > 0)) {
+            maxProbesPerSecond = DEFAULT_MAX_PROBES_PER_SECOND;
+        }
+        if (probeBurst <= 0) {
+            probeBurst = maxConcurrentChecks;
+        }
+        if (priorityWeight <= 0) {
+            priorityWeight = DEFAULT_PRIORITY_WEIGHT;
+        }
+    }
+
+    public static HealthSchedulerConfig defaults() {
+        return new HealthSchedulerConfig(DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE, DEFAULT_MAX_CONCURRENT_CHECKS,
+                DEFAULT_JITTER_RATIO, DEFAULT_MAX_PROBES_PER_SECOND, DEFAULT_MAX_CONCURRENT_CHECKS,
+                DEFAULT_PRIORITY_WEIGHT);
+    }
+}
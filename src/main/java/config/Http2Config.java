@@ -0,0 +1,54 @@
+package config;
+
+/**
+ * Settings for the HTTP/2 cleartext (h2c) front end.
+ *
+ * @param h2cPort              port accepting HTTP/2 with prior knowledge, 0 disables the listener
+ * @param maxConcurrentStreams streams a single client connection may have open at once
+ * @param initialWindowSize    flow-control window advertised for each stream and the connection, in bytes
+ * @param maxFrameSize         largest frame payload the front end accepts, in bytes
+ * @param maxHeaderListSize    largest header list a request may carry, counted as RFC 9113 counts
+ *                             SETTINGS_MAX_HEADER_LIST_SIZE; larger ones end the connection
+ */
+public record Http2Config(
+        int h2cPort,
+        int maxConcurrentStreams,
+        int initialWindowSize,
+        int maxFrameSize,
+        int maxHeaderListSize) {
+
+    private static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+    private static final int DEFAULT_INITIAL_WINDOW_SIZE = 1 << 20;
+    private static final int MIN_FRAME_SIZE = 16384;
+    private static final int MAX_FRAME_SIZE = (1 << 24) - 1;
+    private static final int DEFAULT_MAX_HEADER_LIST_SIZE = 64 * 1024;
+
+    public Http2Config {
+        if (h2cPort < 0) {
+            h2cPort = 0;
+        }
+        if (maxConcurrentStreams <= 0) {
+            maxConcurrentStreams = DEFAULT_MAX_CONCURRENT_STREAMS;
+        }
+        if (initialWindowSize <= 0) {
+            initialWindowSize = DEFAULT_INITIAL_WINDOW_SIZE;
+        }
+        // the protocol only allows frame sizes between 2^14 and 2^24-1
+        maxFrameSize = Math.clamp(maxFrameSize, MIN_FRAME_SIZE, MAX_FRAME_SIZE);
+        if (maxHeaderListSize <= 0) {
+            maxHeaderListSize = DEFAULT_MAX_HEADER_LIST_SIZE;
+        }
+    }
+
+    /**
+     * @return h2c disabled, with protocol defaults for when it gets enabled
+     */
+    public static Http2Config defaults() {
+        return new Http2Config(0, DEFAULT_MAX_CONCURRENT_STREAMS, DEFAULT_INITIAL_WINDOW_SIZE, MIN_FRAME_SIZE,
+                DEFAULT_MAX_HEADER_LIST_SIZE);
+    }
+
+    public boolean enabled() {
+        return h2cPort > 0;
+    }
+}
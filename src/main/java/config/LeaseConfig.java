@@ -0,0 +1,43 @@
+package config;
+
+/**
+ * Settings for lease-based registration, where pods register with a time to live and keep renewing it
+ * through heartbeats instead of being probed.
+ *
+ * @param enabled    whether registrations carrying a TTL get a lease; without it every pod is probed
+ * @param minTtlMs   shortest TTL granted, shorter requests are raised to it
+ * @param maxTtlMs   longest TTL granted, longer requests are lowered to it
+ * @param tickMs     resolution of lease expiry
+ * @param wheelSize  buckets of the timer wheel tracking expiries
+ */
+public record LeaseConfig(
+        boolean enabled,
+        long minTtlMs,
+        long maxTtlMs,
+        long tickMs,
+        int wheelSize) {
+
+    private static final long DEFAULT_MIN_TTL_MS = 1_000;
+    private static final long DEFAULT_MAX_TTL_MS = 300_000;
+    private static final long DEFAULT_TICK_MS = 100;
+    private static final int DEFAULT_WHEEL_SIZE = 1024;
+
+    public LeaseConfig {
+        if (minTtlMs <= 0) {
+            minTtlMs = DEFAULT_MIN_TTL_MS;
+        }
+        if (maxTtlMs < minTtlMs) {
+            maxTtlMs = Math.max(minTtlMs, DEFAULT_MAX_TTL_MS);
+        }
+        if (tickMs <= 0) {
+            tickMs = DEFAULT_TICK_MS;
+        }
+        if (wheelSize <= 0) {
+            wheelSize = DEFAULT_WHEEL_SIZE;
+        }
+    }
+
+    public static LeaseConfig defaults() {
+        return new LeaseConfig(false, DEFAULT_MIN_TTL_MS, DEFAULT_MAX_TTL_MS, DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
+    }
+}
@@ -0,0 +1,110 @@
+package config;
+
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The config the balancer currently runs with, replaced as a whole when the config file is reloaded.
+ * <p>
+ * Configs are immutable, so readers take the current one with a single volatile read and never see half
+ * an update. A new config is validated first and rejected as a whole if any value is invalid; once it is
+ * published, listeners apply it to the components holding copies of its values. Settings that are only
+ * read at startup, such as the port or the sections of optional services, keep their value until the next
+ * restart, and changing them logs a warning.
+ */
+public class LiveConfig {
+    private static final Logger logger = LoggerFactory.getLogger(LiveConfig.class);
+    /**
+     * Components applied to a running balancer on their next use.
+     */
+    static final Set<String> RELOADABLE = Set.of("duration", "timeout", "maxTries", "initialDelayMs",
+            "maxDelayMs", "healthCheckPath", "strategy", "adaptiveHealth");
+
+    private final AtomicReference<LoadBalancerConfig> current;
+    private final List<Consumer<LoadBalancerConfig>> listeners = new CopyOnWriteArrayList<>();
+
+    public LiveConfig(LoadBalancerConfig initial) {
+        this.current = new AtomicReference<>(initial);
+    }
+
+    public LoadBalancerConfig get() {
+        return current.get();
+    }
+
+    /**
+     * @param listener called with every config published after this one, on the thread publishing it
+     */
+    public void addChangeListener(Consumer<LoadBalancerConfig> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Validate and publish a new config.
+     *
+     * @return whether the config differs from the current one
+     * @throws IllegalArgumentException when a value is invalid; the current config is kept
+     */
+    public boolean update(LoadBalancerConfig next) {
+        validate(next);
+        var previous = current.getAndSet(next);
+        if (previous.equals(next)) {
+            return false;
+        }
+        var restartOnly = new ArrayList<String>();
+        var reloaded = new ArrayList<String>();
+        for (var component : LoadBalancerConfig.class.getRecordComponents()) {
+            if (!Objects.equals(value(component, previous), value(component, next))) {
+                (RELOADABLE.contains(component.getName()) ? reloaded : restartOnly).add(component.getName());
+            }
+        }
+        if (!restartOnly.isEmpty()) {
+            logger.warn("Config changes of {} take effect after a restart", restartOnly);
+        }
+        logger.info("Reloaded config, applying changes of {}", reloaded);
+        listeners.forEach(listener -> listener.accept(next));
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException naming the first invalid value
+     */
+    public static void validate(LoadBalancerConfig config) {
+        if (config.duration() <= 0) {
+            throw new IllegalArgumentException("duration must be positive: " + config.duration());
+        }
+        if (config.timeout() == null || config.timeout().isNegative() || config.timeout().isZero()) {
+            throw new IllegalArgumentException("timeout must be positive: " + config.timeout());
+        }
+        if (config.maxTries() < 1) {
+            throw new IllegalArgumentException("maxTries must be at least 1: " + config.maxTries());
+        }
+        if (config.initialDelayMs() <= 0 || config.initialDelayMs() > config.maxDelayMs()) {
+            throw new IllegalArgumentException("initialDelayMs must be positive and at most maxDelayMs: %d, %d"
+                    .formatted(config.initialDelayMs(), config.maxDelayMs()));
+        }
+        if (config.healthCheckPath() == null) {
+            throw new IllegalArgumentException("healthCheckPath is missing");
+        }
+        if (config.port() < 0 || config.port() > 0xFFFF) {
+            throw new IllegalArgumentException("port out of range: " + config.port());
+        }
+    }
+
+    private static Object value(RecordComponent component, LoadBalancerConfig config) {
+        try {
+            return component.getAccessor().invoke(config);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
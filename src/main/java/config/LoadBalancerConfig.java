@@ -1,15 +1,22 @@
 package config;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
+import server.LoadBalancingStrategy;
 import utils.filesystem.LobalancerFilesystem;
 import utils.network.NetworkMethod;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.time.format.DateTimeParseException;
 
 public record LoadBalancerConfig(
         int duration,
@@ -21,8 +28,28 @@ public record LoadBalancerConfig(
         long maxDelayMs,
         NetworkMethod networkMethod,
         int port,
-        Path healthCheckPath) {
-    
+        Path healthCheckPath,
+        CompressionConfig compression,
+        Http2Config http2,
+        UpstreamConfig upstream,
+        TunnelConfig tunnel,
+        LoadBalancingStrategy strategy,
+        PrewarmConfig prewarm,
+        DnsConfig dns,
+        HealthSchedulerConfig healthScheduler,
+        TcpProbeConfig tcpProbe,
+        AdaptiveHealthConfig adaptiveHealth,
+        FlapDampingConfig flapDamping,
+        PodWeightingConfig weighting,
+        LeaseConfig lease,
+        EventBusConfig eventBus,
+        DurabilityConfig durability,
+        WatchConfig watch,
+        DiscoveryConfig discovery,
+        DrainConfig drain,
+        ConfigReloadConfig reload,
+        ReplicationConfig replication) {
+
     // Default values
     private static final int DEFAULT_DURATION = 30;
     private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
@@ -34,21 +61,136 @@ public record LoadBalancerConfig(
     private static final Path DEFAULT_HEALTH_CHECK_PATH = Path.of("/health");
     private static final org.slf4j.Logger logger = logging.LoggerFactory.getLogger(LoadBalancerConfig.class);
     private static final int DEFAULT_PORT = 8080;
+    private static final LoadBalancingStrategy DEFAULT_STRATEGY = LoadBalancingStrategy.ROUND_ROBIN;
+    // durations are milliseconds or ISO-8601 strings such as "PT2S"; Gson cannot reflect into java.time
+    private static final Gson PARSER = new GsonBuilder()
+            .registerTypeAdapter(Duration.class, (JsonDeserializer<Duration>) (json, _, _) ->
+                    json.getAsJsonPrimitive().isNumber()
+                            ? Duration.ofMillis(json.getAsLong())
+                            : Duration.parse(json.getAsString()))
+            .registerTypeAdapter(Path.class, (JsonDeserializer<Path>) (json, _, _) -> Path.of(json.getAsString()))
+            .create();
+
+    public LoadBalancerConfig {
+        // sections missing from the config file fall back to their defaults
+        if (compression == null) {
+            compression = CompressionConfig.defaults();
+        }
+        if (http2 == null) {
+            http2 = Http2Config.defaults();
+        }
+        if (upstream == null) {
+            upstream = UpstreamConfig.defaults();
+        }
+        if (tunnel == null) {
+            tunnel = TunnelConfig.defaults();
+        }
+        if (strategy == null) {
+            strategy = DEFAULT_STRATEGY;
+        }
+        if (prewarm == null) {
+            prewarm = PrewarmConfig.defaults();
+        }
+        if (dns == null) {
+            dns = DnsConfig.defaults();
+        }
+        if (healthScheduler == null) {
+            healthScheduler = HealthSchedulerConfig.defaults();
+        }
+        if (networkMethod == null) {
+            networkMethod = DEFAULT_NETWORK_METHOD;
+        }
+        if (tcpProbe == null) {
+            tcpProbe = TcpProbeConfig.defaults();
+        }
+        if (adaptiveHealth == null) {
+            adaptiveHealth = AdaptiveHealthConfig.defaults();
+        }
+        if (flapDamping == null) {
+            flapDamping = FlapDampingConfig.defaults();
+        }
+        if (weighting == null) {
+            weighting = PodWeightingConfig.defaults();
+        }
+        if (lease == null) {
+            lease = LeaseConfig.defaults();
+        }
+        if (eventBus == null) {
+            eventBus = EventBusConfig.defaults();
+        }
+        if (durability == null) {
+            durability = DurabilityConfig.defaults();
+        }
+        if (watch == null) {
+            watch = WatchConfig.defaults();
+        }
+        if (discovery == null) {
+            discovery = DiscoveryConfig.defaults();
+        }
+        if (drain == null) {
+            drain = DrainConfig.defaults();
+        }
+        if (reload == null) {
+            reload = ConfigReloadConfig.defaults();
+        }
+        if (replication == null) {
+            replication = ReplicationConfig.defaults();
+        }
+    }
+
+    /**
+     * @return the config used when no config file is given
+     */
+    public static LoadBalancerConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * @return a builder starting from the defaults; sections left unset fall back to their own defaults
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return a builder starting from this config
+     */
+    public Builder toBuilder() {
+        var builder = new Builder();
+        builder.duration = duration;
+        builder.timeout = timeout;
+        builder.maxTries = maxTries;
+        builder.successiveSuccessThreshold = successiveSuccessThreshold;
+        builder.initialDelayMs = initialDelayMs;
+        builder.maxDelayMs = maxDelayMs;
+        builder.networkMethod = networkMethod;
+        builder.port = port;
+        builder.healthCheckPath = healthCheckPath;
+        builder.compression = compression;
+        builder.http2 = http2;
+        builder.upstream = upstream;
+        builder.tunnel = tunnel;
+        builder.strategy = strategy;
+        builder.prewarm = prewarm;
+        builder.dns = dns;
+        builder.healthScheduler = healthScheduler;
+        builder.tcpProbe = tcpProbe;
+        builder.adaptiveHealth = adaptiveHealth;
+        builder.flapDamping = flapDamping;
+        builder.weighting = weighting;
+        builder.lease = lease;
+        builder.eventBus = eventBus;
+        builder.durability = durability;
+        builder.watch = watch;
+        builder.discovery = discovery;
+        builder.drain = drain;
+        builder.reload = reload;
+        builder.replication = replication;
+        return builder;
+    }
 
-    
     public static LoadBalancerConfig fromConfigFile(Path configFilePath) {
-        // Create default config
-        LoadBalancerConfig defaultConfig = new LoadBalancerConfig(
-                DEFAULT_DURATION,
-                DEFAULT_TIMEOUT,
-                DEFAULT_MAX_TRIES,
-                DEFAULT_SUCCESSIVE_SUCCESS_THRESHOLD,
-                DEFAULT_INITIAL_DELAY_MS,
-                DEFAULT_MAX_DELAY_MS,
-                DEFAULT_NETWORK_METHOD,
-                DEFAULT_PORT,
-                DEFAULT_HEALTH_CHECK_PATH
-        );
+        LoadBalancerConfig defaultConfig = defaults();
         if (configFilePath == null) {
             return defaultConfig;
         }
@@ -61,8 +203,7 @@ public record LoadBalancerConfig(
 
         try {
             // Parse JSON file using Gson
-            Gson gson = new Gson();
-            LoadBalancerConfig parsedConfig = gson.fromJson(new FileReader(configFilePath.toFile()), 
+            LoadBalancerConfig parsedConfig = PARSER.fromJson(new FileReader(configFilePath.toFile()), 
             LoadBalancerConfig.class);
             // If parsing succeeds, return the parsed config
             return parsedConfig;
@@ -78,4 +219,213 @@ public record LoadBalancerConfig(
             return defaultConfig;
         }
     }
+
+    /**
+     * Read a config file as it is reloaded: unlike {@link #fromConfigFile(Path)}, no error falls back to the
+     * defaults, so a broken file never replaces a working config.
+     *
+     * @throws IOException              when the file cannot be read
+     * @throws IllegalArgumentException when the file is empty or not a valid config
+     */
+    public static LoadBalancerConfig readConfigFile(Path configFilePath) throws IOException {
+        try (var reader = Files.newBufferedReader(configFilePath)) {
+            var parsedConfig = PARSER.fromJson(reader, LoadBalancerConfig.class);
+            if (parsedConfig == null) {
+                throw new IllegalArgumentException("Empty config file: " + configFilePath);
+            }
+            return parsedConfig;
+        } catch (JsonParseException | IllegalStateException | DateTimeParseException | InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid config file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Builds a config from the defaults, overriding only the settings given.
+     */
+    public static final class Builder {
+        private int duration = DEFAULT_DURATION;
+        private Duration timeout = DEFAULT_TIMEOUT;
+        private int maxTries = DEFAULT_MAX_TRIES;
+        private int successiveSuccessThreshold = DEFAULT_SUCCESSIVE_SUCCESS_THRESHOLD;
+        private long initialDelayMs = DEFAULT_INITIAL_DELAY_MS;
+        private long maxDelayMs = DEFAULT_MAX_DELAY_MS;
+        private NetworkMethod networkMethod = DEFAULT_NETWORK_METHOD;
+        private int port = DEFAULT_PORT;
+        private Path healthCheckPath = DEFAULT_HEALTH_CHECK_PATH;
+        private CompressionConfig compression;
+        private Http2Config http2;
+        private UpstreamConfig upstream;
+        private TunnelConfig tunnel;
+        private LoadBalancingStrategy strategy;
+        private PrewarmConfig prewarm;
+        private DnsConfig dns;
+        private HealthSchedulerConfig healthScheduler;
+        private TcpProbeConfig tcpProbe;
+        private AdaptiveHealthConfig adaptiveHealth;
+        private FlapDampingConfig flapDamping;
+        private PodWeightingConfig weighting;
+        private LeaseConfig lease;
+        private EventBusConfig eventBus;
+        private DurabilityConfig durability;
+        private WatchConfig watch;
+        private DiscoveryConfig discovery;
+        private DrainConfig drain;
+        private ConfigReloadConfig reload;
+        private ReplicationConfig replication;
+
+        private Builder() {
+        }
+
+        public Builder duration(int duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder maxTries(int maxTries) {
+            this.maxTries = maxTries;
+            return this;
+        }
+
+        public Builder successiveSuccessThreshold(int successiveSuccessThreshold) {
+            this.successiveSuccessThreshold = successiveSuccessThreshold;
+            return this;
+        }
+
+        public Builder initialDelayMs(long initialDelayMs) {
+            this.initialDelayMs = initialDelayMs;
+            return this;
+        }
+
+        public Builder maxDelayMs(long maxDelayMs) {
+            this.maxDelayMs = maxDelayMs;
+            return this;
+        }
+
+        public Builder networkMethod(NetworkMethod networkMethod) {
+            this.networkMethod = networkMethod;
+            return this;
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder healthCheckPath(Path healthCheckPath) {
+            this.healthCheckPath = healthCheckPath;
+            return this;
+        }
+
+        public Builder compression(CompressionConfig compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        public Builder http2(Http2Config http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        public Builder upstream(UpstreamConfig upstream) {
+            this.upstream = upstream;
+            return this;
+        }
+
+        public Builder tunnel(TunnelConfig tunnel) {
+            this.tunnel = tunnel;
+            return this;
+        }
+
+        public Builder strategy(LoadBalancingStrategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        public Builder prewarm(PrewarmConfig prewarm) {
+            this.prewarm = prewarm;
+            return this;
+        }
+
+        public Builder dns(DnsConfig dns) {
+            this.dns = dns;
+            return this;
+        }
+
+        public Builder healthScheduler(HealthSchedulerConfig healthScheduler) {
+            this.healthScheduler = healthScheduler;
+            return this;
+        }
+
+        public Builder tcpProbe(TcpProbeConfig tcpProbe) {
+            this.tcpProbe = tcpProbe;
+            return this;
+        }
+
+        public Builder adaptiveHealth(AdaptiveHealthConfig adaptiveHealth) {
+            this.adaptiveHealth = adaptiveHealth;
+            return this;
+        }
+
+        public Builder flapDamping(FlapDampingConfig flapDamping) {
+            this.flapDamping = flapDamping;
+            return this;
+        }
+
+        public Builder weighting(PodWeightingConfig weighting) {
+            this.weighting = weighting;
+            return this;
+        }
+
+        public Builder lease(LeaseConfig lease) {
+            this.lease = lease;
+            return this;
+        }
+
+        public Builder eventBus(EventBusConfig eventBus) {
+            this.eventBus = eventBus;
+            return this;
+        }
+
+        public Builder durability(DurabilityConfig durability) {
+            this.durability = durability;
+            return this;
+        }
+
+        public Builder watch(WatchConfig watch) {
+            this.watch = watch;
+            return this;
+        }
+
+        public Builder discovery(DiscoveryConfig discovery) {
+            this.discovery = discovery;
+            return this;
+        }
+
+        public Builder drain(DrainConfig drain) {
+            this.drain = drain;
+            return this;
+        }
+
+        public Builder reload(ConfigReloadConfig reload) {
+            this.reload = reload;
+            return this;
+        }
+
+        public Builder replication(ReplicationConfig replication) {
+            this.replication = replication;
+            return this;
+        }
+
+        public LoadBalancerConfig build() {
+            return new LoadBalancerConfig(duration, timeout, maxTries, successiveSuccessThreshold, initialDelayMs,
+                    maxDelayMs, networkMethod, port, healthCheckPath, compression, http2, upstream, tunnel, strategy,
+                    prewarm, dns, healthScheduler, tcpProbe, adaptiveHealth, flapDamping, weighting, lease, eventBus,
+                    durability, watch, discovery, drain, reload, replication);
+        }
+    }
 }
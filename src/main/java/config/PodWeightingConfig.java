@@ -0,0 +1,42 @@
+package config;
+
+/**
+ * Settings for weighting pods by their health signals.
+ *
+ * @param latencyEwmaAlpha weight of the newest probe latency in each pod's smoothed latency, between 0 and 1
+ * @param minWeight        lowest weight a slow pod can get relative to the fastest one, so it keeps
+ *                         receiving a trickle of traffic and can win its share back
+ * @param loadHeader       response header backends report their load in, see {@code health.load.LoadScore}
+ * @param loadReportMaxAgeMs how long a reported load is used before the pod is weighed without it
+ */
+public record PodWeightingConfig(
+        double latencyEwmaAlpha,
+        double minWeight,
+        String loadHeader,
+        long loadReportMaxAgeMs) {
+
+    private static final double DEFAULT_LATENCY_EWMA_ALPHA = 0.3;
+    private static final double DEFAULT_MIN_WEIGHT = 0.05;
+    private static final String DEFAULT_LOAD_HEADER = "X-Backend-Load";
+    private static final long DEFAULT_LOAD_REPORT_MAX_AGE_MS = 30_000;
+
+    public PodWeightingConfig {
+        if (!(latencyEwmaAlpha > 0 && latencyEwmaAlpha <= 1)) {
+            latencyEwmaAlpha = DEFAULT_LATENCY_EWMA_ALPHA;
+        }
+        if (!(minWeight > 0 && minWeight <= 1)) {
+            minWeight = DEFAULT_MIN_WEIGHT;
+        }
+        if (loadHeader == null || loadHeader.isBlank()) {
+            loadHeader = DEFAULT_LOAD_HEADER;
+        }
+        if (loadReportMaxAgeMs <= 0) {
+            loadReportMaxAgeMs = DEFAULT_LOAD_REPORT_MAX_AGE_MS;
+        }
+    }
+
+    public static PodWeightingConfig defaults() {
+        return new PodWeightingConfig(DEFAULT_LATENCY_EWMA_ALPHA, DEFAULT_MIN_WEIGHT, DEFAULT_LOAD_HEADER,
+                DEFAULT_LOAD_REPORT_MAX_AGE_MS);
+    }
+}
@@ -0,0 +1,37 @@
+package config;
+
+/**
+ * Settings for opening connections to a pod before it receives traffic.
+ *
+ * @param connections        keep-alive connections opened when a pod becomes ready, 0 disables pre-warming
+ * @param minIdleConnections idle connections kept open towards every ready pod, at most {@code connections}
+ * @param refreshIntervalMs  how often idle pools are topped up; keep it below the HTTP client's keep-alive
+ *                           timeout ({@code jdk.httpclient.keepalive.timeout}, 30 seconds by default)
+ */
+public record PrewarmConfig(
+        int connections,
+        int minIdleConnections,
+        long refreshIntervalMs) {
+
+    private static final int DEFAULT_CONNECTIONS = 4;
+    private static final int DEFAULT_MIN_IDLE_CONNECTIONS = 2;
+    private static final long DEFAULT_REFRESH_INTERVAL_MS = 15_000;
+
+    public PrewarmConfig {
+        if (connections < 0) {
+            connections = 0;
+        }
+        minIdleConnections = Math.clamp(minIdleConnections, 0, connections);
+        if (refreshIntervalMs <= 0) {
+            refreshIntervalMs = DEFAULT_REFRESH_INTERVAL_MS;
+        }
+    }
+
+    public static PrewarmConfig defaults() {
+        return new PrewarmConfig(DEFAULT_CONNECTIONS, DEFAULT_MIN_IDLE_CONNECTIONS, DEFAULT_REFRESH_INTERVAL_MS);
+    }
+
+    public boolean enabled() {
+        return connections > 0;
+    }
+}
@@ -0,0 +1,41 @@
+package config;
+
+import java.util.List;
+
+/**
+ * Settings for sharing the pod registry and health verdicts between balancer replicas.
+ *
+ * @param enabled          whether the registry is replicated and health checking split between replicas
+ * @param self             this replica's address as its peers list it, e.g. {@code http://10.0.0.1:8080};
+ *                         required with peers, {@code http://localhost:<port>} when empty for a replica alone
+ * @param peers            addresses of the other replicas
+ * @param gossipIntervalMs how often each peer is asked for the changes it knows of
+ * @param peerTimeoutMs    how long a peer may go unheard before its pods are health checked by the others
+ */
+public record ReplicationConfig(
+        boolean enabled,
+        String self,
+        List<String> peers,
+        long gossipIntervalMs,
+        long peerTimeoutMs) {
+
+    private static final long DEFAULT_GOSSIP_INTERVAL_MS = 1_000;
+    private static final long DEFAULT_PEER_TIMEOUT_MS = 5_000;
+
+    public ReplicationConfig {
+        if (self == null) {
+            self = "";
+        }
+        peers = peers == null ? List.of() : List.copyOf(peers);
+        if (gossipIntervalMs <= 0) {
+            gossipIntervalMs = DEFAULT_GOSSIP_INTERVAL_MS;
+        }
+        if (peerTimeoutMs <= 0) {
+            peerTimeoutMs = DEFAULT_PEER_TIMEOUT_MS;
+        }
+    }
+
+    public static ReplicationConfig defaults() {
+        return new ReplicationConfig(false, "", List.of(), DEFAULT_GOSSIP_INTERVAL_MS, DEFAULT_PEER_TIMEOUT_MS);
+    }
+}
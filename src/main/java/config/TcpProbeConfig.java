@@ -0,0 +1,33 @@
+package config;
+
+/**
+ * Settings for the TCP-connect health probe.
+ *
+ * @param send             bytes written once the connection is established, empty to only connect
+ * @param expect           the pod is healthy only if its reply contains these bytes, empty to accept any reply
+ *                         (or none at all)
+ * @param maxResponseBytes how much of the reply is searched for {@code expect} before giving up
+ */
+public record TcpProbeConfig(
+        String send,
+        String expect,
+        int maxResponseBytes) {
+
+    private static final int DEFAULT_MAX_RESPONSE_BYTES = 512;
+
+    public TcpProbeConfig {
+        if (send == null) {
+            send = "";
+        }
+        if (expect == null) {
+            expect = "";
+        }
+        if (maxResponseBytes < expect.length() || maxResponseBytes <= 0) {
+            maxResponseBytes = Math.max(DEFAULT_MAX_RESPONSE_BYTES, expect.length());
+        }
+    }
+
+    public static TcpProbeConfig defaults() {
+        return new TcpProbeConfig("", "", DEFAULT_MAX_RESPONSE_BYTES);
+    }
+}
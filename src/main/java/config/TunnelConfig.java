@@ -0,0 +1,37 @@
+package config;
+
+/**
+ * Settings for tunneling HTTP Upgrade requests (WebSocket and similar protocols) to backend pods.
+ *
+ * @param port           port accepting upgrade requests, 0 disables tunneling
+ * @param idleTimeoutMs  a tunnel with no traffic in either direction for this long is closed
+ * @param maxHeaderBytes largest request or response head accepted during the handshake
+ */
+public record TunnelConfig(
+        int port,
+        long idleTimeoutMs,
+        int maxHeaderBytes) {
+
+    private static final long DEFAULT_IDLE_TIMEOUT_MS = 300_000;
+    private static final int DEFAULT_MAX_HEADER_BYTES = 16 * 1024;
+
+    public TunnelConfig {
+        if (port < 0) {
+            port = 0;
+        }
+        if (idleTimeoutMs <= 0) {
+            idleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+        }
+        if (maxHeaderBytes <= 0) {
+            maxHeaderBytes = DEFAULT_MAX_HEADER_BYTES;
+        }
+    }
+
+    public static TunnelConfig defaults() {
+        return new TunnelConfig(0, DEFAULT_IDLE_TIMEOUT_MS, DEFAULT_MAX_HEADER_BYTES);
+    }
+
+    public boolean enabled() {
+        return port > 0;
+    }
+}
@@ -0,0 +1,45 @@
+package config;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings for the connection pools the load balancer keeps towards backend pods.
+ *
+ * @param version        protocol used for pods without an override; HTTP/2 multiplexes all requests to a
+ *                       pod over a single connection while HTTP/1.1 opens one connection per in-flight request
+ * @param podVersions    per-pod protocol overrides keyed by the pod's authority, e.g. {@code "10.0.0.7:9000"}
+ * @param connectTimeout timeout for establishing a new upstream connection
+ */
+public record UpstreamConfig(
+        HttpClient.Version version,
+        Map<String, HttpClient.Version> podVersions,
+        Duration connectTimeout) {
+
+    private static final HttpClient.Version DEFAULT_VERSION = HttpClient.Version.HTTP_1_1;
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(3);
+
+    public UpstreamConfig {
+        if (version == null) {
+            version = DEFAULT_VERSION;
+        }
+        podVersions = podVersions == null ? Map.of() : Map.copyOf(podVersions);
+        if (connectTimeout == null) {
+            connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        }
+    }
+
+    public static UpstreamConfig defaults() {
+        return new UpstreamConfig(DEFAULT_VERSION, Map.of(), DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    /**
+     * @param podUri URI the pod registered with
+     * @return the protocol to speak to that pod
+     */
+    public HttpClient.Version versionFor(URI podUri) {
+        return podVersions.getOrDefault(podUri.getAuthority(), version);
+    }
+}
@@ -0,0 +1,38 @@
+package config;
+
+/**
+ * Settings for the {@code /lbwatch} stream of pod registry changes.
+ *
+ * @param enabled       whether clients can watch the registry
+ * @param queueCapacity changes queued for a watcher that reads slower than the registry changes; a watcher
+ *                      falling further behind skips them and is sent their net effect once it catches up
+ * @param keepaliveMs   how long a watch stays silent before a keepalive comment is sent, which also notices
+ *                      clients that went away
+ * @param maxWatchers   watches open at once; further ones are refused with 503
+ */
+public record WatchConfig(
+        boolean enabled,
+        int queueCapacity,
+        long keepaliveMs,
+        int maxWatchers) {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final long DEFAULT_KEEPALIVE_MS = 15_000;
+    private static final int DEFAULT_MAX_WATCHERS = 1_000;
+
+    public WatchConfig {
+        if (queueCapacity <= 0) {
+            queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        }
+        if (keepaliveMs <= 0) {
+            keepaliveMs = DEFAULT_KEEPALIVE_MS;
+        }
+        if (maxWatchers <= 0) {
+            maxWatchers = DEFAULT_MAX_WATCHERS;
+        }
+    }
+
+    public static WatchConfig defaults() {
+        return new WatchConfig(true, DEFAULT_QUEUE_CAPACITY, DEFAULT_KEEPALIVE_MS, DEFAULT_MAX_WATCHERS);
+    }
+}
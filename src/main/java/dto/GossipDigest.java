@@ -0,0 +1,21 @@
+package dto;
+
+import repository.replication.ReplicatedPod;
+
+import java.util.List;
+
+/**
+ * A replica's answer to a peer asking for {@code /lbgossip} changes.
+ *
+ * @param node        the answering replica
+ * @param incarnation identifies the replica's run; positions of one run mean nothing to the next
+ * @param position    position of the replica's change log the peer asks from next time
+ * @param pods        states of the pods that changed since the position the peer asked from, every pod
+ *                    when it asked with another incarnation
+ */
+public record GossipDigest(
+        String node,
+        long incarnation,
+        long position,
+        List<ReplicatedPod> pods) {
+}
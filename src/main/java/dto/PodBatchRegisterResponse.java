@@ -0,0 +1,11 @@
+package dto;
+
+import java.util.Map;
+
+/**
+ * @param registered pods added or leased by the batch
+ * @param leaseTtlMs granted time to live of each leased pod, by URI; pods renew at this TTL, which may
+ *                   differ from the requested one
+ */
+public record PodBatchRegisterResponse(int registered, Map<String, Long> leaseTtlMs) {
+}
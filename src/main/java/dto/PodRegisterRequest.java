@@ -1,4 +1,8 @@
 package dto;
 
-public record PodRegisterRequest(String uri) {
+/**
+ * @param uri   where the pod serves requests
+ * @param ttlMs lease time to live, {@code null} for a pod that is probed instead of renewing a lease
+ */
+public record PodRegisterRequest(String uri, Long ttlMs) {
 }
@@ -0,0 +1,26 @@
+package dto;
+
+import pods.BackendPod;
+import repository.BackendPodEvent;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Data of one event of the {@code /lbwatch} stream.
+ *
+ * @param fromGeneration generation the changes apply on top of; absent in a snapshot, which replaces
+ *                       whatever the client held
+ * @param generation     generation of the registry once the changes are applied
+ * @param event          event the change was published as; absent when several changes are sent as their
+ *                       net effect
+ * @param upserted       pods added or changed, every pod in a snapshot
+ * @param removed        pods no longer in the registry
+ */
+public record PodWatchEvent(
+        Long fromGeneration,
+        long generation,
+        BackendPodEvent event,
+        List<BackendPod> upserted,
+        List<URI> removed) {
+}
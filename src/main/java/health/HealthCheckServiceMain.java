@@ -1,7 +1,16 @@
 package health;
 
+import config.HealthSchedulerConfig;
 import config.LoadBalancerConfig;
+import health.damping.FlapDamper;
+import health.latency.ProbeLatencyTracker;
+import health.passive.PassiveHealthSignals;
 import health.ping.backoff.BackoffServiceStandard;
+import health.scheduler.AdaptiveIntervalPolicy;
+import health.scheduler.HashedTimerWheel;
+import health.scheduler.ProbeBudget;
+import health.scheduler.TimerDrive;
+import health.ping.AsyncProbeable;
 import health.ping.Probeable;
 import health.types.BackendPodStatus;
 import health.types.HealthCheckResponse;
@@ -14,41 +23,130 @@ import repository.BackendPodEventContext;
 import repository.BackendPodInMemoryStore;
 import utils.EventSubscriber;
 import utils.SuccessStatus;
+import utils.error.NetworkUnavailableException;
 import utils.time.TimeProvider;
 
+import java.net.URI;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.function.Supplier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
 public class HealthCheckServiceMain implements HealthCheckService<BackendPod>, EventSubscriber<BackendPodEvent, BackendPodEventContext> {
     private static final Logger logger = LoggerFactory.getLogger(HealthCheckServiceMain.class);
     
     private final ExecutorService executorService;
-    private final LoadBalancerConfig healthCheckConfig;
+    private volatile LoadBalancerConfig healthCheckConfig;
+    private final HealthSchedulerConfig schedulerConfig;
     private final BackendPodInMemoryStore podStore;
     private volatile HealthCheckServiceStatus status = HealthCheckServiceStatus.RUNNING;
-    private final TimeProvider timeProvider;
     private final Probeable<BackendPod> probeService;
-    private final Map<BackendPod, Thread> podThreads = new ConcurrentHashMap<>();
+    private final AsyncProbeable<BackendPod> asyncProbeService;
+    private final HashedTimerWheel timerWheel;
+    private final ProbeBudget probeBudget;
+    private final Map<URI, PodSchedule> schedules = new ConcurrentHashMap<>();
+    private final PassiveHealthSignals passiveSignals;
+    private volatile AdaptiveIntervalPolicy intervalPolicy;
+    private final LongAdder suppressedChecks = new LongAdder();
+    private final FlapDamper flapDamper;
+    private final ProbeLatencyTracker latencyTracker;
+    private volatile Predicate<URI> ownership = _ -> true;
 
     public HealthCheckServiceMain(ExecutorService executorService,
                                   LoadBalancerConfig healthCheckConfig,
                                   BackendPodInMemoryStore podStore,
                                   TimeProvider timeProvider,
                                   Probeable<BackendPod> probeService
+    ) {
+        this(executorService, healthCheckConfig, podStore, timeProvider, probeService,
+                new PassiveHealthSignals(timeProvider));
+    }
+
+    public HealthCheckServiceMain(ExecutorService executorService,
+                                  LoadBalancerConfig healthCheckConfig,
+                                  BackendPodInMemoryStore podStore,
+                                  TimeProvider timeProvider,
+                                  Probeable<BackendPod> probeService,
+                                  PassiveHealthSignals passiveSignals
+    ) {
+        this(executorService, healthCheckConfig, podStore, timeProvider, probeService, passiveSignals,
+                new ProbeLatencyTracker(healthCheckConfig.weighting().latencyEwmaAlpha()));
+    }
+
+    /**
+     * @param passiveSignals outcomes of live traffic; fresh successes replace active checks and failures
+     *                       bring the next check forward
+     * @param latencyTracker receives the round trip time of every successful probe
+     */
+    public HealthCheckServiceMain(ExecutorService executorService,
+                                  LoadBalancerConfig healthCheckConfig,
+                                  BackendPodInMemoryStore podStore,
+                                  TimeProvider timeProvider,
+                                  Probeable<BackendPod> probeService,
+                                  PassiveHealthSignals passiveSignals,
+                                  ProbeLatencyTracker latencyTracker
+    ) {
+        this(executorService, healthCheckConfig, podStore, timeProvider, probeService, passiveSignals, latencyTracker,
+                TimerDrive.ticker());
+    }
+
+    /**
+     * @param timerDrive how the check scheduler moves forward, see {@link HashedTimerWheel}
+     */
+    public HealthCheckServiceMain(ExecutorService executorService,
+                                  LoadBalancerConfig healthCheckConfig,
+                                  BackendPodInMemoryStore podStore,
+                                  TimeProvider timeProvider,
+                                  Probeable<BackendPod> probeService,
+                                  PassiveHealthSignals passiveSignals,
+                                  ProbeLatencyTracker latencyTracker,
+                                  TimerDrive timerDrive
     ) {
         this.executorService = executorService;
         this.healthCheckConfig = healthCheckConfig;
         this.podStore = podStore;
-        this.timeProvider = timeProvider;
         this.probeService = probeService;
+        this.asyncProbeService = AsyncProbeable.fromBlocking(probeService, executorService);
+        this.schedulerConfig = healthCheckConfig.healthScheduler();
+        this.timerWheel = new HashedTimerWheel(schedulerConfig.tickMs(), schedulerConfig.wheelSize(),
+                timeProvider, executorService, timerDrive);
+        this.probeBudget = new ProbeBudget(schedulerConfig.maxConcurrentChecks(), schedulerConfig.maxProbesPerSecond(),
+                schedulerConfig.probeBurst(), schedulerConfig.priorityWeight(), timeProvider, this.timerWheel);
+        this.intervalPolicy = new AdaptiveIntervalPolicy(healthCheckConfig.adaptiveHealth(),
+                healthCheckConfig.duration(), schedulerConfig.tickMs());
+        this.passiveSignals = passiveSignals;
+        this.passiveSignals.addFailureListener(this::expediteCheck);
+        this.flapDamper = new FlapDamper(healthCheckConfig.flapDamping(),
+                healthCheckConfig.successiveSuccessThreshold(), timeProvider);
+        this.latencyTracker = latencyTracker;
         this.setupStore();
     }
 
+    /**
+     * Apply a reloaded config. Check intervals take effect when each pod's next check is scheduled, retry
+     * delays and limits with the next health check; the scheduler and flap damping keep their startup
+     * settings.
+     */
+    public void applyConfig(LoadBalancerConfig config) {
+        var previous = this.healthCheckConfig;
+        if (config.duration() != previous.duration() || !config.adaptiveHealth().equals(previous.adaptiveHealth())) {
+            this.intervalPolicy = new AdaptiveIntervalPolicy(config.adaptiveHealth(), config.duration(),
+                    this.schedulerConfig.tickMs());
+        }
+        this.healthCheckConfig = config;
+    }
+
     private void setupStore() {
         this.podStore.subscribe(BackendPodEvent.ADD_POD, this);
+        this.podStore.subscribe(BackendPodEvent.REMOVE_POD, this);
     }
 
     /**
@@ -65,61 +163,275 @@ public class HealthCheckServiceMain implements HealthCheckService<BackendPod>, E
     private void sendAllHealthChecks() {
         // Send all health checks from podStore
         logger.debug("Sending health checks to all registered pods");
-        int podCount = 0;
-        for (BackendPod pod : this.podStore.getAll()) {
-            if (pod.status() == BackendPodStatus.ALIVE) {
-                schedulePod(pod);
-                podCount++;
-            }
-        }
-        logger.debug("Scheduled health checks for {} alive pods", podCount);
+        var alivePods = this.podStore.getAllWithStatus(BackendPodStatus.ALIVE);
+        alivePods.forEach(this::schedulePod);
+        logger.debug("Scheduled health checks for {} alive pods", alivePods.size());
     }
 
+    /**
+     * Run a health check for the pod right away and then once per interval until the pod is removed,
+     * declared dead or the service is stopped. Scheduling a pod again replaces its previous schedule.
+     * <p>
+     * With adaptive intervals enabled the interval depends on the pod's recent checks, see
+     * {@link AdaptiveIntervalPolicy}.
+     */
     public void schedulePod(BackendPod pod) {
         logger.debug("Scheduling health check for pod: {}", pod.uri());
-        startPeriodicTask(() -> sendHealthCheck(pod), pod);
-    }
-
-    public void startPeriodicTask(Supplier<HealthCheckResponse<String>> task, BackendPod pod) {
-        this.executorService.submit(() -> {
-            // constraint: there can only be one thread operating on a single pod
-            if (podThreads.containsKey(pod)) {
-                Thread inUseThread = podThreads.get(pod);
-                // signal to terminate the thread
-                logger.debug("Interrupting existing health check thread for pod: {}", pod.uri());
-                inUseThread.interrupt();
-                try {
-                    inUseThread.join();
-                    logger.debug("Successfully joined interrupted thread for pod: {}", pod.uri());
-                } catch (InterruptedException e) {
-                    // the thread running handles the interrupted exception
-                    logger.error("Failed to join interrupted thread for pod: {}", pod.uri(), e);
-                    throw new RuntimeException(e);
-                }
+        if (this.isStopped() || !this.ownership.test(pod.uri())) {
+            return;
+        }
+        long intervalNanos = this.intervalPolicy.baseIntervalNanos();
+        // the first check runs now, later ones keep a random phase within the interval so pods added
+        // together do not keep probing in lockstep
+        long phase = this.timerWheel.nanoTime() + (long) (this.timerWheel.jitter().nextDouble() * intervalNanos);
+        var schedule = track(pod, phase - intervalNanos);
+        this.timerWheel.start();
+        this.executorService.execute(() -> runCheck(schedule));
+    }
+
+    /**
+     * Start health checking pods added together. Instead of probing all of them right away, their first
+     * checks are spread evenly over the time the probe budget needs to start that many probes, capped at
+     * one interval; each pod then keeps its phase.
+     */
+    public void schedulePods(List<BackendPod> pods) {
+        var ownership = this.ownership;
+        pods = pods.stream().filter(pod -> ownership.test(pod.uri())).toList();
+        if (pods.size() <= 1) {
+            pods.forEach(this::schedulePod);
+            return;
+        }
+        if (this.isStopped()) {
+            return;
+        }
+        logger.debug("Scheduling health checks for {} pods", pods.size());
+        long intervalNanos = this.intervalPolicy.baseIntervalNanos();
+        double probesPerSecond = this.schedulerConfig.maxProbesPerSecond();
+        long rampNanos = Math.min(intervalNanos, (long) (pods.size() * TimeUnit.SECONDS.toNanos(1) / probesPerSecond));
+        long now = this.timerWheel.nanoTime();
+        this.timerWheel.start();
+        for (int i = 0; i < pods.size(); i++) {
+            long firstDue = now + rampNanos * i / pods.size();
+            var schedule = track(pods.get(i), firstDue);
+            schedule.timeout = this.timerWheel.scheduleAt(() -> runCheck(schedule), firstDue);
+            if (schedule.isCancelled()) {
+                schedule.timeout.cancel();
             }
-            this.podThreads.put(pod, Thread.currentThread());
-            while (!this.isStopped() && !Thread.currentThread().isInterrupted()) {
-                try {
-                    var response = task.get();
-                    // unresponsive means terminating health checking for current thread
-                    if (response.backendPodStatus() == BackendPodStatus.DEAD) {
-                        logger.info("Pod {} marked as DEAD, stopping health checks", pod.uri());
-                        return;
-                    }
-                    logger.debug("Health check successful for pod: {}, sleeping for {}ms", 
-                               pod.uri(), this.healthCheckConfig.duration());
-                    this.timeProvider.sleep(this.healthCheckConfig.duration());
-                } catch (InterruptedException e) {
-                    logger.debug("Health check thread interrupted for pod: {}", pod.uri());
-                    Thread.currentThread().interrupt();
-                    break;
+        }
+    }
+
+    private PodSchedule track(BackendPod pod, long lastDueNanos) {
+        var schedule = new PodSchedule(pod, lastDueNanos);
+        this.passiveSignals.track(pod.uri());
+        this.latencyTracker.track(pod.uri());
+        var previous = this.schedules.put(pod.uri(), schedule);
+        if (previous != null) {
+            logger.debug("Replacing existing health check schedule for pod: {}", pod.uri());
+            previous.cancel();
+        }
+        return schedule;
+    }
+
+    /**
+     * Stop health checking a pod. Runs in constant time regardless of the number of scheduled pods.
+     */
+    public void unschedulePod(URI podUri) {
+        var schedule = this.schedules.remove(podUri);
+        this.passiveSignals.forget(podUri);
+        this.latencyTracker.forget(podUri);
+        this.flapDamper.forget(podUri);
+        if (schedule != null) {
+            logger.debug("Cancelled health checks for pod: {}", podUri);
+            schedule.cancel();
+        }
+    }
+
+    /**
+     * Health check only the pods the predicate accepts, e.g. those of this replica's shard. Pods it stops
+     * accepting are dropped at their next check, while pods it starts accepting have to be scheduled.
+     */
+    public void setOwnership(Predicate<URI> ownership) {
+        this.ownership = ownership;
+    }
+
+    public boolean isScheduled(URI podUri) {
+        return this.schedules.containsKey(podUri);
+    }
+
+    /**
+     * @return pods with scheduled health checks
+     */
+    public int scheduledPods() {
+        return this.schedules.size();
+    }
+
+    /**
+     * @return scheduled checks that were skipped because live traffic had just shown the pod healthy
+     */
+    public long suppressedChecks() {
+        return this.suppressedChecks.sum();
+    }
+
+    /**
+     * @return the probe latencies of the scheduled pods
+     */
+    public ProbeLatencyTracker latencyTracker() {
+        return latencyTracker;
+    }
+
+    /**
+     * @return the damper deciding status transitions, which also counts them
+     */
+    public FlapDamper flapDamper() {
+        return this.flapDamper;
+    }
+
+    /**
+     * Bring a pod's next check forward after live traffic to it failed, so failures are detected as
+     * quickly as without adaptive intervals. Checks stay at least the recovery interval apart.
+     */
+    private void expediteCheck(URI podUri) {
+        var schedule = this.schedules.get(podUri);
+        if (schedule == null || !this.intervalPolicy.enabled()) {
+            return;
+        }
+        schedule.stableStreak = 0;
+        var current = schedule.timeout;
+        long deadline = Math.max(this.timerWheel.nanoTime(),
+                schedule.lastCheckNanos + this.intervalPolicy.recoveryIntervalNanos());
+        // a check that is running or already due soon needs no help; a timeout that just fired cannot be
+        // cancelled, which also keeps concurrent failures from scheduling more than one check
+        if (current == null || current.deadlineNanos() <= deadline || !current.cancel()) {
+            return;
+        }
+        logger.debug("Live traffic to pod {} failed, checking it early", podUri);
+        schedule.timeout = this.timerWheel.scheduleAt(() -> runCheck(schedule), deadline);
+        if (schedule.isCancelled()) {
+            schedule.timeout.cancel();
+        }
+    }
+
+    private void runCheck(PodSchedule schedule) {
+        if (schedule.isCancelled() || this.isStopped()) {
+            return;
+        }
+        // prefer the stored pod so the check sees status changes made since scheduling
+        var stored = this.podStore.get(schedule.pod.uri());
+        var pod = stored != null ? stored : schedule.pod;
+        if (pod.status() == BackendPodStatus.DRAINING) {
+            logger.debug("Pod {} is draining, stopping health checks", pod.uri());
+            this.schedules.remove(pod.uri(), schedule);
+            return;
+        }
+        if (!this.ownership.test(pod.uri())) {
+            logger.debug("Pod {} is health checked by another replica now", pod.uri());
+            this.schedules.remove(pod.uri(), schedule);
+            return;
+        }
+        schedule.lastCheckNanos = this.timerWheel.nanoTime();
+        long passiveWindow = this.intervalPolicy.passiveWindowNanos();
+        if (pod.status() == BackendPodStatus.ALIVE
+                && passiveWindow > 0
+                && this.passiveSignals.hasFreshSuccess(pod.uri(), passiveWindow)) {
+            // the pod has just answered live traffic, probing it again would tell us nothing new
+            logger.debug("Skipping health check of pod {}, live traffic succeeded recently", pod.uri());
+            this.suppressedChecks.increment();
+            applyTransition(pod, this.flapDamper::onSuccess);
+            schedule.recordSuccess();
+            scheduleNext(schedule);
+            return;
+        }
+        sendHealthCheckAsync(pod).whenComplete((response, error) -> {
+            if (error != null) {
+                if (!schedule.isCancelled() && !this.isStopped()) {
+                    logger.error("Health check for pod {} failed unexpectedly", pod.uri(), error);
+                    scheduleNext(schedule);
                 }
+                return;
+            }
+            if (response.backendPodStatus() == BackendPodStatus.DEAD) {
+                logger.info("Pod {} marked as DEAD, stopping health checks", pod.uri());
+                this.schedules.remove(pod.uri(), schedule);
+                return;
             }
-            logger.debug("Ending health check thread for pod: {}", pod.uri());
-            this.podThreads.remove(pod);
+            schedule.recordSuccess();
+            scheduleNext(schedule);
         });
     }
 
+    private void scheduleNext(PodSchedule schedule) {
+        if (schedule.isCancelled() || this.isStopped()) {
+            return;
+        }
+        var stored = this.podStore.get(schedule.pod.uri());
+        var status = stored != null ? stored.status() : schedule.pod.status();
+        long intervalNanos = this.intervalPolicy.intervalNanos(status, schedule.stableStreak, schedule.recoveryChecksLeft);
+        long now = this.timerWheel.nanoTime();
+        long due = schedule.lastDueNanos + intervalNanos;
+        if (due < now) {
+            // cycles missed because a check outlasted the interval are skipped rather than run back to back
+            due += Math.ceilDiv(now - due, intervalNanos) * intervalNanos;
+        }
+        schedule.lastDueNanos = due;
+        double jitterRatio = this.schedulerConfig.jitterRatio();
+        long jitter = jitterRatio == 0
+                ? 0
+                : (long) (this.timerWheel.jitter().nextDouble(-jitterRatio, jitterRatio) * intervalNanos);
+        long deadline = due + jitter;
+        logger.debug("Next health check for pod {} in {}ms", schedule.pod.uri(),
+                TimeUnit.NANOSECONDS.toMillis(deadline - now));
+        schedule.timeout = this.timerWheel.scheduleAt(() -> runCheck(schedule), deadline);
+        if (schedule.isCancelled()) {
+            // cancelled while the timeout was being created
+            schedule.timeout.cancel();
+        }
+    }
+
+    /**
+     * Health check state of one pod. Checks of a pod never overlap: the next deadline is only scheduled
+     * once the current check has finished.
+     */
+    private final class PodSchedule {
+        private final BackendPod pod;
+        // unjittered deadline of the latest scheduled check; intervals are added to it so jitter does not
+        // accumulate
+        private long lastDueNanos;
+        private volatile long lastCheckNanos;
+        private volatile int stableStreak;
+        private volatile int recoveryChecksLeft;
+        private volatile HashedTimerWheel.Timeout timeout;
+        private volatile boolean cancelled;
+
+        PodSchedule(BackendPod pod, long lastDueNanos) {
+            this.pod = pod;
+            this.lastDueNanos = lastDueNanos;
+        }
+
+        void recordSuccess() {
+            this.stableStreak++;
+            if (this.recoveryChecksLeft > 0) {
+                this.recoveryChecksLeft--;
+            }
+        }
+
+        void recordFailure() {
+            this.stableStreak = 0;
+            this.recoveryChecksLeft = intervalPolicy.recoveryChecks();
+        }
+
+        void cancel() {
+            this.cancelled = true;
+            var current = this.timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        boolean isCancelled() {
+            return this.cancelled;
+        }
+    }
+
     public boolean isStopped() {
         return this.status == HealthCheckServiceStatus.SUSPENDED;
     }
@@ -127,6 +439,9 @@ public class HealthCheckServiceMain implements HealthCheckService<BackendPod>, E
     public void stop() {
         logger.info("Stopping HealthCheckService");
         this.status = HealthCheckServiceStatus.SUSPENDED;
+        this.schedules.values().forEach(PodSchedule::cancel);
+        this.schedules.clear();
+        this.timerWheel.stop();
         logger.info("HealthCheckService stopped");
     }
 
@@ -134,9 +449,44 @@ public class HealthCheckServiceMain implements HealthCheckService<BackendPod>, E
         return this.status;
     }
 
-    private void updatePodToStore(BackendPod pod, BackendPodStatus status) {
-        logger.debug("Updating pod {} status to {}", pod.uri(), status);
-        this.podStore.update(pod.updateStatus(status));
+    /**
+     * Let the flap damper decide the pod's next status and publish it if it changed.
+     *
+     * @return the pod's status after the decision
+     */
+    private BackendPodStatus applyTransition(BackendPod pod,
+                                             BiFunction<URI, BackendPodStatus, BackendPodStatus> decision) {
+        // decide from the stored status, the pod handed to the check may predate earlier transitions
+        var current = this.podStore.get(pod.uri());
+        if (current == null) {
+            // removed while it was checked; publishing its status would register it again
+            logger.debug("Pod {} left the store during its health check", pod.uri());
+            return BackendPodStatus.DEAD;
+        }
+        if (current.status() == BackendPodStatus.DRAINING) {
+            // a check that was running when the drain started must not bring the pod back
+            return current.status();
+        }
+        var next = decision.apply(pod.uri(), current.status());
+        if (next == current.status()) {
+            return next;
+        }
+        // only applied if nothing changed the pod since it was read, e.g. a drain or a removal
+        boolean applied = current.status() == BackendPodStatus.INITIALIZING && next == BackendPodStatus.ALIVE
+                // balancers only route to ALIVE pods, publishing the INITIALIZING copy would never add it
+                ? this.podStore.makePodReadyIf(current.status(), current.updateStatus(BackendPodStatus.ALIVE))
+                : this.podStore.updateIf(current.status(), current.updateStatus(next));
+        if (!applied) {
+            logger.debug("Pod {} changed during its health check, dropping the move to {}", pod.uri(), next);
+            var latest = this.podStore.get(pod.uri());
+            return latest != null ? latest.status() : BackendPodStatus.DEAD;
+        }
+        logger.info("Pod {} moves from {} to {}", pod.uri(), current.status(), next);
+        return next;
+    }
+
+    private void onProbeFailure(BackendPod pod) {
+        applyTransition(pod, this.flapDamper::onFailure);
     }
 
     /**
@@ -148,32 +498,83 @@ public class HealthCheckServiceMain implements HealthCheckService<BackendPod>, E
     @Override
     public HealthCheckResponse<String> sendHealthCheck(BackendPod pod) {
         logger.debug("Sending health check to pod: {}", pod.uri());
+        var config = this.healthCheckConfig;
         // probe with exponential backoff
-        SuccessStatus status = BackoffServiceStandard
-                .run(() -> probeService.probe(pod),
+        SuccessStatus status = withPodHandlers(BackoffServiceStandard
+                .run(() -> {
+                            try {
+                                long start = this.timerWheel.nanoTime();
+                                probeService.probe(pod);
+                                this.latencyTracker.record(pod.uri(), this.timerWheel.nanoTime() - start);
+                            } catch (NetworkUnavailableException e) {
+                                onProbeFailure(pod);
+                                throw e;
+                            }
+                        },
                         executorService,
-                        this.healthCheckConfig.initialDelayMs(),
-                        this.healthCheckConfig.maxDelayMs())
+                        config.initialDelayMs(),
+                        config.maxDelayMs()), pod, config.maxTries())
+                .decorrelatedJitter(true)
+                .execute();
+        return toResponse(status, pod);
+    }
+
+    /**
+     * Send a health check to a specific pod without blocking: probes complete asynchronously and retries
+     * wait on the timer wheel, so a pod between retries holds no thread.
+     *
+     * @param pod The backend pod to check
+     * @return a future of the health check result
+     */
+    public CompletableFuture<HealthCheckResponse<String>> sendHealthCheckAsync(BackendPod pod) {
+        logger.debug("Sending asynchronous health check to pod: {}", pod.uri());
+        var config = this.healthCheckConfig;
+        return withPodHandlers(BackoffServiceStandard
+                .runAsync(() -> probeWithPermit(pod).whenComplete((_, error) -> {
+                            var cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause()
+                                    : error;
+                            if (cause instanceof NetworkUnavailableException) {
+                                onProbeFailure(pod);
+                            }
+                        }),
+                        this.timerWheel,
+                        config.initialDelayMs(),
+                        config.maxDelayMs()), pod, config.maxTries())
+                .decorrelatedJitter(true)
+                .execute()
+                .thenApply(status -> toResponse(status, pod));
+    }
+
+    private <B extends BackoffServiceStandard.BaseBackoffBuilder<B>> B withPodHandlers(B backoff, BackendPod pod, int maxTries) {
+        return backoff
                 .onRetry(() -> {
-                    logger.info("Pod {} is unresponsive, marking as UNRESPONSIVE", pod.uri());
-                    updatePodToStore(pod, BackendPodStatus.UNRESPONSIVE);
-                }, this.healthCheckConfig.maxTries())
+                    logger.info("Health check of pod {} failed, retrying", pod.uri());
+                    var schedule = this.schedules.get(pod.uri());
+                    if (schedule != null) {
+                        // keep the pod on the short interval for a while once it recovers
+                        schedule.recordFailure();
+                    }
+                }, maxTries)
                 .onTermination(() -> {
                     logger.warn("Pod {} has failed maximum retry attempts, marking as DEAD", pod.uri());
-                    updatePodToStore(pod, BackendPodStatus.DEAD);
-                })
-                .onRetryCleanup(() -> {
-                    logger.info("Pod {} has recovered, marking as ALIVE", pod.uri());
-                    updatePodToStore(pod, BackendPodStatus.ALIVE);
+                    applyTransition(pod, this.flapDamper::onTermination);
                 })
-                .execute();
+                .onRetryCleanup(() -> logger.info("Pod {} answered again after retries", pod.uri()));
+    }
 
+    private HealthCheckResponse<String> toResponse(SuccessStatus status, BackendPod pod) {
         ZonedDateTime timestamp = ZonedDateTime.now();
         switch(status) {
             case SUCCESS -> {
                 logger.info("Health check successful for pod: {}", pod.uri());
-                if (pod.status() == BackendPodStatus.INITIALIZING) {
-                    this.podStore.makePodReady(pod);
+                var podStatus = applyTransition(pod, this.flapDamper::onSuccess);
+                if (podStatus != BackendPodStatus.ALIVE) {
+                    // a suspended pod needs several successes in a row, and flapping pods a hold-down, to return
+                    logger.info("Pod {} stays {} until it has been stable for longer", pod.uri(), podStatus);
+                    return new HealthCheckResponse<String>("recovering",
+                            podStatus,
+                            timestamp);
                 }
                 return new HealthCheckResponse<String>("success",
                         BackendPodStatus.ALIVE,
@@ -190,6 +591,36 @@ public class HealthCheckServiceMain implements HealthCheckService<BackendPod>, E
         throw new IllegalStateException("Expected return from status of backoff subroutine.");
     }
 
+    /**
+     * Probe once within the global probe budget. The reservation only covers the probe itself, not the
+     * backoff delay that may follow it, and probes of pods whose status is in question are served first.
+     */
+    private CompletableFuture<Void> probeWithPermit(BackendPod pod) {
+        var stored = this.podStore.get(pod.uri());
+        if (this.isStopped() || stored == null) {
+            // stop retrying pods that were removed or a service that was stopped in the meantime
+            return CompletableFuture.failedFuture(new CancellationException("health check of %s abandoned".formatted(pod.uri())));
+        }
+        boolean urgent = stored.status() == BackendPodStatus.INITIALIZING || stored.status() == BackendPodStatus.UNRESPONSIVE;
+        return this.probeBudget.acquire(urgent).thenCompose(_ -> {
+            CompletableFuture<Void> probe;
+            // timed from here so time spent waiting for the budget does not count as pod latency
+            long start = this.timerWheel.nanoTime();
+            try {
+                probe = this.asyncProbeService.probeAsync(pod);
+            } catch (RuntimeException e) {
+                this.probeBudget.release();
+                return CompletableFuture.failedFuture(e);
+            }
+            return probe.whenComplete((_, error) -> {
+                this.probeBudget.release();
+                if (error == null) {
+                    this.latencyTracker.record(pod.uri(), this.timerWheel.nanoTime() - start);
+                }
+            });
+        });
+    }
+
     /**
      * Handle pod events from the event system
      * 
@@ -202,14 +633,12 @@ public class HealthCheckServiceMain implements HealthCheckService<BackendPod>, E
         switch (event) {
             case ADD_POD -> {
                 logger.info("Processing {} event for {} pods", event, content.affectedPods().size());
-                content.affectedPods()
+                schedulePods(content.affectedPods()
                         .stream()
                         .filter(pod -> pod.status() == BackendPodStatus.INITIALIZING) // redundant but ensures correctness
-                        .forEach(pod -> {
-                            logger.debug("Scheduling health check for pod {} due to {} event", pod.uri(), event);
-                            schedulePod(pod);
-                        });
+                        .toList());
             }
+            case REMOVE_POD -> content.affectedPods().forEach(pod -> unschedulePod(pod.uri()));
             default -> {
                 logger.debug("Ignoring event: {} as it's not relevant for health checks", event);
             }
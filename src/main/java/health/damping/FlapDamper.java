@@ -0,0 +1,178 @@
+package health.damping;
+
+import config.FlapDampingConfig;
+import health.types.BackendPodStatus;
+import utils.time.TimeProvider;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides pod status transitions from probe outcomes with hysteresis, so a pod that wobbles does not make
+ * every balancer rebuild its pod list and drop its connections each time.
+ * <p>
+ * An ALIVE pod is suspended (UNRESPONSIVE) only after {@code failureThreshold} failed probes in a row, and a
+ * suspended pod only comes back after {@code successThreshold} successful probes in a row. Each time a pod
+ * leaves ALIVE counts as a flap; from the second flap on the pod is also held down for a penalty that
+ * doubles with every further flap, until it has stayed ALIVE long enough for its flaps to be forgotten.
+ * <p>
+ * Every transition decided here is counted.
+ */
+public class FlapDamper {
+    private static final BackendPodStatus[] STATUSES = BackendPodStatus.values();
+
+    private final FlapDampingConfig config;
+    private final int successThreshold;
+    private final TimeProvider clock;
+    private final Map<URI, PodHistory> histories = new ConcurrentHashMap<>();
+    private final LongAdder[] transitions = new LongAdder[STATUSES.length * STATUSES.length];
+    private final LongAdder flaps = new LongAdder();
+
+    /**
+     * @param config           failure threshold and penalty settings
+     * @param successThreshold successful probes in a row needed to bring a suspended pod back
+     * @param clock            source of the current time
+     */
+    public FlapDamper(FlapDampingConfig config, int successThreshold, TimeProvider clock) {
+        this.config = config;
+        this.successThreshold = Math.max(1, successThreshold);
+        this.clock = clock;
+        for (int i = 0; i < transitions.length; i++) {
+            transitions[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param current the pod's status before the probe
+     * @return the status the pod should move to, {@code current} when it stays
+     */
+    public BackendPodStatus onFailure(URI podUri, BackendPodStatus current) {
+        var history = history(podUri);
+        synchronized (history) {
+            history.successes = 0;
+            history.failures++;
+            var next = switch (current) {
+                case ALIVE -> history.failures >= config.failureThreshold() ? BackendPodStatus.UNRESPONSIVE : current;
+                case INITIALIZING -> BackendPodStatus.UNRESPONSIVE;
+                case UNRESPONSIVE, DEAD, DRAINING -> current;
+            };
+            return transition(history, current, next);
+        }
+    }
+
+    /**
+     * The pod exhausted its retries.
+     *
+     * @return {@link BackendPodStatus#DEAD}
+     */
+    public BackendPodStatus onTermination(URI podUri, BackendPodStatus current) {
+        var history = history(podUri);
+        synchronized (history) {
+            history.successes = 0;
+            return transition(history, current, BackendPodStatus.DEAD);
+        }
+    }
+
+    /**
+     * @param current the pod's status before the probe
+     * @return the status the pod should move to, {@code current} when it stays
+     */
+    public BackendPodStatus onSuccess(URI podUri, BackendPodStatus current) {
+        var history = history(podUri);
+        synchronized (history) {
+            history.failures = 0;
+            history.successes++;
+            var next = switch (current) {
+                case ALIVE, INITIALIZING -> BackendPodStatus.ALIVE;
+                case DRAINING -> current;
+                case UNRESPONSIVE, DEAD -> history.successes >= successThreshold
+                        && clock.nanoTime() - history.leftAliveNanos >= penaltyNanos(history.flaps)
+                        ? BackendPodStatus.ALIVE
+                        : current;
+            };
+            return transition(history, current, next);
+        }
+    }
+
+    /**
+     * Drop the history of a pod that was removed.
+     */
+    public void forget(URI podUri) {
+        histories.remove(podUri);
+    }
+
+    /**
+     * @return how often pods moved from one status to the other
+     */
+    public long transitions(BackendPodStatus from, BackendPodStatus to) {
+        return transitions[from.ordinal() * STATUSES.length + to.ordinal()].sum();
+    }
+
+    /**
+     * @return how often pods left ALIVE
+     */
+    public long flaps() {
+        return flaps.sum();
+    }
+
+    /**
+     * @return remembered flaps of the pod
+     */
+    public int flaps(URI podUri) {
+        var history = histories.get(podUri);
+        if (history == null) {
+            return 0;
+        }
+        synchronized (history) {
+            return history.flaps;
+        }
+    }
+
+    private PodHistory history(URI podUri) {
+        return histories.computeIfAbsent(podUri, _ -> new PodHistory());
+    }
+
+    private BackendPodStatus transition(PodHistory history, BackendPodStatus from, BackendPodStatus to) {
+        if (from == to) {
+            return to;
+        }
+        long now = clock.nanoTime();
+        if (from == BackendPodStatus.ALIVE) {
+            if (history.flaps > 0 && now - history.returnedAliveNanos >= TimeUnit.MILLISECONDS.toNanos(config.flapMemoryMs())) {
+                history.flaps = 0;
+            }
+            history.flaps++;
+            history.leftAliveNanos = now;
+            flaps.increment();
+        } else if (to == BackendPodStatus.ALIVE) {
+            history.returnedAliveNanos = now;
+            history.successes = 0;
+        }
+        history.failures = 0;
+        transitions[from.ordinal() * STATUSES.length + to.ordinal()].increment();
+        return to;
+    }
+
+    private long penaltyNanos(int flapCount) {
+        if (flapCount <= 1) {
+            return 0;
+        }
+        // doubling stops once the cap is reached, which also keeps the shift in range
+        long penaltyMs = config.basePenaltyMs();
+        for (int i = 2; i < flapCount && penaltyMs < config.maxPenaltyMs(); i++) {
+            penaltyMs *= 2;
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.min(penaltyMs, config.maxPenaltyMs()));
+    }
+
+    private static final class PodHistory {
+        private int failures;
+        private int successes;
+        private int flaps;
+        private long leftAliveNanos;
+        private long returnedAliveNanos;
+    }
+}
@@ -0,0 +1,114 @@
+package health.latency;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Round trip times of successful health probes, per pod: a {@link LatencyHistogram} for percentiles and an
+ * exponentially weighted moving average that balancers read as the pod's current probe latency.
+ * <p>
+ * Like the passive signals, only tracked pods are recorded, so probes finishing after their pod was
+ * removed leave nothing behind.
+ */
+public class ProbeLatencyTracker {
+    private static final long NO_SAMPLE = Double.doubleToRawLongBits(Double.NaN);
+
+    private final double alpha;
+    private final MetricsRegistry metrics;
+    private final Map<URI, PodLatency> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * @param alpha weight of the newest sample in the moving average
+     */
+    public ProbeLatencyTracker(double alpha) {
+        this(alpha, null);
+    }
+
+    /**
+     * @param alpha   weight of the newest sample in the moving average
+     * @param metrics registry the per-pod latency gauges are published to, may be {@code null}
+     */
+    public ProbeLatencyTracker(double alpha, MetricsRegistry metrics) {
+        this.alpha = alpha;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Start recording probe latencies of a pod.
+     */
+    public void track(URI podUri) {
+        var created = new PodLatency();
+        if (latencies.putIfAbsent(podUri, created) != null || metrics == null) {
+            return;
+        }
+        String pod = podUri.toString();
+        metrics.gauge("lb_probe_latency_micros", () -> created.histogram.percentileMicros(0.5), "pod", pod, "quantile", "0.5");
+        metrics.gauge("lb_probe_latency_micros", () -> created.histogram.percentileMicros(0.99), "pod", pod, "quantile", "0.99");
+        metrics.gauge("lb_probe_latency_smoothed_micros", () -> (long) created.smoothedMicros(), "pod", pod);
+    }
+
+    /**
+     * Stop recording probe latencies of a pod and drop its history.
+     */
+    public void forget(URI podUri) {
+        if (latencies.remove(podUri) == null || metrics == null) {
+            return;
+        }
+        String pod = podUri.toString();
+        metrics.remove("lb_probe_latency_micros", "pod", pod, "quantile", "0.5");
+        metrics.remove("lb_probe_latency_micros", "pod", pod, "quantile", "0.99");
+        metrics.remove("lb_probe_latency_smoothed_micros", "pod", pod);
+    }
+
+    /**
+     * Record the round trip time of a successful probe.
+     */
+    public void record(URI podUri, long nanos) {
+        var pod = latencies.get(podUri);
+        if (pod == null) {
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        pod.histogram.record(micros);
+        long current;
+        long updated;
+        do {
+            current = pod.smoothedBits.get();
+            double previous = Double.longBitsToDouble(current);
+            double next = Double.isNaN(previous) ? micros : previous + alpha * (micros - previous);
+            updated = Double.doubleToRawLongBits(next);
+        } while (!pod.smoothedBits.compareAndSet(current, updated));
+    }
+
+    /**
+     * @return the pod's smoothed probe latency in microseconds, {@code NaN} while no probe of the pod
+     * has succeeded
+     */
+    public double smoothedMicros(URI podUri) {
+        var pod = latencies.get(podUri);
+        return pod == null ? Double.NaN : pod.smoothedMicros();
+    }
+
+    /**
+     * @return the pod's latency histogram, {@code null} when the pod is not tracked
+     */
+    public LatencyHistogram histogram(URI podUri) {
+        var pod = latencies.get(podUri);
+        return pod == null ? null : pod.histogram;
+    }
+
+    private static final class PodLatency {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicLong smoothedBits = new AtomicLong(NO_SAMPLE);
+
+        double smoothedMicros() {
+            return Double.longBitsToDouble(smoothedBits.get());
+        }
+    }
+}
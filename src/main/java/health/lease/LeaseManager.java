@@ -0,0 +1,208 @@
+package health.lease;
+
+import config.LeaseConfig;
+import health.scheduler.HashedTimerWheel;
+import health.scheduler.TimerDrive;
+import health.types.BackendPodStatus;
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import utils.EventSubscriber;
+import utils.time.TimeProvider;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Leases of pods that register with a time to live and keep it alive through heartbeats, instead of being
+ * probed by the health checker.
+ * <p>
+ * A leased pod is ALIVE as soon as it registers. Renewing only moves the lease's expiry forward, a single
+ * volatile write; the expiry timer is not touched. When the timer fires it finds the later expiry and sets
+ * itself again, so each lease costs one timer per TTL however often it is renewed, and all leases share a
+ * single {@link HashedTimerWheel}. A lease that runs out removes its pod from the store, which publishes
+ * REMOVE_POD.
+ */
+public class LeaseManager implements EventSubscriber<BackendPodEvent, BackendPodEventContext> {
+    private static final Logger logger = LoggerFactory.getLogger(LeaseManager.class);
+
+    private final BackendPodInMemoryStore store;
+    private final LeaseConfig config;
+    private final TimeProvider clock;
+    private final HashedTimerWheel timer;
+    private final Map<URI, Lease> leases = new ConcurrentHashMap<>();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param dispatcher runs lease expiries
+     */
+    public LeaseManager(BackendPodInMemoryStore store, LeaseConfig config, TimeProvider clock, Executor dispatcher) {
+        this(store, config, clock, dispatcher, TimerDrive.ticker());
+    }
+
+    /**
+     * @param drive how the timer of the lease expiries moves forward, see {@link HashedTimerWheel}
+     */
+    public LeaseManager(BackendPodInMemoryStore store, LeaseConfig config, TimeProvider clock, Executor dispatcher,
+                        TimerDrive drive) {
+        this.store = store;
+        this.config = config;
+        this.clock = clock;
+        this.timer = new HashedTimerWheel(config.tickMs(), config.wheelSize(), clock, dispatcher, drive);
+        this.store.subscribe(BackendPodEvent.REMOVE_POD, this);
+    }
+
+    /**
+     * Register a pod under a lease, or replace the lease of a pod already registered.
+     *
+     * @param ttlMs requested time to live, clamped to the configured bounds
+     * @return the granted time to live in milliseconds
+     */
+    public long register(URI podUri, long ttlMs) {
+        return registerAll(Map.of(podUri, ttlMs)).get(podUri);
+    }
+
+    /**
+     * Register several pods under leases. Pods not yet in the store are added and made ready with one
+     * event each for the whole batch.
+     *
+     * @param ttlsMs requested time to live of each pod, clamped to the configured bounds
+     * @return the granted time to live of each pod in milliseconds
+     */
+    public Map<URI, Long> registerAll(Map<URI, Long> ttlsMs) {
+        this.timer.start();
+        var granted = new LinkedHashMap<URI, Long>();
+        var added = new ArrayList<BackendPod>();
+        ttlsMs.forEach((podUri, ttlMs) -> {
+            long grantedTtlMs = Math.clamp(ttlMs, config.minTtlMs(), config.maxTtlMs());
+            var lease = new Lease(podUri, TimeUnit.MILLISECONDS.toNanos(grantedTtlMs));
+            lease.expiresAt = clock.nanoTime() + lease.ttlNanos;
+            var previous = leases.put(podUri, lease);
+            if (previous != null) {
+                previous.cancel();
+            }
+            lease.schedule(lease.expiresAt);
+            if (previous == null && store.get(podUri) == null) {
+                // ALIVE pods are not probed; the lease stands in for the health check
+                added.add(new BackendPod(podUri, BackendPodStatus.ALIVE));
+            }
+            granted.put(podUri, grantedTtlMs);
+            logger.debug("Leased pod {} for {}ms", podUri, grantedTtlMs);
+        });
+        store.addAll(added);
+        store.makePodsReady(added);
+        logger.info("Leased {} pods", granted.size());
+        return granted;
+    }
+
+    /**
+     * Extend the lease of a pod by its time to live.
+     *
+     * @return whether the pod holds a lease; a pod whose lease expired must register again
+     */
+    public boolean renew(URI podUri) {
+        var lease = leases.get(podUri);
+        if (lease == null) {
+            return false;
+        }
+        lease.expiresAt = clock.nanoTime() + lease.ttlNanos;
+        // an expiry racing with the renewal may have removed the lease after it was read
+        return leases.get(podUri) == lease;
+    }
+
+    /**
+     * Give up the lease of a pod, removing the pod right away.
+     */
+    public void release(URI podUri) {
+        var lease = leases.remove(podUri);
+        if (lease != null) {
+            lease.cancel();
+            store.remove(podUri);
+        }
+    }
+
+    public boolean isLeased(URI podUri) {
+        return leases.containsKey(podUri);
+    }
+
+    public int activeLeases() {
+        return leases.size();
+    }
+
+    /**
+     * @return leases that ran out since startup
+     */
+    public long expirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Stop expiring leases. Leases still held are kept but never run out.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    @Override
+    public void handleEvent(BackendPodEvent event, BackendPodEventContext content) {
+        if (event != BackendPodEvent.REMOVE_POD) {
+            return;
+        }
+        // pods removed some other way no longer need their lease
+        for (var pod : content.affectedPods()) {
+            var lease = leases.remove(pod.uri());
+            if (lease != null) {
+                lease.cancel();
+            }
+        }
+    }
+
+    private final class Lease {
+        private final URI podUri;
+        private final long ttlNanos;
+        private volatile long expiresAt;
+        private volatile HashedTimerWheel.Timeout timeout;
+
+        private Lease(URI podUri, long ttlNanos) {
+            this.podUri = podUri;
+            this.ttlNanos = ttlNanos;
+        }
+
+        private void schedule(long deadlineNanos) {
+            timeout = timer.scheduleAt(this::check, deadlineNanos);
+        }
+
+        private void cancel() {
+            var current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        private void check() {
+            long expiry = expiresAt;
+            if (clock.nanoTime() < expiry) {
+                // renewed since the timer was set
+                if (leases.get(podUri) == this) {
+                    schedule(expiry);
+                }
+                return;
+            }
+            if (!leases.remove(podUri, this)) {
+                return;
+            }
+            expirations.increment();
+            logger.info("Lease of pod {} expired, removing it", podUri);
+            store.remove(podUri);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package health.load;
+
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import utils.EventSubscriber;
+import utils.time.TimeProvider;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latest load each pod reported about itself, as a {@link LoadScore}, either in a response header of
+ * proxied requests and health checks or in the body of its health check.
+ * <p>
+ * Pods are tracked from the moment they are registered until they are removed, and reports older than the
+ * configured age are ignored, so a pod that stops reporting falls back to being weighed by other signals.
+ * Recording is a header lookup, a parse and two volatile writes, cheap enough for every proxied response.
+ */
+public class BackendLoadReports implements EventSubscriber<BackendPodEvent, BackendPodEventContext> {
+    private final String headerName;
+    private final long maxAgeNanos;
+    private final TimeProvider clock;
+    private final Map<URI, PodReport> reports = new ConcurrentHashMap<>();
+
+    /**
+     * @param headerName response header backends report their load in
+     * @param maxAgeMs   how long a report stays valid
+     */
+    public BackendLoadReports(BackendPodInMemoryStore store, String headerName, long maxAgeMs, TimeProvider clock) {
+        this.headerName = headerName;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+        this.clock = clock;
+        store.subscribe(BackendPodEvent.ADD_POD, this);
+        store.subscribe(BackendPodEvent.REMOVE_POD, this);
+    }
+
+    /**
+     * Start recording reports of a pod.
+     */
+    public void track(URI podUri) {
+        reports.computeIfAbsent(podUri, _ -> new PodReport());
+    }
+
+    /**
+     * Stop recording reports of a pod and drop its last report.
+     */
+    public void forget(URI podUri) {
+        reports.remove(podUri);
+    }
+
+    /**
+     * Record the load reported in the headers of a response from the pod, if any.
+     */
+    public void recordHeaders(URI podUri, HttpHeaders headers) {
+        // the header map is case-insensitive, unlike firstValue this does not allocate
+        List<String> values = headers.map().get(headerName);
+        if (values != null && !values.isEmpty()) {
+            record(podUri, LoadScore.parse(values.getFirst()));
+        }
+    }
+
+    /**
+     * Record the load reported by a health check, preferring the header over the body.
+     */
+    public void recordHealthCheck(URI podUri, HttpHeaders headers, String body) {
+        List<String> values = headers.map().get(headerName);
+        double score = values != null && !values.isEmpty()
+                ? LoadScore.parse(values.getFirst())
+                : LoadScore.fromJsonBody(body);
+        record(podUri, score);
+    }
+
+    /**
+     * @param score between 0 and 1; {@code NaN} is ignored
+     */
+    public void record(URI podUri, double score) {
+        var pod = reports.get(podUri);
+        if (pod == null || Double.isNaN(score)) {
+            return;
+        }
+        pod.score = score;
+        pod.reportedAt = clock.nanoTime();
+    }
+
+    /**
+     * @return the pod's reported load between 0 and 1, {@code NaN} when it has not reported recently
+     */
+    public double load(URI podUri) {
+        var pod = reports.get(podUri);
+        if (pod == null) {
+            return Double.NaN;
+        }
+        // read the time first, a report racing with this call then at worst looks older than it is
+        long reportedAt = pod.reportedAt;
+        double score = pod.score;
+        if (Double.isNaN(score) || clock.nanoTime() - reportedAt > maxAgeNanos) {
+            return Double.NaN;
+        }
+        return score;
+    }
+
+    @Override
+    public void handleEvent(BackendPodEvent event, BackendPodEventContext content) {
+        switch (event) {
+            case ADD_POD -> content.affectedPods().stream().map(BackendPod::uri).forEach(this::track);
+            case REMOVE_POD -> content.affectedPods().stream().map(BackendPod::uri).forEach(this::forget);
+            default -> {
+            }
+        }
+    }
+
+    private static final class PodReport {
+        private volatile double score = Double.NaN;
+        private volatile long reportedAt;
+    }
+}
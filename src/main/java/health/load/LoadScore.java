@@ -0,0 +1,108 @@
+package health.load;
+
+/**
+ * Parses the load a backend reports about itself: a score between 0 (idle) and 1 (saturated), such as
+ * {@code 0.42}, or a percentage such as {@code 42%}. Backends map whatever limits them, CPU or queue depth
+ * against its capacity, to this score. Scores above 1 count as 1.
+ * <p>
+ * Parsing walks the characters once, without regular expressions and without allocating, because it runs
+ * on every proxied response.
+ */
+public final class LoadScore {
+    private static final String JSON_FIELD = "\"load\"";
+    // fraction digits beyond this cannot change a weight
+    private static final long MAX_FRACTION_SCALE = 1_000_000;
+
+    private LoadScore() {
+    }
+
+    /**
+     * @param value header value, surrounding whitespace is ignored
+     * @return the score between 0 and 1, {@code NaN} when the value is missing or malformed
+     */
+    public static double parse(CharSequence value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        int from = skipWhitespace(value, 0);
+        int to = value.length();
+        while (to > from && Character.isWhitespace(value.charAt(to - 1))) {
+            to--;
+        }
+        return parse(value, from, to);
+    }
+
+    /**
+     * Find the score in a health check body of the form {@code {"load": 0.42, ...}}. Only the first
+     * {@code "load"} field is looked at, and nested objects are not told apart from the top level.
+     *
+     * @return the score between 0 and 1, {@code NaN} when the body has no such field
+     */
+    public static double fromJsonBody(String body) {
+        if (body == null) {
+            return Double.NaN;
+        }
+        int field = body.indexOf(JSON_FIELD);
+        if (field < 0) {
+            return Double.NaN;
+        }
+        int colon = skipWhitespace(body, field + JSON_FIELD.length());
+        if (colon >= body.length() || body.charAt(colon) != ':') {
+            return Double.NaN;
+        }
+        int from = skipWhitespace(body, colon + 1);
+        int to = from;
+        while (to < body.length() && isNumberChar(body.charAt(to))) {
+            to++;
+        }
+        return parse(body, from, to);
+    }
+
+    /**
+     * @return the score in {@code value[from, to)}, {@code NaN} unless the whole range is a score
+     */
+    static double parse(CharSequence value, int from, int to) {
+        boolean percent = to > from && value.charAt(to - 1) == '%';
+        if (percent) {
+            to--;
+        }
+        long whole = 0;
+        long fraction = 0;
+        long scale = 1;
+        boolean digits = false;
+        boolean dot = false;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c == '.' && !dot) {
+                dot = true;
+            } else if (c >= '0' && c <= '9') {
+                digits = true;
+                if (!dot) {
+                    // anything this large is clamped anyway, stop before overflowing
+                    whole = Math.min(whole * 10 + (c - '0'), 1_000);
+                } else if (scale < MAX_FRACTION_SCALE) {
+                    fraction = fraction * 10 + (c - '0');
+                    scale *= 10;
+                }
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (!digits) {
+            return Double.NaN;
+        }
+        double score = whole + (double) fraction / scale;
+        return Math.min(1.0, percent ? score / 100 : score);
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == '%';
+    }
+
+    private static int skipWhitespace(CharSequence value, int from) {
+        while (from < value.length() && Character.isWhitespace(value.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+}
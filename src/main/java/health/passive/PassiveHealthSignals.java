@@ -0,0 +1,93 @@
+package health.passive;
+
+import utils.time.TimeProvider;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Outcomes of live traffic proxied to each pod, used by the health checker as passive health signals.
+ * <p>
+ * Only tracked pods are recorded, so requests finishing after their pod was removed do not leave entries
+ * behind. Recording is a map lookup and a volatile write, cheap enough for every proxied request.
+ */
+public class PassiveHealthSignals {
+    private final TimeProvider clock;
+    private final Map<URI, PodSignals> signals = new ConcurrentHashMap<>();
+    private final List<Consumer<URI>> failureListeners = new CopyOnWriteArrayList<>();
+
+    public PassiveHealthSignals(TimeProvider clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Start recording signals for a pod.
+     */
+    public void track(URI podUri) {
+        signals.computeIfAbsent(podUri, _ -> new PodSignals());
+    }
+
+    /**
+     * Stop recording signals for a pod and drop what was recorded.
+     */
+    public void forget(URI podUri) {
+        signals.remove(podUri);
+    }
+
+    /**
+     * Record that the pod answered a proxied request.
+     */
+    public void recordSuccess(URI podUri) {
+        var pod = signals.get(podUri);
+        if (pod != null) {
+            pod.lastSuccessNanos = clock.nanoTime();
+        }
+    }
+
+    /**
+     * Record that a proxied request to the pod failed, either at the transport level or with a server
+     * error, and notify the failure listeners.
+     */
+    public void recordFailure(URI podUri) {
+        var pod = signals.get(podUri);
+        if (pod == null) {
+            return;
+        }
+        pod.lastFailureNanos = clock.nanoTime();
+        failureListeners.forEach(listener -> listener.accept(podUri));
+    }
+
+    /**
+     * @param maxAgeNanos how old the last success may be
+     * @return whether the pod answered live traffic within {@code maxAgeNanos} and has not failed since
+     */
+    public boolean hasFreshSuccess(URI podUri, long maxAgeNanos) {
+        var pod = signals.get(podUri);
+        if (pod == null) {
+            return false;
+        }
+        long lastSuccess = pod.lastSuccessNanos;
+        long lastFailure = pod.lastFailureNanos;
+        return lastSuccess != PodSignals.NEVER
+                && (lastFailure == PodSignals.NEVER || lastSuccess - lastFailure > 0)
+                && clock.nanoTime() - lastSuccess <= maxAgeNanos;
+    }
+
+    /**
+     * @param listener called with the pod's URI on the thread that recorded the failure
+     */
+    public void addFailureListener(Consumer<URI> listener) {
+        failureListeners.add(listener);
+    }
+
+    private static final class PodSignals {
+        private static final long NEVER = Long.MIN_VALUE;
+
+        private volatile long lastSuccessNanos = NEVER;
+        private volatile long lastFailureNanos = NEVER;
+    }
+}
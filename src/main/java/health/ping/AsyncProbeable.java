@@ -0,0 +1,33 @@
+package health.ping;
+
+import utils.error.NetworkUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking counterpart of {@link Probeable}: the probe is started and the caller is notified through
+ * the returned future, so no thread waits for the network.
+ *
+ * @param <T> what is probed
+ */
+public interface AsyncProbeable<T> {
+    /**
+     * @return a future completing normally when the target is reachable, or exceptionally with a
+     * {@link NetworkUnavailableException} when it is not
+     */
+    CompletableFuture<Void> probeAsync(T networkInfo);
+
+    /**
+     * Adapt a blocking probe. Each probe occupies a thread of the executor while it runs, but nothing is
+     * held between probes.
+     */
+    static <T> AsyncProbeable<T> fromBlocking(Probeable<T> probe, Executor executor) {
+        if (probe instanceof AsyncProbeable<?>) {
+            @SuppressWarnings("unchecked")
+            var asyncProbe = (AsyncProbeable<T>) probe;
+            return asyncProbe;
+        }
+        return networkInfo -> CompletableFuture.runAsync(() -> probe.probe(networkInfo), executor);
+    }
+}
@@ -1,6 +1,7 @@
 package health.ping;
 
 import config.LoadBalancerConfig;
+import health.load.BackendLoadReports;
 import pods.BackendPod;
 import utils.network.NetworkMethod;
 
@@ -9,6 +10,13 @@ import java.util.concurrent.ExecutorService;
 
 public class HealthCheckPingFactory {
     public static Probeable<BackendPod> create(NetworkMethod networkType, LoadBalancerConfig healthCheckConfig, ExecutorService executorService) {
+        return create(networkType, healthCheckConfig, executorService, null);
+    }
+
+    /**
+     * @param loadReports receives the load pods report in HTTP health checks, may be {@code null}
+     */
+    public static Probeable<BackendPod> create(NetworkMethod networkType, LoadBalancerConfig healthCheckConfig, ExecutorService executorService, BackendLoadReports loadReports) {
         switch (networkType) {
             case NetworkMethod.HTTP -> {
                 HttpClient httpClient = HttpClient.newBuilder()
@@ -16,7 +24,10 @@ public class HealthCheckPingFactory {
                         .version(HttpClient.Version.HTTP_2)
                         .connectTimeout(healthCheckConfig.timeout())
                         .build();
-                return new HealthProbeHttp(healthCheckConfig, httpClient);
+                return new HealthProbeHttp(healthCheckConfig, httpClient, loadReports);
+            }
+            case NetworkMethod.TCP_IP -> {
+                return new HealthProbeTcp(healthCheckConfig);
             }
             default -> {
                 throw new UnsupportedOperationException("Unable to build; Invalid network type: %s".formatted(networkType));
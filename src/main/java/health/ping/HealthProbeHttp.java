@@ -1,6 +1,7 @@
 package health.ping;
 
 import config.LoadBalancerConfig;
+import health.load.BackendLoadReports;
 import pods.BackendPod;
 import utils.error.NetworkUnavailableException;
 
@@ -10,16 +11,36 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-public class HealthProbeHttp implements Probeable<BackendPod> {
-    private Duration timeout;
-    private final Path healthCheckPath;
+public class HealthProbeHttp implements Probeable<BackendPod>, AsyncProbeable<BackendPod> {
+    // replaced when the config is reloaded, read once per probe
+    private volatile Duration timeout;
+    private volatile Path healthCheckPath;
     private final HttpClient httpClient;
+    private final BackendLoadReports loadReports;
 
     public HealthProbeHttp(LoadBalancerConfig healthCheckConfig, HttpClient httpClient) {
+        this(healthCheckConfig, httpClient, null);
+    }
+
+    /**
+     * @param loadReports receives the load pods report in their health check responses, may be {@code null}
+     */
+    public HealthProbeHttp(LoadBalancerConfig healthCheckConfig, HttpClient httpClient, BackendLoadReports loadReports) {
         this.timeout = healthCheckConfig.timeout();
         this.healthCheckPath = healthCheckConfig.healthCheckPath();
         this.httpClient = httpClient;
+        this.loadReports = loadReports;
+    }
+
+    private HttpRequest healthCheckRequest(BackendPod networkInfo) {
+        return HttpRequest.newBuilder()
+                .uri(networkInfo.uri().resolve(this.healthCheckPath.toString()))
+                .timeout(this.timeout)
+                .GET()
+                .build();
     }
 
     /**
@@ -27,17 +48,14 @@ public class HealthProbeHttp implements Probeable<BackendPod> {
      */
     @Override
     public void probe(BackendPod networkInfo) throws NetworkUnavailableException {
-        HttpRequest requestBuilder = HttpRequest.newBuilder()
-                .uri(networkInfo.uri().resolve(this.healthCheckPath.toString()))
-                .timeout(this.timeout)
-                .GET()
-                .build();
+        HttpRequest requestBuilder = healthCheckRequest(networkInfo);
         try {
             HttpResponse<String> response = httpClient.send(requestBuilder, HttpResponse.BodyHandlers.ofString());
             int statusCode = response.statusCode();
             if (statusCode != 200) {
                 throw new NetworkUnavailableException(response.body());
             }
+            recordLoad(networkInfo, response);
         } catch (IOException e) {
             throw new NetworkUnavailableException(e);
         } catch (InterruptedException e) {
@@ -45,6 +63,34 @@ public class HealthProbeHttp implements Probeable<BackendPod> {
         }
     }
 
+    /**
+     * Send the health check without blocking; the future fails with {@link NetworkUnavailableException} on
+     * connection errors, timeouts and non-200 responses.
+     */
+    @Override
+    public CompletableFuture<Void> probeAsync(BackendPod networkInfo) {
+        return httpClient.sendAsync(healthCheckRequest(networkInfo), HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        var cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause()
+                                : error;
+                        throw new NetworkUnavailableException(cause);
+                    }
+                    if (response.statusCode() != 200) {
+                        throw new NetworkUnavailableException(response.body());
+                    }
+                    recordLoad(networkInfo, response);
+                    return null;
+                });
+    }
+
+    private void recordLoad(BackendPod pod, HttpResponse<String> response) {
+        if (this.loadReports != null) {
+            this.loadReports.recordHealthCheck(pod.uri(), response.headers(), response.body());
+        }
+    }
+
     /*
      * Getters and Setters
      * */
@@ -58,4 +104,13 @@ public class HealthProbeHttp implements Probeable<BackendPod> {
         return this;
     }
 
+    public Path getHealthCheckPath() {
+        return healthCheckPath;
+    }
+
+    public HealthProbeHttp setHealthCheckPath(Path healthCheckPath) {
+        this.healthCheckPath = healthCheckPath;
+        return this;
+    }
+
 }
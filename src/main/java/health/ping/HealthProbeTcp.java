@@ -0,0 +1,365 @@
+package health.ping;
+
+import config.LoadBalancerConfig;
+import config.TcpProbeConfig;
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+import pods.BackendPod;
+import utils.error.NetworkUnavailableException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Health probe for L4 services: a pod is healthy when a TCP connection to it can be established, and, if a
+ * send/expect pattern is configured, when its reply to {@code send} contains {@code expect}.
+ * <p>
+ * All connects are non-blocking and multiplexed on one {@link Selector}, so a single thread drives every
+ * probe in flight and no thread waits for a pod. The selector thread is started with the first probe and
+ * stopped by {@link #close()}.
+ */
+public class HealthProbeTcp implements Probeable<BackendPod>, AsyncProbeable<BackendPod>, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(HealthProbeTcp.class);
+
+    // replaced when the config is reloaded, applies to probes started afterwards
+    private volatile long timeoutNanos;
+    private final byte[] send;
+    private final byte[] expect;
+    private final int maxResponseBytes;
+    private final Queue<Attempt> registrations = new ConcurrentLinkedQueue<>();
+    private final Object lifecycleLock = new Object();
+    private volatile Selector selector;
+    private volatile boolean closed;
+
+    public HealthProbeTcp(LoadBalancerConfig healthCheckConfig) {
+        this(healthCheckConfig.timeout(), healthCheckConfig.tcpProbe());
+    }
+
+    /**
+     * @param timeout  time allowed for connecting and for the send/expect exchange together
+     * @param tcpProbe the send/expect pattern
+     */
+    public HealthProbeTcp(Duration timeout, TcpProbeConfig tcpProbe) {
+        this.timeoutNanos = timeout.toNanos();
+        this.send = tcpProbe.send().getBytes(StandardCharsets.UTF_8);
+        this.expect = tcpProbe.expect().getBytes(StandardCharsets.UTF_8);
+        this.maxResponseBytes = Math.max(tcpProbe.maxResponseBytes(), expect.length);
+    }
+
+    @Override
+    public void probe(BackendPod networkInfo) throws NetworkUnavailableException {
+        try {
+            probeAsync(networkInfo).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new NetworkUnavailableException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> probeAsync(BackendPod networkInfo) {
+        return probeRtt(networkInfo).thenAccept(_ -> { });
+    }
+
+    /**
+     * Probe a pod and report how long the TCP handshake took.
+     * <p>
+     * The pod's host name is resolved on the calling thread; everything after that runs on the selector.
+     *
+     * @return a future completing with the connect round trip time in nanoseconds, or exceptionally with a
+     * {@link NetworkUnavailableException} when the pod refuses the connection, times out or does not reply
+     * as expected
+     */
+    public CompletableFuture<Long> probeRtt(BackendPod networkInfo) {
+        var result = new CompletableFuture<Long>();
+        URI uri = networkInfo.uri();
+        if (uri.getHost() == null) {
+            result.completeExceptionally(new NetworkUnavailableException("No host in pod URI %s".formatted(uri)));
+            return result;
+        }
+        var address = new InetSocketAddress(uri.getHost(), portOf(uri));
+        if (address.isUnresolved()) {
+            result.completeExceptionally(new NetworkUnavailableException("Unable to resolve %s".formatted(uri.getHost())));
+            return result;
+        }
+        SocketChannel channel = null;
+        try {
+            var activeSelector = ensureStarted();
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            long startedAt = System.nanoTime();
+            var attempt = new Attempt(uri, channel, result, startedAt, startedAt + timeoutNanos);
+            // a connect may complete at once, e.g. to the loopback interface; the selector thread then
+            // carries on with the exchange instead of waiting for OP_CONNECT, which would never fire
+            attempt.connectedImmediately = connect(channel, address);
+            registrations.add(attempt);
+            activeSelector.wakeup();
+            if (closed && registrations.remove(attempt)) {
+                attempt.fail("TCP probe closed");
+            }
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            result.completeExceptionally(new NetworkUnavailableException(
+                    "TCP connect to %s failed".formatted(address), e));
+        }
+        return result;
+    }
+
+    /**
+     * Start connecting a non-blocking channel.
+     *
+     * @return whether the connection was established at once
+     */
+    boolean connect(SocketChannel channel, InetSocketAddress address) throws IOException {
+        return channel.connect(address);
+    }
+
+    /**
+     * @param timeout time allowed for probes started from now on
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Stop the selector thread; probes still in flight fail.
+     */
+    @Override
+    public void close() {
+        synchronized (lifecycleLock) {
+            closed = true;
+            if (selector != null) {
+                selector.wakeup();
+            }
+        }
+    }
+
+    private static int portOf(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private Selector ensureStarted() throws IOException {
+        var current = selector;
+        if (current != null) {
+            return current;
+        }
+        synchronized (lifecycleLock) {
+            if (closed) {
+                throw new IllegalStateException("TCP probe closed");
+            }
+            if (selector == null) {
+                var opened = Selector.open();
+                Thread.ofPlatform()
+                        .daemon()
+                        .name("health-tcp-probe")
+                        .start(() -> selectLoop(opened));
+                selector = opened;
+            }
+            return selector;
+        }
+    }
+
+    private void selectLoop(Selector selector) {
+        // only touched by this thread; finished attempts stay queued until their deadline passes
+        var deadlines = new PriorityQueue<Attempt>(Comparator.comparingLong(Attempt::deadlineNanos));
+        try {
+            while (!closed) {
+                registerPending(selector, deadlines);
+                long waitMs = 0;
+                if (!deadlines.isEmpty()) {
+                    long remaining = deadlines.peek().deadlineNanos - System.nanoTime();
+                    waitMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                }
+                selector.select(key -> onReady((Attempt) key.attachment()), waitMs);
+                expire(deadlines, System.nanoTime());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("TCP probe selector failed", e);
+        } finally {
+            for (var key : selector.keys()) {
+                ((Attempt) key.attachment()).fail("TCP probe closed");
+            }
+            Attempt pending;
+            while ((pending = registrations.poll()) != null) {
+                pending.fail("TCP probe closed");
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close TCP probe selector", e);
+            }
+        }
+    }
+
+    private void registerPending(Selector selector, PriorityQueue<Attempt> deadlines) {
+        Attempt attempt;
+        while ((attempt = registrations.poll()) != null) {
+            deadlines.add(attempt);
+            try {
+                if (attempt.connectedImmediately) {
+                    attempt.key = attempt.channel.register(selector, 0, attempt);
+                    onConnected(attempt);
+                } else {
+                    attempt.key = attempt.channel.register(selector, SelectionKey.OP_CONNECT, attempt);
+                }
+            } catch (IOException e) {
+                attempt.fail(e);
+            }
+        }
+    }
+
+    private void expire(PriorityQueue<Attempt> deadlines, long now) {
+        while (!deadlines.isEmpty() && deadlines.peek().deadlineNanos <= now) {
+            var attempt = deadlines.poll();
+            if (!attempt.result.isDone()) {
+                attempt.fail("TCP probe of %s timed out after %d ms".formatted(
+                        attempt.uri, TimeUnit.NANOSECONDS.toMillis(timeoutNanos)));
+            }
+        }
+    }
+
+    private void onReady(Attempt attempt) {
+        try {
+            var key = attempt.key;
+            if (key.isConnectable()) {
+                attempt.channel.finishConnect();
+                onConnected(attempt);
+            } else if (key.isWritable()) {
+                onWritable(attempt);
+            } else if (key.isReadable()) {
+                onReadable(attempt);
+            }
+        } catch (IOException e) {
+            attempt.fail(e);
+        }
+    }
+
+    private void onConnected(Attempt attempt) {
+        attempt.connectRttNanos = System.nanoTime() - attempt.startedAt;
+        logger.debug("TCP probe connected to {} in {} us", attempt.uri,
+                TimeUnit.NANOSECONDS.toMicros(attempt.connectRttNanos));
+        if (send.length > 0) {
+            attempt.outbound = ByteBuffer.wrap(send);
+            attempt.key.interestOps(SelectionKey.OP_WRITE);
+        } else if (expect.length > 0) {
+            attempt.key.interestOps(SelectionKey.OP_READ);
+        } else {
+            attempt.succeed();
+        }
+    }
+
+    private void onWritable(Attempt attempt) throws IOException {
+        attempt.channel.write(attempt.outbound);
+        if (attempt.outbound.hasRemaining()) {
+            return;
+        }
+        if (expect.length > 0) {
+            attempt.key.interestOps(SelectionKey.OP_READ);
+        } else {
+            attempt.succeed();
+        }
+    }
+
+    private void onReadable(Attempt attempt) throws IOException {
+        if (attempt.inbound == null) {
+            attempt.inbound = ByteBuffer.allocate(maxResponseBytes);
+        }
+        var inbound = attempt.inbound;
+        // only the tail that can still complete a match needs to be searched again
+        int searchFrom = Math.max(0, inbound.position() - expect.length + 1);
+        int read = attempt.channel.read(inbound);
+        if (contains(inbound.array(), searchFrom, inbound.position(), expect)) {
+            attempt.succeed();
+        } else if (read == -1) {
+            attempt.fail("%s closed the connection without the expected reply".formatted(attempt.uri));
+        } else if (!inbound.hasRemaining()) {
+            attempt.fail("Expected reply not found in the first %d bytes from %s".formatted(maxResponseBytes, attempt.uri));
+        }
+    }
+
+    private static boolean contains(byte[] data, int from, int to, byte[] pattern) {
+        outer:
+        for (int start = from; start <= to - pattern.length; start++) {
+            for (int i = 0; i < pattern.length; i++) {
+                if (data[start + i] != pattern[i]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Unable to close probe channel", e);
+        }
+    }
+
+    private static final class Attempt {
+        private final URI uri;
+        private final SocketChannel channel;
+        private final CompletableFuture<Long> result;
+        private final long startedAt;
+        private final long deadlineNanos;
+        // set before the attempt is queued for the selector thread
+        private boolean connectedImmediately;
+        // only touched by the selector thread
+        private SelectionKey key;
+        private long connectRttNanos;
+        private ByteBuffer outbound;
+        private ByteBuffer inbound;
+
+        private Attempt(URI uri, SocketChannel channel, CompletableFuture<Long> result, long startedAt, long deadlineNanos) {
+            this.uri = uri;
+            this.channel = channel;
+            this.result = result;
+            this.startedAt = startedAt;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        long deadlineNanos() {
+            return deadlineNanos;
+        }
+
+        void succeed() {
+            closeQuietly(channel);
+            result.complete(connectRttNanos);
+        }
+
+        void fail(String message) {
+            closeQuietly(channel);
+            result.completeExceptionally(new NetworkUnavailableException(message));
+        }
+
+        void fail(IOException cause) {
+            closeQuietly(channel);
+            result.completeExceptionally(new NetworkUnavailableException(
+                    "TCP probe of %s failed".formatted(uri), cause));
+        }
+    }
+}
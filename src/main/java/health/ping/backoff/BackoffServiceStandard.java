@@ -1,69 +1,123 @@
 package health.ping.backoff;
 
+import health.ping.backoff.backoffFuncInterfaces.BackoffAsyncMainLogic;
 import health.ping.backoff.backoffFuncInterfaces.BackoffMainLogic;
 import health.ping.backoff.backoffFuncInterfaces.BackoffRetryCleanupHandler;
 import health.ping.backoff.backoffFuncInterfaces.BackoffRetryHandler;
 import health.ping.backoff.backoffFuncInterfaces.BackoffTerminationHandler;
+import health.scheduler.HashedTimerWheel;
 import logging.LoggerFactory;
 import org.slf4j.Logger;
 import utils.SuccessStatus;
 import utils.error.NetworkUnavailableException;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
 
 public class BackoffServiceStandard {
     private static final Logger logger = LoggerFactory.getLogger(BackoffServiceStandard.class);
-    public static class BackoffBuilder {
-        private static final Logger logger = LoggerFactory.getLogger(BackoffBuilder.class);
-        
-        private BackoffMainLogic mainLogic;
-        private BackoffRetryHandler retryHandler = () -> {};
-        private BackoffTerminationHandler terminationHandler = () -> {};
-        private BackoffRetryCleanupHandler retryCleanupHandler = () -> {};
-        private final ExecutorService executor;
-        private int maxTries = 1;
-        private long initialDelayMs = 100;
-        private long maxDelayMs = 5000;
-        private int backoffFactor = 2;
 
-        public BackoffBuilder(BackoffMainLogic mainLogicFunction, ExecutorService executor) {
-            this.mainLogic = mainLogicFunction;
-            this.executor = executor;
-        }
+    /**
+     * Retry policy and handlers shared by the blocking and the asynchronous backoff engines.
+     *
+     * @param <B> the concrete builder, returned by the setters for chaining
+     */
+    public abstract static class BaseBackoffBuilder<B extends BaseBackoffBuilder<B>> {
+        protected BackoffRetryHandler retryHandler = () -> {};
+        protected BackoffTerminationHandler terminationHandler = () -> {};
+        protected BackoffRetryCleanupHandler retryCleanupHandler = () -> {};
+        protected int maxTries = 1;
+        protected long initialDelayMs = 100;
+        protected long maxDelayMs = 5000;
+        protected int backoffFactor = 2;
+        protected boolean decorrelatedJitter;
+
+        protected abstract B self();
 
-        public BackoffBuilder initialDelayMs(long initialDelayMs) {
+        public B initialDelayMs(long initialDelayMs) {
             this.initialDelayMs = initialDelayMs;
-            return this;
+            return self();
         }
 
-        public BackoffBuilder maxDelayMs(long maxDelayMs) {
+        public B maxDelayMs(long maxDelayMs) {
             this.maxDelayMs = maxDelayMs;
-            return this;
+            return self();
         }
 
-        public BackoffBuilder onRetry(BackoffRetryHandler retryHandler, int maxTries) {
+        public B onRetry(BackoffRetryHandler retryHandler, int maxTries) {
             this.retryHandler = retryHandler;
             this.maxTries = maxTries;
-            return this;
+            return self();
         }
 
-        public BackoffBuilder onRetry(BackoffRetryHandler retryHandler) {
+        public B onRetry(BackoffRetryHandler retryHandler) {
             this.retryHandler = retryHandler;
-            return this;
+            return self();
         }
 
-        public BackoffBuilder onTermination(BackoffTerminationHandler terminationHandler) {
+        public B onTermination(BackoffTerminationHandler terminationHandler) {
             this.terminationHandler = terminationHandler;
-            return this;
+            return self();
         }
 
-        public BackoffBuilder onRetryCleanup(BackoffRetryCleanupHandler retryCleanupHandler) {
+        public B onRetryCleanup(BackoffRetryCleanupHandler retryCleanupHandler) {
             this.retryCleanupHandler  = retryCleanupHandler;
-            return this;
+            return self();
         }
 
-        public BackoffBuilder backoffFactor(int backoffFactor) {
+        public B backoffFactor(int backoffFactor) {
             this.backoffFactor = backoffFactor;
+            return self();
+        }
+
+        /**
+         * Draw each delay between the initial delay and three times the previous delay, capped at the
+         * maximum, instead of multiplying by the backoff factor. Callers that failed at the same moment
+         * then retry at different times rather than in synchronized waves.
+         */
+        public B decorrelatedJitter(boolean decorrelatedJitter) {
+            this.decorrelatedJitter = decorrelatedJitter;
+            return self();
+        }
+
+        protected long firstDelay() {
+            return decorrelatedJitter ? nextDelay(initialDelayMs) : initialDelayMs;
+        }
+
+        /**
+         * @return the source of the decorrelated jitter
+         */
+        protected RandomGenerator jitter() {
+            return ThreadLocalRandom.current();
+        }
+
+        protected long nextDelay(long delay) {
+            if (!decorrelatedJitter) {
+                return Math.min(delay * backoffFactor, maxDelayMs);
+            }
+            long lower = Math.max(0, initialDelayMs);
+            long upper = Math.max(lower + 1, Math.min(delay, maxDelayMs) * 3);
+            return Math.min(maxDelayMs, jitter().nextLong(lower, upper));
+        }
+    }
+
+    public static class BackoffBuilder extends BaseBackoffBuilder<BackoffBuilder> {
+        private static final Logger logger = LoggerFactory.getLogger(BackoffBuilder.class);
+        
+        private BackoffMainLogic mainLogic;
+        private final ExecutorService executor;
+
+        public BackoffBuilder(BackoffMainLogic mainLogicFunction, ExecutorService executor) {
+            this.mainLogic = mainLogicFunction;
+            this.executor = executor;
+        }
+
+        @Override
+        protected BackoffBuilder self() {
             return this;
         }
 
@@ -79,7 +133,7 @@ public class BackoffServiceStandard {
                 maxTries, initialDelayMs, maxDelayMs);
             
             var attempts = 0;
-            var delay = initialDelayMs;
+            var delay = firstDelay();
             
             while (attempts < maxTries) {
                 try {
@@ -111,7 +165,7 @@ public class BackoffServiceStandard {
                         throw new RuntimeException("Interrupted during backoff", ie);
                     }
                     
-                    long newDelay = Math.min(delay * backoffFactor, maxDelayMs);
+                    long newDelay = nextDelay(delay);
                     logger.debug("Increasing backoff delay from {}ms to {}ms", delay, newDelay);
                     delay = newDelay;
                 }
@@ -123,8 +177,106 @@ public class BackoffServiceStandard {
         }
     }
 
+    /**
+     * Backoff engine that never blocks: attempts are futures and the delay between attempts is a timer
+     * entry, so a pod waiting for its next retry holds no thread.
+     */
+    public static class AsyncBackoffBuilder extends BaseBackoffBuilder<AsyncBackoffBuilder> {
+        private static final Logger logger = LoggerFactory.getLogger(AsyncBackoffBuilder.class);
+
+        private final BackoffAsyncMainLogic mainLogic;
+        private final HashedTimerWheel timer;
+
+        public AsyncBackoffBuilder(BackoffAsyncMainLogic mainLogicFunction, HashedTimerWheel timer) {
+            this.mainLogic = mainLogicFunction;
+            this.timer = timer;
+        }
+
+        @Override
+        protected AsyncBackoffBuilder self() {
+            return this;
+        }
+
+        @Override
+        protected RandomGenerator jitter() {
+            // follows the wheel's clock, which a simulation seeds
+            return timer.jitter();
+        }
+
+        /**
+         * Start the first attempt and retry failed ones with exponential backoff, with the same handler
+         * semantics as {@link BackoffBuilder#execute()}. Unlike the blocking engine no delay follows the
+         * last failed attempt.
+         *
+         * @return a future completing with {@link SuccessStatus#SUCCESS} once an attempt succeeds, or with
+         * {@link SuccessStatus#FAIL} after maximum retries; it completes exceptionally when an attempt or a
+         * handler fails with anything other than a {@link NetworkUnavailableException}
+         */
+        public CompletableFuture<SuccessStatus> execute() {
+            logger.debug("Starting async backoff execution with maxTries={}, initialDelay={}, maxDelay={}",
+                maxTries, initialDelayMs, maxDelayMs);
+            var result = new CompletableFuture<SuccessStatus>();
+            attempt(result, 0, firstDelay());
+            return result;
+        }
+
+        private void attempt(CompletableFuture<SuccessStatus> result, int attempts, long delay) {
+            CompletableFuture<Void> execution;
+            try {
+                execution = this.mainLogic.execute();
+            } catch (NetworkUnavailableException e) {
+                execution = CompletableFuture.failedFuture(e);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            execution.whenComplete((_, error) -> {
+                try {
+                    onAttemptComplete(result, attempts, delay, error);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+
+        private void onAttemptComplete(CompletableFuture<SuccessStatus> result, int attempts, long delay, Throwable error) {
+            if (error == null) {
+                if (attempts > 0) {
+                    logger.info("Execution succeeded after {} retries, running cleanup", attempts);
+                    this.retryCleanupHandler.onRetryCleanup();
+                }
+                result.complete(SuccessStatus.SUCCESS);
+                return;
+            }
+            var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!(cause instanceof NetworkUnavailableException)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (attempts == 0) {
+                logger.info("Network unavailable, starting retry process");
+                this.retryHandler.onRetry();
+            }
+            int attemptsMade = attempts + 1;
+            if (attemptsMade >= maxTries) {
+                logger.warn("Execution failed after {} attempts, running termination handler", maxTries);
+                this.terminationHandler.onTerminate();
+                result.complete(SuccessStatus.FAIL);
+                return;
+            }
+            long nextDelay = nextDelay(delay);
+            logger.debug("Retry attempt {} of {}, scheduling next attempt in {}ms", attemptsMade, maxTries, delay);
+            this.timer.schedule(() -> attempt(result, attemptsMade, nextDelay), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
     public static BackoffBuilder run(BackoffMainLogic mainLogicFunction, ExecutorService executorService, long initialDelayMs, long maxDelayMs) {
         logger.debug("Creating new BackoffBuilder with initialDelayMs={}, maxDelayMs={}", initialDelayMs, maxDelayMs);
         return new BackoffBuilder(mainLogicFunction, executorService).initialDelayMs(initialDelayMs).maxDelayMs(maxDelayMs);
     }
+
+    public static AsyncBackoffBuilder runAsync(BackoffAsyncMainLogic mainLogicFunction, HashedTimerWheel timer, long initialDelayMs, long maxDelayMs) {
+        logger.debug("Creating new AsyncBackoffBuilder with initialDelayMs={}, maxDelayMs={}", initialDelayMs, maxDelayMs);
+        return new AsyncBackoffBuilder(mainLogicFunction, timer).initialDelayMs(initialDelayMs).maxDelayMs(maxDelayMs);
+    }
 }
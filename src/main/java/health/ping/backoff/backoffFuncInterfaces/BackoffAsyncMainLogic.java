@@ -0,0 +1,12 @@
+package health.ping.backoff.backoffFuncInterfaces;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous attempt retried by the backoff engine. The attempt counts as failed when the future
+ * completes with a {@link utils.error.NetworkUnavailableException}.
+ */
+@FunctionalInterface
+public interface BackoffAsyncMainLogic {
+    CompletableFuture<Void> execute();
+}
@@ -0,0 +1,81 @@
+package health.scheduler;
+
+import config.AdaptiveHealthConfig;
+import health.types.BackendPodStatus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the delay until a pod's next health check.
+ * <p>
+ * Pods that keep passing checks are checked less and less often, up to a bounded multiple of the base
+ * interval, while unresponsive, initializing and recently recovered pods are checked several times per
+ * base interval.
+ */
+public class AdaptiveIntervalPolicy {
+    private final AdaptiveHealthConfig config;
+    private final long baseIntervalNanos;
+    private final long maxIntervalNanos;
+    private final long recoveryIntervalNanos;
+
+    /**
+     * @param config         how intervals adapt
+     * @param baseIntervalMs the configured check interval
+     * @param minIntervalMs  lower bound of any interval, typically the timer wheel's tick
+     */
+    public AdaptiveIntervalPolicy(AdaptiveHealthConfig config, long baseIntervalMs, long minIntervalMs) {
+        this.config = config;
+        this.baseIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, baseIntervalMs));
+        this.maxIntervalNanos = (long) (baseIntervalNanos * config.maxIntervalMultiplier());
+        this.recoveryIntervalNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(minIntervalMs),
+                (long) (baseIntervalNanos * config.recoveryIntervalRatio()));
+    }
+
+    public boolean enabled() {
+        return config.enabled();
+    }
+
+    /**
+     * @param status             current status of the pod
+     * @param stableStreak       successful checks in a row
+     * @param recoveryChecksLeft checks left on the short interval after the pod recovered
+     * @return the interval until the pod's next check
+     */
+    public long intervalNanos(BackendPodStatus status, int stableStreak, int recoveryChecksLeft) {
+        if (!config.enabled()) {
+            return baseIntervalNanos;
+        }
+        if (recoveryChecksLeft > 0 || status == BackendPodStatus.UNRESPONSIVE || status == BackendPodStatus.INITIALIZING) {
+            return recoveryIntervalNanos;
+        }
+        int growthSteps = stableStreak - config.stableChecks();
+        if (growthSteps <= 0) {
+            return baseIntervalNanos;
+        }
+        double interval = baseIntervalNanos * Math.pow(config.growthFactor(), growthSteps);
+        return (long) Math.min(interval, maxIntervalNanos);
+    }
+
+    public long baseIntervalNanos() {
+        return baseIntervalNanos;
+    }
+
+    /**
+     * @return the shortest time between two checks of a pod, also used after a passive failure
+     */
+    public long recoveryIntervalNanos() {
+        return recoveryIntervalNanos;
+    }
+
+    /**
+     * @return how recent a successful proxied request must be to replace an active check, 0 when passive
+     * signals are ignored
+     */
+    public long passiveWindowNanos() {
+        return config.enabled() ? (long) (baseIntervalNanos * config.passiveWindowRatio()) : 0;
+    }
+
+    public int recoveryChecks() {
+        return config.recoveryChecks();
+    }
+}
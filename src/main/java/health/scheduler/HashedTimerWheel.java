@@ -0,0 +1,348 @@
+package health.scheduler;
+
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+import utils.time.TimeProvider;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+/**
+ * A hashed timing wheel: deadlines are hashed into {@code wheelSize} buckets of {@code tickMs} each, and a
+ * single ticker thread expires one bucket per tick.
+ * <p>
+ * Scheduling and cancelling are O(1) and lock-free for callers: both only enqueue the timeout, and the
+ * ticker links it into (or unlinks it from) its bucket on the next tick. Expired tasks never run on the
+ * ticker thread, they are handed to the dispatch executor, so a slow task cannot delay other deadlines.
+ * Deadlines are accurate to one tick.
+ * <p>
+ * The wheel can also be driven without its ticker thread through {@link #advanceTo(long)}, e.g. by a
+ * simulation that controls the clock. Built with a driven {@link TimerDrive}, it does so by itself: starting
+ * the wheel makes it follow the clock instead of starting a thread.
+ */
+public class HashedTimerWheel {
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimerWheel.class);
+    // bounds the work of a single tick when a burst of timeouts is scheduled at once
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final TimeProvider clock;
+    private final Executor dispatcher;
+    private final TimerDrive drive;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final long startNanos;
+    private final Object lifecycleLock = new Object();
+    // only touched by the thread advancing the wheel
+    private long currentTick;
+    private volatile Thread ticker;
+    private volatile boolean running;
+    private boolean attachedToClock;
+
+    /**
+     * @param tickMs     resolution of the wheel
+     * @param wheelSize  number of buckets, rounded up to a power of two; one round spans
+     *                   {@code tickMs * wheelSize} and longer delays wait for several rounds
+     * @param clock      source of the current time
+     * @param dispatcher runs expired tasks
+     */
+    public HashedTimerWheel(long tickMs, int wheelSize, TimeProvider clock, Executor dispatcher) {
+        this(tickMs, wheelSize, clock, dispatcher, TimerDrive.ticker());
+    }
+
+    /**
+     * @param drive whether {@link #start()} starts a ticker thread or follows the clock, and the source of
+     *              {@link #jitter()}
+     */
+    public HashedTimerWheel(long tickMs, int wheelSize, TimeProvider clock, Executor dispatcher, TimerDrive drive) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be positive");
+        }
+        if (wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("wheelSize must be between 1 and 2^30");
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.clock = clock;
+        this.dispatcher = dispatcher;
+        this.drive = drive;
+        this.startNanos = clock.nanoTime();
+    }
+
+    /**
+     * Schedule a task once.
+     *
+     * @param task  runs on the dispatch executor once the delay has elapsed
+     * @param delay delay from now, non-positive delays expire on the next tick
+     * @return a handle to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return scheduleAt(task, clock.nanoTime() + unit.toNanos(Math.max(0, delay)));
+    }
+
+    /**
+     * Schedule a task once at an absolute time of the wheel's clock.
+     */
+    public Timeout scheduleAt(Runnable task, long deadlineNanos) {
+        var timeout = new Timeout(task, deadlineNanos);
+        pendingCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return the current time of the wheel's clock, the time base of {@link #scheduleAt(Runnable, long)}
+     */
+    public long nanoTime() {
+        return clock.nanoTime();
+    }
+
+    /**
+     * @return the source of random jitter for tasks on this wheel, as given by its {@link TimerDrive}
+     */
+    public RandomGenerator jitter() {
+        return drive.jitterSource();
+    }
+
+    /**
+     * @return tasks scheduled and neither expired nor cancelled yet
+     */
+    public int pending() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Start the ticker thread, or follow the clock when the wheel is driven. Calling it again has no effect.
+     */
+    public void start() {
+        synchronized (lifecycleLock) {
+            if (ticker != null || (attachedToClock && running)) {
+                return;
+            }
+            running = true;
+            if (drive.driven()) {
+                // a driven clock only moves when it is moved, a thread would wait for it forever
+                if (!attachedToClock) {
+                    attachedToClock = true;
+                    drive.clockListener().accept(now -> {
+                        if (running) {
+                            advanceTo(now);
+                        }
+                    });
+                }
+                return;
+            }
+            ticker = Thread.ofPlatform()
+                    .name("health-timer-wheel")
+                    .daemon(true)
+                    .start(this::tickLoop);
+        }
+    }
+
+    /**
+     * Stop the ticker thread. Timeouts still pending are not run.
+     */
+    public void stop() {
+        synchronized (lifecycleLock) {
+            running = false;
+            if (ticker != null) {
+                LockSupport.unpark(ticker);
+                ticker = null;
+            }
+        }
+    }
+
+    /**
+     * Expire every tick that ended at or before the given time. Must not be called concurrently with
+     * itself or while the ticker thread runs.
+     *
+     * @param nowNanos current time of the wheel's clock
+     */
+    public void advanceTo(long nowNanos) {
+        while (tickDeadline(currentTick) <= nowNanos) {
+            processTick();
+        }
+    }
+
+    private long tickDeadline(long tick) {
+        return startNanos + (tick + 1) * tickNanos;
+    }
+
+    private void tickLoop() {
+        while (running) {
+            long now = clock.nanoTime();
+            long nextDeadline = tickDeadline(currentTick);
+            if (now < nextDeadline) {
+                LockSupport.parkNanos(this, nextDeadline - now);
+                continue;
+            }
+            try {
+                advanceTo(now);
+            } catch (RuntimeException e) {
+                logger.error("Timer wheel tick failed", e);
+            }
+        }
+    }
+
+    private void processTick() {
+        removeCancelled();
+        transferPending();
+        var bucket = wheel[(int) (currentTick & mask)];
+        bucket.expire(tickDeadline(currentTick));
+        currentTick++;
+    }
+
+    private void transferPending() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            var timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() != Timeout.PENDING) {
+                continue;
+            }
+            long calculatedTick = Math.max(0, (timeout.deadlineNanos - startNanos) / tickNanos);
+            timeout.remainingRounds = (calculatedTick - currentTick) / wheel.length;
+            // deadlines already in the past go into the bucket being expired now
+            long tick = Math.max(calculatedTick, currentTick);
+            wheel[(int) (tick & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void dispatch(Timeout timeout) {
+        try {
+            dispatcher.execute(timeout.task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Dropping expired timer task, dispatcher rejected it: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Handle to a scheduled task.
+     */
+    public final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // owned by the thread advancing the wheel
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public long deadlineNanos() {
+            return deadlineNanos;
+        }
+
+        /**
+         * Cancel the task if it has not expired yet.
+         *
+         * @return whether this call cancelled the task
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            pendingCount.decrementAndGet();
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, so a cancelled timeout is unlinked without a search.
+     */
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void expire(long tickDeadlineNanos) {
+            var timeout = head;
+            while (timeout != null) {
+                var next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= tickDeadlineNanos) {
+                    remove(timeout);
+                    if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+                        pendingCount.decrementAndGet();
+                        dispatch(timeout);
+                    }
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package health.scheduler;
+
+import utils.time.TimeProvider;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Global budget for health probes: caps how many probes are in flight at once and, through a token
+ * bucket, how many start per second, no matter how many pods fail or register at the same time.
+ * <p>
+ * Probes that cannot start right away wait in one of two FIFO queues. Urgent probes (of pods that are
+ * initializing or unresponsive) are started {@code priorityWeight} times for every regular probe, so pods
+ * whose status is in question are decided first without starving healthy pods. Nothing blocks: waiting
+ * probes are futures, completed when a running probe releases its slot or when the timer wheel signals
+ * that a token has been refilled.
+ */
+public class ProbeBudget {
+    private final int maxConcurrent;
+    private final double tokensPerNano;
+    private final double burst;
+    private final int priorityWeight;
+    private final TimeProvider clock;
+    private final HashedTimerWheel timer;
+    // all fields below are guarded by this
+    private final ArrayDeque<CompletableFuture<Void>> urgent = new ArrayDeque<>();
+    private final ArrayDeque<CompletableFuture<Void>> regular = new ArrayDeque<>();
+    private int inFlight;
+    private double tokens;
+    private long refilledAt;
+    private int urgentStreak;
+    private boolean wakeupScheduled;
+
+    /**
+     * @param maxConcurrent    probes allowed in flight at once
+     * @param probesPerSecond  sustained rate at which probes may start
+     * @param burst            probes that may start at once after an idle period
+     * @param priorityWeight   urgent probes started for every regular probe while both are waiting
+     * @param clock            source of the current time
+     * @param timer            wakes waiting probes once tokens have been refilled
+     */
+    public ProbeBudget(int maxConcurrent,
+                       double probesPerSecond,
+                       int burst,
+                       int priorityWeight,
+                       TimeProvider clock,
+                       HashedTimerWheel timer) {
+        this.maxConcurrent = maxConcurrent;
+        this.tokensPerNano = probesPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.priorityWeight = priorityWeight;
+        this.clock = clock;
+        this.timer = timer;
+        this.tokens = this.burst;
+        this.refilledAt = clock.nanoTime();
+    }
+
+    /**
+     * Reserve a slot for one probe. Every completed reservation must be paired with a {@link #release()}.
+     *
+     * @param urgentProbe whether the probed pod's status is in question
+     * @return a future completing once the probe may start
+     */
+    public CompletableFuture<Void> acquire(boolean urgentProbe) {
+        var reservation = new CompletableFuture<Void>();
+        List<CompletableFuture<Void>> granted;
+        synchronized (this) {
+            (urgentProbe ? urgent : regular).add(reservation);
+            granted = drain();
+        }
+        granted.forEach(ready -> ready.complete(null));
+        return reservation;
+    }
+
+    /**
+     * Return the slot of a finished probe.
+     */
+    public void release() {
+        List<CompletableFuture<Void>> granted;
+        synchronized (this) {
+            inFlight--;
+            granted = drain();
+        }
+        granted.forEach(ready -> ready.complete(null));
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int waiting() {
+        return urgent.size() + regular.size();
+    }
+
+    private List<CompletableFuture<Void>> drain() {
+        List<CompletableFuture<Void>> granted = List.of();
+        refill();
+        while (inFlight < maxConcurrent && !(urgent.isEmpty() && regular.isEmpty())) {
+            if (tokens < 1) {
+                scheduleWakeup();
+                break;
+            }
+            if (granted.isEmpty()) {
+                granted = new ArrayList<>();
+            }
+            granted.add(nextWaiting());
+            tokens -= 1;
+            inFlight++;
+        }
+        return granted;
+    }
+
+    private CompletableFuture<Void> nextWaiting() {
+        if (!urgent.isEmpty() && (regular.isEmpty() || urgentStreak < priorityWeight)) {
+            urgentStreak++;
+            return urgent.poll();
+        }
+        urgentStreak = 0;
+        return regular.poll();
+    }
+
+    private void refill() {
+        long now = clock.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+
+    private void scheduleWakeup() {
+        if (wakeupScheduled) {
+            return;
+        }
+        wakeupScheduled = true;
+        long untilNextToken = (long) Math.ceil((1 - tokens) / tokensPerNano);
+        timer.schedule(() -> {
+            List<CompletableFuture<Void>> granted;
+            synchronized (this) {
+                wakeupScheduled = false;
+                granted = drain();
+            }
+            granted.forEach(ready -> ready.complete(null));
+        }, untilNextToken, TimeUnit.NANOSECONDS);
+    }
+}
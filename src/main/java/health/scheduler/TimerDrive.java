@@ -0,0 +1,44 @@
+package health.scheduler;
+
+import utils.time.VirtualTimeProvider;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.random.RandomGenerator;
+
+/**
+ * How a {@link HashedTimerWheel} moves forward and where the jitter of its tasks comes from.
+ *
+ * @param jitter        source of random jitter, {@code null} for the calling thread's {@link ThreadLocalRandom}
+ * @param clockListener registers a listener called with the new time whenever the clock is moved;
+ *                      {@code null} lets the wheel run its own ticker thread on the wall clock
+ */
+public record TimerDrive(RandomGenerator jitter, Consumer<LongConsumer> clockListener) {
+
+    /**
+     * @return a ticker thread and thread-local jitter, for production clocks
+     */
+    public static TimerDrive ticker() {
+        return new TimerDrive(null, null);
+    }
+
+    /**
+     * Follow a virtual clock: the wheel catches up whenever the clock is moved, and jitter comes from the
+     * clock's seeded generator, so simulated runs repeat exactly.
+     */
+    public static TimerDrive following(VirtualTimeProvider clock) {
+        return new TimerDrive(clock.jitter(), clock::onAdvance);
+    }
+
+    /**
+     * @return whether the wheel is moved by its clock instead of a ticker thread
+     */
+    public boolean driven() {
+        return clockListener != null;
+    }
+
+    RandomGenerator jitterSource() {
+        return jitter != null ? jitter : ThreadLocalRandom.current();
+    }
+}
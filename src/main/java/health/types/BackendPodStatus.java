@@ -9,12 +9,15 @@ package health.types;
  *   <li>ALIVE: Pod is healthy and expected to receive requests</li>
  *   <li>UNRESPONSIVE: Pod is temporarily not responding to requests</li>
  *   <li>DEAD: Pod has remained unresponsive for too long and will no longer be considered for forwarding requests</li>
+ *   <li>DRAINING: Pod is leaving; it gets no new requests and is removed once those it is serving have finished</li>
  * </ul>
+ * New states are added at the end: the registry journal stores the ordinal.
  */
 
 public enum BackendPodStatus {
     ALIVE,
     INITIALIZING,
     UNRESPONSIVE,
-    DEAD
+    DEAD,
+    DRAINING
 }
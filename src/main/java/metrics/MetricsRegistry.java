@@ -0,0 +1,91 @@
+package metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters and gauges exposed by the load balancer, rendered in the Prometheus text format.
+ * <p>
+ * A series is identified by its name and optional label pairs, e.g.
+ * {@code counter("lb_requests_total", "pod", "http://10.0.0.7:9000")}. Counters are {@link LongAdder}s so
+ * hot paths can increment them without contention; gauges are sampled only when the metrics are rendered.
+ */
+public class MetricsRegistry {
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param name   metric name
+     * @param labels alternating label names and values
+     * @return the counter of the series, created on first use
+     */
+    public LongAdder counter(String name, String... labels) {
+        return counters.computeIfAbsent(seriesKey(name, labels), _ -> new LongAdder());
+    }
+
+    /**
+     * Register a gauge, replacing any gauge of the same series.
+     *
+     * @param name   metric name
+     * @param value  sampled each time the metrics are rendered
+     * @param labels alternating label names and values
+     */
+    public void gauge(String name, LongSupplier value, String... labels) {
+        gauges.put(seriesKey(name, labels), value);
+    }
+
+    /**
+     * Drop a counter or gauge series, e.g. once the pod it describes is gone.
+     */
+    public void remove(String name, String... labels) {
+        String key = seriesKey(name, labels);
+        counters.remove(key);
+        gauges.remove(key);
+    }
+
+    /**
+     * Write every series as {@code name{labels} value} lines, sorted by series.
+     */
+    public void writeTo(Appendable out) throws IOException {
+        for (var counter : counters.entrySet()) {
+            out.append(counter.getKey()).append(' ').append(Long.toString(counter.getValue().sum())).append('\n');
+        }
+        for (var gauge : gauges.entrySet()) {
+            out.append(gauge.getKey()).append(' ').append(Long.toString(gauge.getValue().getAsLong())).append('\n');
+        }
+    }
+
+    private static String seriesKey(String name, String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("labels must be name/value pairs");
+        }
+        if (labels.length == 0) {
+            return name;
+        }
+        var key = new StringBuilder(name).append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(labels[i]).append("=\"");
+            escape(labels[i + 1], key);
+            key.append('"');
+        }
+        return key.append('}').toString();
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -3,37 +3,80 @@ package repository;
 import pods.BackendPod;
 import utils.EventEmitter;
 import utils.EventSubscriber;
+import utils.event.SynchronousEventBus;
 
 import java.net.URI;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import health.types.BackendPodStatus;
 
+/**
+ * Registry of backend pods. Its state is an immutable {@link PodRegistrySnapshot} behind one atomic
+ * reference: reads never lock, and each change builds the next generation, records its net effect for
+ * {@link #changesSince(long)} and queues its event, one change at a time.
+ * <p>
+ * Events are published in generation order once the write lock is released, so subscribers may read and
+ * change the store, or wait for threads that do. One thread publishes at a time: a change made while another
+ * thread is publishing returns right away and its event is delivered by that thread, and a change made by a
+ * subscriber is delivered after the event being handled.
+ */
 public class BackendPodInMemoryStore implements Repository<URI, BackendPod>, EventEmitter<EventSubscriber<BackendPodEvent, BackendPodEventContext>, BackendPodEvent, BackendPodEventContext> {
-    private static final Logger logger = LoggerFactory.getLogger(BackendPodInMemoryStore.class);
     public static BackendPodInMemoryStore inMemoryStore;
-    private final Map<URI, BackendPod> uriBackendPodMap;
-    private final Map<BackendPodEvent, Set<EventSubscriber<BackendPodEvent, BackendPodEventContext>>> backendPodSubscribers;
+    // generations of which changesSince can still report the changes
+    private static final int CHANGE_HISTORY = 1024;
+
+    private final AtomicReference<PodRegistrySnapshot> snapshot = new AtomicReference<>(PodRegistrySnapshot.EMPTY);
+    // serializes changes, so generations, change history and events follow the same order
+    private final Object writeLock = new Object();
+    private final Change[] changes = new Change[CHANGE_HISTORY];
+    // generation the change history starts after
+    private long historyStart;
+    private final List<PodRegistryChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    // events of committed changes not yet published, in generation order; guarded by the write lock
+    private final Queue<PendingEvent> pendingEvents = new ArrayDeque<>();
+    // whether a thread is publishing the pending events; guarded by the write lock
+    private boolean publishing;
+    private final EventEmitter<EventSubscriber<BackendPodEvent, BackendPodEventContext>, BackendPodEvent, BackendPodEventContext> eventBus;
+
+    private record Change(long generation, List<BackendPod> upserted, List<URI> removed) {
+    }
 
-    private BackendPodInMemoryStore() {
-        this.backendPodSubscribers = new ConcurrentHashMap<>();
-        this.uriBackendPodMap = new ConcurrentHashMap<>();
+    private record PendingEvent(BackendPodEvent event, BackendPodEventContext context) {
+    }
+
+    private BackendPodInMemoryStore(EventEmitter<EventSubscriber<BackendPodEvent, BackendPodEventContext>, BackendPodEvent, BackendPodEventContext> eventBus) {
+        this.eventBus = eventBus;
     }
 
     public static BackendPodInMemoryStore getStore() {
         if (inMemoryStore == null) {
-            inMemoryStore = new BackendPodInMemoryStore();
+            inMemoryStore = new BackendPodInMemoryStore(new SynchronousEventBus<>());
         }
         return inMemoryStore;
     }
 
+    /**
+     * Replace the store with an empty one publishing its events on the given bus. Subscribers of the
+     * default store are called on the publishing thread; an asynchronous bus decouples them from it.
+     */
+    public static BackendPodInMemoryStore initStore(EventEmitter<EventSubscriber<BackendPodEvent, BackendPodEventContext>, BackendPodEvent, BackendPodEventContext> eventBus) {
+        inMemoryStore = new BackendPodInMemoryStore(eventBus);
+        return inMemoryStore;
+    }
+
+    /**
+     * Create a store of its own, independent of the shared one, e.g. for each of several balancer
+     * instances running in one JVM.
+     */
+    public static BackendPodInMemoryStore create() {
+        return new BackendPodInMemoryStore(new SynchronousEventBus<>());
+    }
+
     public static void resetInstance() {
-        inMemoryStore = new BackendPodInMemoryStore();
+        inMemoryStore = new BackendPodInMemoryStore(new SynchronousEventBus<>());
     }
 
     /**
@@ -42,15 +85,150 @@ public class BackendPodInMemoryStore implements Repository<URI, BackendPod>, Eve
      */
     @Override
     public BackendPod get(URI id) {
-        return uriBackendPodMap.get(id);
+        return snapshot.get().get(id);
     }
 
     /**
-     * @return
+     * @return the pods of the current snapshot, unmodifiable and unaffected by later changes
      */
     @Override
     public Collection<BackendPod> getAll() {
-        return uriBackendPodMap.values();
+        return snapshot.get().pods();
+    }
+
+    /**
+     * @return the pods currently in the given status, unmodifiable
+     */
+    public Collection<BackendPod> getAllWithStatus(BackendPodStatus status) {
+        return snapshot.get().withStatus(status);
+    }
+
+    /**
+     * @return the number of pods currently in the given status, in constant time
+     */
+    public int count(BackendPodStatus status) {
+        return snapshot.get().count(status);
+    }
+
+    /**
+     * @return the current state of the registry; a single volatile read
+     */
+    public PodRegistrySnapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Net changes made to the registry since a generation, e.g. that of the last snapshot a subscriber
+     * read. Only the last {@value #CHANGE_HISTORY} generations are kept.
+     *
+     * @return the changes, empty when the generation is too old or in the future; the caller then has to
+     * start over from {@link #snapshot()}
+     */
+    public Optional<PodRegistryDelta> changesSince(long generation) {
+        synchronized (writeLock) {
+            long latest = snapshot.get().generation();
+            if (generation > latest || generation < Math.max(historyStart, latest - CHANGE_HISTORY)) {
+                return Optional.empty();
+            }
+            var upserted = new LinkedHashMap<URI, BackendPod>();
+            var removed = new LinkedHashSet<URI>();
+            for (long current = generation + 1; current <= latest; current++) {
+                var change = changes[(int) (current % CHANGE_HISTORY)];
+                for (var pod : change.upserted()) {
+                    removed.remove(pod.uri());
+                    upserted.put(pod.uri(), pod);
+                }
+                for (var uri : change.removed()) {
+                    upserted.remove(uri);
+                    removed.add(uri);
+                }
+            }
+            return Optional.of(new PodRegistryDelta(generation, latest, List.copyOf(upserted.values()), List.copyOf(removed)));
+        }
+    }
+
+    /**
+     * Apply a change as the next generation. Callers hold the write lock.
+     */
+    private void commit(BackendPodEvent event, List<BackendPod> upserted, List<URI> removed) {
+        var editor = snapshot.get().edit();
+        upserted.forEach(editor::put);
+        removed.forEach(editor::remove);
+        var next = editor.build();
+        changes[(int) (next.generation() % CHANGE_HISTORY)] = new Change(next.generation(), upserted, removed);
+        snapshot.set(next);
+        for (var listener : changeListeners) {
+            listener.onChange(next.generation(), event, upserted, removed);
+        }
+    }
+
+    /**
+     * Queue the event of the change just committed. Callers hold the write lock.
+     */
+    private void queueEvent(BackendPodEvent event, List<BackendPod> affectedPods) {
+        pendingEvents.add(new PendingEvent(event, new BackendPodEventContext(event, ZonedDateTime.now(), affectedPods)));
+    }
+
+    /**
+     * Publish the queued events unless another thread already does, or the caller still holds the write
+     * lock, in which case the outermost change publishes them.
+     */
+    private void publishPending() {
+        if (Thread.holdsLock(writeLock)) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (publishing) {
+                return;
+            }
+            publishing = true;
+        }
+        boolean drained = false;
+        try {
+            while (true) {
+                PendingEvent next;
+                synchronized (writeLock) {
+                    next = pendingEvents.poll();
+                    if (next == null) {
+                        publishing = false;
+                        drained = true;
+                        return;
+                    }
+                }
+                this.publish(next.event(), next.context());
+            }
+        } finally {
+            if (!drained) {
+                // a subscriber failed; the events left are published by the next change
+                synchronized (writeLock) {
+                    publishing = false;
+                }
+            }
+        }
+    }
+
+    public void addChangeListener(PodRegistryChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Load the registry of a previous run into this empty store. Generations continue from the restored
+     * one, and the pods are added and published like new ones, except that ALIVE pods are also made ready
+     * right away, ahead of their first health check.
+     *
+     * @throws IllegalStateException when the store already holds pods
+     */
+    public void restore(long generation, Collection<BackendPod> pods) {
+        synchronized (writeLock) {
+            if (snapshot.get().size() > 0) {
+                throw new IllegalStateException("Cannot restore into a store holding pods");
+            }
+            snapshot.set(PodRegistrySnapshot.empty(generation));
+            historyStart = generation;
+            addAll(pods);
+            makePodsReady(pods.stream().filter(pod -> pod.status() == BackendPodStatus.ALIVE).toList());
+        }
+        publishPending();
     }
 
     /**
@@ -58,14 +236,57 @@ public class BackendPodInMemoryStore implements Repository<URI, BackendPod>, Eve
      */
     @Override
     public void add(BackendPod item) {
-        this.uriBackendPodMap.put(item.uri(), item);
-        BackendPodEvent addEvent = BackendPodEvent.ADD_POD;
-        BackendPodEventContext context = new BackendPodEventContext(
-                addEvent,
-                ZonedDateTime.now(),
-                List.of(item)
-        );
-        this.publish(addEvent, context);
+        synchronized (writeLock) {
+            commit(BackendPodEvent.ADD_POD, List.of(item), List.of());
+            queueEvent(BackendPodEvent.ADD_POD, List.of(item));
+        }
+        publishPending();
+    }
+
+    /**
+     * Add several pods and publish a single ADD_POD event listing all of them, instead of one event per
+     * pod. A pod listed twice is added once, the later entry winning.
+     */
+    public void addAll(Collection<BackendPod> pods) {
+        if (pods.isEmpty()) {
+            return;
+        }
+        var added = new LinkedHashMap<URI, BackendPod>();
+        pods.forEach(pod -> added.put(pod.uri(), pod));
+        var addedPods = List.copyOf(added.values());
+        synchronized (writeLock) {
+            commit(BackendPodEvent.ADD_POD, addedPods, List.of());
+            queueEvent(BackendPodEvent.ADD_POD, addedPods);
+        }
+        publishPending();
+    }
+
+    /**
+     * Add those of the pods not registered yet, checked under the write lock so a pod registered meanwhile
+     * keeps its status, and publish a single ADD_POD event listing them.
+     *
+     * @return the pods added
+     */
+    public List<BackendPod> addAllAbsent(Collection<BackendPod> pods) {
+        if (pods.isEmpty()) {
+            return List.of();
+        }
+        List<BackendPod> addedPods;
+        synchronized (writeLock) {
+            var current = snapshot.get();
+            var added = new LinkedHashMap<URI, BackendPod>();
+            pods.stream()
+                    .filter(pod -> current.get(pod.uri()) == null)
+                    .forEach(pod -> added.put(pod.uri(), pod));
+            if (added.isEmpty()) {
+                return List.of();
+            }
+            addedPods = List.copyOf(added.values());
+            commit(BackendPodEvent.ADD_POD, addedPods, List.of());
+            queueEvent(BackendPodEvent.ADD_POD, addedPods);
+        }
+        publishPending();
+        return addedPods;
     }
 
     /**
@@ -73,16 +294,37 @@ public class BackendPodInMemoryStore implements Repository<URI, BackendPod>, Eve
      */
     @Override
     public void remove(URI id) {
-        if (!this.uriBackendPodMap.containsKey(id)) {
-            return;
+        synchronized (writeLock) {
+            var pod = snapshot.get().get(id);
+            if (pod == null) {
+                return;
+            }
+            commit(BackendPodEvent.REMOVE_POD, List.of(), List.of(id));
+            queueEvent(BackendPodEvent.REMOVE_POD, List.of(pod));
         }
-        var pod = this.uriBackendPodMap.get(id);
-        this.uriBackendPodMap.remove(id);
-        this.publish(BackendPodEvent.REMOVE_POD, new BackendPodEventContext(
-                BackendPodEvent.REMOVE_POD,
-                ZonedDateTime.now(),
-                List.of(pod)
-        ));
+        publishPending();
+    }
+
+    /**
+     * Remove several pods and publish a single REMOVE_POD event listing those that were registered.
+     */
+    public void removeAll(Collection<URI> ids) {
+        synchronized (writeLock) {
+            var current = snapshot.get();
+            var removedPods = new LinkedHashMap<URI, BackendPod>();
+            for (var id : ids) {
+                var pod = current.get(id);
+                if (pod != null) {
+                    removedPods.put(id, pod);
+                }
+            }
+            if (removedPods.isEmpty()) {
+                return;
+            }
+            commit(BackendPodEvent.REMOVE_POD, List.of(), List.copyOf(removedPods.keySet()));
+            queueEvent(BackendPodEvent.REMOVE_POD, List.copyOf(removedPods.values()));
+        }
+        publishPending();
     }
 
     /**
@@ -94,14 +336,54 @@ public class BackendPodInMemoryStore implements Repository<URI, BackendPod>, Eve
             this.remove(pod.uri());
             return;
         }
-        this.uriBackendPodMap.put(pod.uri(), pod);
-        BackendPodEvent updateEvent = BackendPodEvent.UPDATE_POD;
-        BackendPodEventContext context = new BackendPodEventContext(
-                updateEvent,
-                ZonedDateTime.now(),
-                List.of(pod)
-        );
-        this.publish(updateEvent, context);
+        synchronized (writeLock) {
+            commit(BackendPodEvent.UPDATE_POD, List.of(pod), List.of());
+            queueEvent(BackendPodEvent.UPDATE_POD, List.of(pod));
+        }
+        publishPending();
+    }
+
+    /**
+     * Update a pod only while it is registered with the expected status, checked under the write lock, so a
+     * change or removal made since the caller read the pod is never overwritten. A DEAD pod is removed
+     * instead, as with {@link #update}.
+     *
+     * @return whether the pod was changed; nothing is published otherwise
+     */
+    public boolean updateIf(BackendPodStatus expected, BackendPod pod) {
+        synchronized (writeLock) {
+            var current = snapshot.get().get(pod.uri());
+            if (current == null || current.status() != expected) {
+                return false;
+            }
+            if (pod.status() == BackendPodStatus.DEAD) {
+                commit(BackendPodEvent.REMOVE_POD, List.of(), List.of(pod.uri()));
+                queueEvent(BackendPodEvent.REMOVE_POD, List.of(current));
+            } else {
+                commit(BackendPodEvent.UPDATE_POD, List.of(pod), List.of());
+                queueEvent(BackendPodEvent.UPDATE_POD, List.of(pod));
+            }
+        }
+        publishPending();
+        return true;
+    }
+
+    /**
+     * Remove a pod only while it is registered with the expected status, checked under the write lock.
+     *
+     * @return whether the pod was removed
+     */
+    public boolean removeIf(URI id, BackendPodStatus expected) {
+        synchronized (writeLock) {
+            var current = snapshot.get().get(id);
+            if (current == null || current.status() != expected) {
+                return false;
+            }
+            commit(BackendPodEvent.REMOVE_POD, List.of(), List.of(id));
+            queueEvent(BackendPodEvent.REMOVE_POD, List.of(current));
+        }
+        publishPending();
+        return true;
     }
 
     /**
@@ -111,7 +393,7 @@ public class BackendPodInMemoryStore implements Repository<URI, BackendPod>, Eve
      */
     @Override
     public void subscribe(BackendPodEvent event, EventSubscriber<BackendPodEvent, BackendPodEventContext> subscriber) {
-        this.backendPodSubscribers.computeIfAbsent(event, _ -> new HashSet<>()).add(subscriber);
+        this.eventBus.subscribe(event, subscriber);
     }
 
     /**
@@ -120,30 +402,53 @@ public class BackendPodInMemoryStore implements Repository<URI, BackendPod>, Eve
      */
     @Override
     public void publish(BackendPodEvent event, BackendPodEventContext content) {
-        logger.info("Publishing event: {}", event);
-        if (!this.backendPodSubscribers.containsKey(event)) {
-            return;
-        }
-        this.backendPodSubscribers.get(event).forEach(
-                subscriber -> subscriber.handleEvent(event, content)
-        );
+        this.eventBus.publish(event, content);
     }
 
     @Override
     public void unsubscribe(BackendPodEvent event, EventSubscriber<BackendPodEvent, BackendPodEventContext> subscriber) {
-        if (!this.backendPodSubscribers.containsKey(event) || !this.backendPodSubscribers.get(event).contains(subscriber)) {
+        this.eventBus.unsubscribe(event, subscriber);
+    }
+
+    /**
+     * Mark several pods ready with a single POD_READY event.
+     */
+    public void makePodsReady(Collection<BackendPod> pods) {
+        if (pods.isEmpty()) {
             return;
         }
-        this.backendPodSubscribers.get(event).remove(subscriber);
+        var readyPods = List.copyOf(pods);
+        synchronized (writeLock) {
+            commit(BackendPodEvent.POD_READY, readyPods, List.of());
+            queueEvent(BackendPodEvent.POD_READY, readyPods);
+        }
+        publishPending();
+    }
+
+    /**
+     * Mark a pod ready only while it is registered with the expected status, checked under the write lock.
+     *
+     * @return whether the pod was made ready; nothing is published otherwise
+     */
+    public boolean makePodReadyIf(BackendPodStatus expected, BackendPod pod) {
+        synchronized (writeLock) {
+            var current = snapshot.get().get(pod.uri());
+            if (current == null || current.status() != expected) {
+                return false;
+            }
+            commit(BackendPodEvent.POD_READY, List.of(pod), List.of());
+            queueEvent(BackendPodEvent.POD_READY, List.of(pod));
+        }
+        publishPending();
+        return true;
     }
 
     public void makePodReady(BackendPod pod) {
-        this.uriBackendPodMap.put(pod.uri(), pod);
-        this.publish(BackendPodEvent.POD_READY, new BackendPodEventContext(
-                BackendPodEvent.POD_READY,
-                ZonedDateTime.now(),
-                List.of(pod)
-        ));
+        synchronized (writeLock) {
+            commit(BackendPodEvent.POD_READY, List.of(pod), List.of());
+            queueEvent(BackendPodEvent.POD_READY, List.of(pod));
+        }
+        publishPending();
     }
 
 }
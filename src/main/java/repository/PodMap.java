@@ -0,0 +1,151 @@
+package repository;
+
+import pods.BackendPod;
+
+import java.net.URI;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable map of pods by URI, split into {@value #SHARDS} shards so that a changed copy shares every
+ * shard it does not touch: adding or removing a pod copies one shard, about 1/{@value #SHARDS} of the
+ * pods, instead of the whole map.
+ */
+final class PodMap {
+    private static final int SHARD_BITS = 6;
+    private static final int SHARDS = 1 << SHARD_BITS;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static final PodMap EMPTY = new PodMap(new HashMap[SHARDS], 0);
+
+    // never modified once the map is built; null for empty shards
+    private final HashMap<URI, BackendPod>[] shards;
+    private final int size;
+    private final Collection<BackendPod> values = new Values();
+
+    private PodMap(HashMap<URI, BackendPod>[] shards, int size) {
+        this.shards = shards;
+        this.size = size;
+    }
+
+    private static int shardOf(URI uri) {
+        // top bits of a multiplicative hash; the low bits are left to the shard's HashMap, which buckets
+        // by them and would otherwise see every key of a shard collide
+        return (uri.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - SHARD_BITS);
+    }
+
+    BackendPod get(URI uri) {
+        var shard = shards[shardOf(uri)];
+        return shard == null ? null : shard.get(uri);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return an unmodifiable view of the pods
+     */
+    Collection<BackendPod> values() {
+        return values;
+    }
+
+    Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * Builds a changed copy of a map, copying each touched shard once however many pods of it change.
+     */
+    static final class Editor {
+        private final HashMap<URI, BackendPod>[] shards;
+        private final boolean[] copied = new boolean[SHARDS];
+        private int size;
+
+        private Editor(PodMap base) {
+            this.shards = base.shards.clone();
+            this.size = base.size;
+        }
+
+        private HashMap<URI, BackendPod> writable(int index) {
+            if (!copied[index]) {
+                var shard = shards[index];
+                shards[index] = shard == null ? new HashMap<>() : new HashMap<>(shard);
+                copied[index] = true;
+            }
+            return shards[index];
+        }
+
+        /**
+         * @return the pod previously stored under the same URI, {@code null} if there was none
+         */
+        BackendPod put(BackendPod pod) {
+            var previous = writable(shardOf(pod.uri())).put(pod.uri(), pod);
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+
+        /**
+         * @return the removed pod, {@code null} if there was none
+         */
+        BackendPod remove(URI uri) {
+            int index = shardOf(uri);
+            if (shards[index] == null || !shards[index].containsKey(uri)) {
+                return null;
+            }
+            size--;
+            return writable(index).remove(uri);
+        }
+
+        /**
+         * @return the changed map; the editor may go on editing, which no longer affects the map
+         */
+        PodMap build() {
+            Arrays.fill(copied, false);
+            return new PodMap(shards.clone(), size);
+        }
+    }
+
+    private final class Values extends AbstractCollection<BackendPod> {
+        @Override
+        public Iterator<BackendPod> iterator() {
+            return new Iterator<>() {
+                private int shard = -1;
+                private Iterator<BackendPod> current = Map.<URI, BackendPod>of().values().iterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext()) {
+                        if (shard + 1 == SHARDS) {
+                            return false;
+                        }
+                        shard++;
+                        if (shards[shard] != null) {
+                            current = shards[shard].values().iterator();
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public BackendPod next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return current.next();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package repository;
+
+import pods.BackendPod;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Observes every change of the pod registry, one at a time and in generation order, before the change's
+ * event is published. Called while the store holds its write lock, so it must be quick.
+ */
+@FunctionalInterface
+public interface PodRegistryChangeListener {
+    /**
+     * @param generation generation the change produced
+     * @param event      event the change is published as
+     * @param upserted   pods added or changed
+     * @param removed    pods removed
+     */
+    void onChange(long generation, BackendPodEvent event, List<BackendPod> upserted, List<URI> removed);
+}
@@ -0,0 +1,22 @@
+package repository;
+
+import pods.BackendPod;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Net changes of the pod registry between two generations: a pod changed several times appears once, in
+ * its latest state.
+ *
+ * @param fromGeneration generation the changes start after
+ * @param toGeneration   generation the changes lead to
+ * @param upserted       pods added or changed, in their state at {@code toGeneration}
+ * @param removed        pods no longer in the registry at {@code toGeneration}
+ */
+public record PodRegistryDelta(long fromGeneration, long toGeneration, List<BackendPod> upserted, List<URI> removed) {
+
+    public boolean isEmpty() {
+        return upserted.isEmpty() && removed.isEmpty();
+    }
+}
@@ -0,0 +1,130 @@
+package repository;
+
+import health.types.BackendPodStatus;
+import pods.BackendPod;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable state of the pod registry at one generation, with the pods grouped by status.
+ * <p>
+ * The store replaces its snapshot on every change and bumps the generation, so a reader holding a snapshot
+ * sees one consistent registry for as long as it likes, without locking or copying. Successive snapshots
+ * share all pods that did not change, see {@link PodMap}.
+ */
+public final class PodRegistrySnapshot {
+    static final PodRegistrySnapshot EMPTY = new PodRegistrySnapshot(0, PodMap.EMPTY, emptyByStatus());
+
+    private final long generation;
+    private final PodMap pods;
+    // never modified once the snapshot is built
+    private final Map<BackendPodStatus, PodMap> byStatus;
+
+    private PodRegistrySnapshot(long generation, PodMap pods, Map<BackendPodStatus, PodMap> byStatus) {
+        this.generation = generation;
+        this.pods = pods;
+        this.byStatus = byStatus;
+    }
+
+    /**
+     * @return an empty registry at the given generation, from which later changes continue
+     */
+    static PodRegistrySnapshot empty(long generation) {
+        return new PodRegistrySnapshot(generation, PodMap.EMPTY, EMPTY.byStatus);
+    }
+
+    private static Map<BackendPodStatus, PodMap> emptyByStatus() {
+        var byStatus = new EnumMap<BackendPodStatus, PodMap>(BackendPodStatus.class);
+        for (var status : BackendPodStatus.values()) {
+            byStatus.put(status, PodMap.EMPTY);
+        }
+        return byStatus;
+    }
+
+    /**
+     * @return number of changes made to the registry up to this snapshot
+     */
+    public long generation() {
+        return generation;
+    }
+
+    public BackendPod get(URI uri) {
+        return pods.get(uri);
+    }
+
+    /**
+     * @return the pods, unmodifiable
+     */
+    public Collection<BackendPod> pods() {
+        return pods.values();
+    }
+
+    public int size() {
+        return pods.size();
+    }
+
+    /**
+     * @return the pods in the given status, unmodifiable; iterating them takes time in proportion to
+     * their number, not to the size of the registry
+     */
+    public Collection<BackendPod> withStatus(BackendPodStatus status) {
+        return byStatus.get(status).values();
+    }
+
+    /**
+     * @return the number of pods in the given status, in constant time
+     */
+    public int count(BackendPodStatus status) {
+        return byStatus.get(status).size();
+    }
+
+    Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * Builds the next snapshot, keeping the status groups in step with the pods.
+     */
+    static final class Editor {
+        private final long baseGeneration;
+        private final PodMap.Editor pods;
+        private final Map<BackendPodStatus, PodMap.Editor> byStatus = new EnumMap<>(BackendPodStatus.class);
+
+        private Editor(PodRegistrySnapshot base) {
+            this.baseGeneration = base.generation;
+            this.pods = base.pods.edit();
+            base.byStatus.forEach((status, group) -> byStatus.put(status, group.edit()));
+        }
+
+        void put(BackendPod pod) {
+            var previous = pods.put(pod);
+            if (previous != null && previous.status() != pod.status()) {
+                byStatus.get(previous.status()).remove(pod.uri());
+            }
+            byStatus.get(pod.status()).put(pod);
+        }
+
+        /**
+         * @return the removed pod, {@code null} if there was none
+         */
+        BackendPod remove(URI uri) {
+            var previous = pods.remove(uri);
+            if (previous != null) {
+                byStatus.get(previous.status()).remove(uri);
+            }
+            return previous;
+        }
+
+        /**
+         * @return the snapshot of the next generation
+         */
+        PodRegistrySnapshot build() {
+            var groups = new EnumMap<BackendPodStatus, PodMap>(BackendPodStatus.class);
+            byStatus.forEach((status, group) -> groups.put(status, group.build()));
+            return new PodRegistrySnapshot(baseGeneration + 1, pods.build(), groups);
+        }
+    }
+}
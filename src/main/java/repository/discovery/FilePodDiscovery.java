@@ -0,0 +1,198 @@
+package repository.discovery;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import config.DiscoveryConfig;
+import health.types.BackendPodStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+import utils.filesystem.DebouncedFileWatcher;
+import utils.time.TimeProvider;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Discovers pods from a file and keeps the store in step with it while the file changes.
+ * <p>
+ * The file is read as a stream, so files of 100k pods are never held as text, and its checksum is taken on
+ * the way: a file saved without changes ends there. Otherwise its entries are diffed against those of the
+ * previous version by hash lookups, and only new entries are parsed as URIs, which costs far more than
+ * the lookups. Pods new to the store are added with one ADD_POD event, pods the file no longer lists are
+ * removed with one REMOVE_POD event, and every other pod is left alone, keeping its status and health
+ * check schedule. Pods registered some other way are only removed when a version of the file listed them.
+ * <p>
+ * A file that cannot be read or parsed changes nothing; it is read again on its next change.
+ */
+public class FilePodDiscovery {
+    private static final Logger logger = LoggerFactory.getLogger(FilePodDiscovery.class);
+
+    private final Path file;
+    private final BackendPodInMemoryStore store;
+    private final DebouncedFileWatcher watcher;
+    // only changed by the thread reading the file
+    private volatile Map<String, URI> listed = Map.of();
+    private long checksum = -1;
+
+    public FilePodDiscovery(DiscoveryConfig config, BackendPodInMemoryStore store, TimeProvider timeProvider) {
+        this.file = Path.of(config.file()).toAbsolutePath();
+        this.store = store;
+        this.watcher = new DebouncedFileWatcher(file, config.debounceMs(), timeProvider, this::reloadQuietly);
+    }
+
+    /**
+     * Read the file once now, then again whenever it changes, until {@link #stop()} is called.
+     */
+    public void start(ExecutorService executor) throws IOException {
+        reloadQuietly();
+        watcher.start(executor);
+    }
+
+    public void stop() throws IOException {
+        watcher.stop();
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Could not discover pods from {}, keeping the pods discovered so far", file, e);
+        }
+    }
+
+    /**
+     * Read the file and apply what changed since the last time it was read.
+     *
+     * @return whether the file changed
+     * @throws IOException              when the file cannot be read or is not valid JSON
+     * @throws IllegalArgumentException when the file lists an invalid URI
+     */
+    public boolean reload() throws IOException {
+        long start = System.nanoTime();
+        Set<String> entries;
+        var crc = new CRC32C();
+        try (var in = new CheckedInputStream(Files.newInputStream(file), crc);
+             var reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            entries = readEntries(reader);
+        }
+        if (crc.getValue() == checksum) {
+            return false;
+        }
+        var previous = listed;
+        var next = HashMap.<String, URI>newHashMap(entries.size());
+        var candidates = new ArrayList<BackendPod>();
+        for (var entry : entries) {
+            var uri = previous.get(entry);
+            if (uri == null) {
+                // throws before anything is applied
+                uri = URI.create(entry);
+                candidates.add(new BackendPod(uri, BackendPodStatus.INITIALIZING));
+            }
+            next.put(entry, uri);
+        }
+        var removed = new ArrayList<URI>();
+        previous.forEach((entry, uri) -> {
+            if (!entries.contains(entry)) {
+                removed.add(uri);
+            }
+        });
+        store.removeAll(removed);
+        // pods registered some other way, even while the file was read, are left alone
+        var added = store.addAllAbsent(candidates);
+        listed = next;
+        checksum = crc.getValue();
+        logger.info("Discovered {} pods from {}: {} added, {} removed in {}ms", next.size(), file, added.size(),
+                removed.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return true;
+    }
+
+    /**
+     * @return pods listed by the file when it was last read
+     */
+    public int listed() {
+        return listed.size();
+    }
+
+    /**
+     * Read the entries of a pod file, unparsed: a JSON array whose entries are URIs or registration requests,
+     * of which only the {@code uri} is read, or else one URI per line, where {@code #} starts a comment.
+     *
+     * @throws IllegalArgumentException when a registration request has no {@code uri}
+     */
+    static Set<String> readEntries(Reader body) throws IOException {
+        var reader = new BufferedReader(body);
+        int first;
+        do {
+            reader.mark(1);
+            first = reader.read();
+        } while (first != -1 && Character.isWhitespace(first));
+        reader.reset();
+        return first == '[' ? readJson(reader) : readLines(reader);
+    }
+
+    private static Set<String> readJson(Reader body) throws IOException {
+        var reader = new JsonReader(body);
+        var entries = new HashSet<String>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            switch (reader.peek()) {
+                case STRING -> entries.add(reader.nextString());
+                case BEGIN_OBJECT -> entries.add(readRequest(reader));
+                default -> throw new MalformedJsonException("Expected a URI or an object at " + reader.getPath());
+            }
+        }
+        reader.endArray();
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new MalformedJsonException("Trailing content after the pods");
+        }
+        return entries;
+    }
+
+    private static String readRequest(JsonReader reader) throws IOException {
+        String uri = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("uri") && reader.peek() == JsonToken.STRING) {
+                uri = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (uri == null) {
+            throw new IllegalArgumentException("Pod without uri at " + reader.getPath());
+        }
+        return uri;
+    }
+
+    private static Set<String> readLines(BufferedReader reader) throws IOException {
+        var entries = new HashSet<String>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            String uri = (comment >= 0 ? line.substring(0, comment) : line).strip();
+            if (!uri.isEmpty()) {
+                entries.add(uri);
+            }
+        }
+        return entries;
+    }
+}
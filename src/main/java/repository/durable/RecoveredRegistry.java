@@ -0,0 +1,19 @@
+package repository.durable;
+
+import pods.BackendPod;
+
+import java.util.List;
+
+/**
+ * Pod registry read back from disk on startup.
+ *
+ * @param generation      generation of the last change recovered; the store continues from it
+ * @param pods            recovered pods; pods that were ALIVE stay ALIVE, provisionally until their next
+ *                        health check, all others start over as INITIALIZING
+ * @param snapshotPods    pods read from the snapshot
+ * @param replayedChanges log records applied on top of the snapshot
+ * @param recoveryNanos   time spent reading the snapshot and replaying the log
+ */
+public record RecoveredRegistry(long generation, List<BackendPod> pods, int snapshotPods, int replayedChanges,
+                                long recoveryNanos) {
+}
@@ -0,0 +1,204 @@
+package repository.durable;
+
+import health.types.BackendPodStatus;
+import pods.BackendPod;
+import repository.PodRegistrySnapshot;
+
+import java.io.Serial;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout of the registry files.
+ * <p>
+ * A log record is {@code [int payload length][int CRC32C of payload][payload]}, the payload being
+ * {@code [long generation][int upserts][upserts][int removals][URIs]}, where an upsert is a status byte
+ * followed by a URI and a URI is {@code [int length][UTF-8 bytes]}. A snapshot is
+ * {@code [int magic][int version][long generation][int pods][upserts][int CRC32C of everything before]}.
+ */
+final class RegistryCodec {
+    static final int RECORD_HEADER_BYTES = 8;
+    private static final int SNAPSHOT_MAGIC = 0x4C425253;
+    private static final int FORMAT_VERSION = 1;
+    private static final BackendPodStatus[] STATUSES = BackendPodStatus.values();
+
+    private RegistryCodec() {
+    }
+
+    /**
+     * A change read back from the log.
+     */
+    record Change(long generation, List<BackendPod> upserted, List<URI> removed) {
+    }
+
+    static class CorruptRecordException extends Exception {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        CorruptRecordException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param buffer reused when large enough
+     * @return a buffer holding the encoded record between position and limit
+     */
+    static ByteBuffer encodeChange(ByteBuffer buffer, long generation, List<BackendPod> upserted, List<URI> removed) {
+        var upsertedUris = encodeUris(upserted.stream().map(BackendPod::uri).toList());
+        var removedUris = encodeUris(removed);
+        int payload = Long.BYTES + Integer.BYTES + upserted.size() + sizeOf(upsertedUris)
+                + Integer.BYTES + sizeOf(removedUris);
+        if (buffer.capacity() < RECORD_HEADER_BYTES + payload) {
+            buffer = ByteBuffer.allocate(Math.max(RECORD_HEADER_BYTES + payload, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        buffer.position(RECORD_HEADER_BYTES);
+        buffer.putLong(generation);
+        buffer.putInt(upserted.size());
+        for (int i = 0; i < upserted.size(); i++) {
+            buffer.put((byte) upserted.get(i).status().ordinal());
+            putBytes(buffer, upsertedUris.get(i));
+        }
+        buffer.putInt(removed.size());
+        for (var uri : removedUris) {
+            putBytes(buffer, uri);
+        }
+        buffer.flip();
+        var crc = new CRC32C();
+        crc.update(buffer.duplicate().position(RECORD_HEADER_BYTES));
+        buffer.putInt(0, payload);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer;
+    }
+
+    /**
+     * Read the record at the buffer's position and move past it.
+     *
+     * @return the change, {@code null} at the end of the buffer
+     * @throws CorruptRecordException for a torn or damaged record, after which nothing can be read
+     */
+    static Change decodeChange(ByteBuffer buffer) throws CorruptRecordException {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        if (buffer.remaining() < RECORD_HEADER_BYTES) {
+            throw new CorruptRecordException("truncated record header");
+        }
+        int payload = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (payload < 0 || payload > buffer.remaining()) {
+            throw new CorruptRecordException("truncated record");
+        }
+        var body = buffer.slice(buffer.position(), payload);
+        buffer.position(buffer.position() + payload);
+        var crc = new CRC32C();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new CorruptRecordException("record checksum mismatch");
+        }
+        try {
+            long generation = body.getLong();
+            var upserted = readPods(body, body.getInt());
+            int removals = body.getInt();
+            var removed = new ArrayList<URI>(removals);
+            for (int i = 0; i < removals; i++) {
+                removed.add(URI.create(getString(body)));
+            }
+            return new Change(generation, upserted, removed);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new CorruptRecordException("malformed record: " + e.getMessage());
+        }
+    }
+
+    static ByteBuffer encodeSnapshot(PodRegistrySnapshot snapshot) {
+        Collection<BackendPod> pods = snapshot.pods();
+        var uris = encodeUris(pods.stream().map(BackendPod::uri).toList());
+        var buffer = ByteBuffer.allocate(Integer.BYTES * 3 + Long.BYTES + pods.size() + sizeOf(uris) + Integer.BYTES);
+        buffer.putInt(SNAPSHOT_MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putLong(snapshot.generation());
+        buffer.putInt(uris.size());
+        int i = 0;
+        for (var pod : pods) {
+            buffer.put((byte) pod.status().ordinal());
+            putBytes(buffer, uris.get(i++));
+        }
+        var crc = new CRC32C();
+        crc.update(buffer.duplicate().flip());
+        buffer.putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * @return the snapshot's generation; its pods are put into {@code pods}
+     */
+    static long decodeSnapshot(ByteBuffer buffer, Map<URI, BackendPod> pods) throws CorruptRecordException {
+        if (buffer.remaining() < Integer.BYTES * 4 + Long.BYTES) {
+            throw new CorruptRecordException("truncated snapshot");
+        }
+        var crc = new CRC32C();
+        crc.update(buffer.slice(buffer.position(), buffer.remaining() - Integer.BYTES));
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - Integer.BYTES)) {
+            throw new CorruptRecordException("snapshot checksum mismatch");
+        }
+        if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new CorruptRecordException("not a registry snapshot of version " + FORMAT_VERSION);
+        }
+        try {
+            long generation = buffer.getLong();
+            readPods(buffer, buffer.getInt()).forEach(pod -> pods.put(pod.uri(), pod));
+            return generation;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new CorruptRecordException("malformed snapshot: " + e.getMessage());
+        }
+    }
+
+    private static List<BackendPod> readPods(ByteBuffer buffer, int count) {
+        var pods = new ArrayList<BackendPod>(Math.min(count, buffer.remaining()));
+        for (int i = 0; i < count; i++) {
+            int status = buffer.get();
+            if (status < 0 || status >= STATUSES.length) {
+                throw new IllegalArgumentException("unknown status " + status);
+            }
+            pods.add(new BackendPod(URI.create(getString(buffer)), STATUSES[status]));
+        }
+        return pods;
+    }
+
+    private static List<byte[]> encodeUris(List<URI> uris) {
+        var encoded = new ArrayList<byte[]>(uris.size());
+        uris.forEach(uri -> encoded.add(uri.toString().getBytes(StandardCharsets.UTF_8)));
+        return encoded;
+    }
+
+    private static int sizeOf(List<byte[]> encoded) {
+        int size = 0;
+        for (var bytes : encoded) {
+            size += Integer.BYTES + bytes.length;
+        }
+        return size;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("bad string length " + length);
+        }
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,346 @@
+package repository.durable;
+
+import config.DurabilityConfig;
+import health.types.BackendPodStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodInMemoryStore;
+import repository.PodRegistryChangeListener;
+import repository.PodRegistrySnapshot;
+import utils.time.TimeProvider;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the pod registry on disk so a restarted balancer can route again at once, instead of waiting for
+ * every pod to register again.
+ * <p>
+ * Changes of the store are handed to the journal's writer thread, which appends everything handed over
+ * since its last turn to a log segment, so store writers never wait for the disk. The log is forced to disk
+ * every {@link DurabilityConfig#syncIntervalMs()}, or after every batch the writer appends when that is 0.
+ * After {@link DurabilityConfig#compactAfterChanges()} changes the current registry is written as a
+ * snapshot and the segments it covers are deleted: the journal switches to a fresh segment first, so the
+ * snapshot is written without holding up the writer.
+ * <p>
+ * {@link #recover(Path)} reads the snapshot, memory-mapped, and replays the segments after it. Records
+ * carry the generation of their change, so records the snapshot already covers are skipped, and a torn
+ * record at the end of a segment, left by a crash, ends the replay of that segment.
+ */
+public class RegistryJournal implements PodRegistryChangeListener, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RegistryJournal.class);
+    static final String SNAPSHOT_FILE = "registry.snapshot";
+    private static final String SEGMENT_PREFIX = "registry-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final long IDLE_SYNC_CHECK_MS = 1_000;
+    private static final long IDLE_WRITE_POLL_MS = 1_000;
+
+    private final Path directory;
+    private final DurabilityConfig config;
+    private final BackendPodInMemoryStore store;
+    private final TimeProvider timeProvider;
+    // changes of the store not yet appended; unbounded, as the store must never wait on the journal
+    private final BlockingQueue<PendingChange> pending = new LinkedBlockingQueue<>();
+    // guards the segment, the record buffer, the batch and compaction
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<PendingChange> batch = new ArrayList<>();
+    private volatile FileChannel segment;
+    private long segmentNumber;
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(4096);
+    private volatile int changesSinceCompaction;
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean running;
+
+    private record PendingChange(long generation, List<BackendPod> upserted, List<URI> removed) {
+    }
+
+    /**
+     * Open a new log segment in the configured directory. Register the journal with
+     * {@link BackendPodInMemoryStore#addChangeListener} before restoring the store, so the restored
+     * registry's own changes are logged too.
+     */
+    public RegistryJournal(DurabilityConfig config, BackendPodInMemoryStore store, TimeProvider timeProvider) throws IOException {
+        this.directory = Path.of(config.directory());
+        this.config = config;
+        this.store = store;
+        this.timeProvider = timeProvider;
+        Files.createDirectories(directory);
+        var existing = segments(directory);
+        openSegment(existing.isEmpty() ? 1 : segmentNumberOf(existing.getLast()) + 1);
+    }
+
+    /**
+     * Read the registry of a previous run back from the directory.
+     *
+     * @return the recovered registry, empty when the directory holds none
+     * @throws IOException when the files cannot be read; damaged records are skipped instead
+     */
+    public static RecoveredRegistry recover(Path directory) throws IOException {
+        long start = System.nanoTime();
+        Map<URI, BackendPod> pods = new HashMap<>();
+        long generation = 0;
+        var snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotFile)) {
+            try {
+                generation = RegistryCodec.decodeSnapshot(map(snapshotFile), pods);
+            } catch (RegistryCodec.CorruptRecordException e) {
+                // snapshots are replaced atomically, a damaged one is not a crash artefact
+                throw new IOException("Unreadable registry snapshot " + snapshotFile + ": " + e.getMessage());
+            }
+        }
+        int snapshotPods = pods.size();
+        int replayed = 0;
+        for (var segment : Files.exists(directory) ? segments(directory) : List.<Path>of()) {
+            var buffer = map(segment);
+            while (true) {
+                RegistryCodec.Change change;
+                try {
+                    change = RegistryCodec.decodeChange(buffer);
+                } catch (RegistryCodec.CorruptRecordException e) {
+                    logger.warn("Stopped replaying {} at byte {}: {}", segment, buffer.position(), e.getMessage());
+                    break;
+                }
+                if (change == null) {
+                    break;
+                }
+                if (change.generation() <= generation) {
+                    continue;
+                }
+                change.upserted().forEach(pod -> pods.put(pod.uri(), pod));
+                change.removed().forEach(pods::remove);
+                generation = change.generation();
+                replayed++;
+            }
+        }
+        var provisional = new ArrayList<BackendPod>(pods.size());
+        for (var pod : pods.values()) {
+            if (pod.status() == BackendPodStatus.DRAINING) {
+                // it was on its way out, its drain ended with the previous run
+                continue;
+            }
+            // only pods that were serving keep serving until their health check says otherwise
+            provisional.add(pod.status() == BackendPodStatus.ALIVE ? pod : pod.updateStatus(BackendPodStatus.INITIALIZING));
+        }
+        return new RecoveredRegistry(generation, provisional, snapshotPods, replayed, System.nanoTime() - start);
+    }
+
+    /**
+     * Called under the store's write lock, so the change is only handed to the writer; the store keeps the
+     * lists unchanged.
+     */
+    @Override
+    public void onChange(long generation, BackendPodEvent event, List<BackendPod> upserted, List<URI> removed) {
+        pending.add(new PendingChange(generation, upserted, removed));
+    }
+
+    /**
+     * Append changes as they are handed over, force them to disk and compact the log when it has grown
+     * enough, every sync interval, until {@link #close()}.
+     */
+    public void start(ExecutorService executor) {
+        running = true;
+        executor.execute(this::writeLoop);
+        executor.execute(this::syncLoop);
+    }
+
+    private void writeLoop() {
+        while (running) {
+            PendingChange first;
+            try {
+                first = pending.poll(IDLE_WRITE_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first != null) {
+                appendPending(first);
+            }
+        }
+    }
+
+    /**
+     * Append the given change, if any, and all others handed over so far, in the order of their
+     * generations, as the store commits changes one at a time under its write lock.
+     */
+    private void appendPending(PendingChange first) {
+        lock.lock();
+        try {
+            if (first != null) {
+                batch.add(first);
+            }
+            pending.drainTo(batch);
+            if (batch.isEmpty()) {
+                return;
+            }
+            var channel = segment;
+            for (var change : batch) {
+                recordBuffer = RegistryCodec.encodeChange(recordBuffer, change.generation(), change.upserted(),
+                        change.removed());
+                while (recordBuffer.hasRemaining()) {
+                    channel.write(recordBuffer);
+                }
+                changesSinceCompaction++;
+                appended.increment();
+            }
+            // group commit: one flush for every change handed over while the previous one was written
+            if (config.syncIntervalMs() == 0) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            failures.increment();
+            logger.error("Could not log registry changes {} to {}", batch.getFirst().generation(),
+                    batch.getLast().generation(), e);
+        } finally {
+            batch.clear();
+            lock.unlock();
+        }
+    }
+
+    private void syncLoop() {
+        long interval = config.syncIntervalMs() > 0 ? config.syncIntervalMs() : IDLE_SYNC_CHECK_MS;
+        while (running) {
+            try {
+                timeProvider.sleep(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                sync();
+                if (changesSinceCompaction >= config.compactAfterChanges()) {
+                    compact();
+                }
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                logger.error("Registry journal maintenance failed", e);
+            }
+        }
+    }
+
+    /**
+     * Append the changes handed over so far and force them to disk.
+     */
+    public void sync() throws IOException {
+        appendPending(null);
+        try {
+            segment.force(false);
+        } catch (ClosedChannelException e) {
+            // replaced by compaction, which forced it before closing
+        }
+    }
+
+    /**
+     * Write the current registry as the snapshot and delete the log segments it covers.
+     */
+    public void compact() throws IOException {
+        long firstKeptSegment;
+        PodRegistrySnapshot registry;
+        lock.lock();
+        try {
+            appendPending(null);
+            // taken before switching segments: every record in the old segments is covered by it
+            registry = store.snapshot();
+            var previous = segment;
+            openSegment(segmentNumber + 1);
+            previous.force(false);
+            previous.close();
+            changesSinceCompaction = 0;
+            firstKeptSegment = segmentNumber;
+        } finally {
+            lock.unlock();
+        }
+        var snapshot = RegistryCodec.encodeSnapshot(registry);
+        var temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        for (var old : segments(directory)) {
+            if (segmentNumberOf(old) < firstKeptSegment) {
+                Files.deleteIfExists(old);
+            }
+        }
+        logger.debug("Compacted registry journal into a snapshot");
+    }
+
+    /**
+     * @return changes logged since startup
+     */
+    public long appended() {
+        return appended.sum();
+    }
+
+    /**
+     * @return changes or maintenance runs that could not be written
+     */
+    public long failures() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        lock.lock();
+        try {
+            appendPending(null);
+            segment.force(false);
+            segment.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        var path = directory.resolve(SEGMENT_PREFIX + "%020d".formatted(number) + SEGMENT_SUFFIX);
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentNumber = number;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long segmentNumberOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
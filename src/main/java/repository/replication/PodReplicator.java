@@ -0,0 +1,438 @@
+package repository.replication;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import config.ReplicationConfig;
+import dto.GossipDigest;
+import health.HealthCheckServiceMain;
+import health.types.BackendPodStatus;
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodInMemoryStore;
+import repository.PodRegistryChangeListener;
+import server.LoadDistributable;
+import utils.time.TimeProvider;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares the pod registry and health verdicts between balancer replicas, and splits health checking
+ * between them.
+ * <p>
+ * Every replica keeps the latest {@link ReplicatedPod} state of each pod, including removed ones, and
+ * numbers the states in the order it learned them. Each gossip round it asks every peer at
+ * {@code /lbgossip} for the states the peer learned since the last round, merges those that supersede its
+ * own and applies them to its store, publishing the same events as a local change would. Peers pass on
+ * what they learned from others, so a change reaches every replica a peer hears from even when the one
+ * that made it cannot reach them all. A replica asking with another incarnation of the peer in mind, the
+ * first time or once the peer restarted, gets every state.
+ * <p>
+ * Pods are split between the replicas heard from within the peer timeout by {@link RendezvousShards}, each
+ * known by the name it gives itself in its digests rather than by the address it is listed under, and
+ * each replica health checks only its own share; the verdicts reach the others as status changes. A peer
+ * going silent hands its pods to the others, which start checking them at once. Until it hears from its
+ * peers, a replica checks every pod, as does each replica while they disagree on who is up: pods are
+ * checked twice for a moment rather than not at all.
+ * <p>
+ * Pods a replica held when it started, e.g. restored from its journal, are shared with the lowest
+ * possible stamp, so they never override what the other replicas learned while it was down.
+ * <p>
+ * The state of a removed pod is kept for {@value #TOMBSTONE_GRACE_PEER_TIMEOUTS} peer timeouts after it was
+ * learned, long enough to reach every replica that is up, and then forgotten. A replica cut off for longer
+ * may bring the pod back.
+ */
+public class PodReplicator implements PodRegistryChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(PodReplicator.class);
+    private static final int TOMBSTONE_GRACE_PEER_TIMEOUTS = 60;
+
+    private final ReplicationConfig config;
+    private final String self;
+    private final long incarnation = ThreadLocalRandom.current().nextLong();
+    private final BackendPodInMemoryStore store;
+    private final HealthCheckServiceMain healthService;
+    private final LoadDistributable<BackendPod> loadBalancer;
+    private final TimeProvider timeProvider;
+    private final HttpClient httpClient;
+    private final Gson gson = new Gson();
+    private final List<Peer> peers;
+    // guarded by this
+    private final Map<URI, Slot> pods = new HashMap<>();
+    // guarded by this, the pods by the position their current state was learned at
+    private final TreeMap<Long, URI> positions = new TreeMap<>();
+    // guarded by this, removed pods in the order their removal was learned
+    private final Deque<Tombstone> tombstones = new ArrayDeque<>();
+    private long position;
+    private long clock;
+    private volatile RendezvousShards shards;
+    private final LongAdder merged = new LongAdder();
+    private volatile boolean running;
+
+    private record Slot(ReplicatedPod pod, long position) {
+    }
+
+    private record Tombstone(URI uri, long position, long learnedNanos) {
+    }
+
+    private static final class Peer {
+        private final String address;
+        // the name the peer gives itself, known once it answered
+        private String node;
+        private long incarnation;
+        private long position;
+        private long lastSeenNanos;
+        private boolean alive;
+
+        private Peer(String address) {
+            this.address = address;
+        }
+    }
+
+    /**
+     * @param self          this replica's address, as the peers list it
+     * @param healthService checks the pods of this replica's share, may be {@code null}
+     * @param loadBalancer  stops routing to pods another replica drains, may be {@code null}
+     */
+    public PodReplicator(ReplicationConfig config, String self, BackendPodInMemoryStore store,
+                         HealthCheckServiceMain healthService, LoadDistributable<BackendPod> loadBalancer,
+                         TimeProvider timeProvider, ExecutorService executor) {
+        this.config = config;
+        this.self = self;
+        this.store = store;
+        this.healthService = healthService;
+        this.loadBalancer = loadBalancer;
+        this.timeProvider = timeProvider;
+        this.httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofMillis(config.peerTimeoutMs()))
+                .build();
+        this.peers = config.peers().stream()
+                .filter(peer -> !peer.equals(self))
+                .map(Peer::new)
+                .toList();
+        this.shards = new RendezvousShards(List.of(self));
+        store.addChangeListener(this);
+        synchronized (this) {
+            for (var pod : store.getAll()) {
+                if (!pods.containsKey(pod.uri())) {
+                    put(new ReplicatedPod(pod.uri(), pod.status(), false, 0, self));
+                }
+            }
+        }
+        if (healthService != null) {
+            healthService.setOwnership(this::owns);
+        }
+    }
+
+    /**
+     * Gossip with the peers every interval until {@link #stop()} is called.
+     */
+    public void start(ExecutorService executor) {
+        running = true;
+        executor.execute(this::gossipLoop);
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    private void gossipLoop() {
+        while (running) {
+            try {
+                gossipRound();
+            } catch (RuntimeException e) {
+                logger.error("Gossip round failed", e);
+            }
+            try {
+                timeProvider.sleep(config.gossipIntervalMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ask every peer for its changes at once, merge their answers and update who shares the pods.
+     */
+    public void gossipRound() {
+        var requests = new LinkedHashMap<Peer, CompletableFuture<GossipDigest>>();
+        for (var peer : peers) {
+            requests.put(peer, pull(peer));
+        }
+        requests.forEach((peer, request) -> {
+            try {
+                var digest = request.join();
+                if (digest.incarnation() != peer.incarnation) {
+                    logger.info("Synchronizing the pod registry with replica {}", peer.address);
+                    peer.incarnation = digest.incarnation();
+                }
+                if (digest.node() != null && !digest.node().equals(peer.node)) {
+                    if (!digest.node().equals(peer.address)) {
+                        logger.warn("Replica listed as {} calls itself {}; pods are shared by the names the "
+                                + "replicas give themselves, so set each replica's self as its peers list it",
+                                peer.address, digest.node());
+                    }
+                    peer.node = digest.node();
+                }
+                merge(digest.pods());
+                peer.position = digest.position();
+                peer.lastSeenNanos = timeProvider.nanoTime();
+                peer.alive = true;
+            } catch (RuntimeException e) {
+                logger.debug("Replica {} did not answer", peer.address, e);
+            }
+        });
+        updateShards();
+        forgetTombstones();
+    }
+
+    private CompletableFuture<GossipDigest> pull(Peer peer) {
+        var request = HttpRequest.newBuilder()
+                .uri(URI.create(peer.address).resolve("/lbgossip?since=%d&incarnation=%d"
+                        .formatted(peer.position, peer.incarnation)))
+                .timeout(Duration.ofMillis(config.peerTimeoutMs()))
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("Replica answered " + response.statusCode());
+                    }
+                    var digest = gson.fromJson(response.body(), GossipDigest.class);
+                    if (digest == null || digest.pods() == null) {
+                        throw new JsonParseException("Empty gossip digest");
+                    }
+                    return digest;
+                });
+    }
+
+    private void updateShards() {
+        long now = timeProvider.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.peerTimeoutMs());
+        // a set, as a peer listed under two addresses, or this replica listed as a peer, is one member
+        var members = new LinkedHashSet<String>();
+        members.add(self);
+        for (var peer : peers) {
+            if (peer.alive && now - peer.lastSeenNanos >= timeoutNanos) {
+                logger.warn("Replica {} went silent, sharing its pods among the others", peer.address);
+                peer.alive = false;
+            }
+            if (peer.alive) {
+                members.add(peer.node != null ? peer.node : peer.address);
+            }
+        }
+        var next = new RendezvousShards(members);
+        if (next.members().equals(shards.members())) {
+            return;
+        }
+        shards = next;
+        logger.info("Pods are health checked by {}", next.members());
+        scheduleOwned(store.getAll());
+    }
+
+    /**
+     * @return whether this replica health checks the pod
+     */
+    public boolean owns(URI podUri) {
+        return self.equals(shards.owner(podUri));
+    }
+
+    private void scheduleOwned(Collection<BackendPod> candidates) {
+        if (healthService == null) {
+            return;
+        }
+        var owned = candidates.stream()
+                .filter(pod -> pod.status() != BackendPodStatus.DRAINING)
+                .filter(pod -> owns(pod.uri()) && !healthService.isScheduled(pod.uri()))
+                .toList();
+        healthService.schedulePods(owned);
+    }
+
+    /**
+     * Answer a peer asking for changes.
+     *
+     * @param incarnation the incarnation of this replica the peer's position belongs to
+     * @param since       position the peer learned everything up to
+     */
+    public synchronized GossipDigest digest(long incarnation, long since) {
+        long from = incarnation == this.incarnation ? since : 0;
+        var changed = new ArrayList<ReplicatedPod>();
+        for (var uri : positions.tailMap(from, false).values()) {
+            changed.add(pods.get(uri).pod());
+        }
+        return new GossipDigest(self, this.incarnation, position, changed);
+    }
+
+    /**
+     * Keep the states that supersede the known ones and apply them to the store.
+     */
+    void merge(List<ReplicatedPod> states) {
+        var accepted = new ArrayList<ReplicatedPod>();
+        synchronized (this) {
+            for (var state : states) {
+                clock = Math.max(clock, state.stamp());
+                var known = pods.get(state.uri());
+                if (known == null || state.supersedes(known.pod())) {
+                    put(state);
+                    accepted.add(state);
+                }
+            }
+        }
+        if (!accepted.isEmpty()) {
+            merged.add(accepted.size());
+            apply(accepted);
+        }
+    }
+
+    private void apply(List<ReplicatedPod> states) {
+        var removed = new ArrayList<URI>();
+        var added = new ArrayList<BackendPod>();
+        var ready = new ArrayList<BackendPod>();
+        var updated = new ArrayList<BackendPod>();
+        for (var state : states) {
+            if (!isCurrent(state)) {
+                // superseded since, by a local change or a later merge
+                continue;
+            }
+            var local = store.get(state.uri());
+            if (state.removed()) {
+                if (local != null) {
+                    removed.add(state.uri());
+                }
+                continue;
+            }
+            if (local != null && local.status() == state.status()) {
+                continue;
+            }
+            var pod = new BackendPod(state.uri(), state.status());
+            switch (state.status()) {
+                case INITIALIZING -> added.add(pod);
+                case ALIVE -> {
+                    if (local == null) {
+                        added.add(pod);
+                    }
+                    // balancers only pick up pods made ready
+                    ready.add(pod);
+                }
+                default -> {
+                    if (local == null) {
+                        added.add(pod);
+                    } else {
+                        updated.add(pod);
+                    }
+                    if (state.status() == BackendPodStatus.DRAINING && loadBalancer != null) {
+                        loadBalancer.remove(pod);
+                    }
+                }
+            }
+        }
+        // the store tells this replicator of each change, which finds it already known and passes it on no further
+        store.removeAll(removed);
+        store.addAll(added);
+        store.makePodsReady(ready);
+        updated.forEach(store::update);
+        scheduleOwned(added);
+    }
+
+    private synchronized boolean isCurrent(ReplicatedPod state) {
+        var known = pods.get(state.uri());
+        return known != null && known.pod() == state;
+    }
+
+    @Override
+    public synchronized void onChange(long generation, BackendPodEvent event, List<BackendPod> upserted, List<URI> removed) {
+        for (var pod : upserted) {
+            var known = pods.get(pod.uri());
+            if (known == null || known.pod().removed() || known.pod().status() != pod.status()) {
+                put(new ReplicatedPod(pod.uri(), pod.status(), false, nextStamp(), self));
+            }
+        }
+        for (var uri : removed) {
+            var known = pods.get(uri);
+            if (known != null && !known.pod().removed()) {
+                put(new ReplicatedPod(uri, known.pod().status(), true, nextStamp(), self));
+            }
+        }
+    }
+
+    // guarded by this
+    private long nextStamp() {
+        clock = Math.max(clock + 1, System.currentTimeMillis());
+        return clock;
+    }
+
+    // guarded by this
+    private void put(ReplicatedPod state) {
+        var previous = pods.put(state.uri(), new Slot(state, ++position));
+        if (previous != null) {
+            positions.remove(previous.position());
+        }
+        positions.put(position, state.uri());
+        if (state.removed()) {
+            tombstones.add(new Tombstone(state.uri(), position, timeProvider.nanoTime()));
+        }
+    }
+
+    /**
+     * Forget the removed pods learned more than the grace period ago, unless they came back since.
+     */
+    private synchronized void forgetTombstones() {
+        long graceNanos = TimeUnit.MILLISECONDS.toNanos(config.peerTimeoutMs() * TOMBSTONE_GRACE_PEER_TIMEOUTS);
+        long now = timeProvider.nanoTime();
+        Tombstone oldest;
+        while ((oldest = tombstones.peek()) != null && now - oldest.learnedNanos() >= graceNanos) {
+            tombstones.poll();
+            var known = pods.get(oldest.uri());
+            if (known != null && known.position() == oldest.position()) {
+                pods.remove(oldest.uri());
+                positions.remove(oldest.position());
+            }
+        }
+    }
+
+    /**
+     * @return pods whose state is kept, removed ones included until they are forgotten
+     */
+    synchronized int known() {
+        return pods.size();
+    }
+
+    public String self() {
+        return self;
+    }
+
+    /**
+     * @return peers heard from within the peer timeout
+     */
+    public int alivePeers() {
+        return shards.members().size() - 1;
+    }
+
+    /**
+     * @return pod states learned from peers since startup
+     */
+    public long merged() {
+        return merged.sum();
+    }
+}
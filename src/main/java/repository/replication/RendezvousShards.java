@@ -0,0 +1,54 @@
+package repository.replication;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Splits pods between replicas by rendezvous hashing: each pod belongs to the replica scoring highest
+ * for it. Every replica computes the same owner from the same members, without coordinating, and when a
+ * replica joins or leaves only the pods it wins or held change owner.
+ */
+public final class RendezvousShards {
+    private final List<String> members;
+    private final long[] memberHashes;
+
+    /**
+     * @param members the replicas sharing the pods, in any order
+     */
+    public RendezvousShards(Collection<String> members) {
+        this.members = members.stream().sorted().toList();
+        this.memberHashes = this.members.stream().mapToLong(member -> mix(member.hashCode())).toArray();
+    }
+
+    public List<String> members() {
+        return members;
+    }
+
+    /**
+     * @return the replica owning the pod, {@code null} without members
+     */
+    public String owner(URI podUri) {
+        long podHash = mix(podUri.hashCode());
+        String owner = null;
+        long best = 0;
+        for (int i = 0; i < memberHashes.length; i++) {
+            long score = mix(memberHashes[i] ^ podHash);
+            if (owner == null || Long.compareUnsigned(score, best) > 0) {
+                owner = members.get(i);
+                best = score;
+            }
+        }
+        return owner;
+    }
+
+    // the finalizer of MurmurHash3, spreads hash codes differing in few bits over all 64 bits
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,35 @@
+package repository.replication;
+
+import health.types.BackendPodStatus;
+
+import java.net.URI;
+
+/**
+ * The latest known state of a pod, as replicas exchange it. Of two states of the same pod the one with
+ * the higher stamp wins, ties broken by the replica that made the change, so replicas agree whichever
+ * order they learn of changes in.
+ *
+ * @param uri     the pod
+ * @param status  the pod's status, or its last status when removed
+ * @param removed whether the pod left the registry; kept so the removal outlives older copies of the pod
+ * @param stamp   hybrid logical time of the change: at least the wall clock when it was made and higher
+ *                than every change the replica making it knew of
+ * @param origin  the replica that made the change
+ */
+public record ReplicatedPod(
+        URI uri,
+        BackendPodStatus status,
+        boolean removed,
+        long stamp,
+        String origin) {
+
+    /**
+     * @return whether this state replaces the other one
+     */
+    public boolean supersedes(ReplicatedPod other) {
+        if (stamp != other.stamp) {
+            return stamp > other.stamp;
+        }
+        return origin.compareTo(other.origin) > 0;
+    }
+}
@@ -0,0 +1,139 @@
+package server;
+
+import health.types.BackendPodStatus;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import server.load.PodLoadTracker;
+import server.load.PodWeigher;
+import server.load.PodWeights;
+import utils.EventSubscriber;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends each request to the ready pod with the fewest in-flight requests and open tunnels, as counted by
+ * {@link PodLoadTracker}. Ties are broken by rotating the starting point so equally loaded pods share
+ * traffic evenly.
+ * <p>
+ * With a {@link PodWeigher} the load of each pod is divided by its relative weight, so a pod of half the
+ * weight is only picked while it has less than half the load of the others.
+ */
+public class LeastConnectionsLoadBalancer implements LoadDistributable<BackendPod>, EventSubscriber<BackendPodEvent, BackendPodEventContext> {
+    private static final Logger logger = LoggerFactory.getLogger(LeastConnectionsLoadBalancer.class);
+    private final List<BackendPod> nodes;
+    private final AtomicInteger offset;
+    private final PodLoadTracker loadTracker;
+    private final BackendPodInMemoryStore store;
+    private final PodWeigher weigher;
+    private final double minWeight;
+
+    public LeastConnectionsLoadBalancer(BackendPodInMemoryStore store, PodLoadTracker loadTracker) {
+        this(store, loadTracker, PodWeigher.UNIFORM, 1.0);
+    }
+
+    /**
+     * @param minWeight lowest weight of a pod relative to the heaviest one, see {@link PodWeights}
+     */
+    public LeastConnectionsLoadBalancer(BackendPodInMemoryStore store, PodLoadTracker loadTracker,
+                                        PodWeigher weigher, double minWeight) {
+        this.store = store;
+        this.loadTracker = loadTracker;
+        this.weigher = weigher;
+        this.minWeight = minWeight;
+        this.nodes = new CopyOnWriteArrayList<>();
+        this.offset = new AtomicInteger(0);
+        this.setupStore();
+    }
+
+    private void setupStore() {
+        this.store.subscribe(BackendPodEvent.POD_READY, this);
+        this.store.subscribe(BackendPodEvent.REMOVE_POD, this);
+    }
+
+    @Override
+    public void register(BackendPod backendPod) {
+        nodes.add(backendPod);
+    }
+
+    @Override
+    public void remove(BackendPod backendPod) {
+        nodes.removeIf(node -> node.uri().equals(backendPod.uri()));
+    }
+
+    @Override
+    public Optional<BackendPod> next() {
+        Object[] snapshot = nodes.toArray();
+        if (snapshot.length == 0) {
+            return Optional.empty();
+        }
+        int start = Math.floorMod(offset.getAndIncrement(), snapshot.length);
+        if (weigher != PodWeigher.UNIFORM) {
+            return Optional.of(leastWeightedLoad(snapshot, start));
+        }
+        BackendPod best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < snapshot.length; i++) {
+            BackendPod candidate = (BackendPod) snapshot[(start + i) % snapshot.length];
+            int load = loadTracker.load(candidate.uri());
+            if (load < bestLoad) {
+                best = candidate;
+                bestLoad = load;
+                if (load == 0) {
+                    break;
+                }
+            }
+        }
+        return Optional.of(best);
+    }
+
+    private BackendPod leastWeightedLoad(Object[] snapshot, int start) {
+        double[] weights = PodWeights.relative(weigher, snapshot, minWeight);
+        BackendPod best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (int i = 0; i < snapshot.length; i++) {
+            int index = (start + i) % snapshot.length;
+            BackendPod candidate = (BackendPod) snapshot[index];
+            // the request being placed counts too, otherwise idle pods would all cost 0 regardless of weight
+            double cost = (loadTracker.load(candidate.uri()) + 1) / weights[index];
+            if (cost < bestCost) {
+                best = candidate;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void handleEvent(BackendPodEvent event, BackendPodEventContext content) {
+        switch (event) {
+            case POD_READY -> {
+                logger.debug("Processing {} event for {} pods", event, content.affectedPods().size());
+                content.affectedPods()
+                        .stream()
+                        .filter(pod -> pod.status() == BackendPodStatus.ALIVE)
+                        .forEach(pod -> {
+                            logger.debug("Adding pod {} to load balancer", pod.uri());
+                            this.register(pod);
+                        });
+            }
+            case REMOVE_POD -> {
+                logger.debug("Processing {} event for {} pods", event, content.affectedPods().size());
+                content.affectedPods().forEach(pod -> {
+                    logger.debug("Removing pod {} from load balancer", pod.uri());
+                    this.remove(pod);
+                });
+            }
+            default -> {
+                logger.debug("Ignoring event: {} as it's not relevant for load balancing", event);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package server;
+
+/**
+ * The algorithms available for picking the backend pod of each request.
+ * <ul>
+ *   <li>ROUND_ROBIN: cycle through ready pods in registration order</li>
+ *   <li>LEAST_CONNECTIONS: pick the ready pod with the fewest in-flight requests and open tunnels, relative
+ *   to its weight</li>
+ *   <li>WEIGHTED: pick a ready pod at random in proportion to its weight</li>
+ * </ul>
+ * Weights come from the pods' smoothed health probe latency.
+ */
+public enum LoadBalancingStrategy {
+    ROUND_ROBIN,
+    LEAST_CONNECTIONS,
+    WEIGHTED
+}
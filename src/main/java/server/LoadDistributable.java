@@ -5,4 +5,9 @@ import java.util.Optional;
 public interface LoadDistributable<T> {
     Optional<T> next();
     void register(T subscriber);
+
+    /**
+     * Stop handing out the pod with the same URI. Requests already given it are not affected.
+     */
+    void remove(T subscriber);
 }
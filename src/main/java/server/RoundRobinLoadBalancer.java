@@ -39,9 +39,13 @@ public class RoundRobinLoadBalancer implements LoadDistributable<BackendPod>, Ev
         size.incrementAndGet();
     }
 
+    @Override
     public void remove(BackendPod backendPod) {
-        if (nodes.remove(backendPod)) {
-            size.decrementAndGet();
+        // by URI, the pod may have changed status since it was registered
+        for (var node : nodes) {
+            if (node.uri().equals(backendPod.uri()) && nodes.remove(node)) {
+                size.decrementAndGet();
+            }
         }
     }
 
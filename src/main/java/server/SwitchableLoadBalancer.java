@@ -0,0 +1,97 @@
+package server;
+
+import health.types.BackendPodStatus;
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import utils.EventSubscriber;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Hands out pods with the algorithm of the configured {@link LoadBalancingStrategy}, which may change while
+ * requests are served.
+ * <p>
+ * Picking a pod costs one volatile read on top of the algorithm itself. Switching builds the new algorithm,
+ * gives it the pods that are ready and only then routes requests to it, so no request finds it empty; the
+ * previous algorithm stops following the store.
+ */
+public class SwitchableLoadBalancer implements LoadDistributable<BackendPod> {
+    private static final Logger logger = LoggerFactory.getLogger(SwitchableLoadBalancer.class);
+
+    private final BackendPodInMemoryStore store;
+    private final Function<LoadBalancingStrategy, LoadDistributable<BackendPod>> factory;
+    private volatile LoadBalancingStrategy strategy;
+    private volatile LoadDistributable<BackendPod> delegate;
+
+    /**
+     * @param factory builds the algorithm of a strategy, subscribed to the store
+     */
+    public SwitchableLoadBalancer(BackendPodInMemoryStore store, LoadBalancingStrategy strategy,
+                                  Function<LoadBalancingStrategy, LoadDistributable<BackendPod>> factory) {
+        this.store = store;
+        this.factory = factory;
+        this.strategy = strategy;
+        this.delegate = factory.apply(strategy);
+    }
+
+    /**
+     * Route requests with another strategy from now on. Requests already given a pod are not affected.
+     */
+    public synchronized void switchTo(LoadBalancingStrategy next) {
+        if (next == strategy) {
+            return;
+        }
+        var balancer = factory.apply(next);
+        // the new algorithm already follows the store, so a pod may both be seeded and arrive as POD_READY
+        var seeded = store.getAllWithStatus(BackendPodStatus.ALIVE);
+        for (var pod : seeded) {
+            balancer.remove(pod);
+            balancer.register(pod);
+        }
+        for (var pod : seeded) {
+            // left while it was seeded, possibly before the new algorithm could have seen it go
+            var stored = store.get(pod.uri());
+            if (stored == null || stored.status() != BackendPodStatus.ALIVE) {
+                balancer.remove(pod);
+            }
+        }
+        var previous = this.delegate;
+        this.delegate = balancer;
+        this.strategy = next;
+        detach(previous);
+        logger.info("Switched load balancing strategy to {}", next);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void detach(LoadDistributable<BackendPod> balancer) {
+        if (balancer instanceof EventSubscriber<?, ?> subscriber) {
+            var podSubscriber = (EventSubscriber<BackendPodEvent, BackendPodEventContext>) subscriber;
+            store.unsubscribe(BackendPodEvent.POD_READY, podSubscriber);
+            store.unsubscribe(BackendPodEvent.REMOVE_POD, podSubscriber);
+        }
+    }
+
+    public LoadBalancingStrategy strategy() {
+        return strategy;
+    }
+
+    @Override
+    public Optional<BackendPod> next() {
+        return delegate.next();
+    }
+
+    @Override
+    public void register(BackendPod pod) {
+        delegate.register(pod);
+    }
+
+    @Override
+    public void remove(BackendPod pod) {
+        delegate.remove(pod);
+    }
+}
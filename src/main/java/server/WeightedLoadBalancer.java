@@ -0,0 +1,119 @@
+package server;
+
+import health.types.BackendPodStatus;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import server.load.PodWeigher;
+import server.load.PodWeights;
+import utils.EventSubscriber;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends each request to a ready pod picked at random in proportion to its weight, as given by a
+ * {@link PodWeigher}. Weights are read on every pick, so a pod that slows down loses traffic as soon as
+ * its weight drops, without the pod list being rebuilt.
+ */
+public class WeightedLoadBalancer implements LoadDistributable<BackendPod>, EventSubscriber<BackendPodEvent, BackendPodEventContext> {
+    private static final Logger logger = LoggerFactory.getLogger(WeightedLoadBalancer.class);
+    private final List<BackendPod> nodes;
+    private final PodWeigher weigher;
+    private final double minWeight;
+    private final BackendPodInMemoryStore store;
+    private final RandomGenerator random;
+
+    /**
+     * @param minWeight lowest share of a pod relative to the heaviest one, see {@link PodWeights}
+     */
+    public WeightedLoadBalancer(BackendPodInMemoryStore store, PodWeigher weigher, double minWeight) {
+        this(store, weigher, minWeight, null);
+    }
+
+    /**
+     * @param random source of the picks, e.g. seeded for a simulation; must then only be used by one
+     *               thread. {@code null} picks with the calling thread's {@link ThreadLocalRandom}
+     */
+    public WeightedLoadBalancer(BackendPodInMemoryStore store, PodWeigher weigher, double minWeight, RandomGenerator random) {
+        this.store = store;
+        this.random = random;
+        this.weigher = weigher;
+        this.minWeight = minWeight;
+        this.nodes = new CopyOnWriteArrayList<>();
+        this.setupStore();
+    }
+
+    private void setupStore() {
+        this.store.subscribe(BackendPodEvent.POD_READY, this);
+        this.store.subscribe(BackendPodEvent.REMOVE_POD, this);
+    }
+
+    @Override
+    public void register(BackendPod backendPod) {
+        nodes.add(backendPod);
+    }
+
+    @Override
+    public void remove(BackendPod backendPod) {
+        nodes.removeIf(node -> node.uri().equals(backendPod.uri()));
+    }
+
+    @Override
+    public Optional<BackendPod> next() {
+        Object[] snapshot = nodes.toArray();
+        if (snapshot.length == 0) {
+            return Optional.empty();
+        }
+        if (snapshot.length == 1) {
+            return Optional.of((BackendPod) snapshot[0]);
+        }
+        double[] weights = PodWeights.relative(weigher, snapshot, minWeight);
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double target = (random != null ? random : ThreadLocalRandom.current()).nextDouble(total);
+        for (int i = 0; i < snapshot.length; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return Optional.of((BackendPod) snapshot[i]);
+            }
+        }
+        // rounding left the target on the upper edge
+        return Optional.of((BackendPod) snapshot[snapshot.length - 1]);
+    }
+
+    @Override
+    public void handleEvent(BackendPodEvent event, BackendPodEventContext content) {
+        switch (event) {
+            case POD_READY -> {
+                logger.debug("Processing {} event for {} pods", event, content.affectedPods().size());
+                content.affectedPods()
+                        .stream()
+                        .filter(pod -> pod.status() == BackendPodStatus.ALIVE)
+                        .forEach(pod -> {
+                            logger.debug("Adding pod {} to load balancer", pod.uri());
+                            this.register(pod);
+                        });
+            }
+            case REMOVE_POD -> {
+                logger.debug("Processing {} event for {} pods", event, content.affectedPods().size());
+                content.affectedPods().forEach(pod -> {
+                    logger.debug("Removing pod {} from load balancer", pod.uri());
+                    this.remove(pod);
+                });
+            }
+            default -> {
+                logger.debug("Ignoring event: {} as it's not relevant for load balancing", event);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package server.handler;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import repository.replication.PodReplicator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers replicas asking for the pod states this one learned since they last asked: {@code GET} with
+ * the {@code since} position and the {@code incarnation} it belongs to, both from the previous answer and
+ * 0 the first time. The answer is a {@link dto.GossipDigest}.
+ * <p>
+ * Answers 400 when a parameter is missing or not a number.
+ */
+public class GossipHandler implements HttpHandler {
+    private final PodReplicator replicator;
+    private final Gson parser = new Gson();
+
+    public GossipHandler(PodReplicator replicator) {
+        this.replicator = replicator;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            long since;
+            long incarnation;
+            try {
+                since = Long.parseLong(parameter(exchange, "since"));
+                incarnation = Long.parseLong(parameter(exchange, "incarnation"));
+            } catch (NumberFormatException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            byte[] body = parser.toJson(replicator.digest(incarnation, since)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static String parameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith(name + "=")) {
+                    return parameter.substring(name.length() + 1);
+                }
+            }
+        }
+        throw new NumberFormatException("Missing " + name);
+    }
+}
@@ -0,0 +1,169 @@
+package server.handler;
+
+import health.load.BackendLoadReports;
+import health.passive.PassiveHealthSignals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pods.BackendPod;
+import server.LoadDistributable;
+import server.handler.utils.ProxyHeaders;
+import server.handler.utils.ProxyTargets;
+import server.handler.utils.ResponseCompression;
+import server.load.PodLoadTracker;
+import server.serverType.h2c.Http2Stream;
+import server.serverType.h2c.Http2StreamHandler;
+import server.upstream.UpstreamPool;
+import server.upstream.UpstreamPoolRegistry;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards requests arriving on h2c streams to the next backend pod, the HTTP/2 counterpart of
+ * {@link RootHandler}.
+ * <p>
+ * Request and response bodies are streamed in both directions so long-lived bidirectional calls work.
+ * Many client streams share the few upstream connections held by each pod's pool.
+ * <p>
+ * Trailers are not forwarded in either direction: the JDK client neither sends request trailers nor exposes
+ * response trailers. gRPC calls, which carry their status in trailers, therefore reach the client without
+ * {@code grpc-status}.
+ */
+public class Http2ProxyHandler implements Http2StreamHandler {
+    private static final Logger logger = LoggerFactory.getLogger(Http2ProxyHandler.class);
+    private static final long RESPONSE_HEADERS_TIMEOUT_SECONDS = 3;
+
+    private final UpstreamPoolRegistry upstreamPools;
+    private final LoadDistributable<BackendPod> loadBalancer;
+    private final ResponseCompression compression;
+    private final PodLoadTracker loadTracker;
+    private final PassiveHealthSignals passiveSignals;
+    private final BackendLoadReports loadReports;
+
+    public Http2ProxyHandler(UpstreamPoolRegistry upstreamPools,
+                             LoadDistributable<BackendPod> loadBalancer,
+                             ResponseCompression compression,
+                             PodLoadTracker loadTracker,
+                             PassiveHealthSignals passiveSignals,
+                             BackendLoadReports loadReports) {
+        this.upstreamPools = upstreamPools;
+        this.passiveSignals = passiveSignals;
+        this.loadReports = loadReports;
+        this.loadBalancer = loadBalancer;
+        this.compression = compression;
+        this.loadTracker = loadTracker;
+    }
+
+    @Override
+    public void handle(Http2Stream stream) throws Exception {
+        var nextPod = this.loadBalancer.next();
+        if (nextPod.isEmpty()) {
+            stream.respond(503, "No available pods");
+            return;
+        }
+        BackendPod pod = nextPod.get();
+        var pool = upstreamPools.poolFor(pod);
+        loadTracker.acquire(pod);
+        pool.requestStarted();
+        try {
+            forward(stream, pod, pool);
+        } finally {
+            pool.requestFinished();
+            loadTracker.release(pod);
+        }
+    }
+
+    private void forward(Http2Stream stream, BackendPod pod, UpstreamPool pool) throws Exception {
+        URI uri = ProxyTargets.target(pod.uri(), stream.path());
+        logger.debug("Forwarding h2c stream {} to {}", stream.id(), uri);
+
+        var bodyPublisher = stream.hasRequestBody()
+                ? HttpRequest.BodyPublishers.ofInputStream(stream::requestBody)
+                : HttpRequest.BodyPublishers.noBody();
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(uri)
+                .method(stream.method(), bodyPublisher);
+        stream.requestHeaders().forEach((key, values) -> {
+            if (!ProxyHeaders.isHopByHopHeader(key) && !ProxyHeaders.isRestrictedHeader(key)) {
+                values.forEach(value -> requestBuilder.header(key, value));
+            }
+        });
+
+        HttpResponse<InputStream> response;
+        try {
+            response = pool.httpClient()
+                    .sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream())
+                    .get(RESPONSE_HEADERS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            passiveSignals.recordFailure(pod.uri());
+            throw e;
+        }
+        // server errors count against the pod, client errors are the client's fault
+        if (response.statusCode() >= 500) {
+            passiveSignals.recordFailure(pod.uri());
+        } else {
+            passiveSignals.recordSuccess(pod.uri());
+        }
+        loadReports.recordHeaders(pod.uri(), response.headers());
+
+        var acceptEncoding = stream.requestHeaders().getOrDefault("accept-encoding", List.of());
+        var coding = compression.negotiate(
+                stream.method(),
+                acceptEncoding.isEmpty() ? null : String.join(",", acceptEncoding),
+                response.statusCode(),
+                response.headers());
+        var responseHeaders = responseHeaders(response.headers(), coding);
+
+        int status = response.statusCode();
+        boolean noBody = "HEAD".equalsIgnoreCase(stream.method()) || status == 204 || status == 304;
+        try (InputStream body = response.body()) {
+            stream.sendHeaders(status, responseHeaders, noBody);
+            if (noBody) {
+                return;
+            }
+            try (OutputStream os = compression.wrap(stream.responseBody(), coding)) {
+                body.transferTo(os);
+            }
+        }
+    }
+
+    /**
+     * The backend's response headers as forwarded to the client, announcing the coding the body is
+     * compressed with, if any.
+     */
+    static Map<String, List<String>> responseHeaders(HttpHeaders upstream, ResponseCompression.Coding coding) {
+        boolean compressing = coding != ResponseCompression.Coding.IDENTITY;
+        Map<String, List<String>> responseHeaders = new LinkedHashMap<>();
+        var vary = new ArrayList<String>();
+        upstream.map().forEach((key, values) -> {
+            // the upstream client reports HTTP/2 pseudo-headers such as :status alongside regular ones
+            if (key.startsWith(":") || ProxyHeaders.isHopByHopHeader(key)) {
+                return;
+            }
+            if (compressing && key.equalsIgnoreCase("content-length")) {
+                return;
+            }
+            if (compressing && key.equalsIgnoreCase("vary")) {
+                vary.addAll(values);
+                return;
+            }
+            responseHeaders.put(key, values);
+        });
+        if (compressing) {
+            responseHeaders.put("content-encoding", List.of(coding.token()));
+            // added to what the backend varies on, e.g. Origin, so caches keep telling those variants apart
+            vary.add("Accept-Encoding");
+            responseHeaders.put("vary", vary);
+        }
+        return responseHeaders;
+    }
+}
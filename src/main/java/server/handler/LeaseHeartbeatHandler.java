@@ -0,0 +1,65 @@
+package server.handler;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import dto.PodRegisterRequest;
+import health.lease.LeaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Heartbeats of leased pods: {@code POST} renews the lease of the pod in the body, {@code DELETE} gives it
+ * up so the pod stops receiving traffic right away. The body is the registration request, of which only
+ * the {@code uri} is read.
+ * <p>
+ * Answers 204 when the lease was renewed or released, and 404 when the pod holds no lease, e.g. because it
+ * expired; the pod must then register again.
+ */
+public class LeaseHeartbeatHandler implements HttpHandler {
+    private static final Logger logger = LoggerFactory.getLogger(LeaseHeartbeatHandler.class);
+    private final LeaseManager leases;
+    private final Gson parser = new Gson();
+
+    public LeaseHeartbeatHandler(LeaseManager leases) {
+        this.leases = leases;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("POST") && !method.equals("DELETE")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            URI podUri;
+            try (var body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                var request = parser.fromJson(body, PodRegisterRequest.class);
+                if (request == null || request.uri() == null) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                podUri = URI.create(request.uri());
+            } catch (JsonParseException | IllegalArgumentException e) {
+                logger.debug("Invalid heartbeat payload", e);
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            boolean held;
+            if (method.equals("DELETE")) {
+                held = leases.isLeased(podUri);
+                leases.release(podUri);
+            } else {
+                held = leases.renew(podUri);
+            }
+            exchange.sendResponseHeaders(held ? 204 : 404, -1);
+        }
+    }
+}
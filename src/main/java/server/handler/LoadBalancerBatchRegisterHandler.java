@@ -0,0 +1,159 @@
+package server.handler;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import dto.PodBatchRegisterResponse;
+import dto.PodRegisterRequest;
+import health.lease.LeaseManager;
+import health.types.BackendPodStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Serial;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registers many pods with one request: the body is a JSON array of registration requests, e.g.
+ * {@code [{"uri": "http://worker-1:8080"}, {"uri": "http://worker-2:8080", "ttlMs": 10000}]}.
+ * <p>
+ * The array is read as a stream, one entry at a time, rather than buffered into a string first. Nothing is
+ * registered unless every entry is valid; probed pods are then added to the store at once, with a single
+ * ADD_POD event, and pods carrying a {@code ttlMs} are leased together when leases are enabled.
+ * <p>
+ * Answers 200 with a {@link PodBatchRegisterResponse}, 400 for an invalid body and 413 for a batch larger
+ * than {@value #MAX_BATCH_SIZE} pods.
+ */
+public class LoadBalancerBatchRegisterHandler implements HttpHandler {
+    private static final Logger logger = LoggerFactory.getLogger(LoadBalancerBatchRegisterHandler.class);
+    static final int MAX_BATCH_SIZE = 10_000;
+
+    private final BackendPodInMemoryStore inMemoryStore;
+    private final LeaseManager leases;
+    private final Gson serializer = new Gson();
+
+    /**
+     * @param leases grants leases to pods registering with a {@code ttlMs}, {@code null} to probe every pod
+     */
+    public LoadBalancerBatchRegisterHandler(BackendPodInMemoryStore inMemoryStore, LeaseManager leases) {
+        this.inMemoryStore = inMemoryStore;
+        this.leases = leases;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            List<PodRegisterRequest> batch;
+            try (var body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                batch = readBatch(body);
+            } catch (BatchTooLargeException e) {
+                exchange.sendResponseHeaders(413, -1);
+                return;
+            } catch (MalformedJsonException | EOFException | IllegalStateException | IllegalArgumentException e) {
+                // NumberFormatException is an IllegalArgumentException
+                logger.debug("Invalid batch registration payload", e);
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            var response = serializer.toJson(register(batch)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        }
+    }
+
+    private PodBatchRegisterResponse register(List<PodRegisterRequest> batch) {
+        var probed = new ArrayList<BackendPod>();
+        var leased = new LinkedHashMap<URI, Long>();
+        for (var request : batch) {
+            var podUri = URI.create(request.uri());
+            if (request.ttlMs() != null && this.leases != null) {
+                leased.put(podUri, request.ttlMs());
+            } else {
+                probed.add(new BackendPod(podUri, BackendPodStatus.INITIALIZING));
+            }
+        }
+        this.inMemoryStore.addAll(probed);
+        var leaseTtlMs = new LinkedHashMap<String, Long>();
+        if (!leased.isEmpty()) {
+            this.leases.registerAll(leased).forEach((podUri, ttlMs) -> leaseTtlMs.put(podUri.toString(), ttlMs));
+        }
+        logger.info("Registered {} pods, {} of them leased", probed.size() + leased.size(), leased.size());
+        return new PodBatchRegisterResponse(probed.size() + leased.size(), leaseTtlMs);
+    }
+
+    /**
+     * Read a JSON array of registration requests, ignoring unknown fields.
+     *
+     * @throws IllegalArgumentException when an entry has no valid {@code uri}
+     * @throws BatchTooLargeException   when the array holds more than {@value #MAX_BATCH_SIZE} entries
+     */
+    static List<PodRegisterRequest> readBatch(Reader body) throws IOException {
+        var reader = new JsonReader(body);
+        var batch = new ArrayList<PodRegisterRequest>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (batch.size() == MAX_BATCH_SIZE) {
+                throw new BatchTooLargeException();
+            }
+            batch.add(readRequest(reader));
+        }
+        reader.endArray();
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new MalformedJsonException("Trailing content after the batch");
+        }
+        return batch;
+    }
+
+    private static PodRegisterRequest readRequest(JsonReader reader) throws IOException {
+        String uri = null;
+        Long ttlMs = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "uri" -> uri = reader.nextString();
+                case "ttlMs" -> ttlMs = reader.nextLong();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (uri == null) {
+            throw new IllegalArgumentException("Pod registration without uri");
+        }
+        // rejects the whole batch before anything is registered
+        URI.create(uri);
+        return new PodRegisterRequest(uri, ttlMs);
+    }
+
+    static final class BatchTooLargeException extends IOException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        BatchTooLargeException() {
+            super("More than " + MAX_BATCH_SIZE + " pods in one batch");
+        }
+    }
+}
@@ -13,16 +13,26 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import dto.PodRegisterRequest;
+import health.lease.LeaseManager;
 import health.types.BackendPodStatus;
 import pods.BackendPod;
 
 public class LoadBalancerRegisterHandler implements HttpHandler {
     private static final Logger logger = LoggerFactory.getLogger(LoadBalancerRegisterHandler.class);
     private final BackendPodInMemoryStore inMemoryStore;
+    private final LeaseManager leases;
     private final Gson parser;
     
     public LoadBalancerRegisterHandler(BackendPodInMemoryStore inMemoryStore) {
+        this(inMemoryStore, null);
+    }
+
+    /**
+     * @param leases grants leases to pods registering with a {@code ttlMs}, {@code null} to probe every pod
+     */
+    public LoadBalancerRegisterHandler(BackendPodInMemoryStore inMemoryStore, LeaseManager leases) {
         this.inMemoryStore = inMemoryStore;
+        this.leases = leases;
         this.parser = new Gson();
     }
 
@@ -46,6 +56,13 @@ public class LoadBalancerRegisterHandler implements HttpHandler {
             
             try {
                 var pod = parser.fromJson(json, PodRegisterRequest.class);
+                if (pod.ttlMs() != null && this.leases != null) {
+                    long ttlMs = this.leases.register(URI.create(pod.uri()), pod.ttlMs());
+                    // pods renew at the granted TTL, which may differ from the requested one
+                    exchange.getResponseHeaders().set("X-Lease-Ttl-Ms", Long.toString(ttlMs));
+                    exchange.sendResponseHeaders(200, 0);
+                    return;
+                }
                 this.inMemoryStore.add(new BackendPod(URI.create(pod.uri()), BackendPodStatus.INITIALIZING));
                 logger.info("Registered pod: {}", pod.uri());
                 exchange.sendResponseHeaders(200, 0);
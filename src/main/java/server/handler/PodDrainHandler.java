@@ -0,0 +1,57 @@
+package server.handler;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import dto.PodRegisterRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.load.PodDrainer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Deregisters a pod gracefully: {@code POST} drains the pod in the body, which gets no new requests from
+ * then on and is removed once those it is serving have finished. The body is the registration request,
+ * of which only the {@code uri} is read.
+ * <p>
+ * Answers 202 once the drain has started, without waiting for it to end, and 404 when the pod is not
+ * registered.
+ */
+public class PodDrainHandler implements HttpHandler {
+    private static final Logger logger = LoggerFactory.getLogger(PodDrainHandler.class);
+    private final PodDrainer drainer;
+    private final Gson parser = new Gson();
+
+    public PodDrainHandler(PodDrainer drainer) {
+        this.drainer = drainer;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            URI podUri;
+            try (var body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                var request = parser.fromJson(body, PodRegisterRequest.class);
+                if (request == null || request.uri() == null) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                podUri = URI.create(request.uri());
+            } catch (JsonParseException | IllegalArgumentException e) {
+                logger.debug("Invalid drain payload", e);
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(drainer.drain(podUri) ? 202 : 404, -1);
+        }
+    }
+}
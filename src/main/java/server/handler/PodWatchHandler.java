@@ -0,0 +1,90 @@
+package server.handler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.watch.PodWatchHub;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams the changes of the pod registry as server-sent events, for as long as the client stays
+ * connected. The first event is a {@code snapshot} of every pod; each following {@code change} event
+ * carries the pods added or changed and those removed, see {@link dto.PodWatchEvent}.
+ * <p>
+ * Every event's id is the registry generation it leads to. A client reconnecting with that generation, as
+ * the {@code Last-Event-ID} header or a {@code since} query parameter, resumes with the changes it missed
+ * rather than a new snapshot, as long as the store still has them.
+ * <p>
+ * Answers 400 for an invalid generation and 503 when too many watches are open.
+ */
+public class PodWatchHandler implements HttpHandler {
+    private static final Logger logger = LoggerFactory.getLogger(PodWatchHandler.class);
+    private static final byte[] KEEPALIVE = ": keepalive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final PodWatchHub hub;
+    private final long keepaliveMs;
+
+    public PodWatchHandler(PodWatchHub hub, long keepaliveMs) {
+        this.hub = hub;
+        this.keepaliveMs = keepaliveMs;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            long since;
+            try {
+                since = since(exchange);
+            } catch (NumberFormatException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            var watcher = hub.open(since);
+            if (watcher == null) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            try {
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                // a length of 0 streams the body chunked, each flush sending what was written so far
+                exchange.sendResponseHeaders(200, 0);
+                var body = exchange.getResponseBody();
+                while (hub.isRunning()) {
+                    var frame = watcher.next(keepaliveMs);
+                    body.write(frame == null ? KEEPALIVE : frame.bytes());
+                    body.flush();
+                }
+            } catch (IOException e) {
+                logger.debug("Watcher {} disconnected", exchange.getRemoteAddress(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                hub.close(watcher);
+            }
+        }
+    }
+
+    /**
+     * @return the generation the client resumes from, -1 when it starts afresh
+     */
+    private static long since(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("since=")) {
+                    return Long.parseLong(parameter.substring("since=".length()));
+                }
+            }
+        }
+        String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        return lastEventId == null ? -1 : Long.parseLong(lastEventId.trim());
+    }
+}
@@ -3,13 +3,21 @@ package server.handler;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import health.load.BackendLoadReports;
+import health.passive.PassiveHealthSignals;
 import pods.BackendPod;
 import server.LoadDistributable;
 import server.handler.utils.LBHttpResponse;
+import server.handler.utils.ProxyHeaders;
+import server.handler.utils.ProxyTargets;
+import server.handler.utils.ResponseCompression;
+import server.load.PodLoadTracker;
+import server.upstream.UpstreamPool;
+import server.upstream.UpstreamPoolRegistry;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.concurrent.TimeUnit;
@@ -17,12 +25,20 @@ import java.io.OutputStream;
 
 
 public class RootHandler implements HttpHandler {
-    private final HttpClient httpClient;
+    private final UpstreamPoolRegistry upstreamPools;
     private LoadDistributable<BackendPod> loadBalancer;
+    private final ResponseCompression compression;
+    private final PodLoadTracker loadTracker;
+    private final PassiveHealthSignals passiveSignals;
+    private final BackendLoadReports loadReports;
 
-    public RootHandler(HttpClient httpClient, LoadDistributable<BackendPod> loadBalancer) {
+    public RootHandler(UpstreamPoolRegistry upstreamPools, LoadDistributable<BackendPod> loadBalancer, ResponseCompression compression, PodLoadTracker loadTracker, PassiveHealthSignals passiveSignals, BackendLoadReports loadReports) {
         this.loadBalancer = loadBalancer;
-        this.httpClient = httpClient;
+        this.passiveSignals = passiveSignals;
+        this.loadReports = loadReports;
+        this.upstreamPools = upstreamPools;
+        this.compression = compression;
+        this.loadTracker = loadTracker;
     }
 
     /**
@@ -37,13 +53,18 @@ public class RootHandler implements HttpHandler {
      */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        BackendPod nextPod = null;
+        UpstreamPool upstreamPool = null;
         try {
-            BackendPod nextPod = this.loadBalancer.next().orElseThrow(() -> new RuntimeException("No available pods"));
-            String targetUrl = nextPod.uri() + exchange.getRequestURI().getPath();
+            nextPod = this.loadBalancer.next().orElseThrow(() -> new RuntimeException("No available pods"));
+            this.loadTracker.acquire(nextPod);
+            upstreamPool = upstreamPools.poolFor(nextPod);
+            upstreamPool.requestStarted();
+            String target = exchange.getRequestURI().getPath();
             if (exchange.getRequestURI().getQuery() != null) {
-                targetUrl += "?" + exchange.getRequestURI().getQuery();
+                target += "?" + exchange.getRequestURI().getQuery();
             }
-            URI uri = URI.create(targetUrl);
+            URI uri = ProxyTargets.target(nextPod.uri(), target);
             System.out.println(uri);
             HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
                     .uri(uri)
@@ -53,7 +74,7 @@ public class RootHandler implements HttpHandler {
             Headers originalHeaders = exchange.getRequestHeaders();
             originalHeaders.forEach((key, values) -> {
                 // Skip hop-by-hop headers
-                if (!isHopByHopHeader(key) && !isRestrictedHeader(key)) {
+                if (!ProxyHeaders.isHopByHopHeader(key) && !ProxyHeaders.isRestrictedHeader(key)) {
     //                suspends for some reason
                     values.forEach(value -> {
                         requestBuilder.header(key, value);
@@ -61,19 +82,26 @@ public class RootHandler implements HttpHandler {
                 }
             });
 
-            var response = httpClient.sendAsync(
+            var response = upstreamPool.httpClient().sendAsync(
                     requestBuilder.build(),
-                    HttpResponse.BodyHandlers.ofByteArray()
+                    HttpResponse.BodyHandlers.ofInputStream()
             );
-            HttpResponse<byte[]> resp = null;
-            resp = response.get(3, TimeUnit.SECONDS);
+            HttpResponse<InputStream> resp = null;
+            try {
+                resp = response.get(3, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                this.passiveSignals.recordFailure(nextPod.uri());
+                throw e;
+            }
+            recordOutcome(nextPod, resp.statusCode());
+            this.loadReports.recordHeaders(nextPod.uri(), resp.headers());
 
             resp.headers().map().forEach((key, values) -> {
-                if (!isHopByHopHeader(key)) {
+                if (!ProxyHeaders.isHopByHopHeader(key)) {
                     values.forEach(value -> exchange.getResponseHeaders().add(key, value));
                 }
             });
-            LBHttpResponse.handleResponse(exchange, resp);
+            LBHttpResponse.handleResponse(exchange, resp, this.compression);
         } catch (Exception e) {
             // Log the error
             e.printStackTrace();
@@ -91,8 +119,24 @@ public class RootHandler implements HttpHandler {
             } finally {
                 exchange.close();
             }
+        } finally {
+            if (upstreamPool != null) {
+                upstreamPool.requestFinished();
+            }
+            if (nextPod != null) {
+                this.loadTracker.release(nextPod);
+            }
+        }
+    }
+    private void recordOutcome(BackendPod pod, int statusCode) {
+        // server errors count against the pod, client errors are the client's fault
+        if (statusCode >= 500) {
+            this.passiveSignals.recordFailure(pod.uri());
+        } else {
+            this.passiveSignals.recordSuccess(pod.uri());
         }
     }
+
     private HttpRequest.BodyPublisher getRequestBody(HttpExchange exchange) throws IOException {
         // If no body, return empty
         if (exchange.getRequestBody().available() == 0) {
@@ -103,26 +147,4 @@ public class RootHandler implements HttpHandler {
         byte[] bodyBytes = exchange.getRequestBody().readAllBytes();
         return HttpRequest.BodyPublishers.ofByteArray(bodyBytes);
     }
-
-    private boolean isRestrictedHeader(String headerName) {
-        String lowerHeader = headerName.toLowerCase();
-        return lowerHeader.equals("host") ||
-                lowerHeader.equals("connection") ||
-                lowerHeader.equals("content-length") ||
-                lowerHeader.equals("expect") ||
-                lowerHeader.equals("upgrade") ||
-                lowerHeader.equals("cookie");
-    }
-
-    private boolean isHopByHopHeader(String headerName) {
-        String lowerHeader = headerName.toLowerCase();
-        return lowerHeader.equals("connection") ||
-                lowerHeader.equals("keep-alive") ||
-                lowerHeader.equals("proxy-authenticate") ||
-                lowerHeader.equals("proxy-authorization") ||
-                lowerHeader.equals("te") ||
-                lowerHeader.equals("trailer") ||
-                lowerHeader.equals("transfer-encoding") ||
-                lowerHeader.equals("upgrade");
-    }
 }
@@ -3,16 +3,66 @@ package server.handler.utils;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpResponse;
 
 public class LBHttpResponse {
-    public static void handleResponse(HttpExchange exchange, HttpResponse<byte[]> response) throws IOException {
-        exchange.sendResponseHeaders(response.statusCode(), response.body().length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.body());
+    /**
+     * Stream a backend response to the client without buffering the body, compressing it on the way
+     * when the client and the content allow it.
+     * <p>
+     * Response headers from the backend are expected to be copied onto the exchange already.
+     *
+     * @param exchange    the client exchange
+     * @param response    the backend response with an unread body
+     * @param compression compression policy for this response
+     */
+    public static void handleResponse(HttpExchange exchange,
+                                      HttpResponse<InputStream> response,
+                                      ResponseCompression compression) throws IOException {
+        var coding = compression.negotiate(
+                exchange.getRequestMethod(),
+                exchange.getRequestHeaders().getFirst("Accept-Encoding"),
+                response.statusCode(),
+                response.headers());
+        var responseHeaders = exchange.getResponseHeaders();
+        // the server computes framing headers itself from the length passed to sendResponseHeaders
+        responseHeaders.remove("Content-Length");
+
+        if (coding != ResponseCompression.Coding.IDENTITY) {
+            responseHeaders.set("Content-Encoding", coding.token());
+            responseHeaders.add("Vary", "Accept-Encoding");
+        }
+        long responseLength = responseLength(coding, response.headers());
+
+        try (InputStream body = response.body()) {
+            exchange.sendResponseHeaders(response.statusCode(), responseLength);
+            if (responseLength == -1) {
+                return;
+            }
+            try (OutputStream os = compression.wrap(exchange.getResponseBody(), coding)) {
+                body.transferTo(os);
+            }
         }
     }
+
+    /**
+     * @return the length to pass to {@link HttpExchange#sendResponseHeaders}: 0 asks for chunked encoding,
+     * used for compressed bodies and those of unknown length, and -1 for an empty body
+     */
+    static long responseLength(ResponseCompression.Coding coding, HttpHeaders upstreamHeaders) {
+        if (coding != ResponseCompression.Coding.IDENTITY) {
+            return 0;
+        }
+        var upstreamLength = upstreamHeaders.firstValueAsLong("Content-Length");
+        if (upstreamLength.isEmpty()) {
+            return 0;
+        }
+        return upstreamLength.getAsLong() == 0 ? -1 : upstreamLength.getAsLong();
+    }
+
     public static void handleResponse(HttpExchange exchange, String response, int statusCode) throws IOException {
         exchange.sendResponseHeaders(statusCode, response.length());
         try (OutputStream os = exchange.getResponseBody()) {
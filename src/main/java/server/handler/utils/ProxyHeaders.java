@@ -0,0 +1,35 @@
+package server.handler.utils;
+
+/**
+ * Header rules shared by every front end that forwards requests to backend pods.
+ */
+public class ProxyHeaders {
+
+    /**
+     * Headers the upstream {@link java.net.http.HttpClient} sets itself and refuses to accept from callers.
+     */
+    public static boolean isRestrictedHeader(String headerName) {
+        String lowerHeader = headerName.toLowerCase();
+        return lowerHeader.equals("host") ||
+                lowerHeader.equals("connection") ||
+                lowerHeader.equals("content-length") ||
+                lowerHeader.equals("expect") ||
+                lowerHeader.equals("upgrade") ||
+                lowerHeader.equals("cookie");
+    }
+
+    /**
+     * Headers that only describe a single connection and must not be forwarded across the proxy.
+     */
+    public static boolean isHopByHopHeader(String headerName) {
+        String lowerHeader = headerName.toLowerCase();
+        return lowerHeader.equals("connection") ||
+                lowerHeader.equals("keep-alive") ||
+                lowerHeader.equals("proxy-authenticate") ||
+                lowerHeader.equals("proxy-authorization") ||
+                lowerHeader.equals("te") ||
+                lowerHeader.equals("trailer") ||
+                lowerHeader.equals("transfer-encoding") ||
+                lowerHeader.equals("upgrade");
+    }
+}
@@ -0,0 +1,23 @@
+package server.handler.utils;
+
+import java.net.URI;
+
+/**
+ * Builds the URIs requests are sent to on a backend pod. Proxied requests and the requests warming their
+ * connections go through the same rule, so both reach the same paths on the pod.
+ */
+public class ProxyTargets {
+
+    /**
+     * Append a request target to the pod's URI, keeping any base path the pod was registered with.
+     *
+     * @param pathAndQuery request target starting with {@code /}, may include a query string
+     */
+    public static URI target(URI podUri, String pathAndQuery) {
+        String base = podUri.toString();
+        if (base.endsWith("/")) {
+            base = base.substring(0, base.length() - 1);
+        }
+        return URI.create(pathAndQuery.startsWith("/") ? base + pathAndQuery : base + "/" + pathAndQuery);
+    }
+}
@@ -0,0 +1,183 @@
+package server.handler.utils;
+
+import config.CompressionConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpHeaders;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Decides whether a proxied response should be compressed and wraps the client stream accordingly.
+ * <p>
+ * Compression only happens when the client advertises support through {@code Accept-Encoding}, the
+ * backend has not already encoded the body, the content type is on the allowlist and the body is not
+ * known to be smaller than the configured threshold.
+ */
+public class ResponseCompression {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CompressionConfig config;
+
+    public ResponseCompression(CompressionConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Content codings the load balancer can produce.
+     */
+    public enum Coding {
+        GZIP("gzip"),
+        DEFLATE("deflate"),
+        IDENTITY("identity");
+
+        private final String token;
+
+        Coding(String token) {
+            this.token = token;
+        }
+
+        public String token() {
+            return token;
+        }
+    }
+
+    /**
+     * Pick the coding to apply to a backend response.
+     *
+     * @param requestMethod   method of the client request
+     * @param acceptEncoding  the client's {@code Accept-Encoding} header, may be {@code null}
+     * @param statusCode      backend status code
+     * @param upstreamHeaders backend response headers
+     * @return the coding to use, {@link Coding#IDENTITY} when the body should be passed through unchanged
+     */
+    public Coding negotiate(String requestMethod, String acceptEncoding, int statusCode, HttpHeaders upstreamHeaders) {
+        if (!config.enabled() || acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return Coding.IDENTITY;
+        }
+        if ("HEAD".equalsIgnoreCase(requestMethod) || statusCode < 200 || statusCode == 204 || statusCode == 304) {
+            return Coding.IDENTITY;
+        }
+        var existingEncoding = upstreamHeaders.firstValue("Content-Encoding");
+        if (existingEncoding.isPresent() && !existingEncoding.get().equalsIgnoreCase("identity")) {
+            return Coding.IDENTITY;
+        }
+        var contentLength = upstreamHeaders.firstValueAsLong("Content-Length");
+        if (contentLength.isPresent() && contentLength.getAsLong() < config.minSizeBytes()) {
+            return Coding.IDENTITY;
+        }
+        if (!isCompressibleType(upstreamHeaders.firstValue("Content-Type").orElse(null))) {
+            return Coding.IDENTITY;
+        }
+        return preferredCoding(acceptEncoding);
+    }
+
+    /**
+     * Wrap the client stream so that everything written to it is encoded with the given coding.
+     * Closing the returned stream finishes the encoding and closes {@code out}.
+     */
+    public OutputStream wrap(OutputStream out, Coding coding) throws IOException {
+        return switch (coding) {
+            case GZIP -> new LeveledGzipOutputStream(out, config.level());
+            case DEFLATE -> new ReleasingDeflaterOutputStream(out, new Deflater(config.level()));
+            case IDENTITY -> out;
+        };
+    }
+
+    boolean isCompressibleType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int parameterStart = contentType.indexOf(';');
+        String mimeType = (parameterStart == -1 ? contentType : contentType.substring(0, parameterStart))
+                .trim()
+                .toLowerCase(Locale.ROOT);
+        for (String allowed : config.mimeTypes()) {
+            if (allowed.endsWith("/*")) {
+                if (mimeType.startsWith(allowed.substring(0, allowed.length() - 1))) {
+                    return true;
+                }
+            } else if (allowed.equals(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pick the acceptable coding with the highest q-value, gzip when gzip and deflate are equally
+     * preferred. A coding named explicitly takes its q-value from its own entry, otherwise from a {@code *}
+     * entry; codings with {@code q=0} are refused.
+     */
+    Coding preferredCoding(String acceptEncoding) {
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String token = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            switch (token) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+                case "deflate" -> deflate = Math.max(deflate, quality);
+                case "*" -> wildcard = Math.max(wildcard, quality);
+                default -> { }
+            }
+        }
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+        if (deflate < 0) {
+            deflate = wildcard;
+        }
+        if (gzip <= 0 && deflate <= 0) {
+            return Coding.IDENTITY;
+        }
+        return gzip >= deflate ? Coding.GZIP : Coding.DEFLATE;
+    }
+
+    /**
+     * @return the q-value of a coding, 1 without one and 0 when it is invalid
+     */
+    private static double quality(String[] codingParts) {
+        for (int i = 1; i < codingParts.length; i++) {
+            String parameter = codingParts[i].trim();
+            if (!parameter.startsWith("q=")) {
+                continue;
+            }
+            try {
+                double quality = Double.parseDouble(parameter.substring(2));
+                return Double.isNaN(quality) ? 0 : Math.max(0, Math.min(1, quality));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            this.def.setLevel(level);
+        }
+    }
+
+    private static class ReleasingDeflaterOutputStream extends DeflaterOutputStream {
+        ReleasingDeflaterOutputStream(OutputStream out, Deflater deflater) {
+            super(out, deflater, BUFFER_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                // the deflater was supplied by us, so the stream will not release it on its own
+                this.def.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package server.load;
+
+import health.latency.ProbeLatencyTracker;
+
+import java.net.URI;
+
+/**
+ * Weighs pods by the inverse of their smoothed health probe latency, so a pod answering probes twice as
+ * slowly gets half the weight.
+ */
+public class LatencyWeigher implements PodWeigher {
+    // latencies below this are indistinguishable from noise, and dividing by them would blow up the weight
+    private static final double FLOOR_MICROS = 100;
+
+    private final ProbeLatencyTracker latencies;
+
+    public LatencyWeigher(ProbeLatencyTracker latencies) {
+        this.latencies = latencies;
+    }
+
+    @Override
+    public double weight(URI podUri) {
+        double micros = latencies.smoothedMicros(podUri);
+        return Double.isNaN(micros) ? Double.NaN : 1.0 / Math.max(micros, FLOOR_MICROS);
+    }
+}
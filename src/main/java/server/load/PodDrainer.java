@@ -0,0 +1,169 @@
+package server.load;
+
+import config.DrainConfig;
+import health.scheduler.HashedTimerWheel;
+import health.scheduler.TimerDrive;
+import health.types.BackendPodStatus;
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+import server.LoadDistributable;
+import utils.time.TimeProvider;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Takes pods out of service gracefully, e.g. before they are restarted by a rolling deploy.
+ * <p>
+ * A draining pod is taken out of the balancer's rotation at once and marked
+ * {@link BackendPodStatus#DRAINING}, which also ends its health checks. Its requests and tunnels, as counted
+ * by {@link PodLoadTracker}, are left to finish; the pod is removed from the store, publishing REMOVE_POD,
+ * once they have or once the deadline passed, whichever comes first. Pods registering again while they
+ * drain stay registered.
+ */
+public class PodDrainer {
+    private static final Logger logger = LoggerFactory.getLogger(PodDrainer.class);
+    private static final int WHEEL_SIZE = 512;
+
+    private final BackendPodInMemoryStore store;
+    private final LoadDistributable<BackendPod> loadBalancer;
+    private final PodLoadTracker loadTracker;
+    private final DrainConfig config;
+    private final TimeProvider clock;
+    private final HashedTimerWheel timer;
+    private final Map<URI, Drain> drains = new ConcurrentHashMap<>();
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder cutOff = new LongAdder();
+
+    /**
+     * @param dispatcher runs the checks of draining pods
+     */
+    public PodDrainer(BackendPodInMemoryStore store, LoadDistributable<BackendPod> loadBalancer,
+                      PodLoadTracker loadTracker, DrainConfig config, TimeProvider clock, Executor dispatcher) {
+        this(store, loadBalancer, loadTracker, config, clock, dispatcher, TimerDrive.ticker());
+    }
+
+    /**
+     * @param drive how the timer of the checks moves forward, see {@link HashedTimerWheel}
+     */
+    public PodDrainer(BackendPodInMemoryStore store, LoadDistributable<BackendPod> loadBalancer,
+                      PodLoadTracker loadTracker, DrainConfig config, TimeProvider clock, Executor dispatcher,
+                      TimerDrive drive) {
+        this.store = store;
+        this.loadBalancer = loadBalancer;
+        this.loadTracker = loadTracker;
+        this.config = config;
+        this.clock = clock;
+        this.timer = new HashedTimerWheel(config.checkIntervalMs(), WHEEL_SIZE, clock, dispatcher, drive);
+    }
+
+    /**
+     * Start draining a pod. Draining a pod that already drains keeps its original deadline.
+     *
+     * @return whether the pod is registered
+     */
+    public boolean drain(URI podUri) {
+        if (store.get(podUri) == null) {
+            return false;
+        }
+        var drain = new Drain(podUri, clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.deadlineMs()));
+        if (drains.putIfAbsent(podUri, drain) != null) {
+            return true;
+        }
+        // a health check may change the pod between reading and marking it, so mark the status just read
+        BackendPod pod;
+        do {
+            pod = store.get(podUri);
+            if (pod == null) {
+                drains.remove(podUri, drain);
+                return false;
+            }
+        } while (pod.status() != BackendPodStatus.DRAINING
+                && !store.updateIf(pod.status(), pod.updateStatus(BackendPodStatus.DRAINING)));
+        this.timer.start();
+        // straight away rather than through an event, which an asynchronous bus may deliver later
+        loadBalancer.remove(pod);
+        logger.info("Draining pod {}, removing it within {}ms", podUri, config.deadlineMs());
+        // not checked before a full interval has passed: a request may have picked the pod just before
+        // it left the rotation without having counted itself yet
+        drain.scheduleCheck();
+        return true;
+    }
+
+    private void check(Drain drain) {
+        var stored = store.get(drain.podUri);
+        if (stored == null || stored.status() != BackendPodStatus.DRAINING) {
+            // removed some other way, or registered again, whether or not it has been made ready since
+            drains.remove(drain.podUri, drain);
+            return;
+        }
+        int open = loadTracker.load(drain.podUri);
+        if (open > 0 && clock.nanoTime() < drain.deadlineNanos) {
+            drain.scheduleCheck();
+            return;
+        }
+        drains.remove(drain.podUri, drain);
+        if (!store.removeIf(drain.podUri, BackendPodStatus.DRAINING)) {
+            // registered again since it was read above
+            return;
+        }
+        if (open > 0) {
+            logger.warn("Pod {} still had {} requests or tunnels open at its drain deadline", drain.podUri, open);
+            cutOff.increment();
+        }
+        drained.increment();
+        logger.info("Drained pod {}", drain.podUri);
+    }
+
+    public boolean isDraining(URI podUri) {
+        return drains.containsKey(podUri);
+    }
+
+    /**
+     * @return pods currently draining
+     */
+    public int draining() {
+        return drains.size();
+    }
+
+    /**
+     * @return pods removed after draining since startup
+     */
+    public long drained() {
+        return drained.sum();
+    }
+
+    /**
+     * @return drained pods that were removed at their deadline with work still open
+     */
+    public long cutOff() {
+        return cutOff.sum();
+    }
+
+    /**
+     * Stop checking draining pods; they stay DRAINING and are not removed.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    private final class Drain {
+        private final URI podUri;
+        private final long deadlineNanos;
+
+        private Drain(URI podUri, long deadlineNanos) {
+            this.podUri = podUri;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        private void scheduleCheck() {
+            timer.schedule(() -> check(this), config.checkIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
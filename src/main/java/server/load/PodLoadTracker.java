@@ -0,0 +1,45 @@
+package server.load;
+
+import pods.BackendPod;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the work currently assigned to each backend pod: in-flight proxied requests and open tunnels.
+ * Every {@link #acquire(BackendPod)} must be paired with a {@link #release(BackendPod)}.
+ */
+public class PodLoadTracker {
+    private final Map<URI, AtomicInteger> activeByPod = new ConcurrentHashMap<>();
+
+    /**
+     * Record that a request or tunnel has been assigned to the pod.
+     */
+    public void acquire(BackendPod pod) {
+        activeByPod.compute(pod.uri(), (_, counter) -> {
+            if (counter == null) {
+                return new AtomicInteger(1);
+            }
+            counter.incrementAndGet();
+            return counter;
+        });
+    }
+
+    /**
+     * Record that a request or tunnel assigned to the pod has finished.
+     */
+    public void release(BackendPod pod) {
+        // idle entries are dropped so removed pods do not accumulate
+        activeByPod.computeIfPresent(pod.uri(), (_, counter) -> counter.decrementAndGet() <= 0 ? null : counter);
+    }
+
+    /**
+     * @return requests and tunnels currently assigned to the pod
+     */
+    public int load(URI podUri) {
+        var counter = activeByPod.get(podUri);
+        return counter == null ? 0 : counter.get();
+    }
+}
@@ -0,0 +1,32 @@
+package server.load;
+
+import java.net.URI;
+
+/**
+ * Relative weight of each pod for balancers that take pod quality into account. Weights are only compared
+ * with each other: a pod of weight 2 should get twice the share of a pod of weight 1.
+ */
+@FunctionalInterface
+public interface PodWeigher {
+    PodWeigher UNIFORM = _ -> 1.0;
+
+    /**
+     * @return a positive weight, or {@code NaN} when nothing is known about the pod yet
+     */
+    double weight(URI podUri);
+
+    /**
+     * Combine two weighers by multiplying their weights. When only one of them knows the pod, its weight is
+     * used alone.
+     */
+    default PodWeigher times(PodWeigher other) {
+        return podUri -> {
+            double weight = weight(podUri);
+            double otherWeight = other.weight(podUri);
+            if (Double.isNaN(weight)) {
+                return otherWeight;
+            }
+            return Double.isNaN(otherWeight) ? weight : weight * otherWeight;
+        };
+    }
+}
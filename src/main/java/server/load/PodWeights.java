@@ -0,0 +1,46 @@
+package server.load;
+
+import pods.BackendPod;
+
+/**
+ * Turns the raw weights of a set of candidate pods into comparable ones.
+ */
+public final class PodWeights {
+    private PodWeights() {
+    }
+
+    /**
+     * Weigh the candidates relative to the heaviest one. Pods nothing is known about get the mean weight
+     * of the others, and no pod falls below {@code minWeight}, so slow pods keep a trickle of traffic and
+     * can prove they recovered.
+     *
+     * @param candidates pods to weigh, as {@link BackendPod}s
+     * @param minWeight  lowest weight relative to the heaviest pod, between 0 and 1
+     * @return weights in {@code [minWeight, 1]}, in the order of the candidates
+     */
+    public static double[] relative(PodWeigher weigher, Object[] candidates, double minWeight) {
+        double[] weights = new double[candidates.length];
+        double known = 0;
+        int knownCount = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            double weight = weigher.weight(((BackendPod) candidates[i]).uri());
+            weights[i] = weight;
+            if (weight > 0) {
+                known += weight;
+                knownCount++;
+            }
+        }
+        double fallback = knownCount == 0 ? 1.0 : known / knownCount;
+        double max = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (!(weights[i] > 0)) {
+                weights[i] = fallback;
+            }
+            max = Math.max(max, weights[i]);
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Math.max(minWeight, weights[i] / max);
+        }
+        return weights;
+    }
+}
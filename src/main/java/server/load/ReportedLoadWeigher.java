@@ -0,0 +1,26 @@
+package server.load;
+
+import health.load.BackendLoadReports;
+
+import java.net.URI;
+
+/**
+ * Weighs pods by the spare capacity they report, so a pod at 75% load gets a quarter of the weight of an
+ * idle one.
+ */
+public class ReportedLoadWeigher implements PodWeigher {
+    // a saturated pod keeps a sliver of weight so the balancer's minimum weight still applies to it
+    private static final double MIN_SPARE_CAPACITY = 0.01;
+
+    private final BackendLoadReports reports;
+
+    public ReportedLoadWeigher(BackendLoadReports reports) {
+        this.reports = reports;
+    }
+
+    @Override
+    public double weight(URI podUri) {
+        double load = reports.load(podUri);
+        return Double.isNaN(load) ? Double.NaN : Math.max(MIN_SPARE_CAPACITY, 1.0 - load);
+    }
+}
@@ -1,34 +1,81 @@
 package server.serverType;
 
-import java.net.http.HttpClient;
 import java.util.concurrent.ExecutorService;
 
 import com.sun.net.httpserver.HttpServer;
 
+import config.LoadBalancerConfig;
+import health.lease.LeaseManager;
+import health.load.BackendLoadReports;
+import health.passive.PassiveHealthSignals;
+import metrics.MetricsRegistry;
 import pods.BackendPod;
 import repository.BackendPodInMemoryStore;
+import repository.replication.PodReplicator;
 import server.LoadDistributable;
+import server.handler.GossipHandler;
+import server.handler.LeaseHeartbeatHandler;
 import server.handler.RootHandler;
 import server.handler.LoadBalancerRegisterHandler;
+import server.handler.LoadBalancerBatchRegisterHandler;
+import server.handler.MetricsHandler;
+import server.handler.PodDrainHandler;
+import server.handler.PodWatchHandler;
+import server.handler.utils.ResponseCompression;
+import server.load.PodDrainer;
+import server.load.PodLoadTracker;
+import server.upstream.UpstreamPoolRegistry;
+import server.watch.PodWatchHub;
 
 public class LoadBalancerHttpService {
     private final HttpServer httpServer;
     private final LoadDistributable<BackendPod> loadBalancer;
     private final ExecutorService executor;
-    private final HttpClient httpClient;
+    private final UpstreamPoolRegistry upstreamPools;
     private final BackendPodInMemoryStore inMemoryStore;
+    private final LoadBalancerConfig config;
+    private final PodLoadTracker loadTracker;
+    private final MetricsRegistry metrics;
+    private final PassiveHealthSignals passiveSignals;
+    private final BackendLoadReports loadReports;
+    private final LeaseManager leases;
+    private final PodWatchHub watchHub;
+    private final PodDrainer drainer;
+    private final PodReplicator replicator;
 
-    public LoadBalancerHttpService(HttpServer httpServer, HttpClient httpClient, LoadDistributable<BackendPod> loadBalancer, ExecutorService executor, BackendPodInMemoryStore inMemoryStore) {
+    public LoadBalancerHttpService(HttpServer httpServer, UpstreamPoolRegistry upstreamPools, LoadDistributable<BackendPod> loadBalancer, PodLoadTracker loadTracker, ExecutorService executor, BackendPodInMemoryStore inMemoryStore, LoadBalancerConfig config, MetricsRegistry metrics, PassiveHealthSignals passiveSignals, BackendLoadReports loadReports, LeaseManager leases, PodWatchHub watchHub, PodDrainer drainer, PodReplicator replicator) {
         this.httpServer = httpServer;
+        this.replicator = replicator;
+        this.drainer = drainer;
+        this.watchHub = watchHub;
+        this.passiveSignals = passiveSignals;
+        this.loadReports = loadReports;
+        this.leases = leases;
+        this.metrics = metrics;
+        this.loadTracker = loadTracker;
+        this.config = config;
         this.loadBalancer = loadBalancer;
         this.executor = executor;
-        this.httpClient = httpClient;
+        this.upstreamPools = upstreamPools;
         this.inMemoryStore = inMemoryStore;
     }
 
     private void setupHandlers() {
-        this.httpServer.createContext("/", new RootHandler(this.httpClient, this.loadBalancer));
-        this.httpServer.createContext("/lbregister", new LoadBalancerRegisterHandler(this.inMemoryStore));
+        this.httpServer.createContext("/", new RootHandler(this.upstreamPools, this.loadBalancer,
+                new ResponseCompression(this.config.compression()), this.loadTracker, this.passiveSignals, this.loadReports));
+        this.httpServer.createContext("/lbregister", new LoadBalancerRegisterHandler(this.inMemoryStore, this.leases));
+        this.httpServer.createContext("/lbregister/batch", new LoadBalancerBatchRegisterHandler(this.inMemoryStore, this.leases));
+        this.httpServer.createContext("/lbdrain", new PodDrainHandler(this.drainer));
+        if (this.leases != null) {
+            this.httpServer.createContext("/lbheartbeat", new LeaseHeartbeatHandler(this.leases));
+        }
+        if (this.watchHub != null) {
+            this.httpServer.createContext("/lbwatch", new PodWatchHandler(this.watchHub, this.config.watch().keepaliveMs()));
+        }
+        if (this.replicator != null) {
+            this.httpServer.createContext("/lbgossip", new GossipHandler(this.replicator));
+        }
+        this.httpServer.createContext("/lbmetrics", new MetricsHandler(this.metrics));
     }
     
     public void start() {
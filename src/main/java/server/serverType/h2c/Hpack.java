@@ -0,0 +1,262 @@
+package server.serverType.h2c;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HPACK header compression (RFC 7541) for the h2c front end.
+ * <p>
+ * The decoder implements the full specification including the dynamic table and Huffman-coded strings.
+ * The encoder never adds entries to the dynamic table and never Huffman-codes, which keeps it stateless
+ * and safe to share between streams of one connection.
+ */
+final class Hpack {
+    private static final int ENTRY_OVERHEAD = 32;
+
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"},
+            {":path", "/index.html"}, {":scheme", "http"}, {":scheme", "https"}, {":status", "200"},
+            {":status", "204"}, {":status", "206"}, {":status", "304"}, {":status", "400"},
+            {":status", "404"}, {":status", "500"}, {"accept-charset", ""}, {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""}, {"access-control-allow-origin", ""},
+            {"age", ""}, {"allow", ""}, {"authorization", ""}, {"cache-control", ""},
+            {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""}, {"content-length", ""},
+            {"content-location", ""}, {"content-range", ""}, {"content-type", ""}, {"cookie", ""},
+            {"date", ""}, {"etag", ""}, {"expect", ""}, {"expires", ""},
+            {"from", ""}, {"host", ""}, {"if-match", ""}, {"if-modified-since", ""},
+            {"if-none-match", ""}, {"if-range", ""}, {"if-unmodified-since", ""}, {"last-modified", ""},
+            {"link", ""}, {"location", ""}, {"max-forwards", ""}, {"proxy-authenticate", ""},
+            {"proxy-authorization", ""}, {"range", ""}, {"referer", ""}, {"refresh", ""},
+            {"retry-after", ""}, {"server", ""}, {"set-cookie", ""}, {"strict-transport-security", ""},
+            {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""},
+            {"www-authenticate", ""}
+    };
+
+    private static final Map<String, Integer> STATIC_NAME_INDEX = buildStaticNameIndex();
+
+    private Hpack() {
+    }
+
+    private static Map<String, Integer> buildStaticNameIndex() {
+        var index = new HashMap<String, Integer>();
+        for (int i = STATIC_TABLE.length - 1; i >= 0; i--) {
+            index.put(STATIC_TABLE[i][0], i + 1);
+        }
+        return Map.copyOf(index);
+    }
+
+    /**
+     * A decoded header field. Names are lower case as required by HTTP/2.
+     */
+    record Header(String name, String value) {
+    }
+
+    /**
+     * Decoder state of one connection. Not thread safe; header blocks must be decoded in the order they
+     * arrive on the connection.
+     */
+    static final class Decoder {
+        private final ArrayDeque<Header> dynamicTable = new ArrayDeque<>();
+        private final int maxTableSizeLimit;
+        private final int maxHeaderListSize;
+        private int maxTableSize;
+        private int tableSize;
+
+        /**
+         * @param maxTableSizeLimit the SETTINGS_HEADER_TABLE_SIZE advertised to the peer
+         */
+        Decoder(int maxTableSizeLimit) {
+            this(maxTableSizeLimit, Integer.MAX_VALUE);
+        }
+
+        /**
+         * @param maxTableSizeLimit the SETTINGS_HEADER_TABLE_SIZE advertised to the peer
+         * @param maxHeaderListSize the SETTINGS_MAX_HEADER_LIST_SIZE advertised to the peer
+         */
+        Decoder(int maxTableSizeLimit, int maxHeaderListSize) {
+            this.maxTableSizeLimit = maxTableSizeLimit;
+            this.maxTableSize = maxTableSizeLimit;
+            this.maxHeaderListSize = maxHeaderListSize;
+        }
+
+        /**
+         * Decode a complete header block.
+         *
+         * @throws Http2ProtocolException ENHANCE_YOUR_CALM once the headers exceed the header list size, which
+         *                                small blocks can do by repeating indexed entries
+         */
+        List<Header> decode(byte[] block, int length) throws Http2ProtocolException {
+            var headers = new ArrayList<Header>();
+            long listSize = 0;
+            int[] position = {0};
+            while (position[0] < length) {
+                int first = block[position[0]] & 0xff;
+                int before = headers.size();
+                if ((first & 0x80) != 0) {
+                    int index = readInteger(block, length, position, 7);
+                    headers.add(lookup(index));
+                } else if ((first & 0x40) != 0) {
+                    var header = readLiteral(block, length, position, 6);
+                    headers.add(header);
+                    insert(header);
+                } else if ((first & 0x20) != 0) {
+                    int newSize = readInteger(block, length, position, 5);
+                    if (newSize > maxTableSizeLimit) {
+                        throw new Http2ProtocolException(Http2ProtocolException.COMPRESSION_ERROR, "table size update too large");
+                    }
+                    maxTableSize = newSize;
+                    evict(0);
+                } else {
+                    // literal without indexing (0000) and never indexed (0001) share the same layout
+                    headers.add(readLiteral(block, length, position, 4));
+                }
+                if (headers.size() > before) {
+                    listSize += entrySize(headers.getLast());
+                    if (listSize > maxHeaderListSize) {
+                        throw new Http2ProtocolException(Http2ProtocolException.ENHANCE_YOUR_CALM,
+                                "header list larger than " + maxHeaderListSize + " bytes");
+                    }
+                }
+            }
+            return headers;
+        }
+
+        private Header readLiteral(byte[] block, int length, int[] position, int prefixBits)
+                throws Http2ProtocolException {
+            int nameIndex = readInteger(block, length, position, prefixBits);
+            String name = nameIndex == 0
+                    ? readString(block, length, position)
+                    : lookup(nameIndex).name();
+            String value = readString(block, length, position);
+            return new Header(name, value);
+        }
+
+        private Header lookup(int index) throws Http2ProtocolException {
+            if (index <= 0) {
+                throw new Http2ProtocolException(Http2ProtocolException.COMPRESSION_ERROR, "invalid header index 0");
+            }
+            if (index <= STATIC_TABLE.length) {
+                return new Header(STATIC_TABLE[index - 1][0], STATIC_TABLE[index - 1][1]);
+            }
+            int dynamicIndex = index - STATIC_TABLE.length - 1;
+            if (dynamicIndex >= dynamicTable.size()) {
+                throw new Http2ProtocolException(Http2ProtocolException.COMPRESSION_ERROR, "header index out of range");
+            }
+            var iterator = dynamicTable.iterator();
+            for (int i = 0; i < dynamicIndex; i++) {
+                iterator.next();
+            }
+            return iterator.next();
+        }
+
+        private void insert(Header header) {
+            int entrySize = entrySize(header);
+            if (entrySize > maxTableSize) {
+                // an entry larger than the table empties it and is not stored
+                dynamicTable.clear();
+                tableSize = 0;
+                return;
+            }
+            evict(entrySize);
+            dynamicTable.addFirst(header);
+            tableSize += entrySize;
+        }
+
+        private void evict(int incomingSize) {
+            while (tableSize + incomingSize > maxTableSize && !dynamicTable.isEmpty()) {
+                tableSize -= entrySize(dynamicTable.removeLast());
+            }
+        }
+
+        private static int entrySize(Header header) {
+            return header.name().length() + header.value().length() + ENTRY_OVERHEAD;
+        }
+
+        private static int readInteger(byte[] block, int length, int[] position, int prefixBits)
+                throws Http2ProtocolException {
+            int maxPrefix = (1 << prefixBits) - 1;
+            int value = block[position[0]++] & maxPrefix;
+            if (value < maxPrefix) {
+                return value;
+            }
+            int shift = 0;
+            while (true) {
+                if (position[0] >= length || shift > 28) {
+                    throw new Http2ProtocolException(Http2ProtocolException.COMPRESSION_ERROR, "invalid integer");
+                }
+                int octet = block[position[0]++] & 0xff;
+                value += (octet & 0x7f) << shift;
+                if (value < 0) {
+                    throw new Http2ProtocolException(Http2ProtocolException.COMPRESSION_ERROR, "integer overflow");
+                }
+                if ((octet & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        private static String readString(byte[] block, int length, int[] position) throws Http2ProtocolException {
+            if (position[0] >= length) {
+                throw new Http2ProtocolException(Http2ProtocolException.COMPRESSION_ERROR, "truncated string");
+            }
+            boolean huffman = (block[position[0]] & 0x80) != 0;
+            int stringLength = readInteger(block, length, position, 7);
+            if (stringLength > length - position[0]) {
+                throw new Http2ProtocolException(Http2ProtocolException.COMPRESSION_ERROR, "truncated string");
+            }
+            int start = position[0];
+            position[0] += stringLength;
+            return huffman
+                    ? HpackHuffman.decode(block, start, stringLength)
+                    : new String(block, start, stringLength, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Encode header fields as literals without indexing, reusing static table names where possible.
+     *
+     * @param headers header fields in the order they should be sent; names must already be lower case
+     * @return the header block
+     */
+    static byte[] encode(List<Header> headers) {
+        var out = new ByteArrayOutputStream(64 * headers.size());
+        for (var header : headers) {
+            Integer nameIndex = STATIC_NAME_INDEX.get(header.name());
+            if (nameIndex != null) {
+                writeInteger(out, 0x00, 4, nameIndex);
+            } else {
+                out.write(0x00);
+                writeString(out, header.name());
+            }
+            writeString(out, header.value());
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        writeInteger(out, 0x00, 7, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeInteger(ByteArrayOutputStream out, int pattern, int prefixBits, int value) {
+        int maxPrefix = (1 << prefixBits) - 1;
+        if (value < maxPrefix) {
+            out.write(pattern | value);
+            return;
+        }
+        out.write(pattern | maxPrefix);
+        value -= maxPrefix;
+        while (value >= 0x80) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
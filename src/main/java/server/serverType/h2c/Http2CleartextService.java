@@ -0,0 +1,76 @@
+package server.serverType.h2c;
+
+import config.Http2Config;
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Front end accepting HTTP/2 cleartext connections with prior knowledge, as used by gRPC clients and
+ * service-mesh sidecars. Runs next to the HTTP/1.1 server on its own port.
+ */
+public class Http2CleartextService {
+    private static final Logger logger = LoggerFactory.getLogger(Http2CleartextService.class);
+
+    private final Http2Config config;
+    private final ExecutorService executor;
+    private final Http2StreamHandler handler;
+    private volatile ServerSocket serverSocket;
+
+    public Http2CleartextService(Http2Config config, ExecutorService executor, Http2StreamHandler handler) {
+        this.config = config;
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    /**
+     * Bind the configured port and start accepting connections in the background.
+     */
+    public void start() throws IOException {
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(config.h2cPort()));
+        logger.info("h2c front end listening on port {}", getPort());
+        this.executor.execute(this::acceptLoop);
+    }
+
+    public void stop() {
+        if (serverSocket == null) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.warn("Error closing h2c listener", e);
+        }
+    }
+
+    /**
+     * @return the bound port, useful when the configured port was ephemeral
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(newConnection(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Failed to accept h2c connection", e);
+                }
+            }
+        }
+    }
+
+    private Runnable newConnection(Socket socket) throws IOException {
+        return new Http2Connection(socket, config, handler, executor);
+    }
+}
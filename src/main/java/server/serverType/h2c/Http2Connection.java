@@ -0,0 +1,722 @@
+package server.serverType.h2c;
+
+import config.Http2Config;
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A single client connection speaking HTTP/2 with prior knowledge (RFC 9113).
+ * <p>
+ * One thread reads frames and demultiplexes them into {@link Http2Stream}s; every stream is served on its
+ * own thread from the shared executor. Writes from all streams are serialized through one lock so frames
+ * never interleave, and DATA frames wait for flow-control credit from the client.
+ */
+class Http2Connection implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(Http2Connection.class);
+
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final int DEFAULT_WINDOW_SIZE = 65535;
+    private static final long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+    private static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+    private static final int HEADER_TABLE_SIZE = 4096;
+
+    private static final int TYPE_DATA = 0x0;
+    private static final int TYPE_HEADERS = 0x1;
+    private static final int TYPE_PRIORITY = 0x2;
+    private static final int TYPE_RST_STREAM = 0x3;
+    private static final int TYPE_SETTINGS = 0x4;
+    private static final int TYPE_PUSH_PROMISE = 0x5;
+    private static final int TYPE_PING = 0x6;
+    private static final int TYPE_GOAWAY = 0x7;
+    private static final int TYPE_WINDOW_UPDATE = 0x8;
+    private static final int TYPE_CONTINUATION = 0x9;
+
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+    private static final int FLAG_PADDED = 0x8;
+    private static final int FLAG_PRIORITY = 0x20;
+
+    private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    private static final int SETTINGS_ENABLE_PUSH = 0x2;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    private static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    private final Socket socket;
+    private final Http2Config config;
+    private final Http2StreamHandler handler;
+    private final ExecutorService executor;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final Hpack.Decoder decoder;
+    private final Map<Integer, Http2Stream> streams = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock flowLock = new ReentrantLock();
+    private final Condition windowAvailable = flowLock.newCondition();
+
+    // guarded by flowLock
+    private long connectionSendWindow = DEFAULT_WINDOW_SIZE;
+    private long peerInitialWindowSize = DEFAULT_WINDOW_SIZE;
+
+    private final AtomicLong connectionReceiveWindow;
+    private final AtomicLong connectionUnacknowledgedBytes = new AtomicLong();
+    private volatile int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private volatile boolean closed;
+    // set once the client sent GOAWAY: no new streams, the open ones run to completion
+    private volatile boolean goingAway;
+
+    // only touched by the reader thread
+    private int lastStreamId;
+    private int continuationStreamId;
+    private boolean continuationEndStream;
+    private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream();
+
+    Http2Connection(Socket socket, Http2Config config, Http2StreamHandler handler, ExecutorService executor)
+            throws IOException {
+        this.socket = socket;
+        this.config = config;
+        this.handler = handler;
+        this.executor = executor;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+        this.connectionReceiveWindow = new AtomicLong(config.initialWindowSize());
+        this.decoder = new Hpack.Decoder(HEADER_TABLE_SIZE, config.maxHeaderListSize());
+    }
+
+    @Override
+    public void run() {
+        try {
+            readPreface();
+            sendInitialSettings();
+            while (!closed) {
+                readFrame();
+            }
+        } catch (Http2ProtocolException e) {
+            logger.debug("Closing h2c connection from {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            writeGoAwayQuietly(e.errorCode());
+        } catch (EOFException e) {
+            logger.debug("h2c client {} closed the connection", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            if (!closed) {
+                logger.debug("h2c connection from {} failed", socket.getRemoteSocketAddress(), e);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * @return buffer size for response bodies; large peer frame limits are not worth the memory per stream
+     */
+    int outboundChunkSize() {
+        return Math.min(peerMaxFrameSize, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    /*
+     * Inbound frames
+     * */
+
+    private void readPreface() throws IOException {
+        byte[] preface = new byte[PREFACE.length];
+        in.readFully(preface);
+        if (!Arrays.equals(preface, PREFACE)) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "invalid connection preface");
+        }
+    }
+
+    private void sendInitialSettings() throws IOException {
+        byte[] settings = new byte[24];
+        putSetting(settings, 0, SETTINGS_MAX_CONCURRENT_STREAMS, config.maxConcurrentStreams());
+        putSetting(settings, 6, SETTINGS_INITIAL_WINDOW_SIZE, config.initialWindowSize());
+        putSetting(settings, 12, SETTINGS_MAX_FRAME_SIZE, config.maxFrameSize());
+        putSetting(settings, 18, SETTINGS_MAX_HEADER_LIST_SIZE, config.maxHeaderListSize());
+        writeFrame(TYPE_SETTINGS, 0, 0, settings, 0, settings.length);
+        // the connection window always starts at 64KiB; raise it to the configured size
+        int increment = config.initialWindowSize() - DEFAULT_WINDOW_SIZE;
+        if (increment > 0) {
+            writeWindowUpdate(0, increment);
+        }
+    }
+
+    private void readFrame() throws IOException {
+        int length = (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+        int type = in.readUnsignedByte();
+        int flags = in.readUnsignedByte();
+        int streamId = in.readInt() & 0x7fffffff;
+        if (length > config.maxFrameSize()) {
+            throw new Http2ProtocolException(Http2ProtocolException.FRAME_SIZE_ERROR, "frame of %d bytes".formatted(length));
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+
+        if (continuationStreamId != 0 && type != TYPE_CONTINUATION) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "expected CONTINUATION");
+        }
+        switch (type) {
+            case TYPE_DATA -> onData(flags, streamId, payload);
+            case TYPE_HEADERS -> onHeaders(flags, streamId, payload);
+            case TYPE_PRIORITY -> requireLength(payload, 5);
+            case TYPE_RST_STREAM -> onReset(streamId, payload);
+            case TYPE_SETTINGS -> onSettings(flags, streamId, payload);
+            case TYPE_PUSH_PROMISE ->
+                    throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "clients cannot push");
+            case TYPE_PING -> onPing(flags, streamId, payload);
+            case TYPE_GOAWAY -> onGoAway(streamId, payload);
+            case TYPE_WINDOW_UPDATE -> onWindowUpdate(streamId, payload);
+            case TYPE_CONTINUATION -> onContinuation(flags, streamId, payload);
+            default -> logger.trace("Ignoring unknown h2 frame type {}", type);
+        }
+    }
+
+    private void onHeaders(int flags, int streamId, byte[] payload) throws IOException {
+        if (streamId == 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "HEADERS on stream 0");
+        }
+        int offset = 0;
+        int length = payload.length;
+        if ((flags & FLAG_PADDED) != 0) {
+            int padding = length > 0 ? payload[0] & 0xff : 0;
+            offset = 1;
+            length -= 1 + padding;
+        }
+        if ((flags & FLAG_PRIORITY) != 0) {
+            offset += 5;
+            length -= 5;
+        }
+        if (length < 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "invalid HEADERS padding");
+        }
+        headerBlock.reset();
+        appendHeaderFragment(payload, offset, length);
+        continuationEndStream = (flags & FLAG_END_STREAM) != 0;
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            onHeaderBlock(streamId);
+        } else {
+            continuationStreamId = streamId;
+        }
+    }
+
+    private void onContinuation(int flags, int streamId, byte[] payload) throws IOException {
+        if (streamId == 0 || streamId != continuationStreamId) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "unexpected CONTINUATION");
+        }
+        appendHeaderFragment(payload, 0, payload.length);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            continuationStreamId = 0;
+            onHeaderBlock(streamId);
+        }
+    }
+
+    /**
+     * Buffer a fragment of a header block. The encoded block is never larger than the header list it
+     * decodes to, so a block over the limit ends the connection before an endless run of CONTINUATION
+     * frames can exhaust memory.
+     */
+    private void appendHeaderFragment(byte[] payload, int offset, int length) throws Http2ProtocolException {
+        if (headerBlock.size() + (long) length > config.maxHeaderListSize()) {
+            throw new Http2ProtocolException(Http2ProtocolException.ENHANCE_YOUR_CALM,
+                    "header block larger than " + config.maxHeaderListSize() + " bytes");
+        }
+        headerBlock.write(payload, offset, length);
+    }
+
+    private void onHeaderBlock(int streamId) throws IOException {
+        // decode even when the stream is refused so that the HPACK state stays in sync with the client
+        List<Hpack.Header> headers = decoder.decode(headerBlock.toByteArray(), headerBlock.size());
+        boolean endStream = continuationEndStream;
+
+        var existing = streams.get(streamId);
+        if (existing != null) {
+            // trailers: the upstream client cannot send them, so the body ends here and the fields are dropped
+            if (endStream) {
+                existing.endInbound();
+            }
+            return;
+        }
+        if (streamId % 2 == 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "invalid stream id " + streamId);
+        }
+        if (streamId <= lastStreamId) {
+            // a stream that already finished (RFC 9113 section 5.1): an error of that stream only
+            logger.debug("HEADERS on closed h2c stream {}", streamId);
+            writeReset(streamId, Http2ProtocolException.STREAM_CLOSED);
+            return;
+        }
+        lastStreamId = streamId;
+        if (goingAway) {
+            logger.debug("Refusing stream {}: the client is going away", streamId);
+            writeReset(streamId, Http2ProtocolException.REFUSED_STREAM);
+            return;
+        }
+        if (streams.size() >= config.maxConcurrentStreams()) {
+            logger.debug("Refusing stream {}: {} streams already open", streamId, streams.size());
+            writeReset(streamId, Http2ProtocolException.REFUSED_STREAM);
+            return;
+        }
+
+        long sendWindow;
+        flowLock.lock();
+        try {
+            sendWindow = peerInitialWindowSize;
+        } finally {
+            flowLock.unlock();
+        }
+        var stream = new Http2Stream(this, streamId, headers, endStream, sendWindow, config.initialWindowSize());
+        if (stream.method() == null || stream.path() == null) {
+            writeReset(streamId, Http2ProtocolException.PROTOCOL_ERROR);
+            return;
+        }
+        streams.put(streamId, stream);
+        executor.execute(() -> serve(stream));
+    }
+
+    private void onData(int flags, int streamId, byte[] payload) throws IOException {
+        if (streamId == 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "DATA on stream 0");
+        }
+        int frameLength = payload.length;
+        if (connectionReceiveWindow.addAndGet(-frameLength) < 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.FLOW_CONTROL_ERROR, "connection window exceeded");
+        }
+        int offset = 0;
+        int length = frameLength;
+        if ((flags & FLAG_PADDED) != 0) {
+            int padding = length > 0 ? payload[0] & 0xff : 0;
+            offset = 1;
+            length -= 1 + padding;
+            if (length < 0) {
+                throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "invalid DATA padding");
+            }
+        }
+
+        var stream = streams.get(streamId);
+        if (stream == null || stream.inboundEnded()) {
+            // the bytes will never be read, give the credit back right away
+            acknowledgeConnectionBytes(frameLength);
+            if (streamId > lastStreamId) {
+                throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "DATA on idle stream");
+            }
+            writeReset(streamId, Http2ProtocolException.STREAM_CLOSED);
+            return;
+        }
+        if (stream.receiveWindow.addAndGet(-frameLength) < 0) {
+            acknowledgeConnectionBytes(frameLength);
+            stream.reset(Http2ProtocolException.FLOW_CONTROL_ERROR);
+            return;
+        }
+        // padding is never handed to the handler, so it counts as consumed immediately
+        int consumedNow = frameLength - length;
+        if (consumedNow > 0) {
+            onBodyConsumed(stream, consumedNow);
+        }
+        if (length > 0) {
+            stream.deliver(Arrays.copyOfRange(payload, offset, offset + length));
+        }
+        if ((flags & FLAG_END_STREAM) != 0) {
+            stream.endInbound();
+        }
+    }
+
+    private void onReset(int streamId, byte[] payload) throws IOException {
+        requireLength(payload, 4);
+        if (streamId == 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "RST_STREAM on stream 0");
+        }
+        var stream = streams.remove(streamId);
+        if (stream == null) {
+            return;
+        }
+        stream.onReset(readInt(payload, 0));
+        signalWindow();
+        closeIfDrained();
+    }
+
+    private void onSettings(int flags, int streamId, byte[] payload) throws IOException {
+        if (streamId != 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "SETTINGS on a stream");
+        }
+        if ((flags & FLAG_ACK) != 0) {
+            requireLength(payload, 0);
+            return;
+        }
+        if (payload.length % 6 != 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.FRAME_SIZE_ERROR, "malformed SETTINGS");
+        }
+        for (int i = 0; i < payload.length; i += 6) {
+            int identifier = ((payload[i] & 0xff) << 8) | (payload[i + 1] & 0xff);
+            long value = readInt(payload, i + 2) & 0xffffffffL;
+            switch (identifier) {
+                case SETTINGS_ENABLE_PUSH -> {
+                    if (value > 1) {
+                        throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "invalid ENABLE_PUSH");
+                    }
+                }
+                case SETTINGS_INITIAL_WINDOW_SIZE -> applyPeerInitialWindowSize(value);
+                case SETTINGS_MAX_FRAME_SIZE -> {
+                    if (value < DEFAULT_MAX_FRAME_SIZE || value > (1 << 24) - 1) {
+                        throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "invalid MAX_FRAME_SIZE");
+                    }
+                    peerMaxFrameSize = (int) value;
+                }
+                // the encoder keeps no dynamic table and the front end never pushes,
+                // so the remaining settings need no action
+                case SETTINGS_HEADER_TABLE_SIZE, SETTINGS_MAX_CONCURRENT_STREAMS -> { }
+                default -> { }
+            }
+        }
+        writeFrame(TYPE_SETTINGS, FLAG_ACK, 0, new byte[0], 0, 0);
+    }
+
+    private void applyPeerInitialWindowSize(long value) throws Http2ProtocolException {
+        if (value > MAX_WINDOW_SIZE) {
+            throw new Http2ProtocolException(Http2ProtocolException.FLOW_CONTROL_ERROR, "initial window too large");
+        }
+        flowLock.lock();
+        try {
+            long delta = value - peerInitialWindowSize;
+            peerInitialWindowSize = value;
+            for (var stream : streams.values()) {
+                stream.sendWindow += delta;
+            }
+            windowAvailable.signalAll();
+        } finally {
+            flowLock.unlock();
+        }
+    }
+
+    private void onPing(int flags, int streamId, byte[] payload) throws IOException {
+        requireLength(payload, 8);
+        if (streamId != 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "PING on a stream");
+        }
+        if ((flags & FLAG_ACK) == 0) {
+            writeFrame(TYPE_PING, FLAG_ACK, 0, payload, 0, payload.length);
+        }
+    }
+
+    /**
+     * The client stops using the connection. Its last-stream-id only covers streams the server opened, and
+     * the front end never pushes, so every stream the client opened so far is served to the end; the
+     * connection closes once the last of them finished.
+     */
+    private void onGoAway(int streamId, byte[] payload) throws IOException {
+        if (streamId != 0) {
+            throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "GOAWAY on a stream");
+        }
+        if (payload.length < 8) {
+            throw new Http2ProtocolException(Http2ProtocolException.FRAME_SIZE_ERROR, "GOAWAY too short");
+        }
+        logger.debug("h2c client {} is going away (error code {}), finishing {} streams",
+                socket.getRemoteSocketAddress(), readInt(payload, 4), streams.size());
+        goingAway = true;
+        closeIfDrained();
+    }
+
+    private void closeIfDrained() {
+        if (goingAway && streams.isEmpty() && !closed) {
+            writeGoAwayQuietly(Http2ProtocolException.NO_ERROR);
+            close();
+        }
+    }
+
+    private void onWindowUpdate(int streamId, byte[] payload) throws IOException {
+        requireLength(payload, 4);
+        int increment = readInt(payload, 0) & 0x7fffffff;
+        if (increment == 0) {
+            if (streamId == 0) {
+                throw new Http2ProtocolException(Http2ProtocolException.PROTOCOL_ERROR, "zero window increment");
+            }
+            var stream = streams.get(streamId);
+            if (stream != null) {
+                stream.reset(Http2ProtocolException.PROTOCOL_ERROR);
+            }
+            return;
+        }
+        Http2Stream overflowed = null;
+        flowLock.lock();
+        try {
+            if (streamId == 0) {
+                connectionSendWindow += increment;
+                if (connectionSendWindow > MAX_WINDOW_SIZE) {
+                    throw new Http2ProtocolException(Http2ProtocolException.FLOW_CONTROL_ERROR, "connection window overflow");
+                }
+            } else {
+                var stream = streams.get(streamId);
+                if (stream != null) {
+                    if (stream.sendWindow + increment > MAX_WINDOW_SIZE) {
+                        overflowed = stream;
+                    } else {
+                        stream.sendWindow += increment;
+                    }
+                }
+            }
+            windowAvailable.signalAll();
+        } finally {
+            flowLock.unlock();
+        }
+        if (overflowed != null) {
+            // a stream error only; the reset is written outside the flow lock like every other frame
+            overflowed.reset(Http2ProtocolException.FLOW_CONTROL_ERROR);
+            signalWindow();
+        }
+    }
+
+    /*
+     * Stream lifecycle
+     * */
+
+    private void serve(Http2Stream stream) {
+        try {
+            handler.handle(stream);
+        } catch (Exception e) {
+            logger.debug("h2c stream {} failed", stream.id(), e);
+            failStream(stream);
+        } finally {
+            streams.remove(stream.id());
+            if (!stream.inboundEnded() && !stream.isReset() && !closed) {
+                // the response is complete; tell the client to stop sending the request body
+                writeResetQuietly(stream.id(), Http2ProtocolException.NO_ERROR);
+            }
+            closeIfDrained();
+        }
+    }
+
+    private void failStream(Http2Stream stream) {
+        if (stream.isReset() || closed) {
+            return;
+        }
+        try {
+            if (!stream.responseHeadersSent()) {
+                stream.respond(502, "Bad Gateway");
+            } else if (!stream.responseEnded()) {
+                stream.reset(Http2ProtocolException.INTERNAL_ERROR);
+            }
+        } catch (IOException e) {
+            logger.debug("Unable to report failure on h2c stream {}", stream.id(), e);
+        }
+    }
+
+    /**
+     * Called as the handler reads request body bytes; returns flow-control credit to the client once half
+     * a window has been consumed, which batches WINDOW_UPDATE frames.
+     */
+    void onBodyConsumed(Http2Stream stream, int bytes) {
+        try {
+            long streamPending = stream.unacknowledgedBytes.addAndGet(bytes);
+            if (streamPending >= config.initialWindowSize() / 2 && !stream.inboundEnded()) {
+                stream.unacknowledgedBytes.addAndGet(-streamPending);
+                stream.receiveWindow.addAndGet(streamPending);
+                writeWindowUpdate(stream.id(), (int) streamPending);
+            }
+            acknowledgeConnectionBytes(bytes);
+        } catch (IOException e) {
+            logger.debug("Unable to send WINDOW_UPDATE for h2c stream {}", stream.id(), e);
+        }
+    }
+
+    private void acknowledgeConnectionBytes(int bytes) throws IOException {
+        long pending = connectionUnacknowledgedBytes.addAndGet(bytes);
+        if (pending < config.initialWindowSize() / 2) {
+            return;
+        }
+        connectionUnacknowledgedBytes.addAndGet(-pending);
+        connectionReceiveWindow.addAndGet(pending);
+        writeWindowUpdate(0, (int) pending);
+    }
+
+    /*
+     * Outbound frames
+     * */
+
+    void writeHeaders(Http2Stream stream, List<Hpack.Header> headers, boolean endStream) throws IOException {
+        byte[] block = Hpack.encode(headers);
+        int chunkSize = peerMaxFrameSize;
+        writeLock.lock();
+        try {
+            int offset = 0;
+            boolean first = true;
+            do {
+                int length = Math.min(chunkSize, block.length - offset);
+                boolean last = offset + length == block.length;
+                int flags = last ? FLAG_END_HEADERS : 0;
+                if (first && endStream) {
+                    flags |= FLAG_END_STREAM;
+                }
+                writeFrameLocked(first ? TYPE_HEADERS : TYPE_CONTINUATION, flags, stream.id(), block, offset, length);
+                offset += length;
+                first = false;
+            } while (offset < block.length);
+            out.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void writeData(Http2Stream stream, byte[] data, int offset, int length, boolean endStream) throws IOException {
+        if (length == 0) {
+            if (endStream) {
+                writeFrame(TYPE_DATA, FLAG_END_STREAM, stream.id(), data, offset, 0);
+            }
+            return;
+        }
+        while (length > 0) {
+            int chunk = acquireSendWindow(stream, Math.min(length, peerMaxFrameSize));
+            boolean last = chunk == length;
+            writeFrame(TYPE_DATA, last && endStream ? FLAG_END_STREAM : 0, stream.id(), data, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Block until both the connection and the stream have credit, then take up to {@code wanted} bytes of it.
+     */
+    private int acquireSendWindow(Http2Stream stream, int wanted) throws IOException {
+        flowLock.lock();
+        try {
+            while (true) {
+                if (closed || stream.isReset()) {
+                    throw new IOException("h2c stream %d is no longer writable".formatted(stream.id()));
+                }
+                long available = Math.min(connectionSendWindow, stream.sendWindow);
+                if (available > 0) {
+                    int granted = (int) Math.min(available, wanted);
+                    connectionSendWindow -= granted;
+                    stream.sendWindow -= granted;
+                    return granted;
+                }
+                windowAvailable.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for flow-control credit");
+        } finally {
+            flowLock.unlock();
+        }
+    }
+
+    void writeReset(int streamId, int errorCode) throws IOException {
+        byte[] payload = new byte[4];
+        putInt(payload, 0, errorCode);
+        writeFrame(TYPE_RST_STREAM, 0, streamId, payload, 0, payload.length);
+    }
+
+    private void writeResetQuietly(int streamId, int errorCode) {
+        try {
+            writeReset(streamId, errorCode);
+        } catch (IOException e) {
+            logger.debug("Unable to reset h2c stream {}", streamId, e);
+        }
+    }
+
+    private void writeWindowUpdate(int streamId, int increment) throws IOException {
+        byte[] payload = new byte[4];
+        putInt(payload, 0, increment);
+        writeFrame(TYPE_WINDOW_UPDATE, 0, streamId, payload, 0, payload.length);
+    }
+
+    private void writeGoAwayQuietly(int errorCode) {
+        byte[] payload = new byte[8];
+        putInt(payload, 0, lastStreamId);
+        putInt(payload, 4, errorCode);
+        try {
+            writeFrame(TYPE_GOAWAY, 0, 0, payload, 0, payload.length);
+        } catch (IOException e) {
+            logger.debug("Unable to send GOAWAY", e);
+        }
+    }
+
+    private void writeFrame(int type, int flags, int streamId, byte[] payload, int offset, int length)
+            throws IOException {
+        writeLock.lock();
+        try {
+            writeFrameLocked(type, flags, streamId, payload, offset, length);
+            out.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeFrameLocked(int type, int flags, int streamId, byte[] payload, int offset, int length)
+            throws IOException {
+        out.write((length >>> 16) & 0xff);
+        out.write((length >>> 8) & 0xff);
+        out.write(length & 0xff);
+        out.write(type);
+        out.write(flags);
+        out.write((streamId >>> 24) & 0x7f);
+        out.write((streamId >>> 16) & 0xff);
+        out.write((streamId >>> 8) & 0xff);
+        out.write(streamId & 0xff);
+        out.write(payload, offset, length);
+    }
+
+    private void signalWindow() {
+        flowLock.lock();
+        try {
+            windowAvailable.signalAll();
+        } finally {
+            flowLock.unlock();
+        }
+    }
+
+    private void close() {
+        closed = true;
+        streams.values().forEach(stream -> stream.onReset(Http2ProtocolException.CANCEL));
+        streams.clear();
+        signalWindow();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.debug("Error closing h2c socket", e);
+        }
+    }
+
+    private static void requireLength(byte[] payload, int expected) throws Http2ProtocolException {
+        if (payload.length != expected) {
+            throw new Http2ProtocolException(Http2ProtocolException.FRAME_SIZE_ERROR, "unexpected frame length");
+        }
+    }
+
+    private static int readInt(byte[] source, int offset) {
+        return ((source[offset] & 0xff) << 24)
+                | ((source[offset + 1] & 0xff) << 16)
+                | ((source[offset + 2] & 0xff) << 8)
+                | (source[offset + 3] & 0xff);
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    private static void putSetting(byte[] target, int offset, int identifier, int value) {
+        target[offset] = (byte) (identifier >>> 8);
+        target[offset + 1] = (byte) identifier;
+        putInt(target, offset + 2, value);
+    }
+}
@@ -0,0 +1,34 @@
+package server.serverType.h2c;
+
+import java.io.IOException;
+import java.io.Serial;
+
+/**
+ * A violation of the HTTP/2 protocol by the peer, carrying the error code to report back to it.
+ */
+class Http2ProtocolException extends IOException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    static final int NO_ERROR = 0x0;
+    static final int PROTOCOL_ERROR = 0x1;
+    static final int INTERNAL_ERROR = 0x2;
+    static final int FLOW_CONTROL_ERROR = 0x3;
+    static final int STREAM_CLOSED = 0x5;
+    static final int FRAME_SIZE_ERROR = 0x6;
+    static final int REFUSED_STREAM = 0x7;
+    static final int CANCEL = 0x8;
+    static final int COMPRESSION_ERROR = 0x9;
+    static final int ENHANCE_YOUR_CALM = 0xb;
+
+    private final int errorCode;
+
+    Http2ProtocolException(int errorCode, String message) {
+        super(message);
+        this.errorCode = errorCode;
+    }
+
+    int errorCode() {
+        return errorCode;
+    }
+}
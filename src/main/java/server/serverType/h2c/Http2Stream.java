@@ -0,0 +1,282 @@
+package server.serverType.h2c;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One request/response exchange multiplexed on an h2c connection.
+ * <p>
+ * The request body is exposed as a blocking {@link InputStream} fed by the connection's reader; bytes are
+ * only acknowledged to the client (through WINDOW_UPDATE) once the handler has consumed them, so a slow
+ * backend pushes back on the client instead of buffering. The response body is written as DATA frames
+ * that respect the client's flow-control windows.
+ */
+public class Http2Stream {
+    private static final byte[] END_OF_BODY = new byte[0];
+
+    private final int id;
+    private final Http2Connection connection;
+    private final Map<String, String> pseudoHeaders;
+    private final Map<String, List<String>> requestHeaders;
+    private final LinkedBlockingQueue<byte[]> inboundData = new LinkedBlockingQueue<>();
+    private final RequestBodyStream requestBody = new RequestBodyStream();
+    private final boolean requestBodyExpected;
+
+    // guarded by the connection's flow lock
+    long sendWindow;
+    final AtomicLong receiveWindow;
+    final AtomicLong unacknowledgedBytes = new AtomicLong();
+
+    private volatile boolean inboundEnded;
+    private volatile int resetCode = -1;
+    private volatile boolean responseHeadersSent;
+    private volatile boolean responseEnded;
+
+    Http2Stream(Http2Connection connection,
+                int id,
+                List<Hpack.Header> headers,
+                boolean endStream,
+                long initialSendWindow,
+                long initialReceiveWindow) {
+        this.connection = connection;
+        this.id = id;
+        this.sendWindow = initialSendWindow;
+        this.receiveWindow = new AtomicLong(initialReceiveWindow);
+        this.requestBodyExpected = !endStream;
+        var pseudo = new LinkedHashMap<String, String>();
+        var regular = new LinkedHashMap<String, List<String>>();
+        for (var header : headers) {
+            if (header.name().startsWith(":")) {
+                pseudo.put(header.name(), header.value());
+            } else {
+                regular.computeIfAbsent(header.name(), _ -> new ArrayList<>()).add(header.value());
+            }
+        }
+        this.pseudoHeaders = Collections.unmodifiableMap(pseudo);
+        this.requestHeaders = Collections.unmodifiableMap(regular);
+        if (endStream) {
+            endInbound();
+        }
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public String method() {
+        return pseudoHeaders.get(":method");
+    }
+
+    /**
+     * @return the request target including the query string
+     */
+    public String path() {
+        return pseudoHeaders.get(":path");
+    }
+
+    public String authority() {
+        return pseudoHeaders.get(":authority");
+    }
+
+    /**
+     * @return regular request headers keyed by lower-case name, without pseudo-headers
+     */
+    public Map<String, List<String>> requestHeaders() {
+        return requestHeaders;
+    }
+
+    /**
+     * @return whether the client announced a request body, i.e. did not end the stream with its headers
+     */
+    public boolean hasRequestBody() {
+        return requestBodyExpected;
+    }
+
+    public InputStream requestBody() {
+        return requestBody;
+    }
+
+    public boolean responseHeadersSent() {
+        return responseHeadersSent;
+    }
+
+    /**
+     * Send the response status and headers.
+     *
+     * @param status    HTTP status code
+     * @param headers   response headers; names are lower-cased before sending
+     * @param endStream whether the response has no body
+     */
+    public void sendHeaders(int status, Map<String, List<String>> headers, boolean endStream) throws IOException {
+        var fields = new ArrayList<Hpack.Header>(headers.size() + 1);
+        fields.add(new Hpack.Header(":status", Integer.toString(status)));
+        headers.forEach((name, values) -> {
+            String lowerName = name.toLowerCase();
+            values.forEach(value -> fields.add(new Hpack.Header(lowerName, value)));
+        });
+        responseHeadersSent = true;
+        responseEnded = endStream;
+        connection.writeHeaders(this, fields, endStream);
+    }
+
+    /**
+     * @return a stream writing DATA frames; closing it ends the response
+     */
+    public OutputStream responseBody() {
+        return new ResponseBodyStream();
+    }
+
+    /**
+     * Send a short plain-text response.
+     */
+    public void respond(int status, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        sendHeaders(status, Map.of("content-type", List.of("text/plain; charset=utf-8")), false);
+        responseEnded = true;
+        connection.writeData(this, body, 0, body.length, true);
+    }
+
+    /**
+     * Abort the stream towards the client.
+     */
+    public void reset(int errorCode) throws IOException {
+        if (isReset()) {
+            return;
+        }
+        onReset(errorCode);
+        connection.writeReset(id, errorCode);
+    }
+
+    public boolean isReset() {
+        return resetCode >= 0;
+    }
+
+    boolean inboundEnded() {
+        return inboundEnded;
+    }
+
+    boolean responseEnded() {
+        return responseEnded;
+    }
+
+    void deliver(byte[] data) {
+        inboundData.add(data);
+    }
+
+    void endInbound() {
+        if (inboundEnded) {
+            return;
+        }
+        inboundEnded = true;
+        inboundData.add(END_OF_BODY);
+    }
+
+    void onReset(int errorCode) {
+        resetCode = errorCode;
+        inboundEnded = true;
+        inboundData.add(END_OF_BODY);
+    }
+
+    private class RequestBodyStream extends InputStream {
+        private byte[] current = new byte[0];
+        private int position;
+        private boolean finished;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == current.length) {
+                if (finished) {
+                    return -1;
+                }
+                try {
+                    current = inboundData.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while reading request body");
+                }
+                position = 0;
+                if (current == END_OF_BODY) {
+                    finished = true;
+                    if (isReset()) {
+                        throw new IOException("stream %d reset by client".formatted(id));
+                    }
+                }
+            }
+            int n = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, n);
+            position += n;
+            connection.onBodyConsumed(Http2Stream.this, n);
+            return n;
+        }
+    }
+
+    private class ResponseBodyStream extends OutputStream {
+        private final byte[] buffer = new byte[connection.outboundChunkSize()];
+        private int count;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushBuffer(false);
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    flushBuffer(false);
+                }
+                int n = Math.min(length, buffer.length - count);
+                System.arraycopy(data, offset, buffer, count, n);
+                count += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                flushBuffer(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            responseEnded = true;
+            flushBuffer(true);
+        }
+
+        private void flushBuffer(boolean endStream) throws IOException {
+            connection.writeData(Http2Stream.this, buffer, 0, count, endStream);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package server.serverType.h2c;
+
+/**
+ * Serves the requests arriving on h2c streams. Each stream is handled on its own thread.
+ */
+@FunctionalInterface
+public interface Http2StreamHandler {
+    /**
+     * Produce the response for a stream. The handler must end the response, either by sending headers
+     * with {@code endStream} or by closing {@link Http2Stream#responseBody()}.
+     */
+    void handle(Http2Stream stream) throws Exception;
+}
@@ -0,0 +1,109 @@
+package server.serverType.tunnel;
+
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Relays raw bytes between a client and a backend socket after a protocol switch.
+ * <p>
+ * Each direction runs on one thread with one reusable buffer, so frames of the tunneled protocol are
+ * copied straight from one socket to the other. The tunnel closes when both directions have reached
+ * end of stream, when either side fails, or when neither side has sent anything for the idle timeout.
+ */
+class ByteTunnel {
+    private static final Logger logger = LoggerFactory.getLogger(ByteTunnel.class);
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Socket client;
+    private final InputStream clientIn;
+    private final Socket backend;
+    private final InputStream backendIn;
+    private final long idleTimeoutMs;
+    private volatile long lastActivityMs;
+
+    ByteTunnel(Socket client, InputStream clientIn, Socket backend, InputStream backendIn, long idleTimeoutMs) {
+        this.client = client;
+        this.clientIn = clientIn;
+        this.backend = backend;
+        this.backendIn = backendIn;
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    /**
+     * Relay until the tunnel closes. The backend-to-client direction runs on the calling thread, the other
+     * direction on a thread from the executor.
+     */
+    void run(ExecutorService executor) throws IOException {
+        int readTimeout = (int) Math.min(idleTimeoutMs, Integer.MAX_VALUE);
+        client.setSoTimeout(readTimeout);
+        backend.setSoTimeout(readTimeout);
+        lastActivityMs = System.currentTimeMillis();
+
+        Future<?> upstream = executor.submit(() -> pump(clientIn, backend.getOutputStream(), backend));
+        try {
+            pump(backendIn, client.getOutputStream(), client);
+            upstream.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeBoth();
+        } catch (ExecutionException e) {
+            logger.debug("Tunnel upstream direction failed", e.getCause());
+            closeBoth();
+        }
+    }
+
+    private Void pump(InputStream in, OutputStream out, Socket destination) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            while (true) {
+                int read;
+                try {
+                    read = in.read(buffer);
+                } catch (SocketTimeoutException e) {
+                    if (System.currentTimeMillis() - lastActivityMs < idleTimeoutMs) {
+                        // the other direction is still active
+                        continue;
+                    }
+                    logger.debug("Closing idle tunnel to {}", backend.getRemoteSocketAddress());
+                    closeBoth();
+                    return null;
+                }
+                if (read == -1) {
+                    // propagate the half-close so the peer sees end of stream as well
+                    if (!destination.isClosed()) {
+                        destination.shutdownOutput();
+                    }
+                    return null;
+                }
+                out.write(buffer, 0, read);
+                lastActivityMs = System.currentTimeMillis();
+            }
+        } catch (IOException e) {
+            logger.debug("Tunnel direction towards {} ended: {}", destination.getRemoteSocketAddress(), e.getMessage());
+            closeBoth();
+            return null;
+        }
+    }
+
+    private void closeBoth() {
+        closeQuietly(client);
+        closeQuietly(backend);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.trace("Error closing tunnel socket", e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package server.serverType.tunnel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The start line and header fields of an HTTP/1.1 message, read byte by byte so that nothing after the
+ * blank line is consumed from the stream.
+ */
+record HttpHead(String startLine, List<String[]> headers) {
+
+    /**
+     * Read a message head.
+     *
+     * @param in       stream positioned at the start of a message
+     * @param maxBytes largest head accepted
+     * @return the head, or {@code null} when the stream ended before any byte was read
+     * @throws IOException when the head is malformed, truncated or too large
+     */
+    static HttpHead read(InputStream in, int maxBytes) throws IOException {
+        var lines = new ArrayList<String>();
+        var line = new ByteArrayOutputStream(128);
+        int total = 0;
+        int previous = -1;
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                if (total == 0) {
+                    return null;
+                }
+                throw new IOException("connection closed inside message head");
+            }
+            if (++total > maxBytes) {
+                throw new IOException("message head exceeds %d bytes".formatted(maxBytes));
+            }
+            if (b == '\n' && previous == '\r') {
+                if (line.size() == 0) {
+                    break;
+                }
+                lines.add(line.toString(StandardCharsets.ISO_8859_1));
+                line.reset();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+            previous = b;
+        }
+        if (lines.isEmpty()) {
+            throw new IOException("empty message head");
+        }
+        var headers = new ArrayList<String[]>(lines.size() - 1);
+        for (String headerLine : lines.subList(1, lines.size())) {
+            int colon = headerLine.indexOf(':');
+            if (colon <= 0) {
+                throw new IOException("malformed header line");
+            }
+            headers.add(new String[]{headerLine.substring(0, colon).trim(), headerLine.substring(colon + 1).trim()});
+        }
+        return new HttpHead(lines.getFirst(), headers);
+    }
+
+    /**
+     * @return the first value of a header, compared case-insensitively, or {@code null}
+     */
+    String header(String name) {
+        for (String[] header : headers) {
+            if (header[0].equalsIgnoreCase(name)) {
+                return header[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether a comma-separated header such as {@code Connection} lists the token
+     */
+    boolean hasToken(String name, String token) {
+        for (String[] header : headers) {
+            if (!header[0].equalsIgnoreCase(name)) {
+                continue;
+            }
+            for (String value : header[1].split(",")) {
+                if (value.trim().equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether this request asks to switch protocols
+     */
+    boolean isUpgradeRequest() {
+        return header("Upgrade") != null && hasToken("Connection", "upgrade");
+    }
+
+    /**
+     * @return the status code of a response head, or -1 when it cannot be parsed
+     */
+    int statusCode() {
+        String[] parts = startLine.split(" ", 3);
+        if (parts.length < 2) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    String method() {
+        return startLine.split(" ", 2)[0];
+    }
+
+    /**
+     * @return the request target of a request head, including the query string
+     */
+    String target() {
+        String[] parts = startLine.split(" ", 3);
+        return parts.length < 2 ? "/" : parts[1];
+    }
+
+    /**
+     * @return a copy with the header replaced, or appended when missing
+     */
+    HttpHead withHeader(String name, String value) {
+        var copy = new ArrayList<String[]>(headers.size() + 1);
+        boolean replaced = false;
+        for (String[] header : headers) {
+            if (header[0].equalsIgnoreCase(name)) {
+                if (!replaced) {
+                    copy.add(new String[]{name, value});
+                    replaced = true;
+                }
+                continue;
+            }
+            copy.add(header);
+        }
+        if (!replaced) {
+            copy.add(new String[]{name, value});
+        }
+        return new HttpHead(startLine, copy);
+    }
+
+    HttpHead withStartLine(String newStartLine) {
+        return new HttpHead(newStartLine, headers);
+    }
+
+    byte[] toBytes() {
+        var builder = new StringBuilder(startLine.length() + headers.size() * 32 + 4);
+        builder.append(startLine).append("\r\n");
+        for (String[] header : headers) {
+            builder.append(header[0]).append(": ").append(header[1]).append("\r\n");
+        }
+        builder.append("\r\n");
+        return builder.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,189 @@
+package server.serverType.tunnel;
+
+import config.TunnelConfig;
+import config.UpstreamConfig;
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+import pods.BackendPod;
+import server.LoadDistributable;
+import server.load.PodLoadTracker;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Front end for HTTP/1.1 Upgrade requests such as WebSocket handshakes.
+ * <p>
+ * {@code com.sun.net.httpserver} closes the exchange after a 1xx response and never exposes the socket,
+ * so upgrades cannot be served by {@link server.handler.RootHandler}. This listener reads the request
+ * head itself, forwards it to the next backend pod and relays the backend's answer. Once the pod
+ * switches protocols the connection becomes a {@link ByteTunnel}. The tunnel counts towards the pod's
+ * load for as long as it stays open.
+ */
+public class UpgradeTunnelService {
+    private static final Logger logger = LoggerFactory.getLogger(UpgradeTunnelService.class);
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    private final TunnelConfig config;
+    private final UpstreamConfig upstreamConfig;
+    private final LoadDistributable<BackendPod> loadBalancer;
+    private final PodLoadTracker loadTracker;
+    private final ExecutorService executor;
+    private volatile ServerSocket serverSocket;
+
+    public UpgradeTunnelService(TunnelConfig config,
+                                UpstreamConfig upstreamConfig,
+                                LoadDistributable<BackendPod> loadBalancer,
+                                PodLoadTracker loadTracker,
+                                ExecutorService executor) {
+        this.config = config;
+        this.upstreamConfig = upstreamConfig;
+        this.loadBalancer = loadBalancer;
+        this.loadTracker = loadTracker;
+        this.executor = executor;
+    }
+
+    /**
+     * Bind the configured port and start accepting connections in the background.
+     */
+    public void start() throws IOException {
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(config.port()));
+        logger.info("Upgrade tunnel front end listening on port {}", getPort());
+        this.executor.execute(this::acceptLoop);
+    }
+
+    public void stop() {
+        if (serverSocket == null) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.warn("Error closing tunnel listener", e);
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                client.setTcpNoDelay(true);
+                executor.execute(() -> handle(client));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Failed to accept tunnel connection", e);
+                }
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try (client) {
+            client.setSoTimeout((int) Math.min(config.idleTimeoutMs(), Integer.MAX_VALUE));
+            InputStream clientIn = new BufferedInputStream(client.getInputStream(), STREAM_BUFFER_SIZE);
+            HttpHead request = HttpHead.read(clientIn, config.maxHeaderBytes());
+            if (request == null) {
+                return;
+            }
+            if (!request.isUpgradeRequest()) {
+                writeError(client, 400, "Bad Request", "Expected an HTTP Upgrade request");
+                return;
+            }
+            var nextPod = loadBalancer.next();
+            if (nextPod.isEmpty()) {
+                writeError(client, 503, "Service Unavailable", "No available pods");
+                return;
+            }
+            tunnel(client, clientIn, request, nextPod.get());
+        } catch (IOException e) {
+            logger.debug("Tunnel from {} failed: {}", client.getRemoteSocketAddress(), e.getMessage());
+        }
+    }
+
+    private void tunnel(Socket client, InputStream clientIn, HttpHead request, BackendPod pod) throws IOException {
+        URI podUri = pod.uri();
+        loadTracker.acquire(pod);
+        try (Socket backend = new Socket()) {
+            try {
+                backend.connect(new InetSocketAddress(podUri.getHost(), portOf(podUri)),
+                        (int) upstreamConfig.connectTimeout().toMillis());
+            } catch (IOException e) {
+                logger.warn("Unable to reach pod {} for upgrade: {}", podUri, e.getMessage());
+                writeError(client, 502, "Bad Gateway", "Backend unreachable");
+                return;
+            }
+            backend.setTcpNoDelay(true);
+            OutputStream backendOut = backend.getOutputStream();
+            String clientAddress = ((InetSocketAddress) client.getRemoteSocketAddress()).getAddress().getHostAddress();
+            backendOut.write(forwardedRequest(request, clientAddress, podUri).toBytes());
+            backendOut.flush();
+
+            InputStream backendIn = new BufferedInputStream(backend.getInputStream(), STREAM_BUFFER_SIZE);
+            HttpHead response = HttpHead.read(backendIn, config.maxHeaderBytes());
+            if (response == null) {
+                writeError(client, 502, "Bad Gateway", "Backend closed the connection");
+                return;
+            }
+            client.getOutputStream().write(response.toBytes());
+            client.getOutputStream().flush();
+            if (response.statusCode() == 101) {
+                logger.debug("Opened {} tunnel from {} to pod {}",
+                        request.header("Upgrade"), client.getRemoteSocketAddress(), podUri);
+            }
+            // a refused upgrade is relayed the same way, the backend decides when the exchange is over
+            new ByteTunnel(client, clientIn, backend, backendIn, config.idleTimeoutMs()).run(executor);
+        } finally {
+            loadTracker.release(pod);
+        }
+    }
+
+    /**
+     * @return the request as sent to the pod: the target prefixed with the pod's base path, {@code Host}
+     * naming the pod and the client recorded in the {@code X-Forwarded-*} headers
+     */
+    static HttpHead forwardedRequest(HttpHead request, String clientAddress, URI podUri) {
+        String[] requestLine = request.startLine().split(" ", 3);
+        String basePath = podUri.getRawPath() == null || podUri.getRawPath().equals("/") ? "" : podUri.getRawPath();
+        String version = requestLine.length == 3 ? requestLine[2] : "HTTP/1.1";
+        String forwardedFor = request.header("X-Forwarded-For") == null
+                ? clientAddress
+                : request.header("X-Forwarded-For") + ", " + clientAddress;
+        var forwarded = request
+                .withStartLine(request.method() + " " + basePath + request.target() + " " + version)
+                .withHeader("X-Forwarded-For", forwardedFor);
+        if (request.header("Host") != null) {
+            forwarded = forwarded.withHeader("X-Forwarded-Host", request.header("Host"));
+        }
+        return forwarded.withHeader("Host", podUri.getRawAuthority());
+    }
+
+    private static int portOf(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private static void writeError(Socket client, int status, String reason, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 %d %s\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: %d\r\nConnection: close\r\n\r\n"
+                .formatted(status, reason, body.length);
+        OutputStream out = client.getOutputStream();
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(body);
+        out.flush();
+    }
+}
@@ -0,0 +1,146 @@
+package server.upstream;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The connections held open towards a single backend pod.
+ * <p>
+ * Each pool owns its own {@link HttpClient}, so its connections can be released together when the pod
+ * goes away. With HTTP/2 every request to the pod is multiplexed over one connection; with HTTP/1.1 the
+ * client keeps one idle keep-alive connection per previously concurrent request.
+ * <p>
+ * {@link HttpClient} does not expose its connection pool, so the connection counts reported here are
+ * derived from the traffic sent through the pool: an HTTP/1.1 client keeps a connection for every request
+ * that was in flight at the same time within the last keep-alive timeout, and pre-warming leaves one
+ * connection per warm request on top of the requests in flight at that moment.
+ */
+public class UpstreamPool {
+    private static final long KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(
+            Long.getLong("jdk.httpclient.keepalive.timeout", 30));
+
+    private final URI podUri;
+    private final HttpClient httpClient;
+    private final LongAdder connectionsOpened;
+    private final LongAdder connectionsClosed;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private volatile long peakAtNanos = System.nanoTime();
+    private volatile int warmedConnections;
+    private volatile long warmedAtNanos = System.nanoTime();
+
+    public UpstreamPool(URI podUri, HttpClient httpClient) {
+        this(podUri, httpClient, new LongAdder(), new LongAdder());
+    }
+
+    /**
+     * @param connectionsOpened incremented by the connections this pool is estimated to open
+     * @param connectionsClosed incremented by the connections this pool is estimated to close
+     */
+    public UpstreamPool(URI podUri, HttpClient httpClient, LongAdder connectionsOpened, LongAdder connectionsClosed) {
+        this.podUri = podUri;
+        this.httpClient = httpClient;
+        this.connectionsOpened = connectionsOpened;
+        this.connectionsClosed = connectionsClosed;
+    }
+
+    public URI podUri() {
+        return podUri;
+    }
+
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+
+    public HttpClient.Version version() {
+        return httpClient.version();
+    }
+
+    /**
+     * Record that a proxied request started using this pool. Must be paired with {@link #requestFinished()}.
+     */
+    public void requestStarted() {
+        int current = inFlight.incrementAndGet();
+        int previousPeak = peakInFlight.getAndAccumulate(current, Math::max);
+        if (current >= previousPeak) {
+            peakAtNanos = System.nanoTime();
+        }
+        // more concurrent requests than known connections means the client had to open another one
+        int opened = connections(Math.max(previousPeak, current)) - connections(previousPeak);
+        if (opened > 0) {
+            connectionsOpened.add(opened);
+        }
+    }
+
+    public void requestFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight() {
+        return Math.max(0, inFlight.get());
+    }
+
+    /**
+     * @return the estimated number of open connections towards the pod
+     */
+    public int connections() {
+        return connections(peakInFlight.get());
+    }
+
+    /**
+     * @return the estimated number of open connections not serving a request
+     */
+    public int idleConnections() {
+        return Math.max(0, connections() - inFlight());
+    }
+
+    /**
+     * Record the outcome of a pre-warm round.
+     *
+     * @param warmed warm requests that succeeded, each holding its own connection while in flight
+     */
+    void markWarmed(int warmed) {
+        long now = System.nanoTime();
+        int before = connections();
+        int busy = inFlight();
+        int fresh = multiplexed() ? Math.min(1, busy + warmed) : busy + warmed;
+        // connections not touched for a whole keep-alive timeout have been closed by the client
+        if (fresh >= warmedConnections || now - warmedAtNanos > KEEP_ALIVE_NANOS) {
+            warmedConnections = fresh;
+            warmedAtNanos = now;
+        }
+        if (now - peakAtNanos > KEEP_ALIVE_NANOS) {
+            peakInFlight.set(busy);
+            peakAtNanos = now;
+        }
+        int after = connections();
+        if (after > before) {
+            connectionsOpened.add(after - before);
+        } else if (after < before) {
+            connectionsClosed.add(before - after);
+        }
+    }
+
+    /**
+     * Stop accepting requests and close every connection of this pool once the requests in flight have
+     * finished. Those requests complete normally.
+     */
+    public void close() {
+        connectionsClosed.add(connections());
+        httpClient.shutdown();
+    }
+
+    private int connections(int peak) {
+        if (multiplexed()) {
+            return peak > 0 || warmedConnections > 0 ? 1 : 0;
+        }
+        return Math.max(warmedConnections, peak);
+    }
+
+    private boolean multiplexed() {
+        return httpClient.version() == HttpClient.Version.HTTP_2;
+    }
+}
@@ -0,0 +1,127 @@
+package server.upstream;
+
+import config.UpstreamConfig;
+import logging.LoggerFactory;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import utils.EventSubscriber;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out the {@link UpstreamPool} of each backend pod, creating pools on first use and closing them
+ * when the pod is removed from the store.
+ */
+public class UpstreamPoolRegistry implements EventSubscriber<BackendPodEvent, BackendPodEventContext> {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamPoolRegistry.class);
+
+    private final UpstreamConfig config;
+    private final ExecutorService executor;
+    private final Map<URI, UpstreamPool> pools = new ConcurrentHashMap<>();
+    private final MetricsRegistry metrics;
+    private final LongAdder connectionsOpened;
+    private final LongAdder connectionsClosed;
+
+    public UpstreamPoolRegistry(UpstreamConfig config, ExecutorService executor, BackendPodInMemoryStore store) {
+        this(config, executor, store, new MetricsRegistry());
+    }
+
+    public UpstreamPoolRegistry(UpstreamConfig config,
+                                ExecutorService executor,
+                                BackendPodInMemoryStore store,
+                                MetricsRegistry metrics) {
+        this.config = config;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.connectionsOpened = metrics.counter("lb_upstream_connections_opened_total");
+        this.connectionsClosed = metrics.counter("lb_upstream_connections_closed_total");
+        metrics.gauge("lb_upstream_pools", this::size);
+        store.subscribe(BackendPodEvent.REMOVE_POD, this);
+    }
+
+    /**
+     * @param pod the pod a request is forwarded to
+     * @return the pool for that pod, created with the pod's configured protocol when missing
+     */
+    public UpstreamPool poolFor(BackendPod pod) {
+        return pools.computeIfAbsent(pod.uri(), this::createPool);
+    }
+
+    /**
+     * @return the pool of a pod if one has been created
+     */
+    public UpstreamPool existingPool(URI podUri) {
+        return pools.get(podUri);
+    }
+
+    /**
+     * @return a snapshot of every open pool
+     */
+    public Collection<UpstreamPool> pools() {
+        return List.copyOf(pools.values());
+    }
+
+    /**
+     * @param pod the pod a request is forwarded to
+     * @return the client to send the request with
+     */
+    public HttpClient clientFor(BackendPod pod) {
+        return poolFor(pod).httpClient();
+    }
+
+    /**
+     * Forget the pool of a pod, if it has one, and close it gracefully. Requests already sent finish on
+     * the old connections, later ones get a new pool, e.g. towards the pod's new address.
+     */
+    public void closePool(URI podUri) {
+        var pool = pools.remove(podUri);
+        if (pool == null) {
+            return;
+        }
+        logger.debug("Closing upstream pool for pod {}", podUri);
+        pool.close();
+        String pod = podUri.toString();
+        metrics.remove("lb_upstream_pool_connections", "pod", pod);
+        metrics.remove("lb_upstream_pool_idle_connections", "pod", pod);
+        metrics.remove("lb_upstream_pool_in_flight", "pod", pod);
+    }
+
+    public int size() {
+        return pools.size();
+    }
+
+    private UpstreamPool createPool(URI podUri) {
+        var version = config.versionFor(podUri);
+        logger.debug("Creating {} upstream pool for pod {}", version, podUri);
+        var client = HttpClient.newBuilder()
+                .executor(executor)
+                .version(version)
+                .connectTimeout(config.connectTimeout())
+                .build();
+        var pool = new UpstreamPool(podUri, client, connectionsOpened, connectionsClosed);
+        String pod = podUri.toString();
+        metrics.gauge("lb_upstream_pool_connections", pool::connections, "pod", pod);
+        metrics.gauge("lb_upstream_pool_idle_connections", pool::idleConnections, "pod", pod);
+        metrics.gauge("lb_upstream_pool_in_flight", pool::inFlight, "pod", pod);
+        return pool;
+    }
+
+    @Override
+    public void handleEvent(BackendPodEvent event, BackendPodEventContext content) {
+        if (event != BackendPodEvent.REMOVE_POD) {
+            return;
+        }
+        content.affectedPods().forEach(pod -> closePool(pod.uri()));
+    }
+}
@@ -0,0 +1,164 @@
+package server.upstream;
+
+import config.PrewarmConfig;
+import logging.LoggerFactory;
+import metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import server.handler.utils.ProxyTargets;
+import utils.EventSubscriber;
+import utils.time.TimeProvider;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opens keep-alive connections to pods before they receive traffic, so the first proxied requests do not
+ * pay for the TCP handshake.
+ * <p>
+ * When a pod becomes ready its pool sends {@code connections} concurrent requests to the health check
+ * path; since none of them can reuse a busy connection, the client opens one connection per request and
+ * keeps them idle afterwards. A refresh loop then tops every pool up to {@code minIdleConnections} idle
+ * connections before the client's keep-alive timeout would close them.
+ */
+public class UpstreamPoolWarmer implements EventSubscriber<BackendPodEvent, BackendPodEventContext> {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamPoolWarmer.class);
+
+    private final PrewarmConfig config;
+    private final UpstreamPoolRegistry pools;
+    private final ExecutorService executor;
+    private final String warmPath;
+    private final Duration timeout;
+    private final TimeProvider timeProvider;
+    private final LongAdder warmRequests;
+    private final LongAdder warmFailures;
+    private volatile boolean running;
+
+    /**
+     * @param warmPath path requested to open connections, normally the health check path, joined to the
+     *                 pod URI the way proxied requests are
+     * @param timeout  timeout of a single warm request
+     */
+    public UpstreamPoolWarmer(PrewarmConfig config,
+                              UpstreamPoolRegistry pools,
+                              ExecutorService executor,
+                              BackendPodInMemoryStore store,
+                              MetricsRegistry metrics,
+                              String warmPath,
+                              Duration timeout,
+                              TimeProvider timeProvider) {
+        this.config = config;
+        this.pools = pools;
+        this.executor = executor;
+        this.warmPath = warmPath;
+        this.timeout = timeout;
+        this.timeProvider = timeProvider;
+        this.warmRequests = metrics.counter("lb_upstream_prewarm_requests_total");
+        this.warmFailures = metrics.counter("lb_upstream_prewarm_failures_total");
+        store.subscribe(BackendPodEvent.POD_READY, this);
+    }
+
+    /**
+     * Start topping up idle connections in the background.
+     */
+    public void start() {
+        if (!config.enabled() || config.minIdleConnections() == 0) {
+            return;
+        }
+        running = true;
+        executor.execute(this::refreshLoop);
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public void handleEvent(BackendPodEvent event, BackendPodEventContext content) {
+        if (event != BackendPodEvent.POD_READY || !config.enabled()) {
+            return;
+        }
+        // warming waits on the network, keep it off the thread publishing the event
+        content.affectedPods().forEach(pod -> executor.execute(() -> warm(pod)));
+    }
+
+    /**
+     * Open the configured number of connections to a pod that just became ready.
+     */
+    void warm(BackendPod pod) {
+        var pool = pools.poolFor(pod);
+        int opened = sendWarmRequests(pool, config.connections());
+        logger.debug("Pre-warmed {} of {} connections to pod {}", opened, config.connections(), pod.uri());
+    }
+
+    /**
+     * Bring the pool back to the minimum number of idle connections. Warm requests reuse idle connections
+     * when there are enough of them, which also resets their keep-alive timers.
+     */
+    void topUp(UpstreamPool pool) {
+        if (pools.existingPool(pool.podUri()) != pool) {
+            // the pod was removed since the refresh round started
+            return;
+        }
+        sendWarmRequests(pool, config.minIdleConnections());
+    }
+
+    private int sendWarmRequests(UpstreamPool pool, int count) {
+        int requests = pool.version() == HttpClient.Version.HTTP_2 ? Math.min(1, count) : count;
+        if (requests == 0) {
+            return 0;
+        }
+        var request = HttpRequest.newBuilder()
+                .uri(ProxyTargets.target(pool.podUri(), warmPath))
+                .timeout(timeout)
+                .GET()
+                .build();
+        var pending = new ArrayList<CompletableFuture<HttpResponse<Void>>>(requests);
+        for (int i = 0; i < requests; i++) {
+            pending.add(pool.httpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        warmRequests.add(requests);
+        int succeeded = 0;
+        for (var future : pending) {
+            try {
+                future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                succeeded++;
+            } catch (ExecutionException | TimeoutException e) {
+                future.cancel(true);
+                warmFailures.increment();
+                logger.debug("Warm request to {} failed: {}", pool.podUri(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return succeeded;
+            }
+        }
+        pool.markWarmed(succeeded);
+        return succeeded;
+    }
+
+    private void refreshLoop() {
+        while (running) {
+            try {
+                timeProvider.sleep(config.refreshIntervalMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (var pool : pools.pools()) {
+                executor.execute(() -> topUp(pool));
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package server.watch;
+
+import com.google.gson.Gson;
+import config.WatchConfig;
+import dto.PodWatchEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodInMemoryStore;
+import repository.PodRegistryChangeListener;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans the changes of the pod registry out to its watchers, e.g. sidecars and dashboards.
+ * <p>
+ * The store hands every change to the hub while holding its write lock, so the hub only queues it there.
+ * A dispatcher thread then encodes each change once, as a server-sent event carrying its generation, and
+ * offers it to every {@link PodWatcher}. Neither step waits on a watcher: one that cannot keep up catches
+ * up from the store's change history when it reads again, so a thousand slow clients cost memory for
+ * their bounded queues but never hold up registration or health checking.
+ */
+public class PodWatchHub implements PodRegistryChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(PodWatchHub.class);
+    // changes awaiting the dispatcher; beyond that every watcher catches up from the store
+    private static final int PENDING_CAPACITY = 4096;
+    private static final long IDLE_POLL_MS = 1_000;
+
+    private final BackendPodInMemoryStore store;
+    private final WatchConfig config;
+    private final Gson serializer = new Gson();
+    private final BlockingQueue<PodWatchEvent> pending = new ArrayBlockingQueue<>(PENDING_CAPACITY);
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+    private final Set<PodWatcher> watchers = ConcurrentHashMap.newKeySet();
+    private final LongAdder resyncs = new LongAdder();
+    private volatile boolean running;
+
+    public PodWatchHub(BackendPodInMemoryStore store, WatchConfig config) {
+        this.store = store;
+        this.config = config;
+    }
+
+    @Override
+    public void onChange(long generation, BackendPodEvent event, List<BackendPod> upserted, List<URI> removed) {
+        if (!pending.offer(new PodWatchEvent(generation - 1, generation, event, upserted, removed))) {
+            overflowed.set(true);
+        }
+    }
+
+    /**
+     * Dispatch changes to the watchers until {@link #stop()} is called.
+     */
+    public void start(ExecutorService executor) {
+        running = true;
+        executor.execute(this::dispatchLoop);
+    }
+
+    /**
+     * Stop dispatching; open watches end with their next frame or keepalive.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                var change = pending.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (change != null) {
+                    dispatch(change);
+                    dispatchPending();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Could not dispatch a registry change to its watchers", e);
+            }
+        }
+    }
+
+    /**
+     * Dispatch the changes queued so far on the calling thread.
+     *
+     * @return the number of changes dispatched
+     */
+    int dispatchPending() {
+        int dispatched = 0;
+        PodWatchEvent change;
+        while ((change = pending.poll()) != null) {
+            dispatch(change);
+            dispatched++;
+        }
+        return dispatched;
+    }
+
+    private void dispatch(PodWatchEvent change) {
+        if (overflowed.getAndSet(false)) {
+            // changes were dropped before any watcher saw them
+            for (var watcher : watchers) {
+                watcher.resync();
+                resyncs.increment();
+            }
+        }
+        var frame = encode("change", change);
+        for (var watcher : watchers) {
+            if (!watcher.offer(frame)) {
+                resyncs.increment();
+            }
+        }
+    }
+
+    /**
+     * Start watching the registry.
+     *
+     * @param since generation the client already holds, e.g. from the {@code Last-Event-ID} of a previous
+     *              watch; negative to start from a snapshot
+     * @return the watcher, {@code null} when {@link WatchConfig#maxWatchers()} watches are open already
+     */
+    public synchronized PodWatcher open(long since) {
+        if (watchers.size() >= config.maxWatchers()) {
+            return null;
+        }
+        // registered before its first frame is read, so no change falls between that frame and the queue
+        var watcher = new PodWatcher(this, config.queueCapacity(), since);
+        watchers.add(watcher);
+        return watcher;
+    }
+
+    public synchronized void close(PodWatcher watcher) {
+        watchers.remove(watcher);
+    }
+
+    /**
+     * The frame bringing a client from a generation up to date: the net changes since, or a snapshot when
+     * the store no longer has them.
+     */
+    WatchFrame catchUp(long since) {
+        if (since >= 0) {
+            var delta = store.changesSince(since);
+            if (delta.isPresent()) {
+                var changes = delta.get();
+                return encode("change", new PodWatchEvent(changes.fromGeneration(), changes.toGeneration(), null,
+                        changes.upserted(), changes.removed()));
+            }
+        }
+        var snapshot = store.snapshot();
+        return encode("snapshot", new PodWatchEvent(null, snapshot.generation(), null,
+                List.copyOf(snapshot.pods()), List.of()));
+    }
+
+    private WatchFrame encode(String type, PodWatchEvent event) {
+        // the id is the generation, which browsers send back as Last-Event-ID when they reconnect
+        String text = "id: " + event.generation() + "\nevent: " + type + "\ndata: " + serializer.toJson(event) + "\n\n";
+        long fromGeneration = event.fromGeneration() == null ? -1 : event.fromGeneration();
+        return new WatchFrame(fromGeneration, event.generation(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return watches currently open
+     */
+    public int watchers() {
+        return watchers.size();
+    }
+
+    /**
+     * @return times a watcher fell behind and had to catch up from the store
+     */
+    public long resyncs() {
+        return resyncs.sum();
+    }
+}
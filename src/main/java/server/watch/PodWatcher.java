@@ -0,0 +1,86 @@
+package server.watch;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One client watching the registry. The hub's dispatcher offers it frames without ever waiting; the
+ * client's own thread takes them with {@link #next(long)} and writes them out at whatever pace the client
+ * reads.
+ * <p>
+ * When the queue is full the watcher is behind by more than it may buffer: the queue is emptied and, on
+ * the next read, the client is sent the net changes since the last generation it received instead, or a
+ * snapshot when the store no longer has them. The client always sees generations in order, though not
+ * every one of them.
+ */
+public final class PodWatcher {
+    // marks that the frames in between were dropped
+    private static final WatchFrame RESYNC = new WatchFrame(-1, -1, new byte[0]);
+
+    private final PodWatchHub hub;
+    private final BlockingQueue<WatchFrame> queue;
+    // only read and written by the client's thread
+    private long lastGeneration;
+    private boolean started;
+
+    PodWatcher(PodWatchHub hub, int queueCapacity, long since) {
+        this.hub = hub;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.lastGeneration = since;
+    }
+
+    /**
+     * Called by the dispatcher only.
+     *
+     * @return whether the frame was queued, rather than the watcher having to catch up
+     */
+    boolean offer(WatchFrame frame) {
+        if (queue.offer(frame)) {
+            return true;
+        }
+        resync();
+        return false;
+    }
+
+    /**
+     * Drop the queued frames and have the client catch up from the store instead. Called by the dispatcher
+     * only, so the cleared queue has room for the marker.
+     */
+    void resync() {
+        queue.clear();
+        queue.offer(RESYNC);
+    }
+
+    /**
+     * The next frame to send the client. The first is a snapshot of the registry, or the changes since the
+     * generation the watch was opened with when the store still has them.
+     *
+     * @return the frame, {@code null} when there was none to send within the timeout
+     */
+    public WatchFrame next(long timeoutMs) throws InterruptedException {
+        if (!started) {
+            started = true;
+            return accept(hub.catchUp(lastGeneration));
+        }
+        while (true) {
+            var frame = queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+            if (frame == null) {
+                return null;
+            }
+            if (frame == RESYNC || frame.fromGeneration() > lastGeneration) {
+                // a gap: frames were dropped, or the client caught up past them from the store
+                frame = hub.catchUp(lastGeneration);
+            }
+            if (frame.isSnapshot() || frame.generation() > lastGeneration) {
+                return accept(frame);
+            }
+            // already covered by an earlier catch-up
+        }
+    }
+
+    private WatchFrame accept(WatchFrame frame) {
+        lastGeneration = frame.generation();
+        return frame;
+    }
+}
@@ -0,0 +1,15 @@
+package server.watch;
+
+/**
+ * One event of a watch stream, encoded once and written as is to every watcher it is for.
+ *
+ * @param fromGeneration generation the frame's changes apply on top of, -1 for a snapshot
+ * @param generation     generation of the registry once the frame is applied
+ * @param bytes          the server-sent event
+ */
+public record WatchFrame(long fromGeneration, long generation, byte[] bytes) {
+
+    boolean isSnapshot() {
+        return fromGeneration < 0;
+    }
+}
@@ -0,0 +1,15 @@
+package utils.event;
+
+/**
+ * What publishing does when a bounded event bus is full because a subscriber lags behind.
+ * <ul>
+ *   <li>BLOCK: wait until the slowest subscriber frees a slot. Subscribers publishing into the bus they are
+ *   subscribed to are the exception: they may be the ones holding the slot, so their event is dropped and
+ *   counted instead</li>
+ *   <li>DROP: discard the event and count it</li>
+ * </ul>
+ */
+public enum BackPressure {
+    BLOCK,
+    DROP
+}
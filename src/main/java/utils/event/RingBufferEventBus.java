@@ -0,0 +1,321 @@
+package utils.event;
+
+import metrics.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.EventEmitter;
+import utils.EventSubscriber;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, lock-free event bus in the style of a disruptor: publishers claim a slot of a preallocated ring
+ * with a CAS and return right away, and every subscriber drains the ring on its own thread, following its
+ * own sequence.
+ * <p>
+ * A slow subscriber therefore only delays itself until the ring is full; from then on the
+ * {@link BackPressure} policy decides whether publishers wait for it or drop events. Subscribers receive
+ * events in publishing order, in batches of everything published since their last turn. Publishing from
+ * a subscriber's own thread never waits, as that could wait on itself forever: when the ring is full the
+ * event is dropped and counted in {@link #dropped()}, even under {@link BackPressure#BLOCK}.
+ *
+ * @param <E> event types
+ * @param <C> event contents
+ */
+public class RingBufferEventBus<E, C> implements EventEmitter<EventSubscriber<E, C>, E, C>, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RingBufferEventBus.class);
+    // marks the subscriber threads of each bus
+    private static final ThreadLocal<RingBufferEventBus<?, ?>> SUBSCRIBER_THREAD_OF = new ThreadLocal<>();
+    private static final long PUBLISHER_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    // bounds the wait of a subscriber should a wakeup ever be missed
+    private static final long SUBSCRIBER_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final String name;
+    private final BackPressure backPressure;
+    private final Slot<E, C>[] slots;
+    private final int mask;
+    private final int roundShift;
+    // round of the sequence last published into each slot
+    private final AtomicIntegerArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final List<SubscriberCursor> cursors = new CopyOnWriteArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicBoolean subscriberDropLogged = new AtomicBoolean();
+    private final AtomicBoolean fullDropLogged = new AtomicBoolean();
+    private final LatencyHistogram publishLatency = new LatencyHistogram();
+    private volatile boolean closed;
+
+    private static final class Slot<E, C> {
+        private E event;
+        private C content;
+    }
+
+    /**
+     * @param name         names the subscriber threads
+     * @param capacity     events the ring holds, rounded up to a power of two
+     * @param backPressure what publishing does while the ring is full
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RingBufferEventBus(String name, int capacity, BackPressure backPressure) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.name = name;
+        this.backPressure = backPressure;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot<>();
+        }
+        this.mask = size - 1;
+        this.roundShift = Integer.numberOfTrailingZeros(size);
+        this.published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Subscribe to an event type. The subscriber receives events published after this call returns, on a
+     * thread of its own shared by all event types it subscribes to.
+     */
+    @Override
+    public synchronized void subscribe(E event, EventSubscriber<E, C> subscriber) {
+        for (var cursor : cursors) {
+            if (cursor.subscriber == subscriber) {
+                cursor.events.add(event);
+                return;
+            }
+        }
+        var cursor = new SubscriberCursor(subscriber, claimed.get());
+        cursor.events.add(event);
+        cursors.add(cursor);
+        cursor.thread = Thread.ofPlatform()
+                .name("event-bus-" + name + "-" + cursors.size())
+                .daemon(true)
+                .start(cursor);
+    }
+
+    @Override
+    public synchronized void unsubscribe(E event, EventSubscriber<E, C> subscriber) {
+        for (var cursor : cursors) {
+            if (cursor.subscriber == subscriber) {
+                cursor.events.remove(event);
+                if (cursor.events.isEmpty()) {
+                    cursors.remove(cursor);
+                    cursor.stop();
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void publish(E event, C content) {
+        long start = System.nanoTime();
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            if (backPressure == BackPressure.BLOCK && !closed) {
+                // only subscribers publishing into their own full bus get here; say so once, then just count
+                if (subscriberDropLogged.compareAndSet(false, true)) {
+                    logger.error("Subscriber of event bus {} published {} into the full ring and it was dropped "
+                            + "despite BLOCK; further such drops are only counted", name, event);
+                }
+            } else if (fullDropLogged.compareAndSet(false, true)) {
+                // a full bus drops in bursts, logging each drop would flood the log when it is busiest
+                logger.warn("Event bus {} is full, dropped {}; further drops are only counted", name, event);
+            }
+            return;
+        }
+        int index = (int) (sequence & mask);
+        var slot = slots[index];
+        slot.event = event;
+        slot.content = content;
+        // the volatile write publishes the slot's fields to the subscribers reading it
+        published.set(index, (int) (sequence >>> roundShift));
+        for (var cursor : cursors) {
+            if (cursor.waiting) {
+                LockSupport.unpark(cursor.thread);
+            }
+        }
+        publishLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    /**
+     * Stop delivering events. Events not yet delivered are lost and publishers waiting for space give up.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        cursors.forEach(SubscriberCursor::stop);
+        cursors.clear();
+    }
+
+    /**
+     * @return events published but not yet delivered to the slowest subscriber
+     */
+    public long depth() {
+        long current = claimed.get();
+        return current - minimumSequence(current);
+    }
+
+    /**
+     * @return events dropped because the ring was full, including those a subscriber published under
+     * {@link BackPressure#BLOCK}
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return time spent in {@link #publish}, in microseconds, including waiting for space
+     */
+    public LatencyHistogram publishLatency() {
+        return publishLatency;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return the claimed sequence, or -1 when the event must be dropped
+     */
+    private long claim() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - slots.length > minimumSequence(current)) {
+                if (closed || backPressure == BackPressure.DROP || SUBSCRIBER_THREAD_OF.get() == this) {
+                    return -1;
+                }
+                LockSupport.parkNanos(this, PUBLISHER_WAIT_NANOS);
+                continue;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long minimumSequence(long claimedSequence) {
+        long minimum = claimedSequence;
+        for (var cursor : cursors) {
+            minimum = Math.min(minimum, cursor.sequence);
+        }
+        return minimum;
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) (sequence & mask)) == (int) (sequence >>> roundShift);
+    }
+
+    private final class SubscriberCursor implements Runnable {
+        private final EventSubscriber<E, C> subscriber;
+        private final Set<E> events = ConcurrentHashMap.newKeySet();
+        // last sequence delivered, slots up to it may be reused
+        private volatile long sequence;
+        private volatile boolean waiting;
+        private volatile boolean running = true;
+        private Thread thread;
+
+        private SubscriberCursor(EventSubscriber<E, C> subscriber, long sequence) {
+            this.subscriber = subscriber;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            SUBSCRIBER_THREAD_OF.set(RingBufferEventBus.this);
+            while (running) {
+                long next = sequence + 1;
+                long last = lastPublished(next);
+                if (last < next) {
+                    awaitPublication(next);
+                    continue;
+                }
+                for (long current = next; current <= last; current++) {
+                    var slot = slots[(int) (current & mask)];
+                    E event = slot.event;
+                    C content = slot.content;
+                    // cleared when this subscriber started after the event was published
+                    if (event != null && events.contains(event)) {
+                        deliver(event, content);
+                    }
+                }
+                release(next, last);
+                sequence = last;
+            }
+        }
+
+        /**
+         * @return the end of the run of published sequences starting at {@code from}, {@code from - 1}
+         * when nothing new was published
+         */
+        private long lastPublished(long from) {
+            long end = Math.min(claimed.get(), from + slots.length - 1);
+            for (long current = from; current <= end; current++) {
+                if (!isPublished(current)) {
+                    return current - 1;
+                }
+            }
+            return end;
+        }
+
+        /**
+         * Clear the slots from {@code from} to {@code to} that every other subscriber has passed too, so
+         * delivered events do not stay reachable until the ring comes round. Publishers cannot reuse the
+         * slots before this subscriber's sequence moves past them, which happens after clearing.
+         */
+        private void release(long from, long to) {
+            long end = to;
+            for (var cursor : cursors) {
+                if (cursor != this) {
+                    end = Math.min(end, cursor.sequence);
+                }
+            }
+            for (long current = from; current <= end; current++) {
+                var slot = slots[(int) (current & mask)];
+                slot.event = null;
+                slot.content = null;
+            }
+        }
+
+        private void awaitPublication(long next) {
+            waiting = true;
+            // publishers set the slot before checking waiting, so either they see it or this sees the slot
+            if (running && !isPublished(next)) {
+                LockSupport.parkNanos(this, SUBSCRIBER_WAIT_NANOS);
+            }
+            waiting = false;
+        }
+
+        private void deliver(E event, C content) {
+            try {
+                subscriber.handleEvent(event, content);
+            } catch (RuntimeException e) {
+                logger.error("Subscriber {} failed to handle {}", subscriber, event, e);
+            }
+        }
+
+        private void stop() {
+            running = false;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+}
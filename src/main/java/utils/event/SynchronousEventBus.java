@@ -0,0 +1,45 @@
+package utils.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.EventEmitter;
+import utils.EventSubscriber;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Delivers every event to its subscribers on the publishing thread before {@code publish} returns. Simple
+ * and predictable, which is what tests want; see {@link RingBufferEventBus} for production.
+ * <p>
+ * Subscriber sets are copy-on-write, so subscribing while an event is being delivered is safe.
+ */
+public class SynchronousEventBus<E, C> implements EventEmitter<EventSubscriber<E, C>, E, C> {
+    private static final Logger logger = LoggerFactory.getLogger(SynchronousEventBus.class);
+    private final Map<E, Set<EventSubscriber<E, C>>> subscribers = new ConcurrentHashMap<>();
+
+    @Override
+    public void subscribe(E event, EventSubscriber<E, C> subscriber) {
+        subscribers.computeIfAbsent(event, _ -> new CopyOnWriteArraySet<>()).add(subscriber);
+    }
+
+    @Override
+    public void publish(E event, C content) {
+        logger.debug("Publishing event: {}", event);
+        var eventSubscribers = subscribers.get(event);
+        if (eventSubscribers == null) {
+            return;
+        }
+        eventSubscribers.forEach(subscriber -> subscriber.handleEvent(event, content));
+    }
+
+    @Override
+    public void unsubscribe(E event, EventSubscriber<E, C> subscriber) {
+        var eventSubscribers = subscribers.get(event);
+        if (eventSubscribers != null) {
+            eventSubscribers.remove(subscriber);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package utils.filesystem;
+
+import utils.time.TimeProvider;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls back whenever a file changes, once per burst of changes: after the first change it waits for the
+ * debounce so the writer can finish, then calls back once however many events the writer caused.
+ * <p>
+ * The file's directory is watched rather than the file, so the file may also be replaced, e.g. by renaming
+ * a new version over it.
+ */
+public class DebouncedFileWatcher {
+    private static final long IDLE_POLL_MS = 1_000;
+
+    private final Path file;
+    private final long debounceMs;
+    private final TimeProvider timeProvider;
+    private final Runnable onChange;
+    private WatchService watchService;
+    private volatile boolean running;
+
+    /**
+     * @param onChange called on the watching thread; should handle its own failures
+     */
+    public DebouncedFileWatcher(Path file, long debounceMs, TimeProvider timeProvider, Runnable onChange) {
+        this.file = file.toAbsolutePath();
+        this.debounceMs = debounceMs;
+        this.timeProvider = timeProvider;
+        this.onChange = onChange;
+    }
+
+    /**
+     * Watch the file for changes on a thread of the executor until {@link #stop()} is called.
+     */
+    public void start(ExecutorService executor) throws IOException {
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        executor.execute(this::watchLoop);
+    }
+
+    public void stop() throws IOException {
+        running = false;
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watchLoop() {
+        while (running) {
+            try {
+                var key = watchService.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (key == null || !concernsFile(key)) {
+                    continue;
+                }
+                timeProvider.sleep(debounceMs);
+                while ((key = watchService.poll()) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                onChange.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    private boolean concernsFile(WatchKey key) {
+        boolean concerns = false;
+        for (var event : key.pollEvents()) {
+            // an overflow lost the events, which may have been about the file
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                concerns = true;
+            }
+        }
+        key.reset();
+        return concerns;
+    }
+}
@@ -0,0 +1,99 @@
+package utils.network.dns;
+
+import java.net.InetAddress;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolverProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV4;
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV4_FIRST;
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV6;
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV6_FIRST;
+
+/**
+ * Plugs {@link DnsCache} into every name lookup of the JVM, including the ones {@code HttpClient} makes
+ * for each new upstream connection. Registered through {@code META-INF/services}; hosts the installed
+ * cache does not know are passed to the built-in resolver.
+ * <p>
+ * {@link InetAddress} keeps its own cache in front of every provider, 30 seconds by default, which delays
+ * the address changes this cache picks up. Turn it off at launch with {@code -Dsun.net.inetaddr.ttl=0} or
+ * {@code networkaddress.cache.ttl=0} in {@code java.security}; the TTLs of {@link DnsCache} apply either way.
+ */
+public class CachingResolverProvider extends InetAddressResolverProvider {
+    private static volatile DnsCache cache;
+    private static volatile InetAddressResolver builtin;
+
+    /**
+     * Answer lookups from the given cache from now on; {@code null} uninstalls it.
+     */
+    public static void install(DnsCache dnsCache) {
+        cache = dnsCache;
+    }
+
+    /**
+     * @return the JDK's own resolver, or {@code null} while the JVM has not looked up any name yet
+     */
+    static InetAddressResolver builtinResolver() {
+        return builtin;
+    }
+
+    @Override
+    public InetAddressResolver get(Configuration configuration) {
+        builtin = configuration.builtinResolver();
+        return new CachingResolver(configuration.builtinResolver());
+    }
+
+    @Override
+    public String name() {
+        return "lobalancer-dns-cache";
+    }
+
+    private record CachingResolver(InetAddressResolver delegate) implements InetAddressResolver {
+        @Override
+        public Stream<InetAddress> lookupByName(String host, LookupPolicy lookupPolicy) throws UnknownHostException {
+            var dnsCache = cache;
+            if (dnsCache != null) {
+                var addresses = dnsCache.lookup(host);
+                if (addresses != null) {
+                    var allowed = applyPolicy(addresses, lookupPolicy.characteristics());
+                    if (!allowed.isEmpty()) {
+                        return allowed.stream();
+                    }
+                }
+            }
+            return delegate.lookupByName(host, lookupPolicy);
+        }
+
+        @Override
+        public String lookupByAddress(byte[] addr) throws UnknownHostException {
+            return delegate.lookupByAddress(addr);
+        }
+    }
+
+    static List<InetAddress> applyPolicy(List<InetAddress> addresses, int characteristics) {
+        var v4 = new ArrayList<InetAddress>(addresses.size());
+        var v6 = new ArrayList<InetAddress>(addresses.size());
+        for (var address : addresses) {
+            if (address instanceof Inet4Address && (characteristics & IPV4) != 0) {
+                v4.add(address);
+            } else if (address instanceof Inet6Address && (characteristics & IPV6) != 0) {
+                v6.add(address);
+            }
+        }
+        if ((characteristics & IPV6_FIRST) != 0) {
+            v6.addAll(v4);
+            return v6;
+        }
+        if ((characteristics & IPV4_FIRST) != 0) {
+            v4.addAll(v6);
+            return v4;
+        }
+        // neither family is preferred, keep the resolver's order
+        return addresses.stream().filter(a -> v4.contains(a) || v6.contains(a)).toList();
+    }
+}
@@ -0,0 +1,228 @@
+package utils.network.dns;
+
+import config.DnsConfig;
+import logging.LoggerFactory;
+import org.slf4j.Logger;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import utils.EventSubscriber;
+import utils.time.TimeProvider;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Caches the addresses of pod host names so new upstream connections never wait on DNS.
+ * <p>
+ * Hosts are resolved when their first pod is registered and re-resolved in the background shortly before
+ * the entry expires. When the resolver fails, the last known addresses keep being served for up to
+ * {@code maxStaleMs} past expiry. When a refresh returns different addresses, every pod on that host is
+ * republished as an {@link BackendPodEvent#UPDATE_POD} and the address change listeners are notified.
+ */
+public class DnsCache implements EventSubscriber<BackendPodEvent, BackendPodEventContext> {
+    private static final Logger logger = LoggerFactory.getLogger(DnsCache.class);
+    private static final long MAX_REFRESH_CHECK_INTERVAL_MS = 1000;
+
+    private final DnsConfig config;
+    private final HostResolver resolver;
+    private final TimeProvider timeProvider;
+    private final BackendPodInMemoryStore store;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<URI>> podsByHost = new ConcurrentHashMap<>();
+    private final List<Consumer<URI>> addressChangeListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    private record Entry(List<InetAddress> addresses, long expiresAtNanos) {
+    }
+
+    public DnsCache(DnsConfig config, HostResolver resolver, TimeProvider timeProvider, BackendPodInMemoryStore store) {
+        this.config = config;
+        this.resolver = resolver;
+        this.timeProvider = timeProvider;
+        this.store = store;
+        store.subscribe(BackendPodEvent.ADD_POD, this);
+        store.subscribe(BackendPodEvent.REMOVE_POD, this);
+    }
+
+    /**
+     * @param listener called with the URI of every pod whose host resolved to different addresses
+     */
+    public void addAddressChangeListener(Consumer<URI> listener) {
+        addressChangeListeners.add(listener);
+    }
+
+    /**
+     * @return the cached addresses of a pod host, or {@code null} when the host is not cached or its entry
+     * has been stale for too long
+     */
+    public List<InetAddress> lookup(String host) {
+        var entry = entries.get(host);
+        if (entry == null) {
+            return null;
+        }
+        long staleForNanos = timeProvider.nanoTime() - entry.expiresAtNanos();
+        if (staleForNanos > TimeUnit.MILLISECONDS.toNanos(config.maxStaleMs())) {
+            return null;
+        }
+        return entry.addresses();
+    }
+
+    /**
+     * Start caching the host of a pod, resolving it right away when it is not cached yet.
+     */
+    public void track(BackendPod pod) {
+        String host = pod.uri().getHost();
+        if (host == null || isAddressLiteral(host)) {
+            return;
+        }
+        podsByHost.computeIfAbsent(host, _ -> ConcurrentHashMap.newKeySet()).add(pod.uri());
+        if (!entries.containsKey(host)) {
+            refresh(host);
+        }
+    }
+
+    /**
+     * Stop caching the host of a pod once no other pod uses it.
+     */
+    public void untrack(URI podUri) {
+        String host = podUri.getHost();
+        if (host == null) {
+            return;
+        }
+        podsByHost.computeIfPresent(host, (_, pods) -> {
+            pods.remove(podUri);
+            if (!pods.isEmpty()) {
+                return pods;
+            }
+            entries.remove(host);
+            return null;
+        });
+    }
+
+    /**
+     * Re-resolve every tracked host whose entry expires within the refresh-ahead window.
+     *
+     * @return the number of hosts resolved
+     */
+    public int refreshDue() {
+        long refreshFrom = timeProvider.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.refreshAheadMs());
+        int refreshed = 0;
+        for (String host : podsByHost.keySet()) {
+            var entry = entries.get(host);
+            if (entry == null || entry.expiresAtNanos() <= refreshFrom) {
+                refresh(host);
+                refreshed++;
+            }
+        }
+        return refreshed;
+    }
+
+    /**
+     * Keep entries fresh in the background until {@link #stop()} is called.
+     */
+    public void start(ExecutorService executor) {
+        running = true;
+        executor.execute(this::refreshLoop);
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void handleEvent(BackendPodEvent event, BackendPodEventContext content) {
+        switch (event) {
+            case ADD_POD -> content.affectedPods().forEach(this::track);
+            case REMOVE_POD -> content.affectedPods().forEach(pod -> untrack(pod.uri()));
+            default -> {
+            }
+        }
+    }
+
+    private void refresh(String host) {
+        List<InetAddress> addresses;
+        try {
+            addresses = List.copyOf(resolver.resolve(host));
+            if (addresses.isEmpty()) {
+                throw new UnknownHostException(host + " has no addresses");
+            }
+        } catch (UnknownHostException e) {
+            var current = entries.get(host);
+            if (current == null) {
+                logger.warn("Unable to resolve pod host {}: {}", host, e.getMessage());
+            } else {
+                logger.warn("Unable to refresh pod host {}, serving cached addresses: {}", host, e.getMessage());
+            }
+            return;
+        }
+        long expiresAt = timeProvider.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.ttlMs());
+        var previous = entries.put(host, new Entry(addresses, expiresAt));
+        if (!podsByHost.containsKey(host)) {
+            // the last pod on this host went away while it was being resolved
+            entries.remove(host);
+            return;
+        }
+        if (previous != null && !new HashSet<>(previous.addresses()).equals(new HashSet<>(addresses))) {
+            logger.info("Pod host {} moved from {} to {}", host, previous.addresses(), addresses);
+            onAddressChange(host);
+        }
+    }
+
+    private void onAddressChange(String host) {
+        for (URI podUri : podsByHost.getOrDefault(host, Set.of())) {
+            addressChangeListeners.forEach(listener -> listener.accept(podUri));
+            var pod = store.get(podUri);
+            // republish the pod as read; should it have been changed or removed since, that change was
+            // published instead and must not be undone
+            if (pod != null) {
+                store.updateIf(pod.status(), pod);
+            }
+        }
+    }
+
+    private void refreshLoop() {
+        long interval = Math.min(MAX_REFRESH_CHECK_INTERVAL_MS, config.refreshAheadMs() / 2);
+        while (running) {
+            try {
+                timeProvider.sleep(Math.max(1, interval));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                refreshDue();
+            } catch (RuntimeException e) {
+                logger.error("DNS refresh round failed", e);
+            }
+        }
+    }
+
+    static boolean isAddressLiteral(String host) {
+        if (host.indexOf(':') >= 0 || host.startsWith("[")) {
+            return true;
+        }
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
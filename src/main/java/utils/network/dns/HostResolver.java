@@ -0,0 +1,18 @@
+package utils.network.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+/**
+ * Resolves a host name to its addresses. {@link DnsCache} uses the system resolver in production and a
+ * stub in tests.
+ */
+@FunctionalInterface
+public interface HostResolver {
+    /**
+     * @return the addresses of the host, never empty
+     * @throws UnknownHostException when the host cannot be resolved
+     */
+    List<InetAddress> resolve(String host) throws UnknownHostException;
+}
@@ -0,0 +1,28 @@
+package utils.network.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver.LookupPolicy;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV4;
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV6;
+
+/**
+ * Resolves through the JDK's built-in resolver, bypassing {@link CachingResolverProvider} so that a cache
+ * refresh never answers itself from the cache.
+ */
+public class SystemHostResolver implements HostResolver {
+    private static final LookupPolicy ALL_ADDRESSES = LookupPolicy.of(IPV4 | IPV6);
+
+    @Override
+    public List<InetAddress> resolve(String host) throws UnknownHostException {
+        var builtin = CachingResolverProvider.builtinResolver();
+        if (builtin == null) {
+            // the provider is not loaded yet, so nothing can be answered from the cache
+            return Arrays.asList(InetAddress.getAllByName(host));
+        }
+        return builtin.lookupByName(host, ALL_ADDRESSES).toList();
+    }
+}
@@ -2,4 +2,11 @@ package utils.time;
 
 public interface TimeProvider {
     void sleep(long millis) throws InterruptedException;
+
+    /**
+     * @return a monotonic timestamp in nanoseconds, only meaningful relative to other calls
+     */
+    default long nanoTime() {
+        return System.nanoTime();
+    }
 }
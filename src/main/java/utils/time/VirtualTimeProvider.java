@@ -0,0 +1,78 @@
+package utils.time;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.random.RandomGenerator;
+
+/**
+ * A clock that only moves when it is told to, for simulations and tests that must not depend on wall
+ * clock time.
+ * <p>
+ * Components that would wait on a thread for time to pass, like the health check timer wheel, register an
+ * advance listener instead and catch up whenever the clock is moved. The clock is meant to be driven by a
+ * single thread; {@link #sleep(long)} moves it forward rather than blocking.
+ */
+public class VirtualTimeProvider implements TimeProvider {
+    private final RandomGenerator jitter;
+    private final List<LongConsumer> advanceListeners = new CopyOnWriteArrayList<>();
+    private volatile long now;
+
+    /**
+     * @param startNanos initial reading of {@link #nanoTime()}
+     * @param seed       seed of the jitter generator
+     */
+    public VirtualTimeProvider(long startNanos, long seed) {
+        this.now = startNanos;
+        this.jitter = new SplittableRandom(seed);
+    }
+
+    public VirtualTimeProvider() {
+        this(0, 0);
+    }
+
+    @Override
+    public void sleep(long millis) {
+        advanceBy(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    /**
+     * @return the seeded source of the random jitter that spreads timers apart, so simulated runs repeat
+     * exactly
+     */
+    public RandomGenerator jitter() {
+        return jitter;
+    }
+
+    /**
+     * Move the clock forward and notify the advance listeners. Times in the past are ignored, the clock
+     * never goes backwards.
+     */
+    public void advanceTo(long nanos) {
+        if (nanos <= now) {
+            return;
+        }
+        now = nanos;
+        for (var listener : advanceListeners) {
+            listener.accept(nanos);
+        }
+    }
+
+    public void advanceBy(long nanos) {
+        advanceTo(now + Math.max(0, nanos));
+    }
+
+    /**
+     * @param listener called with the new time every time the clock moves
+     */
+    public void onAdvance(LongConsumer listener) {
+        advanceListeners.add(listener);
+    }
+}
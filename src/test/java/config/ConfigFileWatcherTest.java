@@ -0,0 +1,97 @@
+package config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import server.LoadBalancingStrategy;
+import utils.time.RealTimeProvider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigFileWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    private static String configJson(String timeout, int maxTries, String strategy) {
+        return """
+                {"duration": 1000, "timeout": %s, "maxTries": %d, "initialDelayMs": 100, "maxDelayMs": 1000,
+                 "port": 8080, "healthCheckPath": "/health", "strategy": "%s", "reload": {"enabled": true, "debounceMs": 0}}
+                """.formatted(timeout, maxTries, strategy);
+    }
+
+    private LiveConfig load(Path file) throws IOException {
+        return new LiveConfig(LoadBalancerConfig.readConfigFile(file));
+    }
+
+    @Test
+    void readsDurationsAsMillisecondsOrIsoStrings() throws IOException {
+        var file = directory.resolve("lb.json");
+        Files.writeString(file, configJson("750", 3, "ROUND_ROBIN"));
+        assertEquals(Duration.ofMillis(750), LoadBalancerConfig.readConfigFile(file).timeout());
+
+        Files.writeString(file, configJson("\"PT2S\"", 3, "ROUND_ROBIN"));
+        var config = LoadBalancerConfig.readConfigFile(file);
+        assertEquals(Duration.ofSeconds(2), config.timeout());
+        assertEquals(Path.of("/health"), config.healthCheckPath());
+    }
+
+    @Test
+    void reloadPublishesTheNewConfig() throws IOException {
+        var file = directory.resolve("lb.json");
+        Files.writeString(file, configJson("500", 3, "ROUND_ROBIN"));
+        var liveConfig = load(file);
+        var watcher = new ConfigFileWatcher(file, liveConfig, new RealTimeProvider());
+
+        assertFalse(watcher.reload());
+        Files.writeString(file, configJson("1000", 5, "LEAST_CONNECTIONS"));
+        assertTrue(watcher.reload());
+
+        assertEquals(Duration.ofSeconds(1), liveConfig.get().timeout());
+        assertEquals(5, liveConfig.get().maxTries());
+        assertEquals(LoadBalancingStrategy.LEAST_CONNECTIONS, liveConfig.get().strategy());
+    }
+
+    @Test
+    void brokenOrInvalidFileKeepsTheCurrentConfig() throws IOException {
+        var file = directory.resolve("lb.json");
+        Files.writeString(file, configJson("500", 3, "ROUND_ROBIN"));
+        var liveConfig = load(file);
+        var current = liveConfig.get();
+        var watcher = new ConfigFileWatcher(file, liveConfig, new RealTimeProvider());
+
+        Files.writeString(file, "{\"duration\": 1000,");
+        assertThrows(IllegalArgumentException.class, watcher::reload);
+        Files.writeString(file, configJson("\"two seconds\"", 3, "ROUND_ROBIN"));
+        assertThrows(IllegalArgumentException.class, watcher::reload);
+        Files.writeString(file, configJson("500", 0, "ROUND_ROBIN"));
+        assertThrows(IllegalArgumentException.class, watcher::reload);
+
+        assertSame(current, liveConfig.get());
+    }
+
+    @Test
+    void picksUpChangesOfTheWatchedFile() throws Exception {
+        var file = directory.resolve("lb.json");
+        Files.writeString(file, configJson("500", 3, "ROUND_ROBIN"));
+        var liveConfig = load(file);
+        var watcher = new ConfigFileWatcher(file, liveConfig, new RealTimeProvider());
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            watcher.start(executor);
+
+            Files.writeString(file, configJson("500", 3, "WEIGHTED"));
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (liveConfig.get().strategy() != LoadBalancingStrategy.WEIGHTED && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            watcher.stop();
+        }
+        assertEquals(LoadBalancingStrategy.WEIGHTED, liveConfig.get().strategy());
+    }
+}
@@ -0,0 +1,66 @@
+package config;
+
+import org.junit.jupiter.api.Test;
+import server.LoadBalancingStrategy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveConfigTest {
+
+    private static final LoadBalancerConfig INITIAL = config(Duration.ofMillis(500), 3, 100, 1_000, LoadBalancingStrategy.ROUND_ROBIN);
+
+    private final List<LoadBalancerConfig> published = new ArrayList<>();
+
+    private static LoadBalancerConfig config(Duration timeout, int maxTries, long initialDelayMs, long maxDelayMs,
+                                             LoadBalancingStrategy strategy) {
+        return LoadBalancerConfig.builder()
+                .duration(1_000)
+                .timeout(timeout)
+                .maxTries(maxTries)
+                .initialDelayMs(initialDelayMs)
+                .maxDelayMs(maxDelayMs)
+                .strategy(strategy)
+                .build();
+    }
+
+    private LiveConfig liveConfig() {
+        var liveConfig = new LiveConfig(INITIAL);
+        liveConfig.addChangeListener(published::add);
+        return liveConfig;
+    }
+
+    @Test
+    void publishesChangedConfigs() {
+        var liveConfig = liveConfig();
+        var next = config(Duration.ofSeconds(2), 5, 100, 1_000, LoadBalancingStrategy.WEIGHTED);
+
+        assertTrue(liveConfig.update(next));
+
+        assertSame(next, liveConfig.get());
+        assertEquals(List.of(next), published);
+    }
+
+    @Test
+    void unchangedConfigIsNotPublished() {
+        var liveConfig = liveConfig();
+
+        assertFalse(liveConfig.update(config(Duration.ofMillis(500), 3, 100, 1_000, LoadBalancingStrategy.ROUND_ROBIN)));
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void invalidConfigKeepsTheCurrentOne() {
+        var liveConfig = liveConfig();
+
+        assertThrows(IllegalArgumentException.class, () -> liveConfig.update(config(Duration.ZERO, 3, 100, 1_000, null)));
+        assertThrows(IllegalArgumentException.class, () -> liveConfig.update(config(Duration.ofSeconds(1), 0, 100, 1_000, null)));
+        assertThrows(IllegalArgumentException.class, () -> liveConfig.update(config(Duration.ofSeconds(1), 3, 2_000, 1_000, null)));
+
+        assertSame(INITIAL, liveConfig.get());
+        assertTrue(published.isEmpty());
+    }
+}
@@ -0,0 +1,143 @@
+package health;
+
+import config.LoadBalancerConfig;
+import health.ping.AsyncProbeable;
+import health.latency.ProbeLatencyTracker;
+import health.passive.PassiveHealthSignals;
+import health.ping.Probeable;
+import health.scheduler.TimerDrive;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+import utils.time.VirtualTimeProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthCheckBatchSchedulingTest {
+
+    // checks every second; the default probe budget starts 1000 probes per second
+    private static final LoadBalancerConfig CONFIG = LoadBalancerConfig.builder()
+            .duration(1_000)
+            .timeout(Duration.ofMillis(500))
+            .maxTries(3)
+            .initialDelayMs(50)
+            .maxDelayMs(200)
+            .port(0)
+            .build();
+
+    private final Set<URI> probed = ConcurrentHashMap.newKeySet();
+    private final Map<URI, CompletableFuture<Void>> pendingProbes = new ConcurrentHashMap<>();
+    private VirtualTimeProvider clock;
+    private ExecutorService executor;
+    private BackendPodInMemoryStore store;
+    private HealthCheckServiceMain health;
+
+    private final class PendingProbe implements Probeable<BackendPod>, AsyncProbeable<BackendPod> {
+        @Override
+        public void probe(BackendPod networkInfo) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Void> probeAsync(BackendPod networkInfo) {
+            probed.add(networkInfo.uri());
+            return pendingProbes.computeIfAbsent(networkInfo.uri(), _ -> new CompletableFuture<>());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualTimeProvider();
+        executor = Executors.newSingleThreadExecutor();
+        BackendPodInMemoryStore.resetInstance();
+        store = BackendPodInMemoryStore.getStore();
+        health = new HealthCheckServiceMain(executor, CONFIG, store, clock, new PendingProbe(),
+                new PassiveHealthSignals(clock), new ProbeLatencyTracker(CONFIG.weighting().latencyEwmaAlpha()),
+                TimerDrive.following(clock));
+    }
+
+    @AfterEach
+    void tearDown() {
+        health.stop();
+        executor.shutdownNow();
+        BackendPodInMemoryStore.resetInstance();
+    }
+
+    private void advanceTo(long millis) throws Exception {
+        while (clock.nanoTime() < TimeUnit.MILLISECONDS.toNanos(millis)) {
+            clock.advanceBy(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        // let the probes started by the wheel run
+        executor.submit(() -> { }).get();
+    }
+
+    @Test
+    void podsAddedTogetherAreFirstProbedAtTheBudgetRate() throws Exception {
+        var pods = new ArrayList<BackendPod>();
+        for (int i = 0; i < 100; i++) {
+            pods.add(new BackendPod(URI.create("http://worker-" + i + ":8080"), BackendPodStatus.INITIALIZING));
+        }
+
+        store.addAll(pods);
+        assertEquals(100, health.scheduledPods());
+
+        // 100 probes at 1000 per second are spread over 100ms
+        advanceTo(50);
+        assertTrue(probed.size() > 30 && probed.size() < 70, "probed " + probed.size());
+        advanceTo(120);
+        assertEquals(100, probed.size());
+    }
+
+    @Test
+    void podRemovedWhileItsProbeRunsStaysRemoved() throws Exception {
+        var uri = URI.create("http://worker-1:8080");
+        store.add(new BackendPod(uri, BackendPodStatus.INITIALIZING));
+        advanceTo(0);
+        assertTrue(probed.contains(uri));
+
+        store.remove(uri);
+        pendingProbes.get(uri).complete(null);
+        executor.submit(() -> { }).get();
+
+        assertNull(store.get(uri));
+        assertEquals(0, store.count(BackendPodStatus.ALIVE));
+    }
+
+    @Test
+    void singlePodIsProbedRightAway() throws Exception {
+        store.add(new BackendPod(URI.create("http://worker-1:8080"), BackendPodStatus.INITIALIZING));
+
+        advanceTo(0);
+        assertEquals(1, probed.size());
+    }
+
+    @Test
+    void onlyOwnedPodsAreScheduled() throws Exception {
+        var owned = URI.create("http://worker-1:8080");
+        health.setOwnership(owned::equals);
+
+        store.addAll(List.of(new BackendPod(owned, BackendPodStatus.INITIALIZING),
+                new BackendPod(URI.create("http://worker-2:8080"), BackendPodStatus.INITIALIZING),
+                new BackendPod(URI.create("http://worker-3:8080"), BackendPodStatus.INITIALIZING)));
+
+        advanceTo(1_000);
+        assertEquals(1, health.scheduledPods());
+        assertTrue(health.isScheduled(owned));
+        assertEquals(Set.of(owned), probed);
+    }
+}
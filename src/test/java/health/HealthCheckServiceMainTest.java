@@ -60,16 +60,15 @@ public class HealthCheckServiceMainTest {
         executorService = Executors.newFixedThreadPool(5);
         
         // Configure health check with reasonable test values
-        healthCheckConfig = new LoadBalancerConfig(
-                100, // duration in ms
-                Duration.ofMillis(500), // timeout
-                3, // maxTries
-                2, // successiveSuccessThreshold
-                50, // initialDelayMs
-                200, // maxDelayMs
-                null, // networkMethod (not needed for tests)
-                0, null  // healthCheckPath (not needed for tests)
-        );
+        healthCheckConfig = LoadBalancerConfig.builder()
+                .duration(100) // in ms
+                .timeout(Duration.ofMillis(500))
+                .maxTries(3)
+                .successiveSuccessThreshold(2)
+                .initialDelayMs(50)
+                .maxDelayMs(200)
+                .port(0)
+                .build();
         
         // Initialize pods with different statuses
         healthyPod = new BackendPod(healthyPodUri, BackendPodStatus.ALIVE);
@@ -142,16 +141,37 @@ public class HealthCheckServiceMainTest {
         // Act
         HealthCheckResponse<String> response = healthCheckService.sendHealthCheck(intermittentPod);
         
-        // Assert
-        assertEquals(BackendPodStatus.ALIVE, response.backendPodStatus());
-        assertEquals("success", response.content());
+        // Assert - one success is not enough to bring a suspended pod back
+        assertEquals(BackendPodStatus.UNRESPONSIVE, response.backendPodStatus());
+        assertEquals("recovering", response.content());
         
         // Verify probe was called 3 times (2 failures + 1 success)
         verify(probeService, times(3)).probe(intermittentPod);
-        
+        assertEquals(BackendPodStatus.UNRESPONSIVE, podStore.get(intermittentPodUri).status());
+
+        // Act - second successful check in a row reaches successiveSuccessThreshold
+        HealthCheckResponse<String> recovered = healthCheckService.sendHealthCheck(intermittentPod);
+
         // Verify pod status in store is updated to ALIVE after recovery
+        assertEquals(BackendPodStatus.ALIVE, recovered.backendPodStatus());
         assertEquals(BackendPodStatus.ALIVE, podStore.get(intermittentPodUri).status());
-        
+    }
+
+    @Test
+    void testSendHealthCheck_SingleFailureDoesNotSuspendPod() throws Exception {
+        // Arrange
+        podStore.add(intermittentPod);
+        doThrow(new NetworkUnavailableException("Connection timeout"))
+            .doNothing()
+            .when(probeService).probe(intermittentPod);
+
+        // Act
+        HealthCheckResponse<String> response = healthCheckService.sendHealthCheck(intermittentPod);
+
+        // Assert - the pod stays ALIVE without a single transition
+        assertEquals(BackendPodStatus.ALIVE, response.backendPodStatus());
+        assertEquals(BackendPodStatus.ALIVE, podStore.get(intermittentPodUri).status());
+        assertEquals(0, healthCheckService.flapDamper().flaps());
     }
 
     @Test
@@ -0,0 +1,137 @@
+package health.damping;
+
+import config.FlapDampingConfig;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.time.TimeProvider;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static health.types.BackendPodStatus.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlapDamperTest {
+
+    private static final URI POD = URI.create("http://flappy-pod:8080");
+
+    private FakeClock clock;
+    private FlapDamper damper;
+    private BackendPodStatus status;
+
+    private static class FakeClock implements TimeProvider {
+        long now = 1_000_000;
+
+        @Override
+        public void sleep(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new FakeClock();
+        // leave after 2 failures, return after 3 successes, hold-down of 1s from the second flap on
+        damper = new FlapDamper(new FlapDampingConfig(2, 1_000, 4_000, 60_000), 3, clock);
+        status = ALIVE;
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            status = damper.onFailure(POD, status);
+        }
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) {
+            status = damper.onSuccess(POD, status);
+        }
+    }
+
+    /**
+     * Suspend the pod and bring it back as soon as the damper allows.
+     */
+    private void flap() {
+        fail(2);
+        succeed(3);
+        while (status != ALIVE) {
+            clock.sleep(100);
+            succeed(1);
+        }
+    }
+
+    @Test
+    void leavesAliveOnlyAfterConsecutiveFailures() {
+        fail(1);
+        assertEquals(ALIVE, status);
+        succeed(1);
+        fail(1);
+        assertEquals(ALIVE, status, "a success in between resets the failure count");
+
+        fail(1);
+        assertEquals(UNRESPONSIVE, status);
+        assertEquals(1, damper.transitions(ALIVE, UNRESPONSIVE));
+    }
+
+    @Test
+    void returnsOnlyAfterConsecutiveSuccesses() {
+        fail(2);
+        succeed(2);
+        fail(1);
+        succeed(2);
+        assertEquals(UNRESPONSIVE, status, "a failure in between resets the success count");
+
+        succeed(1);
+        assertEquals(ALIVE, status);
+        assertEquals(1, damper.transitions(UNRESPONSIVE, ALIVE));
+    }
+
+    @Test
+    void repeatedFlapsAreHeldDownExponentially() {
+        flap();
+        long start = clock.now;
+        flap();
+        long secondHoldDown = TimeUnit.NANOSECONDS.toMillis(clock.now - start);
+        start = clock.now;
+        flap();
+        long thirdHoldDown = TimeUnit.NANOSECONDS.toMillis(clock.now - start);
+
+        assertEquals(1_000, secondHoldDown);
+        assertEquals(2_000, thirdHoldDown);
+        assertEquals(3, damper.flaps(POD));
+        assertEquals(3, damper.transitions(ALIVE, UNRESPONSIVE));
+        assertEquals(3, damper.transitions(UNRESPONSIVE, ALIVE));
+    }
+
+    @Test
+    void holdDownIsCappedAndForgottenAfterStability() {
+        for (int i = 0; i < 6; i++) {
+            flap();
+        }
+        long start = clock.now;
+        flap();
+        assertEquals(4_000, TimeUnit.NANOSECONDS.toMillis(clock.now - start));
+
+        clock.sleep(60_000);
+        flap();
+        assertEquals(1, damper.flaps(POD));
+    }
+
+    @Test
+    void initializingPodsNeedOneSuccessAndTerminationIsCounted() {
+        status = damper.onSuccess(POD, INITIALIZING);
+        assertEquals(ALIVE, status);
+
+        status = damper.onTermination(POD, status);
+        assertEquals(DEAD, status);
+        assertEquals(1, damper.transitions(INITIALIZING, ALIVE));
+        assertEquals(1, damper.transitions(ALIVE, DEAD));
+        assertEquals(1, damper.flaps());
+    }
+}
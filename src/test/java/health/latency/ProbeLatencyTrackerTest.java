@@ -0,0 +1,54 @@
+package health.latency;
+
+import metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeLatencyTrackerTest {
+
+    private static final URI POD = URI.create("http://pod-a:8080");
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static String scrape(MetricsRegistry metrics) throws IOException {
+        var out = new StringBuilder();
+        metrics.writeTo(out);
+        return out.toString();
+    }
+
+    @Test
+    void smoothsLatencyOfTrackedPods() {
+        var tracker = new ProbeLatencyTracker(0.5);
+        tracker.record(POD, millis(5));
+        assertTrue(Double.isNaN(tracker.smoothedMicros(POD)), "untracked pods are not recorded");
+
+        tracker.track(POD);
+        assertTrue(Double.isNaN(tracker.smoothedMicros(POD)));
+        tracker.record(POD, millis(10));
+        assertEquals(10_000, tracker.smoothedMicros(POD));
+        tracker.record(POD, millis(20));
+        assertEquals(15_000, tracker.smoothedMicros(POD));
+        assertEquals(2, tracker.histogram(POD).count());
+    }
+
+    @Test
+    void forgettingAPodDropsItsHistoryAndGauges() throws IOException {
+        var metrics = new MetricsRegistry();
+        var tracker = new ProbeLatencyTracker(0.5, metrics);
+        tracker.track(POD);
+        tracker.record(POD, millis(2));
+        assertTrue(scrape(metrics).contains("lb_probe_latency_smoothed_micros{pod=\"http://pod-a:8080\"} 2000"));
+
+        tracker.forget(POD);
+        assertNull(tracker.histogram(POD));
+        assertTrue(Double.isNaN(tracker.smoothedMicros(POD)));
+        assertFalse(scrape(metrics).contains("lb_probe_latency"));
+    }
+}
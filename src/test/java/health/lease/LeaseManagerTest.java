@@ -0,0 +1,102 @@
+package health.lease;
+
+import config.LeaseConfig;
+import health.scheduler.TimerDrive;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.BackendPodEvent;
+import repository.BackendPodInMemoryStore;
+import utils.time.VirtualTimeProvider;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaseManagerTest {
+
+    private static final URI POD = URI.create("http://worker-1:8080");
+
+    private VirtualTimeProvider clock;
+    private BackendPodInMemoryStore store;
+    private LeaseManager leases;
+    private final List<URI> removed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualTimeProvider();
+        BackendPodInMemoryStore.resetInstance();
+        store = BackendPodInMemoryStore.getStore();
+        store.subscribe(BackendPodEvent.REMOVE_POD, (_, context) -> context.affectedPods().forEach(pod -> removed.add(pod.uri())));
+        // TTLs between 1s and 60s, expiring to within 100ms
+        leases = new LeaseManager(store, new LeaseConfig(true, 1_000, 60_000, 100, 64), clock, Runnable::run,
+                TimerDrive.following(clock));
+    }
+
+    @AfterEach
+    void tearDown() {
+        BackendPodInMemoryStore.resetInstance();
+    }
+
+    private void advance(long millis) {
+        for (long step = 0; step < millis; step += 100) {
+            clock.advanceBy(TimeUnit.MILLISECONDS.toNanos(Math.min(100, millis - step)));
+        }
+    }
+
+    @Test
+    void leasedPodsAreReadyUntilTheirLeaseRunsOut() {
+        assertEquals(5_000, leases.register(POD, 5_000));
+        assertEquals(BackendPodStatus.ALIVE, store.get(POD).status());
+
+        advance(4_900);
+        assertNotNull(store.get(POD));
+        advance(200);
+
+        assertNull(store.get(POD));
+        assertEquals(List.of(POD), removed);
+        assertEquals(1, leases.expirations());
+        assertFalse(leases.renew(POD), "an expired lease cannot be renewed");
+    }
+
+    @Test
+    void renewalsKeepThePodRegistered() {
+        leases.register(POD, 2_000);
+        for (int i = 0; i < 20; i++) {
+            advance(1_500);
+            assertTrue(leases.renew(POD));
+        }
+        assertNotNull(store.get(POD));
+
+        advance(2_100);
+        assertNull(store.get(POD));
+        assertEquals(1, removed.size());
+    }
+
+    @Test
+    void ttlIsClampedAndLeasesEndWithTheirPod() {
+        assertEquals(1_000, leases.register(POD, 10));
+        assertEquals(60_000, leases.register(POD, 3_600_000));
+
+        store.remove(POD);
+        assertFalse(leases.isLeased(POD));
+        advance(61_000);
+        assertEquals(0, leases.expirations());
+        assertEquals(0, leases.activeLeases());
+    }
+
+    @Test
+    void releasingALeaseRemovesThePodRightAway() {
+        leases.register(POD, 5_000);
+        leases.release(POD);
+
+        assertNull(store.get(POD));
+        assertEquals(List.of(POD), removed);
+        advance(6_000);
+        assertEquals(0, leases.expirations());
+    }
+}
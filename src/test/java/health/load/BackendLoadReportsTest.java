@@ -0,0 +1,91 @@
+package health.load;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.BackendPodInMemoryStore;
+import server.load.PodWeigher;
+import server.load.ReportedLoadWeigher;
+import utils.time.TimeProvider;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackendLoadReportsTest {
+
+    private static final URI POD = URI.create("http://busy-pod:8080");
+
+    private FakeClock clock;
+    private BackendLoadReports reports;
+
+    private static class FakeClock implements TimeProvider {
+        long now = 1_000_000;
+
+        @Override
+        public void sleep(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        return HttpHeaders.of(Map.of(name, List.of(value)), (_, _) -> true);
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new FakeClock();
+        reports = new BackendLoadReports(BackendPodInMemoryStore.getStore(), "X-Backend-Load", 1_000, clock);
+        reports.track(POD);
+    }
+
+    @Test
+    void recordsTheLoadHeaderOfResponses() {
+        reports.recordHeaders(POD, headers("x-backend-load", "0.6"));
+        assertEquals(0.6, reports.load(POD), 1e-9);
+
+        reports.recordHeaders(POD, headers("Content-Type", "text/plain"));
+        reports.recordHeaders(POD, headers("X-Backend-Load", "garbage"));
+        assertEquals(0.6, reports.load(POD), 1e-9, "responses without a valid report keep the last one");
+    }
+
+    @Test
+    void healthChecksFallBackToTheBody() {
+        reports.recordHealthCheck(POD, headers("X-Backend-Load", "10%"), "{\"load\": 0.9}");
+        assertEquals(0.1, reports.load(POD), 1e-9);
+
+        reports.recordHealthCheck(POD, headers("Content-Type", "application/json"), "{\"load\": 0.9}");
+        assertEquals(0.9, reports.load(POD), 1e-9);
+    }
+
+    @Test
+    void staleAndUntrackedReportsAreIgnored() {
+        reports.record(POD, 0.5);
+        clock.sleep(1_001);
+        assertTrue(Double.isNaN(reports.load(POD)));
+
+        reports.forget(POD);
+        reports.record(POD, 0.5);
+        assertTrue(Double.isNaN(reports.load(POD)));
+    }
+
+    @Test
+    void reportedLoadScalesTheLatencyWeight() {
+        PodWeigher latency = _ -> 2.0;
+        var weigher = latency.times(new ReportedLoadWeigher(reports));
+        assertEquals(2.0, weigher.weight(POD), 1e-9, "pods that do not report are weighed by latency alone");
+
+        reports.record(POD, 0.75);
+        assertEquals(0.5, weigher.weight(POD), 1e-9);
+        reports.record(POD, 1.0);
+        assertEquals(0.02, weigher.weight(POD), 1e-9);
+    }
+}
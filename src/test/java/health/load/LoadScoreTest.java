@@ -0,0 +1,38 @@
+package health.load;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadScoreTest {
+
+    @Test
+    void parsesScoresAndPercentages() {
+        assertEquals(0.42, LoadScore.parse("0.42"), 1e-9);
+        assertEquals(0.42, LoadScore.parse(" 42% "), 1e-9);
+        assertEquals(0.5, LoadScore.parse(".5"), 1e-9);
+        assertEquals(0.0, LoadScore.parse("0"));
+        assertEquals(1.0, LoadScore.parse("3.7"), "scores above 1 count as saturated");
+        assertEquals(1.0, LoadScore.parse("99999999999999999999"));
+    }
+
+    @Test
+    void rejectsMalformedValues() {
+        assertTrue(Double.isNaN(LoadScore.parse(null)));
+        assertTrue(Double.isNaN(LoadScore.parse("")));
+        assertTrue(Double.isNaN(LoadScore.parse(".")));
+        assertTrue(Double.isNaN(LoadScore.parse("-0.2")));
+        assertTrue(Double.isNaN(LoadScore.parse("0.2.1")));
+        assertTrue(Double.isNaN(LoadScore.parse("high")));
+        assertTrue(Double.isNaN(LoadScore.parse("%")));
+    }
+
+    @Test
+    void findsTheLoadFieldOfAHealthBody() {
+        assertEquals(0.25, LoadScore.fromJsonBody("{\"status\": \"ok\", \"load\" : 0.25}"), 1e-9);
+        assertEquals(0.8, LoadScore.fromJsonBody("{\"load\":80%,\"queue\":12}"), 1e-9);
+        assertTrue(Double.isNaN(LoadScore.fromJsonBody("OK")));
+        assertTrue(Double.isNaN(LoadScore.fromJsonBody("{\"load\": \"high\"}")));
+        assertTrue(Double.isNaN(LoadScore.fromJsonBody(null)));
+    }
+}
@@ -0,0 +1,90 @@
+package health.passive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.time.TimeProvider;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PassiveHealthSignalsTest {
+
+    private static final URI POD = URI.create("http://pod-a:8080");
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private FakeClock clock;
+    private PassiveHealthSignals signals;
+
+    private static class FakeClock implements TimeProvider {
+        long now = 5_000_000;
+
+        @Override
+        public void sleep(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new FakeClock();
+        signals = new PassiveHealthSignals(clock);
+        signals.track(POD);
+    }
+
+    @Test
+    void successIsFreshWithinTheWindow() {
+        signals.recordSuccess(POD);
+        clock.sleep(100);
+        assertTrue(signals.hasFreshSuccess(POD, WINDOW));
+
+        clock.sleep(1);
+        assertFalse(signals.hasFreshSuccess(POD, WINDOW));
+    }
+
+    @Test
+    void failureInvalidatesEarlierSuccess() {
+        signals.recordSuccess(POD);
+        clock.sleep(1);
+        signals.recordFailure(POD);
+        assertFalse(signals.hasFreshSuccess(POD, WINDOW));
+
+        clock.sleep(1);
+        signals.recordSuccess(POD);
+        assertTrue(signals.hasFreshSuccess(POD, WINDOW));
+    }
+
+    @Test
+    void failuresAreReportedToListeners() {
+        List<URI> failed = new ArrayList<>();
+        signals.addFailureListener(failed::add);
+
+        signals.recordFailure(POD);
+
+        assertEquals(List.of(POD), failed);
+    }
+
+    @Test
+    void untrackedPodsAreIgnored() {
+        List<URI> failed = new ArrayList<>();
+        signals.addFailureListener(failed::add);
+        var other = URI.create("http://pod-b:8080");
+
+        signals.recordSuccess(other);
+        signals.recordFailure(other);
+        signals.forget(POD);
+        signals.recordSuccess(POD);
+
+        assertFalse(signals.hasFreshSuccess(other, WINDOW));
+        assertFalse(signals.hasFreshSuccess(POD, WINDOW));
+        assertTrue(failed.isEmpty());
+    }
+}
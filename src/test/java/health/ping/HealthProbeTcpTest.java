@@ -0,0 +1,177 @@
+package health.ping;
+
+import config.TcpProbeConfig;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import utils.error.NetworkUnavailableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthProbeTcpTest {
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (var resource : resources) {
+            resource.close();
+        }
+    }
+
+    private HealthProbeTcp probe(String send, String expect, Duration timeout) {
+        var probe = new HealthProbeTcp(timeout, new TcpProbeConfig(send, expect, 64));
+        resources.add(probe);
+        return probe;
+    }
+
+    private ServerSocket listen() throws IOException {
+        var server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        resources.add(server);
+        return server;
+    }
+
+    /**
+     * Answer one connection by reading a line and writing {@code reply}, or by holding it open when
+     * {@code reply} is null.
+     */
+    private void serveOnce(ServerSocket server, String reply) {
+        Thread.ofVirtual().start(() -> {
+            try (Socket socket = server.accept()) {
+                InputStream in = socket.getInputStream();
+                int b;
+                while ((b = in.read()) != -1 && b != '\n') {
+                    // consume the probe's request line
+                }
+                if (reply == null) {
+                    in.read();
+                    return;
+                }
+                OutputStream out = socket.getOutputStream();
+                out.write(reply.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } catch (IOException ignored) {
+                // the probe may close first
+            }
+        });
+    }
+
+    private static BackendPod pod(int port) {
+        return new BackendPod(URI.create("tcp://127.0.0.1:%d".formatted(port)), BackendPodStatus.ALIVE);
+    }
+
+    private static Throwable failureOf(CompletableFuture<?> future) throws Exception {
+        var error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return error.getCause();
+    }
+
+    @Test
+    void connectOnlyProbeSucceedsAndReportsRtt() throws Exception {
+        var server = listen();
+        var rtt = probe("", "", Duration.ofSeconds(2)).probeRtt(pod(server.getLocalPort())).get(5, TimeUnit.SECONDS);
+
+        assertTrue(rtt >= 0);
+    }
+
+    @Test
+    void refusedConnectionFails() throws Exception {
+        int port;
+        try (var closed = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = closed.getLocalPort();
+        }
+        var probe = probe("", "", Duration.ofSeconds(2));
+
+        assertInstanceOf(NetworkUnavailableException.class, failureOf(probe.probeAsync(pod(port))));
+        assertThrows(NetworkUnavailableException.class, () -> probe.probe(pod(port)));
+    }
+
+    @Test
+    void expectedReplySucceeds() throws Exception {
+        var server = listen();
+        serveOnce(server, "+PONG\r\n");
+
+        probe("PING\n", "PONG", Duration.ofSeconds(2)).probeAsync(pod(server.getLocalPort())).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void unexpectedReplyFails() throws Exception {
+        var server = listen();
+        serveOnce(server, "-ERR unknown command\r\n");
+
+        var failure = failureOf(probe("PING\n", "PONG", Duration.ofSeconds(2)).probeAsync(pod(server.getLocalPort())));
+        assertInstanceOf(NetworkUnavailableException.class, failure);
+    }
+
+    @Test
+    void silentPodTimesOut() throws Exception {
+        var server = listen();
+        serveOnce(server, null);
+
+        var failure = failureOf(probe("PING\n", "PONG", Duration.ofMillis(200)).probeAsync(pod(server.getLocalPort())));
+        assertTrue(failure.getMessage().contains("timed out"), failure.getMessage());
+    }
+
+    @Test
+    void oneSelectorProbesManyPodsConcurrently() throws Exception {
+        var server = listen();
+        var probe = probe("", "", Duration.ofSeconds(5));
+        var probes = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 40; i++) {
+            probes.add(probe.probeAsync(pod(server.getLocalPort())));
+        }
+
+        CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A probe whose connects always complete before {@code connect} returns, as they may on loopback.
+     */
+    private HealthProbeTcp immediateProbe(String send, String expect) {
+        var probe = new HealthProbeTcp(Duration.ofSeconds(2), new TcpProbeConfig(send, expect, 64)) {
+            @Override
+            boolean connect(SocketChannel channel, InetSocketAddress address) throws IOException {
+                channel.configureBlocking(true);
+                channel.connect(address);
+                channel.configureBlocking(false);
+                return true;
+            }
+        };
+        resources.add(probe);
+        return probe;
+    }
+
+    @Test
+    void immediateConnectCompletesWithoutWaitingForTheSelector() throws Exception {
+        var server = listen();
+
+        var rtt = immediateProbe("", "").probeRtt(pod(server.getLocalPort())).get(5, TimeUnit.SECONDS);
+
+        assertTrue(rtt >= 0);
+    }
+
+    @Test
+    void immediateConnectGoesOnWithTheExchange() throws Exception {
+        var server = listen();
+        serveOnce(server, "+PONG\r\n");
+
+        immediateProbe("PING\n", "PONG").probeAsync(pod(server.getLocalPort())).get(5, TimeUnit.SECONDS);
+    }
+}
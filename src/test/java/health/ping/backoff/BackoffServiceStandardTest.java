@@ -0,0 +1,133 @@
+package health.ping.backoff;
+
+import health.scheduler.HashedTimerWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.SuccessStatus;
+import utils.error.NetworkUnavailableException;
+import utils.time.TimeProvider;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackoffServiceStandardTest {
+
+    private FakeClock clock;
+    private HashedTimerWheel timer;
+    private List<String> events;
+
+    private static class FakeClock implements TimeProvider {
+        long now;
+
+        @Override
+        public void sleep(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new FakeClock();
+        timer = new HashedTimerWheel(10, 64, clock, Runnable::run);
+        events = new ArrayList<>();
+    }
+
+    /**
+     * Move time forward one tick at a time, so retries are scheduled relative to the tick that fired them.
+     */
+    private void advance(long millis) {
+        for (long step = 0; step < millis; step += 10) {
+            clock.sleep(Math.min(10, millis - step));
+            timer.advanceTo(clock.nanoTime());
+        }
+    }
+
+    private BackoffServiceStandard.AsyncBackoffBuilder backoff(AtomicInteger failuresLeft) {
+        return BackoffServiceStandard.runAsync(() -> {
+                    events.add("attempt");
+                    if (failuresLeft.getAndDecrement() > 0) {
+                        return CompletableFuture.failedFuture(new NetworkUnavailableException("down"));
+                    }
+                    return CompletableFuture.completedFuture(null);
+                }, timer, 100, 400)
+                .onRetry(() -> events.add("retry"), 4)
+                .onTermination(() -> events.add("terminate"))
+                .onRetryCleanup(() -> events.add("cleanup"));
+    }
+
+    @Test
+    void executeAsync_RetriesOnTimerAndRunsCleanupAfterRecovery() {
+        var result = backoff(new AtomicInteger(2)).execute();
+
+        assertEquals(List.of("attempt", "retry"), events);
+        assertFalse(result.isDone(), "the retry waits on the timer, not on a thread");
+        // deadlines fire at the end of their 10ms tick
+        advance(110);
+        assertEquals(List.of("attempt", "retry", "attempt"), events);
+        advance(150);
+        assertFalse(result.isDone(), "the second delay doubles to 200ms");
+        advance(60);
+
+        assertEquals(List.of("attempt", "retry", "attempt", "attempt", "cleanup"), events);
+        assertEquals(SuccessStatus.SUCCESS, result.join());
+    }
+
+    @Test
+    void executeAsync_TerminatesAfterMaxTries() {
+        var result = backoff(new AtomicInteger(Integer.MAX_VALUE)).execute();
+
+        // 100ms, 200ms and 400ms delays, each firing at the end of its tick
+        advance(110 + 210 + 410);
+
+        assertEquals(List.of("attempt", "retry", "attempt", "attempt", "attempt", "terminate"), events);
+        assertEquals(SuccessStatus.FAIL, result.join());
+    }
+
+    @Test
+    void executeAsync_SucceedsWithoutHandlersOnFirstAttempt() {
+        var result = backoff(new AtomicInteger(0)).execute();
+
+        assertEquals(SuccessStatus.SUCCESS, result.join());
+        assertEquals(List.of("attempt"), events);
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    void decorrelatedJitter_KeepsDelaysWithinBoundsAndSpreadsThem() {
+        var backoff = BackoffServiceStandard.runAsync(() -> CompletableFuture.completedFuture(null), timer, 100, 400)
+                .decorrelatedJitter(true);
+        var firstDelays = new HashSet<Long>();
+        for (int i = 0; i < 200; i++) {
+            long delay = backoff.firstDelay();
+            firstDelays.add(delay);
+            for (int attempt = 0; attempt < 5; attempt++) {
+                assertTrue(delay >= 100 && delay <= 400, "delay out of bounds: " + delay);
+                delay = backoff.nextDelay(delay);
+            }
+        }
+
+        assertTrue(firstDelays.size() > 50, "callers failing together should not retry together");
+    }
+
+    @Test
+    void executeAsync_PropagatesUnexpectedFailures() {
+        var result = BackoffServiceStandard.runAsync(
+                () -> CompletableFuture.failedFuture(new IllegalStateException("bug")), timer, 100, 400)
+                .onRetry(() -> events.add("retry"), 3)
+                .execute();
+
+        assertTrue(result.isCompletedExceptionally());
+        assertTrue(events.isEmpty());
+    }
+}
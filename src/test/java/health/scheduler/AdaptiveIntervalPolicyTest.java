@@ -0,0 +1,54 @@
+package health.scheduler;
+
+import config.AdaptiveHealthConfig;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveIntervalPolicyTest {
+
+    private static final long BASE_MS = 1000;
+
+    private final AdaptiveIntervalPolicy policy = new AdaptiveIntervalPolicy(
+            new AdaptiveHealthConfig(true, 2, 2.0, 8.0, 0.25, 3, 1.0), BASE_MS, 10);
+
+    private static long ms(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Test
+    void stablePodsBackOffUpToTheCap() {
+        assertEquals(1000, ms(policy.intervalNanos(BackendPodStatus.ALIVE, 0, 0)));
+        assertEquals(1000, ms(policy.intervalNanos(BackendPodStatus.ALIVE, 2, 0)));
+        assertEquals(2000, ms(policy.intervalNanos(BackendPodStatus.ALIVE, 3, 0)));
+        assertEquals(4000, ms(policy.intervalNanos(BackendPodStatus.ALIVE, 4, 0)));
+        assertEquals(8000, ms(policy.intervalNanos(BackendPodStatus.ALIVE, 5, 0)));
+        assertEquals(8000, ms(policy.intervalNanos(BackendPodStatus.ALIVE, 500, 0)));
+    }
+
+    @Test
+    void unstablePodsAreCheckedMoreOften() {
+        assertEquals(250, ms(policy.intervalNanos(BackendPodStatus.UNRESPONSIVE, 10, 0)));
+        assertEquals(250, ms(policy.intervalNanos(BackendPodStatus.INITIALIZING, 0, 0)));
+        assertEquals(250, ms(policy.intervalNanos(BackendPodStatus.ALIVE, 10, 1)), "recently recovered");
+    }
+
+    @Test
+    void recoveryIntervalIsBoundedByTheMinimum() {
+        var coarse = new AdaptiveIntervalPolicy(new AdaptiveHealthConfig(true, 2, 2.0, 8.0, 0.01, 3, 1.0), 100, 10);
+
+        assertEquals(10, ms(coarse.recoveryIntervalNanos()));
+    }
+
+    @Test
+    void disabledPolicyKeepsTheBaseInterval() {
+        var fixed = new AdaptiveIntervalPolicy(new AdaptiveHealthConfig(false, 2, 2.0, 8.0, 0.25, 3, 1.0), BASE_MS, 10);
+
+        assertEquals(1000, ms(fixed.intervalNanos(BackendPodStatus.ALIVE, 50, 0)));
+        assertEquals(1000, ms(fixed.intervalNanos(BackendPodStatus.UNRESPONSIVE, 0, 3)));
+        assertEquals(0, fixed.passiveWindowNanos());
+    }
+}
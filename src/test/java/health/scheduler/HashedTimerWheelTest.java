@@ -0,0 +1,112 @@
+package health.scheduler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.time.TimeProvider;
+import utils.time.VirtualTimeProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimerWheelTest {
+
+    private static final long TICK_MS = 10;
+
+    private FakeClock clock;
+    private List<String> fired;
+    private HashedTimerWheel wheel;
+
+    private static class FakeClock implements TimeProvider {
+        long now = 1_000_000;
+
+        @Override
+        public void sleep(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new FakeClock();
+        fired = new ArrayList<>();
+        // expired tasks run inline so the test observes them as soon as the wheel advances
+        wheel = new HashedTimerWheel(TICK_MS, 8, clock, Runnable::run);
+    }
+
+    private void advance(long millis) {
+        clock.sleep(millis);
+        wheel.advanceTo(clock.nanoTime());
+    }
+
+    @Test
+    void firesWithinOneTickOfTheDeadline() {
+        wheel.schedule(() -> fired.add("a"), 35, TimeUnit.MILLISECONDS);
+
+        advance(30);
+        assertTrue(fired.isEmpty());
+        advance(10);
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void delaysLongerThanOneRoundWaitForLaterRounds() {
+        // one round of the wheel is 8 ticks, i.e. 80ms
+        wheel.schedule(() -> fired.add("late"), 250, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> fired.add("early"), 25, TimeUnit.MILLISECONDS);
+
+        advance(100);
+        assertEquals(List.of("early"), fired);
+        advance(140);
+        assertEquals(List.of("early"), fired);
+        advance(20);
+        assertEquals(List.of("early", "late"), fired);
+    }
+
+    @Test
+    void cancelledTimeoutsNeverFire() {
+        var cancelled = wheel.schedule(() -> fired.add("cancelled"), 20, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> fired.add("kept"), 20, TimeUnit.MILLISECONDS);
+        advance(10);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        advance(50);
+
+        assertEquals(List.of("kept"), fired);
+        assertTrue(cancelled.isCancelled());
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void overdueDeadlinesFireOnTheNextTick() {
+        wheel.scheduleAt(() -> fired.add("overdue"), clock.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+
+        advance(TICK_MS);
+        assertEquals(List.of("overdue"), fired);
+    }
+
+    @Test
+    void drivenWheelFollowsItsClockOnceStarted() {
+        var virtualClock = new VirtualTimeProvider(0, 42);
+        var driven = new HashedTimerWheel(TICK_MS, 8, virtualClock, Runnable::run, TimerDrive.following(virtualClock));
+        driven.schedule(() -> fired.add("driven"), 25, TimeUnit.MILLISECONDS);
+
+        virtualClock.sleep(50);
+        assertTrue(fired.isEmpty());
+        driven.start();
+        virtualClock.sleep(10);
+
+        assertEquals(List.of("driven"), fired);
+        assertEquals(new VirtualTimeProvider(0, 42).jitter().nextLong(), driven.jitter().nextLong());
+        driven.stop();
+    }
+}
@@ -0,0 +1,150 @@
+package health.scheduler;
+
+import utils.time.RealTimeProvider;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compares the timer wheel with the previous one-sleeping-thread-per-pod scheduling for a large fleet.
+ * <p>
+ * Every simulated pod wants a check once per interval at a fixed phase. For each check the benchmark
+ * records how late it ran compared with that ideal schedule, and after scheduling it reports the heap and
+ * thread count the scheduler holds. The check itself is a no-op so only the scheduler is measured.
+ * <p>
+ * Not a unit test; run it manually, e.g. with {@code java -Xmx2g ... health.scheduler.HealthSchedulerBenchmark
+ * [pods] [intervalMs] [rounds]}.
+ */
+public class HealthSchedulerBenchmark {
+    private static final int LATENESS_BUCKETS_MS = 5_000;
+
+    private final int pods;
+    private final long intervalNanos;
+    private final int rounds;
+    private final AtomicLongArray latenessHistogram = new AtomicLongArray(LATENESS_BUCKETS_MS + 1);
+
+    HealthSchedulerBenchmark(int pods, long intervalMs, int rounds) {
+        this.pods = pods;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.rounds = rounds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int pods = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        long intervalMs = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        System.out.printf("pods=%d interval=%dms rounds=%d%n", pods, intervalMs, rounds);
+
+        new HealthSchedulerBenchmark(pods, intervalMs, rounds).runTimerWheel();
+        new HealthSchedulerBenchmark(pods, intervalMs, rounds).runSleepingThreads();
+    }
+
+    private void runTimerWheel() throws InterruptedException {
+        long heapBefore = usedHeapAfterGc();
+        var done = new CountDownLatch(pods);
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            var wheel = new HashedTimerWheel(10, 512, new RealTimeProvider(), workers);
+            wheel.start();
+            long start = System.nanoTime();
+            for (int i = 0; i < pods; i++) {
+                long phase = start + (long) (ThreadLocalRandom.current().nextDouble() * intervalNanos);
+                scheduleWheelCheck(wheel, phase, 0, done);
+            }
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(intervalNanos) / 2);
+            report("timer wheel", heapBefore);
+            done.await();
+            wheel.stop();
+        }
+        printLateness("timer wheel");
+    }
+
+    private void scheduleWheelCheck(HashedTimerWheel wheel, long phase, int round, CountDownLatch done) {
+        long deadline = phase + round * intervalNanos;
+        wheel.scheduleAt(() -> {
+            recordLateness(System.nanoTime() - deadline);
+            if (round + 1 < rounds) {
+                scheduleWheelCheck(wheel, phase, round + 1, done);
+            } else {
+                done.countDown();
+            }
+        }, deadline);
+    }
+
+    private void runSleepingThreads() throws InterruptedException {
+        long heapBefore = usedHeapAfterGc();
+        var done = new CountDownLatch(pods);
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            for (int i = 0; i < pods; i++) {
+                long phase = start + (long) (ThreadLocalRandom.current().nextDouble() * intervalNanos);
+                workers.execute(() -> {
+                    try {
+                        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(Math.max(0, phase - System.nanoTime())));
+                        for (int round = 0; round < rounds; round++) {
+                            recordLateness(System.nanoTime() - (phase + round * intervalNanos));
+                            // the previous scheduler slept a fixed duration after each check
+                            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(intervalNanos) / 2);
+            report("sleeping threads", heapBefore);
+            done.await();
+        }
+        printLateness("sleeping threads");
+    }
+
+    private void recordLateness(long latenessNanos) {
+        long ms = Math.clamp(TimeUnit.NANOSECONDS.toMillis(latenessNanos), 0, LATENESS_BUCKETS_MS);
+        latenessHistogram.incrementAndGet((int) ms);
+    }
+
+    private void report(String name, long heapBefore) {
+        long heapAfter = usedHeapAfterGc();
+        System.out.printf("%-16s retained heap %6.1f MiB (%5d bytes/pod), live platform threads %d%n",
+                name,
+                (heapAfter - heapBefore) / (1024.0 * 1024.0),
+                Math.max(0, (heapAfter - heapBefore) / pods),
+                ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    private void printLateness(String name) {
+        long total = 0;
+        for (int i = 0; i < latenessHistogram.length(); i++) {
+            total += latenessHistogram.get(i);
+        }
+        System.out.printf("%-16s %d checks, lateness p50 %dms p99 %dms p99.9 %dms max %dms%n",
+                name, total, percentile(total, 0.50), percentile(total, 0.99), percentile(total, 0.999),
+                percentile(total, 1.0));
+    }
+
+    private long percentile(long total, double quantile) {
+        long rank = Math.max(1, (long) Math.ceil(total * quantile));
+        long seen = 0;
+        for (int i = 0; i < latenessHistogram.length(); i++) {
+            seen += latenessHistogram.get(i);
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return LATENESS_BUCKETS_MS;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        var runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,104 @@
+package health.scheduler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.time.TimeProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeBudgetTest {
+
+    private FakeClock clock;
+    private HashedTimerWheel timer;
+
+    private static class FakeClock implements TimeProvider {
+        long now = 1_000_000;
+
+        @Override
+        public void sleep(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new FakeClock();
+        timer = new HashedTimerWheel(10, 64, clock, Runnable::run);
+    }
+
+    private void advance(long millis) {
+        for (long step = 0; step < millis; step += 10) {
+            clock.sleep(Math.min(10, millis - step));
+            timer.advanceTo(clock.nanoTime());
+        }
+    }
+
+    private static long started(List<CompletableFuture<Void>> reservations) {
+        return reservations.stream().filter(CompletableFuture::isDone).count();
+    }
+
+    @Test
+    void capsProbesInFlight() {
+        var budget = new ProbeBudget(2, 1_000_000, 100, 4, clock, timer);
+
+        var first = budget.acquire(false);
+        var second = budget.acquire(false);
+        var third = budget.acquire(false);
+
+        assertTrue(first.isDone() && second.isDone());
+        assertFalse(third.isDone());
+        assertEquals(1, budget.waiting());
+
+        budget.release();
+        assertTrue(third.isDone());
+        assertEquals(2, budget.inFlight());
+    }
+
+    @Test
+    void limitsProbesPerSecondAfterTheBurst() {
+        // 100 probes per second, 5 at once
+        var budget = new ProbeBudget(1_000, 100, 5, 4, clock, timer);
+        var reservations = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 20; i++) {
+            reservations.add(budget.acquire(false));
+        }
+
+        assertEquals(5, started(reservations));
+        advance(100);
+        // one token every 10ms, each picked up within a tick of being refilled
+        long afterTenthOfASecond = started(reservations);
+        assertTrue(afterTenthOfASecond >= 13 && afterTenthOfASecond <= 15, "started " + afterTenthOfASecond);
+        advance(100);
+        assertEquals(20, started(reservations));
+    }
+
+    @Test
+    void urgentProbesGoFirstWithoutStarvingRegularOnes() {
+        var budget = new ProbeBudget(1, 1_000_000, 100, 2, clock, timer);
+        var running = budget.acquire(false);
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            budget.acquire(false).thenRun(() -> order.add("regular"));
+        }
+        for (int i = 0; i < 4; i++) {
+            budget.acquire(true).thenRun(() -> order.add("urgent"));
+        }
+        assertTrue(running.isDone());
+
+        for (int i = 0; i < 7; i++) {
+            budget.release();
+        }
+
+        assertEquals(List.of("urgent", "urgent", "regular", "urgent", "urgent", "regular", "regular"), order);
+    }
+}
@@ -0,0 +1,47 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueWithinSixPercent() {
+        for (long value = 0; value < 1_000_000; value += 7) {
+            long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value));
+            assertTrue(upper >= value, "bucket of " + value + " ends at " + upper);
+            assertTrue(upper - value <= Math.max(1, value / 16), "bucket of " + value + " ends at " + upper);
+        }
+        assertEquals(LatencyHistogram.MAX_MICROS,
+                LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(LatencyHistogram.MAX_MICROS)));
+    }
+
+    @Test
+    void reportsPercentilesOfRecordedLatencies() {
+        var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentileMicros(0.99));
+
+        for (int i = 1; i <= 99; i++) {
+            histogram.record(1_000);
+        }
+        histogram.record(50_000);
+
+        assertEquals(100, histogram.count());
+        assertEquals(1_490, histogram.meanMicros());
+        long median = histogram.percentileMicros(0.5);
+        long max = histogram.percentileMicros(1.0);
+        assertTrue(median >= 1_000 && median < 1_064, "median " + median);
+        assertTrue(max >= 50_000 && max < 53_125, "max " + max);
+    }
+
+    @Test
+    void clampsOutOfRangeValues() {
+        var histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.percentileMicros(0.5));
+        assertEquals(LatencyHistogram.MAX_MICROS, histogram.percentileMicros(1.0));
+    }
+}
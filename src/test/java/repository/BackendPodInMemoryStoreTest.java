@@ -11,7 +11,10 @@ import utils.EventSubscriber;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -159,4 +162,155 @@ class BackendPodInMemoryStoreTest {
         reset(subscriber);
         verify(subscriber, times(0)).handleEvent(BackendPodEvent.ADD_POD, newContext);
     }
-}
\ No newline at end of file
+
+    @Test
+    void addAllPublishesOneEventForTheWholeBatch() {
+        List<BackendPodEventContext> events = new ArrayList<>();
+        this.store.subscribe(BackendPodEvent.ADD_POD, (_, context) -> events.add(context));
+        var first = new BackendPod(URI.create("http://localhost:8080"), BackendPodStatus.INITIALIZING);
+        var second = new BackendPod(URI.create("http://localhost:8081"), BackendPodStatus.INITIALIZING);
+
+        this.store.addAll(List.of(first, second));
+
+        assertEquals(2, this.store.getAll().size());
+        assertEquals(1, events.size());
+        assertEquals(List.of(first, second), events.getFirst().affectedPods());
+    }
+
+    @Test
+    void addAllAbsentLeavesRegisteredPodsAlone() {
+        List<BackendPodEventContext> events = new ArrayList<>();
+        this.store.subscribe(BackendPodEvent.ADD_POD, (_, context) -> events.add(context));
+        var registered = new BackendPod(URI.create("http://localhost:8080"), BackendPodStatus.ALIVE);
+        var fresh = new BackendPod(URI.create("http://localhost:8081"), BackendPodStatus.INITIALIZING);
+        this.store.add(registered);
+
+        var added = this.store.addAllAbsent(List.of(new BackendPod(registered.uri(), BackendPodStatus.INITIALIZING), fresh));
+
+        assertEquals(List.of(fresh), added);
+        assertEquals(registered, this.store.get(registered.uri()));
+        assertEquals(List.of(fresh), events.getLast().affectedPods());
+        assertTrue(this.store.addAllAbsent(List.of(fresh)).isEmpty());
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    void conditionalChangesOnlyApplyToTheExpectedStatus() {
+        List<BackendPodEvent> events = new ArrayList<>();
+        for (var event : BackendPodEvent.values()) {
+            this.store.subscribe(event, (published, _) -> events.add(published));
+        }
+        var uri = URI.create("http://localhost:8080");
+        this.store.add(new BackendPod(uri, BackendPodStatus.INITIALIZING));
+        events.clear();
+
+        assertFalse(this.store.updateIf(BackendPodStatus.ALIVE, new BackendPod(uri, BackendPodStatus.UNRESPONSIVE)));
+        assertFalse(this.store.removeIf(uri, BackendPodStatus.DRAINING));
+        assertTrue(events.isEmpty());
+        assertTrue(this.store.makePodReadyIf(BackendPodStatus.INITIALIZING, new BackendPod(uri, BackendPodStatus.ALIVE)));
+        assertTrue(this.store.updateIf(BackendPodStatus.ALIVE, new BackendPod(uri, BackendPodStatus.DRAINING)));
+        assertTrue(this.store.removeIf(uri, BackendPodStatus.DRAINING));
+        assertEquals(List.of(BackendPodEvent.POD_READY, BackendPodEvent.UPDATE_POD, BackendPodEvent.REMOVE_POD), events);
+
+        // nothing brings back a removed pod
+        assertFalse(this.store.updateIf(BackendPodStatus.DRAINING, new BackendPod(uri, BackendPodStatus.ALIVE)));
+        assertFalse(this.store.makePodReadyIf(BackendPodStatus.INITIALIZING, new BackendPod(uri, BackendPodStatus.ALIVE)));
+        assertNull(this.store.get(uri));
+    }
+
+    @Test
+    void snapshotsAreUnaffectedByLaterChanges() {
+        var first = new BackendPod(URI.create("http://localhost:8080"), BackendPodStatus.INITIALIZING);
+        this.store.add(first);
+        var before = this.store.snapshot();
+
+        this.store.makePodReady(first.updateStatus(BackendPodStatus.ALIVE));
+        this.store.add(new BackendPod(URI.create("http://localhost:8081"), BackendPodStatus.INITIALIZING));
+
+        assertEquals(1, before.generation());
+        assertEquals(1, before.size());
+        assertEquals(List.of(first), List.copyOf(before.withStatus(BackendPodStatus.INITIALIZING)));
+        assertTrue(before.withStatus(BackendPodStatus.ALIVE).isEmpty());
+        var after = this.store.snapshot();
+        assertEquals(3, after.generation());
+        assertEquals(2, after.size());
+        assertEquals(BackendPodStatus.ALIVE, after.get(first.uri()).status());
+        assertEquals(1, after.withStatus(BackendPodStatus.ALIVE).size());
+        assertEquals(1, after.withStatus(BackendPodStatus.INITIALIZING).size());
+    }
+
+    @Test
+    void changesSinceReportsNetChanges() {
+        var kept = URI.create("http://localhost:8080");
+        var dropped = URI.create("http://localhost:8081");
+        this.store.add(new BackendPod(kept, BackendPodStatus.INITIALIZING));
+        long generation = this.store.snapshot().generation();
+
+        this.store.add(new BackendPod(dropped, BackendPodStatus.INITIALIZING));
+        this.store.makePodReady(new BackendPod(kept, BackendPodStatus.ALIVE));
+        this.store.update(new BackendPod(kept, BackendPodStatus.UNRESPONSIVE));
+        this.store.remove(dropped);
+
+        var delta = this.store.changesSince(generation).orElseThrow();
+        assertEquals(generation, delta.fromGeneration());
+        assertEquals(this.store.snapshot().generation(), delta.toGeneration());
+        assertEquals(List.of(new BackendPod(kept, BackendPodStatus.UNRESPONSIVE)), delta.upserted());
+        assertEquals(List.of(dropped), delta.removed());
+        assertTrue(this.store.changesSince(delta.toGeneration()).orElseThrow().isEmpty());
+    }
+
+    @Test
+    void changesSinceAnExpiredGenerationAreUnavailable() {
+        var pod = new BackendPod(URI.create("http://localhost:8080"), BackendPodStatus.ALIVE);
+        for (int i = 0; i < 2_000; i++) {
+            this.store.update(pod);
+        }
+
+        assertTrue(this.store.changesSince(0).isEmpty());
+        assertTrue(this.store.changesSince(1_000).isPresent());
+        assertTrue(this.store.changesSince(2_001).isEmpty());
+    }
+
+    @Test
+    void statusIndexesFollowEveryChange() {
+        var first = URI.create("http://localhost:8080");
+        var second = URI.create("http://localhost:8081");
+        this.store.addAll(List.of(new BackendPod(first, BackendPodStatus.INITIALIZING),
+                new BackendPod(second, BackendPodStatus.INITIALIZING)));
+        assertEquals(2, this.store.count(BackendPodStatus.INITIALIZING));
+
+        this.store.makePodReady(new BackendPod(first, BackendPodStatus.ALIVE));
+        this.store.update(new BackendPod(second, BackendPodStatus.UNRESPONSIVE));
+        assertEquals(0, this.store.count(BackendPodStatus.INITIALIZING));
+        assertEquals(List.of(new BackendPod(first, BackendPodStatus.ALIVE)),
+                List.copyOf(this.store.getAllWithStatus(BackendPodStatus.ALIVE)));
+        assertEquals(1, this.store.count(BackendPodStatus.UNRESPONSIVE));
+
+        // dead pods leave the store
+        this.store.update(new BackendPod(second, BackendPodStatus.DEAD));
+        assertEquals(0, this.store.count(BackendPodStatus.UNRESPONSIVE));
+        assertEquals(0, this.store.count(BackendPodStatus.DEAD));
+        this.store.remove(first);
+        assertEquals(0, this.store.count(BackendPodStatus.ALIVE));
+        assertTrue(this.store.getAllWithStatus(BackendPodStatus.ALIVE).isEmpty());
+    }
+
+    @Test
+    void subscribersMayWaitForOtherThreadsChangingTheStore() throws Exception {
+        var first = new BackendPod(URI.create("http://localhost:8080"), BackendPodStatus.INITIALIZING);
+        var ready = new BackendPod(first.uri(), BackendPodStatus.ALIVE);
+        List<BackendPodEvent> events = new ArrayList<>();
+        this.store.subscribe(BackendPodEvent.POD_READY, (event, _) -> events.add(event));
+        this.store.subscribe(BackendPodEvent.ADD_POD, (event, _) -> {
+            events.add(event);
+            // would wait forever were the event published under the write lock
+            CompletableFuture.runAsync(() -> this.store.makePodReady(ready)).orTimeout(5, TimeUnit.SECONDS).join();
+        });
+
+        this.store.add(first);
+
+        assertEquals(ready, this.store.get(first.uri()));
+        // the change made while the event was delivered is published after it
+        assertEquals(List.of(BackendPodEvent.ADD_POD, BackendPodEvent.POD_READY), events);
+    }
+}
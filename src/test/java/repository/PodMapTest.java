@@ -0,0 +1,56 @@
+package repository;
+
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PodMapTest {
+
+    private static BackendPod pod(int i) {
+        return new BackendPod(URI.create("http://worker-" + i + ":8080"), BackendPodStatus.ALIVE);
+    }
+
+    @Test
+    void editsLeaveTheOriginalUntouched() {
+        var editor = PodMap.EMPTY.edit();
+        for (int i = 0; i < 500; i++) {
+            editor.put(pod(i));
+        }
+        var full = editor.build();
+
+        var smaller = full.edit();
+        for (int i = 0; i < 250; i++) {
+            assertEquals(pod(i), smaller.remove(pod(i).uri()));
+        }
+        assertNull(smaller.remove(pod(1).uri()));
+        var half = smaller.build();
+        // editing after build must not leak into the built map
+        smaller.put(pod(1));
+
+        assertEquals(500, full.size());
+        assertEquals(500, new HashSet<>(full.values()).size());
+        assertEquals(250, half.size());
+        assertNull(half.get(pod(1).uri()));
+        assertEquals(pod(499), half.get(pod(499).uri()));
+        assertEquals(250, new HashSet<>(half.values()).size());
+        assertEquals(0, PodMap.EMPTY.size());
+        assertFalse(PodMap.EMPTY.values().iterator().hasNext());
+    }
+
+    @Test
+    void replacingAPodKeepsTheSize() {
+        var editor = PodMap.EMPTY.edit();
+        editor.put(pod(1));
+        assertEquals(pod(1), editor.put(pod(1).updateStatus(BackendPodStatus.UNRESPONSIVE)));
+        var map = editor.build();
+
+        assertEquals(1, map.size());
+        assertEquals(Set.of(pod(1).updateStatus(BackendPodStatus.UNRESPONSIVE)), Set.copyOf(map.values()));
+    }
+}
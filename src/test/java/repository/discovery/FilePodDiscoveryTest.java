@@ -0,0 +1,153 @@
+package repository.discovery;
+
+import config.DiscoveryConfig;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodInMemoryStore;
+import utils.time.RealTimeProvider;
+import utils.time.VirtualTimeProvider;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilePodDiscoveryTest {
+
+    private static final URI FIRST = URI.create("http://worker-1:8080");
+    private static final URI SECOND = URI.create("http://worker-2:8080");
+    private static final URI THIRD = URI.create("http://worker-3:8080");
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private BackendPodInMemoryStore store;
+    private FilePodDiscovery discovery;
+    private final List<List<BackendPod>> added = new ArrayList<>();
+    private final List<List<BackendPod>> removed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        file = directory.resolve("pods.txt");
+        BackendPodInMemoryStore.resetInstance();
+        store = BackendPodInMemoryStore.getStore();
+        store.subscribe(BackendPodEvent.ADD_POD, (_, context) -> added.add(context.affectedPods()));
+        store.subscribe(BackendPodEvent.REMOVE_POD, (_, context) -> removed.add(context.affectedPods()));
+        discovery = new FilePodDiscovery(new DiscoveryConfig(true, file.toString(), 0), store, new VirtualTimeProvider());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        discovery.stop();
+        BackendPodInMemoryStore.resetInstance();
+    }
+
+    private void write(String content) throws IOException {
+        Files.writeString(file, content);
+    }
+
+    @Test
+    void readsJsonArraysAndPlainLines() throws IOException {
+        var json = FilePodDiscovery.readEntries(new StringReader("""
+                 ["http://worker-1:8080", {"uri": "http://worker-2:8080", "ttlMs": 1000}]
+                """));
+        var lines = FilePodDiscovery.readEntries(new StringReader("""
+                # workers
+                http://worker-1:8080
+                  http://worker-2:8080   # second
+
+                """));
+
+        assertEquals(Set.of(FIRST.toString(), SECOND.toString()), json);
+        assertEquals(Set.of(FIRST.toString(), SECOND.toString()), lines);
+    }
+
+    @Test
+    void rejectsInvalidFiles() throws IOException {
+        assertThrows(IOException.class, () -> FilePodDiscovery.readEntries(new StringReader("[\"http://worker-1:8080\"")));
+        assertThrows(IllegalArgumentException.class, () -> FilePodDiscovery.readEntries(new StringReader("[{\"ttlMs\": 1}]")));
+        write(FIRST + "\nhttp://worker 2\n");
+        assertThrows(IllegalArgumentException.class, () -> discovery.reload());
+        assertTrue(store.getAll().isEmpty(), "nothing is applied from an invalid file");
+    }
+
+    @Test
+    void appliesOnlyWhatChangedAsBatches() throws IOException {
+        write(FIRST + "\n" + SECOND + "\n");
+        discovery.reload();
+        store.update(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+
+        write(FIRST + "\n" + THIRD + "\n");
+        discovery.reload();
+
+        assertEquals(List.of(2, 1), added.stream().map(List::size).toList());
+        assertEquals(List.of(new BackendPod(THIRD, BackendPodStatus.INITIALIZING)), added.getLast());
+        assertEquals(List.of(List.of(new BackendPod(SECOND, BackendPodStatus.INITIALIZING))), removed);
+        assertEquals(BackendPodStatus.ALIVE, store.get(FIRST).status(), "unchanged pods keep their status");
+        assertEquals(2, discovery.listed());
+    }
+
+    @Test
+    void unchangedFileChangesNothing() throws IOException {
+        write(FIRST + "\n");
+
+        assertTrue(discovery.reload());
+        assertFalse(discovery.reload());
+        assertEquals(1, added.size());
+    }
+
+    @Test
+    void podsRegisteredOtherwiseAreLeftAlone() throws IOException {
+        store.add(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+        store.add(new BackendPod(SECOND, BackendPodStatus.ALIVE));
+        added.clear();
+        write(FIRST + "\n");
+
+        discovery.reload();
+
+        assertTrue(added.isEmpty());
+        assertEquals(2, store.getAll().size());
+    }
+
+    @Test
+    void invalidFileKeepsThePodsDiscoveredSoFar() throws IOException {
+        write(FIRST + "\n");
+        discovery.reload();
+        write("[\"http://worker-2:8080\",");
+
+        assertThrows(IOException.class, () -> discovery.reload());
+        assertEquals(Set.of(FIRST), Set.copyOf(store.getAll().stream().map(BackendPod::uri).toList()));
+    }
+
+    @Test
+    void picksUpChangesOfTheWatchedFile() throws Exception {
+        write(FIRST + "\n");
+        discovery = new FilePodDiscovery(new DiscoveryConfig(true, file.toString(), 0), store, new RealTimeProvider());
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            discovery.start(executor);
+            assertNotNull(store.get(FIRST));
+
+            write(FIRST + "\n" + SECOND + "\n");
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (store.get(SECOND) == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            discovery.stop();
+        }
+        assertNotNull(store.get(SECOND));
+    }
+}
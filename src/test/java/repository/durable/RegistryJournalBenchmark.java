@@ -0,0 +1,120 @@
+package repository.durable;
+
+import config.DurabilityConfig;
+import health.types.BackendPodStatus;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+import server.RoundRobinLoadBalancer;
+import utils.time.RealTimeProvider;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the registry journal: how fast store changes are logged, how fast a restart replays them, and
+ * how long a restarted balancer takes from reading the journal to routing its first request.
+ * <p>
+ * The fleet registers one pod at a time, then the given number of status changes flip random pods between
+ * ALIVE and UNRESPONSIVE. Recovery is measured twice: replaying the whole log, and from a compacted
+ * snapshot.
+ * <p>
+ * Not a unit test; run it manually, e.g. with {@code java ... repository.durable.RegistryJournalBenchmark
+ * [pods] [changes]}.
+ */
+public class RegistryJournalBenchmark {
+    private final int pods;
+    private final int changes;
+    private final Path directory;
+
+    RegistryJournalBenchmark(int pods, int changes, Path directory) {
+        this.pods = pods;
+        this.changes = changes;
+        this.directory = directory;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int pods = args.length > 0 ? Integer.parseInt(args[0]) : 30_000;
+        int changes = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        System.out.printf("pods=%d changes=%d%n", pods, changes);
+        var directory = Files.createTempDirectory("registry-journal-benchmark");
+        try {
+            new RegistryJournalBenchmark(pods, changes, directory).run();
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        // never compacts on its own, so the first recovery replays every change
+        var config = new DurabilityConfig(true, directory.toString(), 1_000, Integer.MAX_VALUE);
+        BackendPodInMemoryStore.resetInstance();
+        var store = BackendPodInMemoryStore.getStore();
+        var journal = new RegistryJournal(config, store, new RealTimeProvider());
+        store.addChangeListener(journal);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < pods; i++) {
+            store.add(new BackendPod(uri(i), BackendPodStatus.ALIVE));
+        }
+        var random = new SplittableRandom(42);
+        for (int i = 0; i < changes; i++) {
+            var status = random.nextBoolean() ? BackendPodStatus.ALIVE : BackendPodStatus.UNRESPONSIVE;
+            store.update(new BackendPod(uri(random.nextInt(pods)), status));
+        }
+        journal.sync();
+        report("append", pods + changes, System.nanoTime() - start);
+        System.out.printf("log size: %d KiB%n", directorySize() / 1024);
+
+        restart("replay whole log");
+        journal.compact();
+        System.out.printf("compacted size: %d KiB%n", directorySize() / 1024);
+        restart("from snapshot");
+        journal.close();
+    }
+
+    private void restart(String label) throws IOException {
+        long start = System.nanoTime();
+        var recovered = RegistryJournal.recover(directory);
+        long recoveredAt = System.nanoTime();
+        BackendPodInMemoryStore.resetInstance();
+        var store = BackendPodInMemoryStore.getStore();
+        var balancer = new RoundRobinLoadBalancer(store);
+        store.restore(recovered.generation(), recovered.pods());
+        if (balancer.next().isEmpty()) {
+            throw new IllegalStateException("no pod to route to after the restart");
+        }
+        long firstRequestAt = System.nanoTime();
+        report(label + " recovery", recovered.snapshotPods() + recovered.replayedChanges(), recoveredAt - start);
+        System.out.printf("%s: %d pods, restart to first request %.1fms%n", label, recovered.pods().size(),
+                (firstRequestAt - start) / 1e6);
+    }
+
+    private static void report(String label, long operations, long nanos) {
+        System.out.printf("%s: %d records in %.1fms, %.0f records/s%n", label, operations, nanos / 1e6,
+                operations / (nanos / (double) TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private long directorySize() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            long size = 0;
+            for (var file : files.toList()) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+
+    private static URI uri(int pod) {
+        return URI.create("http://10.0.%d.%d:8080".formatted(pod / 250, pod % 250));
+    }
+}
@@ -0,0 +1,201 @@
+package repository.durable;
+
+import config.DurabilityConfig;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodInMemoryStore;
+import utils.time.RealTimeProvider;
+import utils.time.VirtualTimeProvider;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistryJournalTest {
+
+    private static final URI FIRST = URI.create("http://worker-1:8080");
+    private static final URI SECOND = URI.create("http://worker-2:8080");
+    private static final URI THIRD = URI.create("http://worker-3:8080");
+
+    @TempDir
+    Path directory;
+
+    private final List<RegistryJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (var journal : journals) {
+            journal.close();
+        }
+        BackendPodInMemoryStore.resetInstance();
+    }
+
+    /**
+     * A fresh store and journal, as after a restart, restored from the directory.
+     */
+    private BackendPodInMemoryStore restart() throws IOException {
+        var recovered = recover();
+        BackendPodInMemoryStore.resetInstance();
+        var store = BackendPodInMemoryStore.getStore();
+        var journal = new RegistryJournal(new DurabilityConfig(true, directory.toString(), 1_000, 100), store,
+                new VirtualTimeProvider());
+        journals.add(journal);
+        store.addChangeListener(journal);
+        store.restore(recovered.generation(), recovered.pods());
+        return store;
+    }
+
+    /**
+     * Recover what the journal has logged so far: the writer appends changes on its own thread, which the
+     * tests do not start.
+     */
+    private RecoveredRegistry recover() throws IOException {
+        if (!journals.isEmpty()) {
+            journals.getLast().sync();
+        }
+        return RegistryJournal.recover(directory);
+    }
+
+    private static Set<BackendPod> podsOf(BackendPodInMemoryStore store) {
+        return Set.copyOf(store.getAll());
+    }
+
+    @Test
+    void restartRestoresTheRegistryWithServingPodsProvisionallyAlive() throws IOException {
+        var store = restart();
+        store.add(new BackendPod(FIRST, BackendPodStatus.INITIALIZING));
+        store.add(new BackendPod(SECOND, BackendPodStatus.INITIALIZING));
+        store.add(new BackendPod(THIRD, BackendPodStatus.INITIALIZING));
+        store.makePodReady(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+        store.makePodReady(new BackendPod(SECOND, BackendPodStatus.ALIVE));
+        store.update(new BackendPod(SECOND, BackendPodStatus.UNRESPONSIVE));
+        store.remove(THIRD);
+        long generation = store.snapshot().generation();
+
+        var restarted = restart();
+
+        assertEquals(Set.of(new BackendPod(FIRST, BackendPodStatus.ALIVE),
+                new BackendPod(SECOND, BackendPodStatus.INITIALIZING)), podsOf(restarted));
+        assertTrue(restarted.snapshot().generation() > generation, "generations continue after a restart");
+    }
+
+    @Test
+    void drainingPodsAreNotRestored() throws IOException {
+        var store = restart();
+        store.add(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+        store.update(new BackendPod(SECOND, BackendPodStatus.DRAINING));
+
+        var restarted = restart();
+
+        assertEquals(Set.of(new BackendPod(FIRST, BackendPodStatus.ALIVE)), podsOf(restarted));
+    }
+
+    @Test
+    void restoredPodsArePublishedAndServingOnesMadeReady() throws IOException {
+        var store = restart();
+        store.add(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+        store.add(new BackendPod(SECOND, BackendPodStatus.INITIALIZING));
+
+        var recovered = recover();
+        BackendPodInMemoryStore.resetInstance();
+        var restarted = BackendPodInMemoryStore.getStore();
+        List<BackendPod> added = new ArrayList<>();
+        List<BackendPod> ready = new ArrayList<>();
+        restarted.subscribe(BackendPodEvent.ADD_POD, (_, context) -> added.addAll(context.affectedPods()));
+        restarted.subscribe(BackendPodEvent.POD_READY, (_, context) -> ready.addAll(context.affectedPods()));
+        restarted.restore(recovered.generation(), recovered.pods());
+
+        assertEquals(2, added.size());
+        assertEquals(List.of(new BackendPod(FIRST, BackendPodStatus.ALIVE)), ready);
+    }
+
+    @Test
+    void compactionReplacesTheLogWithASnapshot() throws IOException {
+        var store = restart();
+        for (int i = 0; i < 50; i++) {
+            store.add(new BackendPod(URI.create("http://worker-" + i + ":8080"), BackendPodStatus.ALIVE));
+        }
+        journals.getLast().compact();
+        store.remove(URI.create("http://worker-0:8080"));
+
+        var recovered = recover();
+
+        assertEquals(50, recovered.snapshotPods());
+        assertEquals(1, recovered.replayedChanges());
+        assertEquals(49, recovered.pods().size());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Set.of(RegistryJournal.SNAPSHOT_FILE, "registry-00000000000000000002.wal"),
+                    files.map(file -> file.getFileName().toString()).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void startedJournalAppendsChangesOnItsOwnThread() throws IOException, InterruptedException {
+        BackendPodInMemoryStore.resetInstance();
+        var store = BackendPodInMemoryStore.getStore();
+        var journal = new RegistryJournal(new DurabilityConfig(true, directory.toString(), 0, 100), store,
+                new RealTimeProvider());
+        journals.add(journal);
+        store.addChangeListener(journal);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            journal.start(executor);
+            for (int i = 0; i < 20; i++) {
+                store.add(new BackendPod(URI.create("http://worker-" + i + ":8080"), BackendPodStatus.ALIVE));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (journal.appended() < 20) {
+                assertTrue(System.nanoTime() < deadline, "changes were not appended in time");
+                Thread.sleep(1);
+            }
+            // appended by the writer, read without syncing
+            assertEquals(20, RegistryJournal.recover(directory).pods().size());
+            journal.close();
+            executor.shutdownNow();
+        }
+        journals.clear();
+    }
+
+    @Test
+    void tornRecordAtTheEndOfTheLogIsIgnored() throws IOException {
+        var store = restart();
+        store.add(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+        store.add(new BackendPod(SECOND, BackendPodStatus.ALIVE));
+        journals.getLast().close();
+        journals.clear();
+        // a crash in the middle of the second record
+        var segment = directory.resolve("registry-00000000000000000001.wal");
+        try (var channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        var recovered = RegistryJournal.recover(directory);
+
+        assertEquals(List.of(new BackendPod(FIRST, BackendPodStatus.ALIVE)), recovered.pods());
+        assertEquals(1, recovered.generation());
+    }
+
+    @Test
+    void emptyDirectoryRecoversAnEmptyRegistry() throws IOException {
+        var recovered = RegistryJournal.recover(directory.resolve("missing"));
+
+        assertEquals(0, recovered.generation());
+        assertTrue(recovered.pods().isEmpty());
+    }
+}
@@ -0,0 +1,244 @@
+package repository.replication;
+
+import com.sun.net.httpserver.HttpServer;
+import config.ReplicationConfig;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodInMemoryStore;
+import server.handler.GossipHandler;
+import utils.time.VirtualTimeProvider;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replicas running on localhost, each with a store of its own, gossiping over HTTP.
+ */
+class PodReplicatorTest {
+
+    private static final URI FIRST = URI.create("http://worker-1:8080");
+    private static final URI SECOND = URI.create("http://worker-2:8080");
+
+    private final VirtualTimeProvider clock = new VirtualTimeProvider();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final class Replica {
+        private final HttpServer server;
+        private final String address;
+        private BackendPodInMemoryStore store;
+        private PodReplicator replicator;
+        private final List<BackendPodEvent> events = new ArrayList<>();
+
+        private Replica(int port) throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.setExecutor(executor);
+            address = "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        private void start(List<String> members, BackendPod... restored) {
+            store = BackendPodInMemoryStore.create();
+            store.addAll(List.of(restored));
+            for (var event : BackendPodEvent.values()) {
+                store.subscribe(event, (published, _) -> events.add(published));
+            }
+            // a long timeout, replicas only go silent when the clock is moved on
+            var config = new ReplicationConfig(true, address, members, 1_000, 5_000);
+            replicator = new PodReplicator(config, address, store, null, null, clock, executor);
+            server.createContext("/lbgossip", new GossipHandler(replicator));
+            server.start();
+        }
+
+        private void stop() {
+            server.stop(0);
+        }
+    }
+
+    private List<Replica> startReplicas(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            replicas.add(new Replica(0));
+        }
+        var members = replicas.stream().map(replica -> replica.address).toList();
+        replicas.forEach(replica -> replica.start(members));
+        return replicas;
+    }
+
+    private void gossip() {
+        replicas.forEach(replica -> replica.replicator.gossipRound());
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicas.forEach(Replica::stop);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void registrationsAndRemovalsReachEveryReplica() throws IOException {
+        var cluster = startReplicas(3);
+        cluster.get(0).store.add(new BackendPod(FIRST, BackendPodStatus.INITIALIZING));
+        cluster.get(1).store.add(new BackendPod(SECOND, BackendPodStatus.INITIALIZING));
+
+        gossip();
+
+        for (var replica : cluster) {
+            assertEquals(BackendPodStatus.INITIALIZING, replica.store.get(FIRST).status());
+            assertEquals(BackendPodStatus.INITIALIZING, replica.store.get(SECOND).status());
+        }
+
+        cluster.get(2).store.remove(FIRST);
+        gossip();
+
+        cluster.forEach(replica -> assertNull(replica.store.get(FIRST)));
+        cluster.forEach(replica -> assertNotNull(replica.store.get(SECOND)));
+    }
+
+    @Test
+    void healthVerdictsMakePodsReadyEverywhere() throws IOException {
+        var cluster = startReplicas(2);
+        cluster.get(0).store.add(new BackendPod(FIRST, BackendPodStatus.INITIALIZING));
+        gossip();
+        cluster.get(1).events.clear();
+
+        cluster.get(0).store.makePodReady(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+        gossip();
+
+        assertEquals(BackendPodStatus.ALIVE, cluster.get(1).store.get(FIRST).status());
+        assertEquals(List.of(BackendPodEvent.POD_READY), cluster.get(1).events, "balancers pick the pod up");
+
+        // a pod declared dead leaves every registry
+        cluster.get(1).store.update(new BackendPod(FIRST, BackendPodStatus.DEAD));
+        gossip();
+        assertNull(cluster.get(0).store.get(FIRST));
+    }
+
+    @Test
+    void gossipSettlesWithoutEchoes() throws IOException {
+        var cluster = startReplicas(3);
+        cluster.get(0).store.add(new BackendPod(FIRST, BackendPodStatus.INITIALIZING));
+        gossip();
+        gossip();
+        cluster.forEach(replica -> replica.events.clear());
+        long merged = cluster.stream().mapToLong(replica -> replica.replicator.merged()).sum();
+
+        gossip();
+
+        cluster.forEach(replica -> assertTrue(replica.events.isEmpty()));
+        assertEquals(merged, cluster.stream().mapToLong(replica -> replica.replicator.merged()).sum());
+    }
+
+    @Test
+    void concurrentChangesConvergeOnTheLatest() throws IOException {
+        var cluster = startReplicas(2);
+        cluster.get(0).store.add(new BackendPod(FIRST, BackendPodStatus.INITIALIZING));
+        gossip();
+
+        cluster.get(0).store.update(new BackendPod(FIRST, BackendPodStatus.UNRESPONSIVE));
+        cluster.get(1).store.makePodReady(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+        gossip();
+        gossip();
+
+        assertEquals(cluster.get(0).store.get(FIRST), cluster.get(1).store.get(FIRST));
+    }
+
+    @Test
+    void podsAreSplitBetweenReplicasAndTakenOverWhenOneGoesSilent() throws IOException {
+        var cluster = startReplicas(3);
+        var pods = new ArrayList<URI>();
+        for (int i = 0; i < 300; i++) {
+            pods.add(URI.create("http://worker-" + i + ":8080"));
+        }
+        // until they hear from each other, replicas check every pod
+        pods.forEach(pod -> assertTrue(cluster.getFirst().replicator.owns(pod)));
+
+        gossip();
+        for (var pod : pods) {
+            assertEquals(1, cluster.stream().filter(replica -> replica.replicator.owns(pod)).count(), pod.toString());
+        }
+        var ownedByLast = new HashSet<>(pods.stream().filter(cluster.getLast().replicator::owns).toList());
+        assertFalse(ownedByLast.isEmpty());
+
+        cluster.getLast().stop();
+        clock.advanceBy(TimeUnit.SECONDS.toNanos(6));
+        cluster.subList(0, 2).forEach(replica -> replica.replicator.gossipRound());
+
+        assertEquals(1, cluster.getFirst().replicator.alivePeers());
+        for (var pod : pods) {
+            assertEquals(1, cluster.subList(0, 2).stream().filter(replica -> replica.replicator.owns(pod)).count());
+        }
+    }
+
+    @Test
+    void replicasListedUnderAnotherAddressAgreeOnWhoChecksEachPod() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            replicas.add(new Replica(0));
+        }
+        // the peers list every replica, this one included, with a trailing slash it does not call itself by
+        var members = replicas.stream().map(replica -> replica.address + "/").toList();
+        replicas.forEach(replica -> replica.start(members));
+
+        gossip();
+
+        assertEquals(1, replicas.getFirst().replicator.alivePeers());
+        for (int i = 0; i < 100; i++) {
+            var pod = URI.create("http://worker-" + i + ":8080");
+            assertEquals(1, replicas.stream().filter(replica -> replica.replicator.owns(pod)).count(), pod.toString());
+        }
+    }
+
+    @Test
+    void removedPodsAreForgottenAfterTheGracePeriod() throws IOException {
+        var cluster = startReplicas(2);
+        cluster.get(0).store.add(new BackendPod(FIRST, BackendPodStatus.INITIALIZING));
+        cluster.get(0).store.add(new BackendPod(SECOND, BackendPodStatus.INITIALIZING));
+        gossip();
+        cluster.get(1).store.remove(FIRST);
+        gossip();
+        cluster.forEach(replica -> assertEquals(2, replica.replicator.known(), "the removal is kept while it spreads"));
+
+        // sixty peer timeouts
+        clock.advanceBy(TimeUnit.MINUTES.toNanos(5));
+        gossip();
+
+        cluster.forEach(replica -> assertEquals(1, replica.replicator.known()));
+        cluster.forEach(replica -> assertNull(replica.store.get(FIRST)));
+        cluster.forEach(replica -> assertNotNull(replica.store.get(SECOND)));
+    }
+
+    @Test
+    void restartedReplicaCatchesUpWithoutOverridingNewerChanges() throws IOException {
+        var cluster = startReplicas(2);
+        cluster.get(0).store.add(new BackendPod(FIRST, BackendPodStatus.INITIALIZING));
+        cluster.get(0).store.add(new BackendPod(SECOND, BackendPodStatus.INITIALIZING));
+        gossip();
+
+        // the second replica goes down, the registry changes meanwhile
+        var restarted = cluster.get(1);
+        restarted.stop();
+        cluster.get(0).store.remove(FIRST);
+
+        // it comes back on the same address, restored with its last view
+        var replacement = new Replica(URI.create(restarted.address).getPort());
+        replicas.set(1, replacement);
+        replacement.start(List.of(cluster.get(0).address, replacement.address),
+                new BackendPod(FIRST, BackendPodStatus.INITIALIZING), new BackendPod(SECOND, BackendPodStatus.INITIALIZING));
+        gossip();
+
+        assertNull(replacement.store.get(FIRST), "the removal made while it was down wins");
+        assertNull(cluster.get(0).store.get(FIRST));
+        assertNotNull(replacement.store.get(SECOND));
+    }
+}
@@ -0,0 +1,55 @@
+package repository.replication;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RendezvousShardsTest {
+
+    private static final List<String> REPLICAS = List.of("http://lb-1:8080", "http://lb-2:8080", "http://lb-3:8080");
+
+    private static URI pod(int i) {
+        return URI.create("http://worker-" + i + ":8080");
+    }
+
+    @Test
+    void podsAreSplitEvenlyWhateverTheOrderOfMembers() {
+        var shards = new RendezvousShards(REPLICAS);
+        var reversed = new RendezvousShards(REPLICAS.reversed());
+        var owned = new HashMap<String, Integer>();
+        for (int i = 0; i < 30_000; i++) {
+            var owner = shards.owner(pod(i));
+            assertEquals(owner, reversed.owner(pod(i)));
+            owned.merge(owner, 1, Integer::sum);
+        }
+
+        assertEquals(3, owned.size());
+        owned.values().forEach(count -> assertEquals(10_000, count, 500));
+    }
+
+    @Test
+    void onlyPodsOfALeavingMemberMove() {
+        var all = new RendezvousShards(REPLICAS);
+        var remaining = new RendezvousShards(REPLICAS.subList(0, 2));
+        Map<String, Integer> moved = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            var before = all.owner(pod(i));
+            var after = remaining.owner(pod(i));
+            if (!before.equals(after)) {
+                moved.merge(before, 1, Integer::sum);
+            }
+        }
+
+        assertEquals(Map.of("http://lb-3:8080", moved.get("http://lb-3:8080")), moved);
+    }
+
+    @Test
+    void noMembersOwnNothing() {
+        assertNull(new RendezvousShards(List.of()).owner(pod(1)));
+    }
+}
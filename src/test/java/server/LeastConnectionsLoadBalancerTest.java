@@ -0,0 +1,103 @@
+package server;
+
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+import server.load.PodLoadTracker;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeastConnectionsLoadBalancerTest {
+
+    private static final BackendPod POD_A = new BackendPod(URI.create("http://pod-a:8080"), BackendPodStatus.ALIVE);
+    private static final BackendPod POD_B = new BackendPod(URI.create("http://pod-b:8080"), BackendPodStatus.ALIVE);
+    private static final BackendPod POD_C = new BackendPod(URI.create("http://pod-c:8080"), BackendPodStatus.ALIVE);
+
+    private final PodLoadTracker loadTracker = new PodLoadTracker();
+
+    private LeastConnectionsLoadBalancer balancer(BackendPod... pods) {
+        var balancer = new LeastConnectionsLoadBalancer(BackendPodInMemoryStore.create(), loadTracker);
+        for (var pod : pods) {
+            balancer.register(pod);
+        }
+        return balancer;
+    }
+
+    private static Map<URI, Integer> pick(LoadDistributable<BackendPod> balancer, int times) {
+        Map<URI, Integer> picks = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            picks.merge(balancer.next().orElseThrow().uri(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    @Test
+    void picksThePodWithTheFewestActiveRequests() {
+        var balancer = balancer(POD_A, POD_B, POD_C);
+        loadTracker.acquire(POD_A);
+        loadTracker.acquire(POD_A);
+        loadTracker.acquire(POD_B);
+        loadTracker.acquire(POD_C);
+        loadTracker.acquire(POD_C);
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals(POD_B, balancer.next().orElseThrow());
+        }
+        loadTracker.release(POD_A);
+        loadTracker.release(POD_A);
+        assertEquals(POD_A, balancer.next().orElseThrow());
+    }
+
+    @Test
+    void equallyLoadedPodsShareTrafficEvenly() {
+        var balancer = balancer(POD_A, POD_B, POD_C);
+
+        var picks = pick(balancer, 300);
+
+        assertEquals(Map.of(POD_A.uri(), 100, POD_B.uri(), 100, POD_C.uri(), 100), picks);
+    }
+
+    @Test
+    void tiesAmongLoadedPodsRotateToo() {
+        var balancer = balancer(POD_A, POD_B, POD_C);
+        loadTracker.acquire(POD_A);
+        loadTracker.acquire(POD_B);
+        loadTracker.acquire(POD_C);
+
+        var picks = pick(balancer, 30);
+
+        assertEquals(Map.of(POD_A.uri(), 10, POD_B.uri(), 10, POD_C.uri(), 10), picks);
+    }
+
+    @Test
+    void weightsScaleTheLoadEachPodTakes() {
+        var weights = Map.of(POD_A.uri(), 2.0, POD_B.uri(), 1.0);
+        var balancer = new LeastConnectionsLoadBalancer(BackendPodInMemoryStore.create(), loadTracker,
+                weights::get, 0.1);
+        balancer.register(POD_A);
+        balancer.register(POD_B);
+
+        // requests never finish, so the picks settle where (load + 1) / weight is equal
+        for (int i = 0; i < 30; i++) {
+            loadTracker.acquire(balancer.next().orElseThrow());
+        }
+
+        assertEquals(20, loadTracker.load(POD_A.uri()), 1);
+        assertEquals(10, loadTracker.load(POD_B.uri()), 1);
+    }
+
+    @Test
+    void removedPodsAreNoLongerPicked() {
+        var balancer = balancer(POD_A, POD_B);
+        assertTrue(balancer().next().isEmpty());
+
+        balancer.remove(new BackendPod(POD_A.uri(), BackendPodStatus.DEAD));
+
+        assertEquals(Map.of(POD_B.uri(), 5), pick(balancer, 5));
+    }
+}
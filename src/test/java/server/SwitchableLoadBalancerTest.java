@@ -0,0 +1,90 @@
+package server;
+
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+import server.load.PodLoadTracker;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SwitchableLoadBalancerTest {
+
+    private static final BackendPod FIRST = new BackendPod(URI.create("http://worker-1:8080"), BackendPodStatus.ALIVE);
+    private static final BackendPod SECOND = new BackendPod(URI.create("http://worker-2:8080"), BackendPodStatus.ALIVE);
+    private static final BackendPod THIRD = new BackendPod(URI.create("http://worker-3:8080"), BackendPodStatus.ALIVE);
+
+    private BackendPodInMemoryStore store;
+    private final List<LoadDistributable<BackendPod>> created = new ArrayList<>();
+    private SwitchableLoadBalancer balancer;
+
+    @BeforeEach
+    void setUp() {
+        BackendPodInMemoryStore.resetInstance();
+        store = BackendPodInMemoryStore.getStore();
+        var loadTracker = new PodLoadTracker();
+        balancer = new SwitchableLoadBalancer(store, LoadBalancingStrategy.ROUND_ROBIN, strategy -> {
+            LoadDistributable<BackendPod> next = switch (strategy) {
+                case ROUND_ROBIN -> new RoundRobinLoadBalancer(store);
+                case LEAST_CONNECTIONS -> new LeastConnectionsLoadBalancer(store, loadTracker);
+                case WEIGHTED -> new WeightedLoadBalancer(store, _ -> 1.0, 0.05);
+            };
+            created.add(next);
+            return next;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        BackendPodInMemoryStore.resetInstance();
+    }
+
+    private static Set<URI> pick(LoadDistributable<BackendPod> balancer, int times) {
+        var picked = new HashSet<URI>();
+        for (int i = 0; i < times; i++) {
+            balancer.next().ifPresent(pod -> picked.add(pod.uri()));
+        }
+        return picked;
+    }
+
+    @Test
+    void newStrategyStartsWithTheReadyPods() {
+        store.makePodReady(FIRST);
+        store.makePodReady(SECOND);
+        store.add(new BackendPod(THIRD.uri(), BackendPodStatus.INITIALIZING));
+
+        balancer.switchTo(LoadBalancingStrategy.LEAST_CONNECTIONS);
+
+        assertEquals(LoadBalancingStrategy.LEAST_CONNECTIONS, balancer.strategy());
+        assertInstanceOf(LeastConnectionsLoadBalancer.class, created.getLast());
+        assertEquals(Set.of(FIRST.uri(), SECOND.uri()), pick(balancer, 20));
+    }
+
+    @Test
+    void previousStrategyStopsFollowingTheStore() {
+        store.makePodReady(FIRST);
+        balancer.switchTo(LoadBalancingStrategy.WEIGHTED);
+        var previous = created.getFirst();
+
+        store.makePodReady(SECOND);
+        store.remove(FIRST.uri());
+
+        assertEquals(Set.of(SECOND.uri()), pick(balancer, 20));
+        assertEquals(Set.of(FIRST.uri()), pick(previous, 20));
+    }
+
+    @Test
+    void switchingToTheSameStrategyKeepsTheBalancer() {
+        balancer.switchTo(LoadBalancingStrategy.ROUND_ROBIN);
+
+        assertEquals(1, created.size());
+    }
+}
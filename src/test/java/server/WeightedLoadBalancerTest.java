@@ -0,0 +1,84 @@
+package server;
+
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+import server.load.PodLoadTracker;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedLoadBalancerTest {
+
+    private static final BackendPod FAST = new BackendPod(URI.create("http://fast-pod:8080"), BackendPodStatus.ALIVE);
+    private static final BackendPod SLOW = new BackendPod(URI.create("http://slow-pod:8080"), BackendPodStatus.ALIVE);
+    private static final BackendPod NEW = new BackendPod(URI.create("http://new-pod:8080"), BackendPodStatus.ALIVE);
+
+    private final Map<URI, Double> weights = new HashMap<>();
+
+    private double weight(URI podUri) {
+        return weights.getOrDefault(podUri, Double.NaN);
+    }
+
+    private static Map<URI, Integer> pick(LoadDistributable<BackendPod> balancer, int times) {
+        Map<URI, Integer> picks = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            picks.merge(balancer.next().orElseThrow().uri(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    @Test
+    void picksPodsInProportionToTheirWeight() {
+        weights.put(FAST.uri(), 3.0);
+        weights.put(SLOW.uri(), 1.0);
+        var balancer = new WeightedLoadBalancer(BackendPodInMemoryStore.getStore(), this::weight, 0.05);
+        assertTrue(balancer.next().isEmpty());
+        balancer.register(FAST);
+        balancer.register(SLOW);
+
+        var picks = pick(balancer, 20_000);
+
+        double fastShare = picks.get(FAST.uri()) / 20_000.0;
+        assertEquals(0.75, fastShare, 0.02);
+    }
+
+    @Test
+    void unknownPodsGetTheMeanWeightAndSlowPodsKeepTheFloor() {
+        weights.put(FAST.uri(), 1000.0);
+        weights.put(SLOW.uri(), 1.0);
+        var balancer = new WeightedLoadBalancer(BackendPodInMemoryStore.getStore(), this::weight, 0.1);
+        balancer.register(FAST);
+        balancer.register(SLOW);
+        balancer.register(NEW);
+
+        var picks = pick(balancer, 20_000);
+
+        // weights relative to the fast pod: 1, 0.1 (floored from 0.001) and about 0.5 for the new pod
+        assertEquals(1 / 1.6, picks.get(FAST.uri()) / 20_000.0, 0.02);
+        assertEquals(0.1 / 1.6, picks.get(SLOW.uri()) / 20_000.0, 0.02);
+        assertEquals(0.5 / 1.6, picks.get(NEW.uri()) / 20_000.0, 0.02);
+    }
+
+    @Test
+    void leastConnectionsDividesLoadByWeight() {
+        weights.put(FAST.uri(), 2.0);
+        weights.put(SLOW.uri(), 1.0);
+        var loadTracker = new PodLoadTracker();
+        var balancer = new LeastConnectionsLoadBalancer(BackendPodInMemoryStore.getStore(), loadTracker, this::weight, 0.05);
+        balancer.register(FAST);
+        balancer.register(SLOW);
+
+        // with requests never finishing, the pod of twice the weight takes twice the load
+        for (int i = 0; i < 30; i++) {
+            loadTracker.acquire(balancer.next().orElseThrow());
+        }
+
+        assertEquals(20, loadTracker.load(FAST.uri()));
+        assertEquals(10, loadTracker.load(SLOW.uri()));
+    }
+}
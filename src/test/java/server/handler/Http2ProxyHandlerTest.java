@@ -0,0 +1,46 @@
+package server.handler;
+
+import org.junit.jupiter.api.Test;
+import server.handler.utils.ResponseCompression;
+
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Http2ProxyHandlerTest {
+
+    private static HttpHeaders headers(Map<String, List<String>> map) {
+        return HttpHeaders.of(map, (_, _) -> true);
+    }
+
+    @Test
+    void compressedResponsesKeepWhatTheBackendVariesOn() {
+        var upstream = headers(Map.of(
+                "Vary", List.of("Origin"),
+                "content-length", List.of("512"),
+                "content-type", List.of("text/html")));
+
+        var forwarded = Http2ProxyHandler.responseHeaders(upstream, ResponseCompression.Coding.GZIP);
+
+        assertEquals(List.of("Origin", "Accept-Encoding"), forwarded.get("vary"));
+        assertFalse(forwarded.containsKey("Vary"));
+        assertEquals(List.of("gzip"), forwarded.get("content-encoding"));
+        assertFalse(forwarded.containsKey("content-length"));
+        assertEquals(List.of("text/html"), forwarded.get("content-type"));
+    }
+
+    @Test
+    void uncompressedResponsesAreForwardedAsTheBackendSentThem() {
+        var upstream = headers(Map.of(
+                ":status", List.of("200"),
+                "vary", List.of("Origin"),
+                "content-length", List.of("512"),
+                "connection", List.of("keep-alive")));
+
+        var forwarded = Http2ProxyHandler.responseHeaders(upstream, ResponseCompression.Coding.IDENTITY);
+
+        assertEquals(Map.of("vary", List.of("Origin"), "content-length", List.of("512")), forwarded);
+    }
+}
@@ -0,0 +1,52 @@
+package server.handler;
+
+import com.google.gson.stream.MalformedJsonException;
+import dto.PodRegisterRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadBalancerBatchRegisterHandlerTest {
+
+    private static List<PodRegisterRequest> read(String json) throws IOException {
+        return LoadBalancerBatchRegisterHandler.readBatch(new StringReader(json));
+    }
+
+    @Test
+    void readsEveryEntryOfTheArray() throws IOException {
+        var batch = read("""
+                [{"uri": "http://worker-1:8080"},
+                 {"uri": "http://worker-2:8080", "ttlMs": 10000, "zone": {"name": "a"}},
+                 {"ttlMs": null, "uri": "http://worker-3:8080"}]
+                """);
+
+        assertEquals(List.of(
+                new PodRegisterRequest("http://worker-1:8080", null),
+                new PodRegisterRequest("http://worker-2:8080", 10_000L),
+                new PodRegisterRequest("http://worker-3:8080", null)), batch);
+    }
+
+    @Test
+    void rejectsInvalidEntries() {
+        assertThrows(IllegalArgumentException.class, () -> read("[{\"ttlMs\": 1000}]"));
+        assertThrows(IllegalArgumentException.class, () -> read("[{\"uri\": \"http://worker 1\"}]"));
+        assertThrows(IllegalArgumentException.class, () -> read("[{\"uri\": \"http://worker-1\", \"ttlMs\": \"soon\"}]"));
+        assertThrows(IllegalStateException.class, () -> read("{\"uri\": \"http://worker-1\"}"));
+        assertThrows(MalformedJsonException.class, () -> read("[] []"));
+    }
+
+    @Test
+    void rejectsBatchesAboveTheLimit() {
+        var json = new StringBuilder("[");
+        for (int i = 0; i <= LoadBalancerBatchRegisterHandler.MAX_BATCH_SIZE; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"uri\": \"http://worker-").append(i).append("\"}");
+        }
+        json.append(']');
+
+        assertThrows(LoadBalancerBatchRegisterHandler.BatchTooLargeException.class, () -> read(json.toString()));
+    }
+}
@@ -0,0 +1,38 @@
+package server.handler.utils;
+
+import org.junit.jupiter.api.Test;
+import server.handler.utils.ResponseCompression.Coding;
+
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LBHttpResponseTest {
+
+    private static HttpHeaders contentLength(String length) {
+        return HttpHeaders.of(length == null ? Map.of() : Map.of("Content-Length", List.of(length)), (_, _) -> true);
+    }
+
+    @Test
+    void emptyBodyIsSentWithoutOne() {
+        assertEquals(-1, LBHttpResponse.responseLength(Coding.IDENTITY, contentLength("0")));
+    }
+
+    @Test
+    void bodyOfUnknownLengthIsChunked() {
+        assertEquals(0, LBHttpResponse.responseLength(Coding.IDENTITY, contentLength(null)));
+    }
+
+    @Test
+    void knownLengthIsKept() {
+        assertEquals(2048, LBHttpResponse.responseLength(Coding.IDENTITY, contentLength("2048")));
+    }
+
+    @Test
+    void compressedBodyIsChunked() {
+        assertEquals(0, LBHttpResponse.responseLength(Coding.GZIP, contentLength("2048")));
+        assertEquals(0, LBHttpResponse.responseLength(Coding.DEFLATE, contentLength(null)));
+    }
+}
@@ -0,0 +1,24 @@
+package server.handler.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyTargetsTest {
+
+    @Test
+    void appendsTheTargetToThePodUri() {
+        assertEquals(URI.create("http://pod:8080/health"), ProxyTargets.target(URI.create("http://pod:8080"), "/health"));
+        assertEquals(URI.create("http://pod:8080/health"), ProxyTargets.target(URI.create("http://pod:8080/"), "/health"));
+    }
+
+    @Test
+    void keepsThePodBasePathAndTheQuery() {
+        assertEquals(URI.create("http://pod:8080/api/items?page=2"),
+                ProxyTargets.target(URI.create("http://pod:8080/api"), "/items?page=2"));
+        assertEquals(URI.create("http://pod:8080/api/health"),
+                ProxyTargets.target(URI.create("http://pod:8080/api/"), "health"));
+    }
+}
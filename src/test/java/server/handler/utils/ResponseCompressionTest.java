@@ -0,0 +1,94 @@
+package server.handler.utils;
+
+import config.CompressionConfig;
+import org.junit.jupiter.api.Test;
+import server.handler.utils.ResponseCompression.Coding;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCompressionTest {
+
+    private final ResponseCompression compression = new ResponseCompression(CompressionConfig.defaults());
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        var map = new HashMap<String, List<String>>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            map.put(namesAndValues[i], List.of(namesAndValues[i + 1]));
+        }
+        return HttpHeaders.of(Map.copyOf(map), (_, _) -> true);
+    }
+
+    private static final HttpHeaders JSON = headers("Content-Type", "application/json; charset=utf-8", "Content-Length", "4096");
+
+    @Test
+    void picksTheCodingWithTheHighestQValue() {
+        assertEquals(Coding.GZIP, compression.preferredCoding("gzip, deflate"));
+        assertEquals(Coding.GZIP, compression.preferredCoding("deflate;q=0.5, x-gzip;q=0.5"));
+        assertEquals(Coding.DEFLATE, compression.preferredCoding("gzip;q=0.2, deflate;q=0.8"));
+        assertEquals(Coding.DEFLATE, compression.preferredCoding("gzip;q=0, deflate"));
+        assertEquals(Coding.IDENTITY, compression.preferredCoding("br, identity"));
+        assertEquals(Coding.IDENTITY, compression.preferredCoding("gzip;q=zero"));
+    }
+
+    @Test
+    void wildcardCoversCodingsNotNamed() {
+        assertEquals(Coding.GZIP, compression.preferredCoding("*"));
+        assertEquals(Coding.DEFLATE, compression.preferredCoding("gzip;q=0, *"));
+        assertEquals(Coding.GZIP, compression.preferredCoding("gzip, *;q=0"));
+        assertEquals(Coding.IDENTITY, compression.preferredCoding("*;q=0"));
+    }
+
+    @Test
+    void refusingIdentityStillCompresses() {
+        assertEquals(Coding.GZIP, compression.preferredCoding("gzip, identity;q=0"));
+        assertEquals(Coding.GZIP, compression.negotiate("GET", "identity;q=0, *", 200, JSON));
+    }
+
+    @Test
+    void onlyAllowedContentTypesAreCompressed() {
+        assertTrue(compression.isCompressibleType("text/html; charset=utf-8"));
+        assertTrue(compression.isCompressibleType("Application/JSON"));
+        assertFalse(compression.isCompressibleType("image/png"));
+        assertFalse(compression.isCompressibleType("application/octet-stream"));
+        assertFalse(compression.isCompressibleType(null));
+
+        assertEquals(Coding.IDENTITY, compression.negotiate("GET", "gzip", 200,
+                headers("Content-Type", "image/png", "Content-Length", "4096")));
+    }
+
+    @Test
+    void responsesThatCannotBenefitPassThrough() {
+        assertEquals(Coding.GZIP, compression.negotiate("GET", "gzip", 200, JSON));
+        assertEquals(Coding.IDENTITY, compression.negotiate("GET", null, 200, JSON));
+        assertEquals(Coding.IDENTITY, compression.negotiate("HEAD", "gzip", 200, JSON));
+        assertEquals(Coding.IDENTITY, compression.negotiate("GET", "gzip", 304, JSON));
+        assertEquals(Coding.IDENTITY, compression.negotiate("GET", "gzip", 200,
+                headers("Content-Type", "application/json", "Content-Length", "100")));
+        assertEquals(Coding.IDENTITY, compression.negotiate("GET", "gzip", 200,
+                headers("Content-Type", "application/json", "Content-Encoding", "br")));
+    }
+
+    @Test
+    void gzipStreamRoundTrips() throws IOException {
+        var body = "{\"pods\": []}".repeat(100);
+        var out = new ByteArrayOutputStream();
+        try (var encoded = compression.wrap(out, Coding.GZIP)) {
+            encoded.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (var decoded = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(body, new String(decoded.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(out.size() < body.length());
+    }
+}
@@ -0,0 +1,156 @@
+package server.load;
+
+import config.DrainConfig;
+import health.scheduler.TimerDrive;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodInMemoryStore;
+import server.LeastConnectionsLoadBalancer;
+import utils.time.VirtualTimeProvider;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PodDrainerTest {
+
+    private static final URI LEAVING = URI.create("http://worker-1:8080");
+    private static final URI STAYING = URI.create("http://worker-2:8080");
+
+    private VirtualTimeProvider clock;
+    private BackendPodInMemoryStore store;
+    private PodLoadTracker loadTracker;
+    private LeastConnectionsLoadBalancer balancer;
+    private PodDrainer drainer;
+    private final List<URI> removed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualTimeProvider();
+        BackendPodInMemoryStore.resetInstance();
+        store = BackendPodInMemoryStore.getStore();
+        store.subscribe(BackendPodEvent.REMOVE_POD, (_, context) -> context.affectedPods().forEach(pod -> removed.add(pod.uri())));
+        loadTracker = new PodLoadTracker();
+        balancer = new LeastConnectionsLoadBalancer(store, loadTracker);
+        // pods get 5s to finish their work, checked every 100ms
+        drainer = new PodDrainer(store, balancer, loadTracker, new DrainConfig(5_000, 100), clock, Runnable::run,
+                TimerDrive.following(clock));
+        store.makePodReady(new BackendPod(LEAVING, BackendPodStatus.ALIVE));
+        store.makePodReady(new BackendPod(STAYING, BackendPodStatus.ALIVE));
+    }
+
+    @AfterEach
+    void tearDown() {
+        drainer.stop();
+        BackendPodInMemoryStore.resetInstance();
+    }
+
+    private void advance(long millis) {
+        for (long step = 0; step < millis; step += 100) {
+            clock.advanceBy(TimeUnit.MILLISECONDS.toNanos(Math.min(100, millis - step)));
+        }
+    }
+
+    @Test
+    void drainingPodGetsNoNewWorkAndLeavesOnceIdle() {
+        var inFlight = new BackendPod(LEAVING, BackendPodStatus.ALIVE);
+        loadTracker.acquire(inFlight);
+
+        assertTrue(drainer.drain(LEAVING));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(STAYING, balancer.next().orElseThrow().uri());
+        }
+        assertEquals(BackendPodStatus.DRAINING, store.get(LEAVING).status());
+
+        advance(1_000);
+        assertNotNull(store.get(LEAVING), "kept while its request is in flight");
+        loadTracker.release(inFlight);
+        advance(200);
+
+        assertNull(store.get(LEAVING));
+        assertEquals(List.of(LEAVING), removed);
+        assertEquals(1, drainer.drained());
+        assertEquals(0, drainer.cutOff());
+    }
+
+    @Test
+    void podIsRemovedAtTheDeadlineWithWorkStillOpen() {
+        loadTracker.acquire(new BackendPod(LEAVING, BackendPodStatus.ALIVE));
+        drainer.drain(LEAVING);
+
+        advance(4_800);
+        assertNotNull(store.get(LEAVING));
+        advance(400);
+
+        assertNull(store.get(LEAVING));
+        assertEquals(1, drainer.cutOff());
+    }
+
+    @Test
+    void drainingAgainKeepsTheFirstDeadline() {
+        loadTracker.acquire(new BackendPod(LEAVING, BackendPodStatus.ALIVE));
+        drainer.drain(LEAVING);
+        advance(3_000);
+
+        assertTrue(drainer.drain(LEAVING));
+        advance(2_200);
+
+        assertNull(store.get(LEAVING));
+    }
+
+    @Test
+    void podRegisteringAgainWhileDrainingStays() {
+        loadTracker.acquire(new BackendPod(LEAVING, BackendPodStatus.ALIVE));
+        drainer.drain(LEAVING);
+        store.add(new BackendPod(LEAVING, BackendPodStatus.INITIALIZING));
+
+        advance(6_000);
+
+        assertNotNull(store.get(LEAVING));
+        assertFalse(drainer.isDraining(LEAVING));
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    void podRegisteredAgainAndReadyBeforeTheCheckStays() {
+        loadTracker.acquire(new BackendPod(LEAVING, BackendPodStatus.ALIVE));
+        drainer.drain(LEAVING);
+        store.add(new BackendPod(LEAVING, BackendPodStatus.INITIALIZING));
+        store.makePodReady(new BackendPod(LEAVING, BackendPodStatus.ALIVE));
+
+        advance(6_000);
+
+        assertEquals(BackendPodStatus.ALIVE, store.get(LEAVING).status());
+        assertFalse(drainer.isDraining(LEAVING));
+        assertTrue(removed.isEmpty());
+        assertEquals(0, drainer.drained());
+    }
+
+    @Test
+    void healthCheckThatReadThePodBeforeTheDrainCannotEndIt() {
+        drainer.drain(LEAVING);
+
+        // what a check that read the pod as ALIVE publishes once it is done
+        assertFalse(store.updateIf(BackendPodStatus.ALIVE, new BackendPod(LEAVING, BackendPodStatus.UNRESPONSIVE)));
+        assertEquals(BackendPodStatus.DRAINING, store.get(LEAVING).status());
+        advance(200);
+
+        assertNull(store.get(LEAVING));
+        assertEquals(1, drainer.drained());
+        assertFalse(store.makePodReadyIf(BackendPodStatus.INITIALIZING, new BackendPod(LEAVING, BackendPodStatus.ALIVE)));
+        assertNull(store.get(LEAVING), "nor bring the drained pod back");
+    }
+
+    @Test
+    void unknownPodCannotBeDrained() {
+        assertFalse(drainer.drain(URI.create("http://worker-3:8080")));
+        assertEquals(0, drainer.draining());
+    }
+}
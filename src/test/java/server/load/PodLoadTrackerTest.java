@@ -0,0 +1,63 @@
+package server.load;
+
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PodLoadTrackerTest {
+
+    private static final BackendPod POD = new BackendPod(URI.create("http://pod-1:8080"), BackendPodStatus.ALIVE);
+    private static final BackendPod OTHER = new BackendPod(URI.create("http://pod-2:8080"), BackendPodStatus.ALIVE);
+
+    @Test
+    void countsAcquiredWorkPerPod() {
+        var tracker = new PodLoadTracker();
+
+        tracker.acquire(POD);
+        tracker.acquire(POD);
+        tracker.acquire(OTHER);
+        tracker.release(POD);
+
+        assertEquals(1, tracker.load(POD.uri()));
+        assertEquals(1, tracker.load(OTHER.uri()));
+    }
+
+    @Test
+    void releasingIdlePodsNeverGoesNegative() {
+        var tracker = new PodLoadTracker();
+
+        tracker.release(POD);
+        tracker.acquire(POD);
+        tracker.release(POD);
+        tracker.release(POD);
+
+        assertEquals(0, tracker.load(POD.uri()));
+        tracker.acquire(POD);
+        assertEquals(1, tracker.load(POD.uri()));
+    }
+
+    @Test
+    void concurrentAcquireAndReleaseBalanceOut() throws InterruptedException {
+        var tracker = new PodLoadTracker();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    tracker.acquire(POD);
+                    tracker.release(POD);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(0, tracker.load(POD.uri()));
+    }
+}
@@ -0,0 +1,67 @@
+package server.serverType.h2c;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HpackTest {
+
+    private static byte[] hex(String value) {
+        return HexFormat.of().parseHex(value.replace(" ", ""));
+    }
+
+    @Test
+    void decodesHuffmanRequestsAndReusesDynamicTable() throws Exception {
+        // RFC 7541 appendix C.4.1 and C.4.2
+        var decoder = new Hpack.Decoder(4096);
+        byte[] first = hex("8286 8441 8cf1 e3c2 e5f2 3a6b a0ab 90f4 ff");
+        byte[] second = hex("8286 84be 5886 a8eb 1064 9cbf");
+
+        var firstHeaders = decoder.decode(first, first.length);
+        var secondHeaders = decoder.decode(second, second.length);
+
+        assertEquals(List.of(
+                new Hpack.Header(":method", "GET"),
+                new Hpack.Header(":scheme", "http"),
+                new Hpack.Header(":path", "/"),
+                new Hpack.Header(":authority", "www.example.com")), firstHeaders);
+        assertEquals(new Hpack.Header(":authority", "www.example.com"), secondHeaders.get(3));
+        assertEquals(new Hpack.Header("cache-control", "no-cache"), secondHeaders.get(4));
+    }
+
+    @Test
+    void encodedHeadersRoundTrip() throws Exception {
+        var headers = List.of(
+                new Hpack.Header(":status", "200"),
+                new Hpack.Header("content-type", "application/grpc"),
+                new Hpack.Header("x-custom-header", "a".repeat(300)));
+
+        byte[] block = Hpack.encode(headers);
+
+        assertEquals(headers, new Hpack.Decoder(4096).decode(block, block.length));
+    }
+
+    @Test
+    void rejectsIndexOutsideTables() {
+        byte[] block = hex("ff00");
+
+        var exception = assertThrows(Http2ProtocolException.class,
+                () -> new Hpack.Decoder(4096).decode(block, block.length));
+        assertEquals(Http2ProtocolException.COMPRESSION_ERROR, exception.errorCode());
+    }
+
+    @Test
+    void rejectsHeaderListsOverTheLimitEvenFromSmallBlocks() {
+        // 200 one-byte references to ":method: GET", 42 bytes each once decoded
+        byte[] block = new byte[200];
+        Arrays.fill(block, (byte) 0x82);
+
+        var exception = assertThrows(Http2ProtocolException.class,
+                () -> new Hpack.Decoder(4096, 4096).decode(block, block.length));
+        assertEquals(Http2ProtocolException.ENHANCE_YOUR_CALM, exception.errorCode());
+    }
+}
@@ -0,0 +1,273 @@
+package server.serverType.h2c;
+
+import config.Http2Config;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Http2ConnectionTest {
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+    private static final int END_STREAM = 0x1;
+    private static final int ACK = 0x1;
+    private static final int END_HEADERS = 0x4;
+
+    private record Frame(int type, int flags, int streamId, byte[] payload) {
+        int intAt(int offset) {
+            return ByteBuffer.wrap(payload, offset, 4).getInt();
+        }
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private ServerSocket listener;
+    private Socket client;
+    private DataInputStream in;
+    private OutputStream out;
+
+    private void connect(Http2StreamHandler handler) throws IOException {
+        listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        client = new Socket(InetAddress.getLoopbackAddress(), listener.getLocalPort());
+        client.setSoTimeout(5_000);
+        var accepted = listener.accept();
+        executor.execute(new Http2Connection(accepted, new Http2Config(0, 10, 65535, 16384, 4096), handler, executor));
+        in = new DataInputStream(client.getInputStream());
+        out = client.getOutputStream();
+        out.write(PREFACE);
+        writeFrame(SETTINGS, 0, 0, new byte[0]);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        if (listener != null) {
+            listener.close();
+        }
+        executor.shutdownNow();
+    }
+
+    private void writeFrame(int type, int flags, int streamId, byte[] payload) throws IOException {
+        var frame = ByteBuffer.allocate(9 + payload.length);
+        frame.put((byte) (payload.length >>> 16)).put((byte) (payload.length >>> 8)).put((byte) payload.length);
+        frame.put((byte) type).put((byte) flags).putInt(streamId).put(payload);
+        out.write(frame.array());
+        out.flush();
+    }
+
+    private void writeRequest(int streamId, boolean endStream) throws IOException {
+        byte[] block = Hpack.encode(List.of(
+                new Hpack.Header(":method", endStream ? "GET" : "POST"),
+                new Hpack.Header(":scheme", "http"),
+                new Hpack.Header(":path", "/stream/" + streamId),
+                new Hpack.Header(":authority", "localhost")));
+        writeFrame(HEADERS, END_HEADERS | (endStream ? END_STREAM : 0), streamId, block);
+    }
+
+    private static byte[] intPayload(int... values) {
+        var payload = ByteBuffer.allocate(values.length * 4);
+        for (int value : values) {
+            payload.putInt(value);
+        }
+        return payload.array();
+    }
+
+    private Frame readFrame() throws IOException {
+        int length = (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+        int type = in.readUnsignedByte();
+        int flags = in.readUnsignedByte();
+        int streamId = in.readInt() & 0x7fffffff;
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return new Frame(type, flags, streamId, payload);
+    }
+
+    /**
+     * @return the next frame of the given type, skipping the others
+     */
+    private Frame readFrame(int type) throws IOException {
+        while (true) {
+            var frame = readFrame();
+            if (frame.type() == type) {
+                return frame;
+            }
+        }
+    }
+
+    private static void respond(Http2Stream stream, String body) throws IOException {
+        stream.sendHeaders(200, Map.of(), false);
+        try (var responseBody = stream.responseBody()) {
+            responseBody.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void settingsAreAcknowledgedAndWindowUpdatesReleaseHeldBackData() throws Exception {
+        connect(stream -> respond(stream, "0123456789abcdefghij"));
+        // only 8 bytes of credit per stream
+        writeFrame(SETTINGS, 0, 0, new byte[] {0, 0x4, 0, 0, 0, 8});
+        var ack = readFrame(SETTINGS);
+        while ((ack.flags() & ACK) == 0) {
+            ack = readFrame(SETTINGS);
+        }
+        assertEquals(0, ack.payload().length);
+
+        writeRequest(1, true);
+        assertEquals(1, readFrame(HEADERS).streamId());
+        var first = readFrame(DATA);
+        assertEquals("01234567", new String(first.payload(), StandardCharsets.UTF_8));
+
+        writeFrame(WINDOW_UPDATE, 0, 1, intPayload(100));
+        var body = new StringBuilder();
+        Frame frame;
+        do {
+            frame = readFrame(DATA);
+            body.append(new String(frame.payload(), StandardCharsets.UTF_8));
+        } while ((frame.flags() & END_STREAM) == 0);
+        assertEquals("89abcdefghij", body.toString());
+    }
+
+    @Test
+    void goAwayRefusesNewStreamsButFinishesOpenOnes() throws Exception {
+        var release = new CountDownLatch(1);
+        connect(stream -> {
+            release.await();
+            respond(stream, "done");
+        });
+        writeRequest(1, true);
+        writeFrame(GOAWAY, 0, 0, intPayload(0, 0));
+        writeRequest(3, true);
+
+        var refused = readFrame(RST_STREAM);
+        assertEquals(3, refused.streamId());
+        assertEquals(Http2ProtocolException.REFUSED_STREAM, refused.intAt(0));
+
+        release.countDown();
+        assertEquals(1, readFrame(HEADERS).streamId());
+        var data = readFrame(DATA);
+        assertEquals("done", new String(data.payload(), StandardCharsets.UTF_8));
+        assertEquals(END_STREAM, data.flags() & END_STREAM);
+
+        var goAway = readFrame(GOAWAY);
+        assertEquals(3, goAway.intAt(0));
+        assertEquals(Http2ProtocolException.NO_ERROR, goAway.intAt(4));
+        assertThrows(EOFException.class, this::readFrame);
+    }
+
+    @Test
+    void resetStreamAbortsItsHandlerAndKeepsTheConnection() throws Exception {
+        var reading = new CountDownLatch(1);
+        var aborted = new CompletableFuture<Exception>();
+        connect(stream -> {
+            if (!stream.hasRequestBody()) {
+                respond(stream, "still here");
+                return;
+            }
+            reading.countDown();
+            try {
+                stream.requestBody().read();
+                aborted.complete(null);
+            } catch (IOException e) {
+                aborted.complete(e);
+            }
+        });
+        writeRequest(1, false);
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        writeFrame(RST_STREAM, 0, 1, intPayload(Http2ProtocolException.CANCEL));
+
+        assertInstanceOf(IOException.class, aborted.get(5, TimeUnit.SECONDS));
+        writeRequest(3, true);
+        var headers = readFrame(HEADERS);
+        assertEquals(3, headers.streamId());
+        assertEquals("still here", new String(readFrame(DATA).payload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void endlessContinuationFramesEndTheConnection() throws Exception {
+        connect(stream -> respond(stream, "unreachable"));
+        var settings = readFrame(SETTINGS);
+        var advertised = ByteBuffer.wrap(settings.payload());
+        int maxHeaderListSize = -1;
+        while (advertised.hasRemaining()) {
+            int identifier = advertised.getShort();
+            int value = advertised.getInt();
+            if (identifier == 0x6) {
+                maxHeaderListSize = value;
+            }
+        }
+        assertEquals(4096, maxHeaderListSize);
+
+        // never ends the header block; the fifth kilobyte goes over the limit
+        writeFrame(HEADERS, 0, 1, new byte[1_000]);
+        for (int i = 0; i < 4; i++) {
+            writeFrame(CONTINUATION, 0, 1, new byte[1_000]);
+        }
+
+        var goAway = readFrame(GOAWAY);
+        assertEquals(Http2ProtocolException.ENHANCE_YOUR_CALM, goAway.intAt(4));
+        assertThrows(EOFException.class, this::readFrame);
+    }
+
+    @Test
+    void headersOnAFinishedStreamOnlyResetThatStream() throws Exception {
+        connect(stream -> respond(stream, "ok"));
+        writeRequest(1, true);
+        assertEquals(END_STREAM, readFrame(DATA).flags() & END_STREAM);
+        writeRequest(3, true);
+        assertEquals(END_STREAM, readFrame(DATA).flags() & END_STREAM);
+
+        // late trailers for the first stream, long finished
+        writeFrame(HEADERS, END_HEADERS | END_STREAM, 1, Hpack.encode(List.of(new Hpack.Header("grpc-status", "0"))));
+
+        var reset = readFrame(RST_STREAM);
+        assertEquals(1, reset.streamId());
+        assertEquals(Http2ProtocolException.STREAM_CLOSED, reset.intAt(0));
+        writeRequest(5, true);
+        assertEquals(5, readFrame(HEADERS).streamId());
+    }
+
+    @Test
+    void streamWindowOverflowResetsOnlyThatStream() throws Exception {
+        var release = new CountDownLatch(1);
+        connect(stream -> {
+            if (stream.path().endsWith("/1")) {
+                release.await();
+            }
+            respond(stream, "ok");
+        });
+        writeRequest(1, true);
+        // on top of the initial 65535 bytes, more than 2^31-1 in total
+        writeFrame(WINDOW_UPDATE, 0, 1, intPayload(Integer.MAX_VALUE));
+
+        var reset = readFrame(RST_STREAM);
+        assertEquals(1, reset.streamId());
+        assertEquals(Http2ProtocolException.FLOW_CONTROL_ERROR, reset.intAt(0));
+        writeRequest(3, true);
+        assertEquals(3, readFrame(HEADERS).streamId());
+        release.countDown();
+    }
+}
@@ -0,0 +1,93 @@
+package server.serverType.tunnel;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpHeadTest {
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static HttpHead parse(String content) throws IOException {
+        return HttpHead.read(stream(content), 8192);
+    }
+
+    @Test
+    void readsTheHeadAndLeavesTheBodyInTheStream() throws IOException {
+        var in = stream("GET /chat?room=1 HTTP/1.1\r\nHost: lb:8080\r\nUpgrade: websocket\r\n"
+                + "Connection: keep-alive, Upgrade\r\n\r\nframe-bytes");
+
+        var head = HttpHead.read(in, 8192);
+
+        assertEquals("GET", head.method());
+        assertEquals("/chat?room=1", head.target());
+        assertEquals("lb:8080", head.header("host"));
+        assertTrue(head.hasToken("Connection", "upgrade"));
+        assertTrue(head.isUpgradeRequest());
+        assertEquals("frame-bytes", new String(in.readAllBytes(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void parsesResponseStatus() throws IOException {
+        assertEquals(101, parse("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\n\r\n").statusCode());
+        assertEquals(-1, parse("HTTP/1.1 abc\r\n\r\n").statusCode());
+    }
+
+    @Test
+    void requiresBothUpgradeAndConnectionToken() throws IOException {
+        assertFalse(parse("GET / HTTP/1.1\r\nUpgrade: websocket\r\n\r\n").isUpgradeRequest());
+        assertFalse(parse("GET / HTTP/1.1\r\nConnection: upgrade\r\n\r\n").isUpgradeRequest());
+    }
+
+    @Test
+    void rejectsMalformedTruncatedAndOversizedHeads() throws IOException {
+        assertNull(parse(""));
+        assertThrows(IOException.class, () -> parse("GET / HTTP/1.1\r\nHost: lb\r\n"));
+        assertThrows(IOException.class, () -> parse("GET / HTTP/1.1\r\nno colon here\r\n\r\n"));
+        assertThrows(IOException.class, () -> parse("\r\n"));
+        assertThrows(IOException.class, () -> HttpHead.read(stream("GET / HTTP/1.1\r\nHost: lb\r\n\r\n"), 10));
+    }
+
+    @Test
+    void withHeaderReplacesEveryOccurrenceOnceOrAppends() throws IOException {
+        var head = parse("GET / HTTP/1.1\r\nX-Test: a\r\nAccept: */*\r\nx-test: b\r\n\r\n");
+
+        var replaced = head.withHeader("X-Test", "c").withHeader("Via", "lb");
+
+        assertEquals("GET / HTTP/1.1\r\nX-Test: c\r\nAccept: */*\r\nVia: lb\r\n\r\n",
+                new String(replaced.toBytes(), StandardCharsets.ISO_8859_1));
+        assertEquals("a", head.header("x-test"));
+    }
+
+    @Test
+    void forwardedRequestTargetsThePodAndRecordsTheClient() throws IOException {
+        var request = parse("GET /chat HTTP/1.1\r\nHost: lb.example:8080\r\nX-Forwarded-For: 10.0.0.1\r\n"
+                + "Upgrade: websocket\r\nConnection: Upgrade\r\n\r\n");
+
+        var forwarded = UpgradeTunnelService.forwardedRequest(request, "10.0.0.2", URI.create("http://pod-1:9000/api"));
+
+        assertEquals("GET /api/chat HTTP/1.1", forwarded.startLine());
+        assertEquals("pod-1:9000", forwarded.header("Host"));
+        assertEquals("lb.example:8080", forwarded.header("X-Forwarded-Host"));
+        assertEquals("10.0.0.1, 10.0.0.2", forwarded.header("X-Forwarded-For"));
+        assertEquals("websocket", forwarded.header("Upgrade"));
+    }
+
+    @Test
+    void forwardedRequestKeepsTheTargetForPodsWithoutBasePath() throws IOException {
+        var request = parse("GET /chat?room=1 HTTP/1.0\r\n\r\n");
+
+        var forwarded = UpgradeTunnelService.forwardedRequest(request, "10.0.0.2", URI.create("http://pod-1:9000/"));
+
+        assertEquals("GET /chat?room=1 HTTP/1.0", forwarded.startLine());
+        assertEquals("10.0.0.2", forwarded.header("X-Forwarded-For"));
+        assertNull(forwarded.header("X-Forwarded-Host"));
+    }
+}
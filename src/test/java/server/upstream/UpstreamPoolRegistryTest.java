@@ -0,0 +1,75 @@
+package server.upstream;
+
+import com.sun.net.httpserver.HttpServer;
+import config.UpstreamConfig;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamPoolRegistryTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    void closingAPoolLetsRequestsInFlightFinish() throws Exception {
+        var received = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                received.countDown();
+                release.await();
+                exchange.sendResponseHeaders(204, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        var pod = new BackendPod(URI.create("http://127.0.0.1:" + server.getAddress().getPort()), BackendPodStatus.ALIVE);
+        var registry = new UpstreamPoolRegistry(UpstreamConfig.defaults(), executor, BackendPodInMemoryStore.create());
+        var pool = registry.poolFor(pod);
+        var response = pool.httpClient().sendAsync(HttpRequest.newBuilder(pod.uri().resolve("/slow")).build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        registry.closePool(pod.uri());
+        release.countDown();
+
+        assertEquals(204, response.get(5, TimeUnit.SECONDS).statusCode());
+        assertNull(registry.existingPool(pod.uri()));
+        assertNotSame(pool, registry.poolFor(pod));
+    }
+
+    @Test
+    void closingAnUnknownPodIsANoOp() {
+        var registry = new UpstreamPoolRegistry(UpstreamConfig.defaults(), executor, BackendPodInMemoryStore.create());
+
+        registry.closePool(URI.create("http://unknown:8080"));
+
+        assertEquals(0, registry.size());
+    }
+}
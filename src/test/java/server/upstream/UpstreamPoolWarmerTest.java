@@ -0,0 +1,139 @@
+package server.upstream;
+
+import com.sun.net.httpserver.HttpServer;
+import config.PrewarmConfig;
+import config.UpstreamConfig;
+import health.types.BackendPodStatus;
+import metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+import utils.time.RealTimeProvider;
+import utils.time.TimeProvider;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamPoolWarmerTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<String> requestedPaths = new CopyOnWriteArrayList<>();
+    private final BackendPodInMemoryStore store = BackendPodInMemoryStore.create();
+    private HttpServer server;
+    private UpstreamPoolRegistry pools;
+    private BackendPod pod;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                requestedPaths.add(exchange.getRequestURI().getPath());
+                exchange.sendResponseHeaders(204, -1);
+            }
+        });
+        server.start();
+        pools = new UpstreamPoolRegistry(UpstreamConfig.defaults(), executor, store);
+        // registered with a base path, which proxied requests keep
+        pod = new BackendPod(URI.create("http://127.0.0.1:%d/api".formatted(server.getAddress().getPort())),
+                BackendPodStatus.ALIVE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private UpstreamPoolWarmer warmer(PrewarmConfig config, ExecutorService warmExecutor, TimeProvider timeProvider) {
+        return new UpstreamPoolWarmer(config, pools, warmExecutor, store, new MetricsRegistry(),
+                "/health", Duration.ofSeconds(2), timeProvider);
+    }
+
+    @Test
+    void warmOpensTheConfiguredConnectionsOnTheProxiedPath() {
+        var warmer = warmer(new PrewarmConfig(3, 1, 1_000), executor, new RealTimeProvider());
+
+        warmer.warm(pod);
+
+        assertEquals(List.of("/api/health", "/api/health", "/api/health"), requestedPaths);
+        assertEquals(3, pools.poolFor(pod).idleConnections());
+    }
+
+    @Test
+    void refreshLoopTopsUpPoolsOnTheInjectedClock() {
+        var sleeps = new ArrayList<Long>();
+        var warmer = new UpstreamPoolWarmer[1];
+        TimeProvider clock = millis -> {
+            sleeps.add(millis);
+            if (sleeps.size() == 2) {
+                warmer[0].stop();
+            }
+        };
+        // runs the loop and its top-ups on this thread
+        warmer[0] = warmer(new PrewarmConfig(4, 2, 15_000), new DirectExecutor(), clock);
+        pools.poolFor(pod);
+
+        warmer[0].start();
+
+        assertEquals(List.of(15_000L, 15_000L), sleeps);
+        assertEquals(4, requestedPaths.size());
+    }
+
+    @Test
+    void topUpSkipsPoolsClosedSinceTheRoundStarted() {
+        var warmer = warmer(new PrewarmConfig(4, 2, 1_000), executor, new RealTimeProvider());
+        var pool = pools.poolFor(pod);
+        pools.closePool(pod.uri());
+
+        warmer.topUp(pool);
+
+        assertTrue(requestedPaths.isEmpty());
+    }
+
+    private static final class DirectExecutor extends AbstractExecutorService {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package server.watch;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import config.WatchConfig;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodInMemoryStore;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PodWatchHubTest {
+
+    private static final URI FIRST = URI.create("http://worker-1:8080");
+    private static final URI SECOND = URI.create("http://worker-2:8080");
+
+    private BackendPodInMemoryStore store;
+    private PodWatchHub hub;
+
+    @BeforeEach
+    void setUp() {
+        BackendPodInMemoryStore.resetInstance();
+        store = BackendPodInMemoryStore.getStore();
+        hub = new PodWatchHub(store, new WatchConfig(true, 4, 1_000, 2));
+        store.addChangeListener(hub);
+    }
+
+    @AfterEach
+    void tearDown() {
+        BackendPodInMemoryStore.resetInstance();
+    }
+
+    private static String type(WatchFrame frame) {
+        return new String(frame.bytes(), StandardCharsets.UTF_8).lines()
+                .filter(line -> line.startsWith("event: "))
+                .findFirst().orElseThrow()
+                .substring("event: ".length());
+    }
+
+    private static JsonObject data(WatchFrame frame) {
+        String line = new String(frame.bytes(), StandardCharsets.UTF_8).lines()
+                .filter(l -> l.startsWith("data: "))
+                .findFirst().orElseThrow();
+        return JsonParser.parseString(line.substring("data: ".length())).getAsJsonObject();
+    }
+
+    @Test
+    void startsWithASnapshotThenStreamsEachChange() throws InterruptedException {
+        store.add(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+        store.add(new BackendPod(SECOND, BackendPodStatus.ALIVE));
+        hub.dispatchPending();
+        var watcher = hub.open(-1);
+
+        var snapshot = watcher.next(0);
+        store.update(new BackendPod(SECOND, BackendPodStatus.UNRESPONSIVE));
+        hub.dispatchPending();
+        var change = watcher.next(0);
+
+        assertEquals("snapshot", type(snapshot));
+        assertEquals(2, snapshot.generation());
+        assertEquals(2, data(snapshot).getAsJsonArray("upserted").size());
+        assertEquals("change", type(change));
+        assertEquals(3, change.generation());
+        assertEquals("UPDATE_POD", data(change).get("event").getAsString());
+        assertEquals(2, data(change).get("fromGeneration").getAsLong());
+        assertNull(watcher.next(0));
+    }
+
+    @Test
+    void resumesWithTheChangesSinceAGeneration() throws InterruptedException {
+        store.add(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+        store.add(new BackendPod(SECOND, BackendPodStatus.ALIVE));
+        store.remove(FIRST);
+
+        var frame = hub.open(1).next(0);
+
+        assertEquals("change", type(frame));
+        assertEquals(1, frame.fromGeneration());
+        assertEquals(3, frame.generation());
+        assertEquals(SECOND.toString(), data(frame).getAsJsonArray("upserted").get(0).getAsJsonObject().get("uri").getAsString());
+        assertEquals(FIRST.toString(), data(frame).getAsJsonArray("removed").get(0).getAsString());
+    }
+
+    @Test
+    void unknownGenerationStartsFromASnapshot() throws InterruptedException {
+        store.add(new BackendPod(FIRST, BackendPodStatus.ALIVE));
+
+        var frame = hub.open(50).next(0);
+
+        assertEquals("snapshot", type(frame));
+        assertEquals(1, frame.generation());
+    }
+
+    @Test
+    void slowWatcherCatchesUpWithoutHoldingUpTheStore() throws InterruptedException {
+        var watcher = hub.open(-1);
+        watcher.next(0);
+
+        // far more changes than the watcher may queue, none of them waiting for it
+        for (int i = 0; i < 100; i++) {
+            store.add(new BackendPod(URI.create("http://worker-" + i + ":8080"), BackendPodStatus.ALIVE));
+        }
+        hub.dispatchPending();
+        var frame = watcher.next(0);
+
+        assertEquals(0, frame.fromGeneration());
+        assertEquals(100, frame.generation());
+        assertEquals(100, data(frame).getAsJsonArray("upserted").size());
+        assertNull(watcher.next(0), "changes covered by the catch-up are not sent again");
+        assertTrue(hub.resyncs() > 0);
+    }
+
+    @Test
+    void refusesWatchersBeyondTheLimit() {
+        var first = hub.open(-1);
+        hub.open(-1);
+
+        assertNull(hub.open(-1));
+        hub.close(first);
+        assertNotNull(hub.open(-1));
+    }
+}
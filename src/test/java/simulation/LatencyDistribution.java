@@ -0,0 +1,31 @@
+package simulation;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Service time of a simulated pod, in nanoseconds.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+    long sampleNanos(RandomGenerator random);
+
+    static LatencyDistribution constant(Duration latency) {
+        long nanos = latency.toNanos();
+        return _ -> nanos;
+    }
+
+    static LatencyDistribution exponential(Duration mean) {
+        double meanNanos = mean.toNanos();
+        return random -> (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+    }
+
+    /**
+     * Log-normal service times, the usual shape of real request latencies: most requests near the median
+     * and a long tail whose length grows with {@code sigma}.
+     */
+    static LatencyDistribution logNormal(Duration median, double sigma) {
+        double mu = Math.log(median.toNanos());
+        return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+}
@@ -0,0 +1,133 @@
+package simulation;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * A backend serving requests from a FIFO queue with {@code capacity} workers, each request taking a sample
+ * of its latency distribution. Outages make it refuse connections, slowdowns stretch its service times.
+ */
+public class SimulatedPod {
+    private final URI uri;
+    private final LatencyDistribution latency;
+    private final int capacity;
+    private final List<Window> outages = new ArrayList<>();
+    private final List<Window> slowdowns = new ArrayList<>();
+    private long[] workerFreeAt;
+    private int inFlight;
+    private long served;
+
+    private record Window(long fromNanos, long toNanos, double factor) {
+        boolean contains(long nanos) {
+            return nanos >= fromNanos && nanos < toNanos;
+        }
+    }
+
+    private SimulatedPod(URI uri, LatencyDistribution latency, int capacity) {
+        this.uri = uri;
+        this.latency = latency;
+        this.capacity = capacity;
+    }
+
+    public static SimulatedPod of(String host, LatencyDistribution latency, int capacity) {
+        return new SimulatedPod(URI.create("http://" + host + ":8080"), latency, capacity);
+    }
+
+    /**
+     * Refuse every connection between the two points of simulated time.
+     */
+    public SimulatedPod outage(Duration from, Duration to) {
+        outages.add(new Window(from.toNanos(), to.toNanos(), 1));
+        return this;
+    }
+
+    /**
+     * Multiply service times by {@code factor} between the two points of simulated time.
+     */
+    public SimulatedPod slowdown(Duration from, Duration to, double factor) {
+        slowdowns.add(new Window(from.toNanos(), to.toNanos(), factor));
+        return this;
+    }
+
+    public URI uri() {
+        return uri;
+    }
+
+    List<Long> outageStarts() {
+        return outages.stream().map(Window::fromNanos).toList();
+    }
+
+    List<Long> outageEnds() {
+        return outages.stream().map(Window::toNanos).toList();
+    }
+
+    boolean isDown(long nowNanos) {
+        for (var outage : outages) {
+            if (outage.contains(nowNanos)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return how long the pod takes to answer a health check now, which does not wait in the request queue
+     */
+    long probeLatency(long nowNanos, RandomGenerator random) {
+        return (long) (latency.sampleNanos(random) * slowdownFactor(nowNanos));
+    }
+
+    /**
+     * Queue a request arriving now.
+     *
+     * @return when the request completes
+     */
+    long serve(long nowNanos, RandomGenerator random) {
+        int worker = 0;
+        for (int i = 1; i < capacity; i++) {
+            if (workerFreeAt[i] < workerFreeAt[worker]) {
+                worker = i;
+            }
+        }
+        long start = Math.max(nowNanos, workerFreeAt[worker]);
+        long done = start + (long) (latency.sampleNanos(random) * slowdownFactor(nowNanos));
+        workerFreeAt[worker] = done;
+        inFlight++;
+        served++;
+        return done;
+    }
+
+    private double slowdownFactor(long nowNanos) {
+        double factor = 1;
+        for (var slowdown : slowdowns) {
+            if (slowdown.contains(nowNanos)) {
+                factor *= slowdown.factor;
+            }
+        }
+        return factor;
+    }
+
+    void finished() {
+        inFlight--;
+    }
+
+    /**
+     * @return busy share of the workers, capped at 1, as the pod would report it
+     */
+    double utilization() {
+        return Math.min(1.0, (double) inFlight / capacity);
+    }
+
+    long served() {
+        return served;
+    }
+
+    void reset() {
+        workerFreeAt = new long[capacity];
+        inFlight = 0;
+        served = 0;
+    }
+}
@@ -0,0 +1,375 @@
+package simulation;
+
+import config.LoadBalancerConfig;
+import health.HealthCheckServiceMain;
+import health.latency.ProbeLatencyTracker;
+import health.load.BackendLoadReports;
+import health.passive.PassiveHealthSignals;
+import health.ping.AsyncProbeable;
+import health.ping.Probeable;
+import health.scheduler.TimerDrive;
+import health.types.BackendPodStatus;
+import metrics.LatencyHistogram;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import server.LoadDistributable;
+import server.load.LatencyWeigher;
+import server.load.PodLoadTracker;
+import server.load.PodWeigher;
+import server.load.ReportedLoadWeigher;
+import utils.error.NetworkUnavailableException;
+import utils.time.VirtualTimeProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Discrete-event simulation of the balancer: the real store, {@link HealthCheckServiceMain} and
+ * {@link LoadDistributable} run against {@link SimulatedPod}s on a {@link VirtualTimeProvider}, all on the
+ * calling thread.
+ * <p>
+ * Simulated time jumps from event to event, and at least once per timer wheel tick so health check
+ * timers fire on time. Requests arrive as a Poisson process. Everything random, including the health
+ * checker's jitter, comes from one seed, so a run repeats exactly.
+ */
+public class Simulation {
+    // how long a crashed pod takes to refuse a connection
+    private static final long REFUSED_AFTER_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LoadBalancerConfig config;
+    private final List<SimulatedPod> pods;
+    private final BalancerFactory balancerFactory;
+    private final double requestsPerNano;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final boolean podsReportLoad;
+    private final long seed;
+
+    // state of the current run
+    private VirtualTimeProvider clock;
+    private RandomGenerator random;
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final QueueExecutor executor = new QueueExecutor();
+    private final Map<URI, SimulatedPod> podsByUri = new HashMap<>();
+    private final Map<URI, Long> pendingDetections = new HashMap<>();
+    private final Map<URI, Long> pendingRecoveries = new HashMap<>();
+    private long sequence;
+
+    /**
+     * Creates the balancer under test from the parts of the simulated balancer.
+     */
+    @FunctionalInterface
+    public interface BalancerFactory {
+        LoadDistributable<BackendPod> create(BackendPodInMemoryStore store, PodLoadTracker loadTracker,
+                                             PodWeigher weigher, RandomGenerator random);
+    }
+
+    private record Event(long atNanos, long sequence, Runnable action) implements Comparable<Event> {
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(atNanos, other.atNanos);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private Simulation(Builder builder) {
+        this.config = builder.config;
+        this.pods = List.copyOf(builder.pods);
+        this.balancerFactory = builder.balancerFactory;
+        this.requestsPerNano = builder.requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.warmupNanos = builder.warmup.toNanos();
+        this.durationNanos = builder.duration.toNanos();
+        this.podsReportLoad = builder.podsReportLoad;
+        this.seed = builder.seed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Run the simulation from the start. Replaces the global pod store.
+     */
+    public SimulationReport run() {
+        clock = new VirtualTimeProvider(0, seed);
+        random = new SplittableRandom(seed);
+        events.clear();
+        podsByUri.clear();
+        pendingDetections.clear();
+        pendingRecoveries.clear();
+        sequence = 0;
+
+        BackendPodInMemoryStore.resetInstance();
+        var store = BackendPodInMemoryStore.getStore();
+        var passiveSignals = new PassiveHealthSignals(clock);
+        var latencyTracker = new ProbeLatencyTracker(config.weighting().latencyEwmaAlpha());
+        var loadReports = new BackendLoadReports(store, config.weighting().loadHeader(),
+                config.weighting().loadReportMaxAgeMs(), clock);
+        var probe = new SimulatedProbe();
+        var health = new HealthCheckServiceMain(executor, config, store, clock, probe, passiveSignals, latencyTracker,
+                TimerDrive.following(clock));
+        var loadTracker = new PodLoadTracker();
+        var weigher = new LatencyWeigher(latencyTracker).times(new ReportedLoadWeigher(loadReports));
+        var balancer = balancerFactory.create(store, loadTracker, weigher, random);
+        var run = new Run(balancer, loadTracker, passiveSignals, loadReports);
+        store.subscribe(BackendPodEvent.UPDATE_POD, run::onStatusChange);
+        store.subscribe(BackendPodEvent.POD_READY, run::onStatusChange);
+        store.subscribe(BackendPodEvent.REMOVE_POD, run::onStatusChange);
+
+        for (var pod : pods) {
+            pod.reset();
+            podsByUri.put(pod.uri(), pod);
+            pod.outageStarts().forEach(start -> at(start, () -> pendingDetections.put(pod.uri(), start)));
+            pod.outageEnds().forEach(end -> at(end, () -> {
+                if (pendingDetections.remove(pod.uri()) != null) {
+                    run.missedOutages++;
+                } else if (store.get(pod.uri()) != null) {
+                    pendingRecoveries.put(pod.uri(), end);
+                }
+            }));
+            store.add(new BackendPod(pod.uri(), BackendPodStatus.INITIALIZING));
+        }
+        executor.drain();
+        at(warmupNanos, run::arrive);
+
+        long end = warmupNanos + durationNanos;
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(config.healthScheduler().tickMs());
+        while (!events.isEmpty() && events.peek().atNanos <= end) {
+            var event = events.poll();
+            // step through every tick in between so the timer wheel fires on time
+            while (clock.nanoTime() < event.atNanos) {
+                clock.advanceTo(Math.min(event.atNanos, clock.nanoTime() + tickNanos));
+                executor.drain();
+            }
+            event.action.run();
+            executor.drain();
+        }
+        health.stop();
+        return run.report(probe.sent);
+    }
+
+    private void at(long atNanos, Runnable action) {
+        events.add(new Event(atNanos, sequence++, action));
+    }
+
+    private final class Run {
+        private final LoadDistributable<BackendPod> balancer;
+        private final PodLoadTracker loadTracker;
+        private final PassiveHealthSignals passiveSignals;
+        private final BackendLoadReports loadReports;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final List<Duration> detectionTimes = new ArrayList<>();
+        private final List<Duration> recoveryTimes = new ArrayList<>();
+        private long requests;
+        private long failed;
+        private long unrouted;
+        private int missedOutages;
+
+        private Run(LoadDistributable<BackendPod> balancer, PodLoadTracker loadTracker,
+                    PassiveHealthSignals passiveSignals, BackendLoadReports loadReports) {
+            this.balancer = balancer;
+            this.loadTracker = loadTracker;
+            this.passiveSignals = passiveSignals;
+            this.loadReports = loadReports;
+        }
+
+        private void onStatusChange(BackendPodEvent event, BackendPodEventContext context) {
+            for (var pod : context.affectedPods()) {
+                boolean alive = event != BackendPodEvent.REMOVE_POD && pod.status() == BackendPodStatus.ALIVE;
+                Long since = alive ? pendingRecoveries.remove(pod.uri()) : pendingDetections.remove(pod.uri());
+                if (since != null) {
+                    (alive ? recoveryTimes : detectionTimes).add(Duration.ofNanos(clock.nanoTime() - since));
+                }
+            }
+        }
+
+        private void arrive() {
+            long now = clock.nanoTime();
+            at(now + (long) (-Math.log(1 - random.nextDouble()) / requestsPerNano), this::arrive);
+            var next = balancer.next();
+            if (next.isEmpty()) {
+                unrouted++;
+                return;
+            }
+            var pod = next.get();
+            var simulated = podsByUri.get(pod.uri());
+            requests++;
+            loadTracker.acquire(pod);
+            if (simulated.isDown(now)) {
+                at(now + REFUSED_AFTER_NANOS, () -> {
+                    loadTracker.release(pod);
+                    passiveSignals.recordFailure(pod.uri());
+                    failed++;
+                });
+                return;
+            }
+            long done = simulated.serve(now, random);
+            at(done, () -> {
+                loadTracker.release(pod);
+                simulated.finished();
+                passiveSignals.recordSuccess(pod.uri());
+                if (podsReportLoad) {
+                    loadReports.record(pod.uri(), simulated.utilization());
+                }
+                latencies.record(TimeUnit.NANOSECONDS.toMicros(done - now));
+            });
+        }
+
+        private SimulationReport report(long probes) {
+            Map<URI, Long> served = new LinkedHashMap<>();
+            pods.forEach(pod -> served.put(pod.uri(), pod.served()));
+            return new SimulationReport(requests, failed, unrouted,
+                    latencies.percentileMicros(0.5), latencies.percentileMicros(0.99), latencies.percentileMicros(0.999),
+                    served, List.copyOf(detectionTimes), List.copyOf(recoveryTimes),
+                    missedOutages + pendingDetections.size(), probes);
+        }
+    }
+
+    /**
+     * Health probe answering for the simulated pods after their sampled latency.
+     */
+    private final class SimulatedProbe implements Probeable<BackendPod>, AsyncProbeable<BackendPod> {
+        private long sent;
+
+        @Override
+        public void probe(BackendPod networkInfo) {
+            throw new UnsupportedOperationException("simulated probes only run asynchronously");
+        }
+
+        @Override
+        public CompletableFuture<Void> probeAsync(BackendPod networkInfo) {
+            sent++;
+            var result = new CompletableFuture<Void>();
+            var pod = podsByUri.get(networkInfo.uri());
+            long now = clock.nanoTime();
+            if (pod == null || pod.isDown(now)) {
+                at(now + REFUSED_AFTER_NANOS, () -> result.completeExceptionally(
+                        new NetworkUnavailableException("connection to %s refused".formatted(networkInfo.uri()))));
+            } else {
+                at(now + pod.probeLatency(now, random), () -> result.complete(null));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Runs tasks on the simulation thread, in submission order, whenever the simulation drains it.
+     */
+    private static final class QueueExecutor extends AbstractExecutorService {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void drain() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+
+    public static final class Builder {
+        private LoadBalancerConfig config;
+        private final List<SimulatedPod> pods = new ArrayList<>();
+        private BalancerFactory balancerFactory;
+        private double requestsPerSecond = 1_000;
+        private Duration warmup = Duration.ofSeconds(1);
+        private Duration duration = Duration.ofSeconds(60);
+        private boolean podsReportLoad;
+        private long seed;
+
+        public Builder config(LoadBalancerConfig config) {
+            this.config = config;
+            return this;
+        }
+
+        public Builder pod(SimulatedPod pod) {
+            this.pods.add(pod);
+            return this;
+        }
+
+        public Builder balancer(BalancerFactory balancerFactory) {
+            this.balancerFactory = balancerFactory;
+            return this;
+        }
+
+        public Builder requestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        /**
+         * Time given to the health checker to bring the pods up before requests start.
+         */
+        public Builder warmup(Duration warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        public Builder duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * Let pods report their utilization with every response, see {@link BackendLoadReports}.
+         */
+        public Builder podsReportLoad(boolean podsReportLoad) {
+            this.podsReportLoad = podsReportLoad;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Simulation build() {
+            if (config == null || balancerFactory == null || pods.isEmpty()) {
+                throw new IllegalStateException("a simulation needs a config, a balancer and pods");
+            }
+            return new Simulation(this);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package simulation;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link Simulation} run. Equal seeds and settings give equal reports.
+ *
+ * @param requests         requests sent to a pod
+ * @param failedRequests   requests sent to a pod that refused them
+ * @param unroutedRequests requests for which the balancer had no pod
+ * @param p50Micros        median latency of successful requests, queueing included
+ * @param servedPerPod     successful requests per pod
+ * @param detectionTimes   from the start of each outage until the pod left ALIVE
+ * @param recoveryTimes    from the end of each outage until the pod was ALIVE again
+ * @param missedOutages    outages the health checker never noticed
+ * @param probes           health probes sent
+ */
+public record SimulationReport(
+        long requests,
+        long failedRequests,
+        long unroutedRequests,
+        long p50Micros,
+        long p99Micros,
+        long p999Micros,
+        Map<URI, Long> servedPerPod,
+        List<Duration> detectionTimes,
+        List<Duration> recoveryTimes,
+        int missedOutages,
+        long probes) {
+
+    /**
+     * @return requests served by the busiest pod relative to the mean, 1 when perfectly even
+     */
+    public double loadSkew() {
+        long max = servedPerPod.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        double mean = servedPerPod.values().stream().mapToLong(Long::longValue).average().orElse(0);
+        return mean == 0 ? 1 : max / mean;
+    }
+
+    public String summary() {
+        return """
+                requests %d (failed %d, unrouted %d), latency p50 %dus p99 %dus p99.9 %dus
+                load skew %.2f %s
+                detection %s, recovery %s, missed outages %d, probes %d"""
+                .formatted(requests, failedRequests, unroutedRequests, p50Micros, p99Micros, p999Micros,
+                        loadSkew(), servedPerPod.values(), detectionTimes, recoveryTimes, missedOutages, probes);
+    }
+}
@@ -0,0 +1,105 @@
+package simulation;
+
+import config.LoadBalancerConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import repository.BackendPodInMemoryStore;
+import server.LeastConnectionsLoadBalancer;
+import server.RoundRobinLoadBalancer;
+import server.WeightedLoadBalancer;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+
+    // checks every second, retries after 200ms, 400ms, ... and gives up after 5 failed attempts
+    private static final LoadBalancerConfig CONFIG = LoadBalancerConfig.builder()
+            .duration(1_000)
+            .timeout(Duration.ofMillis(500))
+            .maxTries(5)
+            .initialDelayMs(200)
+            .maxDelayMs(2_000)
+            .port(0)
+            .build();
+
+    private static final Simulation.BalancerFactory ROUND_ROBIN =
+            (store, _, _, _) -> new RoundRobinLoadBalancer(store);
+    private static final Simulation.BalancerFactory LEAST_CONNECTIONS =
+            (store, loadTracker, _, _) -> new LeastConnectionsLoadBalancer(store, loadTracker);
+    private static final Simulation.BalancerFactory WEIGHTED =
+            (store, _, weigher, random) -> new WeightedLoadBalancer(store, weigher, 0.05, random);
+
+    @AfterEach
+    void tearDown() {
+        BackendPodInMemoryStore.resetInstance();
+    }
+
+    private static Simulation.Builder threePods(Simulation.BalancerFactory balancer) {
+        var latency = LatencyDistribution.logNormal(Duration.ofMillis(2), 0.5);
+        return Simulation.builder()
+                .config(CONFIG)
+                .pod(SimulatedPod.of("pod-a", latency, 4))
+                .pod(SimulatedPod.of("pod-b", latency, 4))
+                .pod(SimulatedPod.of("pod-c", latency, 4).outage(Duration.ofSeconds(10), Duration.ofMillis(10_600)))
+                .balancer(balancer)
+                .seed(42);
+    }
+
+    @Test
+    void sameSeedRepeatsTheRunExactly() {
+        var simulation = threePods(WEIGHTED).requestsPerSecond(2_000).duration(Duration.ofSeconds(20)).build();
+
+        var first = simulation.run();
+        var second = simulation.run();
+
+        assertEquals(first, second);
+        assertTrue(first.requests() > 35_000, first.summary());
+    }
+
+    @Test
+    void detectsAndRecoversFromAShortOutage() {
+        var report = threePods(LEAST_CONNECTIONS).requestsPerSecond(2_000).duration(Duration.ofSeconds(20)).build().run();
+
+        assertEquals(0, report.missedOutages(), report.summary());
+        assertEquals(1, report.detectionTimes().size(), report.summary());
+        // failed live requests bring the next check forward, so the pod leaves long before its next check
+        assertTrue(report.detectionTimes().getFirst().compareTo(Duration.ofMillis(500)) < 0, report.summary());
+        assertEquals(1, report.recoveryTimes().size(), report.summary());
+        assertTrue(report.failedRequests() > 0, report.summary());
+        assertEquals(0, report.unroutedRequests(), report.summary());
+    }
+
+    @Test
+    void balancersThatSeeLoadAvoidASlowPod() {
+        // pod-c is four times slower for most of the run, the pods are busy about 60% of the time
+        var fast = LatencyDistribution.exponential(Duration.ofMillis(1));
+        Simulation.BalancerFactory[] strategies = {ROUND_ROBIN, LEAST_CONNECTIONS, WEIGHTED};
+        var reports = new SimulationReport[strategies.length];
+        for (int i = 0; i < strategies.length; i++) {
+            reports[i] = Simulation.builder()
+                    .config(CONFIG)
+                    .pod(SimulatedPod.of("pod-a", fast, 4))
+                    .pod(SimulatedPod.of("pod-b", fast, 4))
+                    .pod(SimulatedPod.of("pod-c", fast, 4).slowdown(Duration.ofSeconds(5), Duration.ofSeconds(30), 4))
+                    .balancer(strategies[i])
+                    // live traffic suppresses most probes, so probe latency alone says little about pod-c
+                    .podsReportLoad(true)
+                    .requestsPerSecond(5_000)
+                    .duration(Duration.ofSeconds(30))
+                    .seed(7)
+                    .build()
+                    .run();
+            assertTrue(reports[i].requests() >= 145_000, reports[i].summary());
+        }
+
+        var roundRobin = reports[0];
+        var leastConnections = reports[1];
+        var weighted = reports[2];
+        // round robin keeps feeding the slow pod its full share, the others notice it is slow
+        assertTrue(leastConnections.p99Micros() < roundRobin.p99Micros(), leastConnections.summary());
+        assertTrue(weighted.p99Micros() < roundRobin.p99Micros(), weighted.summary());
+        assertTrue(roundRobin.loadSkew() < 1.01, roundRobin.summary());
+    }
+}
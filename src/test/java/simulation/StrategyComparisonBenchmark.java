@@ -0,0 +1,58 @@
+package simulation;
+
+import config.LoadBalancerConfig;
+import server.LeastConnectionsLoadBalancer;
+import server.RoundRobinLoadBalancer;
+import server.WeightedLoadBalancer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares the balancing strategies over a long simulated run in which one of three pods turns four times
+ * slower, and prints each strategy's report.
+ * <p>
+ * Not a unit test; run it manually, e.g. with {@code java ... simulation.StrategyComparisonBenchmark
+ * [requestsPerSecond] [seconds] [seed]}. The defaults route a million requests.
+ */
+public class StrategyComparisonBenchmark {
+    private static final LoadBalancerConfig CONFIG = LoadBalancerConfig.builder()
+            .duration(1_000)
+            .timeout(Duration.ofMillis(500))
+            .maxTries(5)
+            .initialDelayMs(200)
+            .maxDelayMs(2_000)
+            .port(0)
+            .build();
+
+    public static void main(String[] args) {
+        int requestsPerSecond = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 7;
+        System.out.printf("rate=%d/s duration=%ds seed=%d%n", requestsPerSecond, seconds, seed);
+
+        Map<String, Simulation.BalancerFactory> strategies = new LinkedHashMap<>();
+        strategies.put("round robin", (store, _, _, _) -> new RoundRobinLoadBalancer(store));
+        strategies.put("least connections", (store, loadTracker, _, _) -> new LeastConnectionsLoadBalancer(store, loadTracker));
+        strategies.put("weighted", (store, _, weigher, random) -> new WeightedLoadBalancer(store, weigher, 0.05, random));
+
+        // pod-c is four times slower for most of the run, the pods are busy about 60% of the time
+        var fast = LatencyDistribution.exponential(Duration.ofMillis(1));
+        strategies.forEach((name, balancer) -> {
+            var report = Simulation.builder()
+                    .config(CONFIG)
+                    .pod(SimulatedPod.of("pod-a", fast, 4))
+                    .pod(SimulatedPod.of("pod-b", fast, 4))
+                    .pod(SimulatedPod.of("pod-c", fast, 4).slowdown(Duration.ofSeconds(5), Duration.ofSeconds(seconds), 4))
+                    .balancer(balancer)
+                    .podsReportLoad(true)
+                    .requestsPerSecond(requestsPerSecond)
+                    .duration(Duration.ofSeconds(seconds))
+                    .seed(seed)
+                    .build()
+                    .run();
+            System.out.printf("%s: %s%n", name, report.summary());
+        });
+    }
+}
@@ -0,0 +1,194 @@
+package utils.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import utils.EventSubscriber;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferEventBusTest {
+
+    private RingBufferEventBus<String, Integer> bus;
+
+    @AfterEach
+    void tearDown() {
+        if (bus != null) {
+            bus.close();
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void deliversEventsInPublishingOrder() throws InterruptedException {
+        bus = new RingBufferEventBus<>("test", 8, BackPressure.BLOCK);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("tick", (_, value) -> received.add(value));
+        bus.subscribe("other", (_, value) -> received.add(-value));
+
+        // several laps of the ring
+        for (int i = 0; i < 100; i++) {
+            bus.publish("tick", i);
+        }
+        bus.publish("ignored", 1_000);
+
+        awaitCondition(() -> received.size() == 100 && bus.depth() == 0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, received.get(i));
+        }
+    }
+
+    @Test
+    void slowSubscriberDoesNotHoldUpPublishersUntilTheRingIsFull() throws InterruptedException {
+        bus = new RingBufferEventBus<>("test", 16, BackPressure.BLOCK);
+        var release = new CountDownLatch(1);
+        var delivered = new AtomicInteger();
+        bus.subscribe("tick", (_, _) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.incrementAndGet();
+        });
+
+        // the subscriber is stuck on the first event, which keeps its slot and those after it taken
+        for (int i = 0; i < 16; i++) {
+            bus.publish("tick", i);
+        }
+        assertEquals(0, delivered.get());
+
+        var publisher = Thread.ofPlatform().start(() -> bus.publish("tick", 16));
+        Thread.sleep(50);
+        assertTrue(publisher.isAlive(), "publishing into a full ring should wait");
+
+        release.countDown();
+        publisher.join(5_000);
+        assertFalse(publisher.isAlive());
+        awaitCondition(() -> delivered.get() == 17);
+        assertEquals(0, bus.dropped());
+        assertEquals(17, bus.publishLatency().count());
+    }
+
+    @Test
+    void dropPolicyCountsEventsThatDidNotFit() throws InterruptedException {
+        bus = new RingBufferEventBus<>("test", 4, BackPressure.DROP);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var delivered = new AtomicInteger();
+        bus.subscribe("tick", (_, _) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.incrementAndGet();
+        });
+
+        bus.publish("tick", 0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // three more fit behind the event being handled
+        for (int i = 1; i <= 10; i++) {
+            bus.publish("tick", i);
+        }
+        assertEquals(7, bus.dropped());
+
+        release.countDown();
+        awaitCondition(() -> delivered.get() == 4);
+    }
+
+    @Test
+    void deliveredContentIsNotKeptReachableByTheRing() throws InterruptedException {
+        var contents = new RingBufferEventBus<String, Object>("test", 64, BackPressure.BLOCK);
+        try {
+            var delivered = new AtomicInteger();
+            contents.subscribe("tick", (_, _) -> delivered.incrementAndGet());
+            contents.subscribe("tick", (_, _) -> delivered.incrementAndGet());
+            Object content = new byte[1024];
+            var reference = new WeakReference<>(content);
+            contents.publish("tick", content);
+            content = null;
+
+            awaitCondition(() -> delivered.get() == 2 && contents.depth() == 0);
+            awaitCondition(() -> {
+                System.gc();
+                return reference.get() == null;
+            });
+        } finally {
+            contents.close();
+        }
+    }
+
+    @Test
+    void subscribersPublishingIntoAFullRingDropInsteadOfWaitingOnThemselves() throws InterruptedException {
+        bus = new RingBufferEventBus<>("test", 2, BackPressure.BLOCK);
+        var delivered = new AtomicInteger();
+        bus.subscribe("burst", (_, count) -> {
+            for (int i = 0; i < count; i++) {
+                bus.publish("tick", i);
+            }
+        });
+        bus.subscribe("tick", (_, _) -> delivered.incrementAndGet());
+
+        bus.publish("burst", 10);
+
+        awaitCondition(() -> bus.dropped() > 0 && bus.depth() == 0);
+        assertEquals(10, delivered.get() + bus.dropped());
+    }
+
+    @Test
+    void failingSubscribersKeepReceivingEvents() throws InterruptedException {
+        bus = new RingBufferEventBus<>("test", 8, BackPressure.BLOCK);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("tick", (_, value) -> {
+            received.add(value);
+            throw new IllegalStateException("boom");
+        });
+
+        bus.publish("tick", 1);
+        bus.publish("tick", 2);
+
+        awaitCondition(() -> received.size() == 2);
+    }
+
+    @Test
+    void unsubscribedSubscribersNoLongerReceiveOrHoldBackEvents() throws InterruptedException {
+        bus = new RingBufferEventBus<>("test", 4, BackPressure.DROP);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        bus.subscribe("tick", (_, value) -> received.add(value));
+        var blocked = new CountDownLatch(1);
+        var stuck = (EventSubscriber<String, Integer>) (_, _) -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        bus.subscribe("tick", stuck);
+        bus.unsubscribe("tick", stuck);
+
+        for (int i = 0; i < 20; i++) {
+            bus.publish("tick", i);
+            awaitCondition(() -> bus.depth() == 0);
+        }
+
+        assertEquals(20, received.size());
+        assertEquals(0, bus.dropped());
+        blocked.countDown();
+    }
+}
@@ -0,0 +1,177 @@
+package utils.network.dns;
+
+import config.DnsConfig;
+import health.types.BackendPodStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pods.BackendPod;
+import repository.BackendPodEvent;
+import repository.BackendPodEventContext;
+import repository.BackendPodInMemoryStore;
+import utils.EventSubscriber;
+import utils.time.TimeProvider;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV4;
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV6;
+import static java.net.spi.InetAddressResolver.LookupPolicy.IPV6_FIRST;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DnsCacheTest {
+
+    private static final URI POD_URI = URI.create("http://pod-a.internal:8080");
+
+    private BackendPodInMemoryStore store;
+    private StubResolver resolver;
+    private FakeClock clock;
+    private DnsCache cache;
+
+    /**
+     * Answers from a fixed table and counts lookups; hosts missing from the table fail.
+     */
+    private static class StubResolver implements HostResolver {
+        final Map<String, List<InetAddress>> answers = new HashMap<>();
+        int lookups;
+
+        @Override
+        public List<InetAddress> resolve(String host) throws UnknownHostException {
+            lookups++;
+            var addresses = answers.get(host);
+            if (addresses == null) {
+                throw new UnknownHostException(host);
+            }
+            return addresses;
+        }
+    }
+
+    private static class FakeClock implements TimeProvider {
+        long now;
+
+        @Override
+        public void sleep(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    private static InetAddress address(String literal) throws UnknownHostException {
+        return InetAddress.getByName(literal);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = BackendPodInMemoryStore.getStore();
+        resolver = new StubResolver();
+        resolver.answers.put("pod-a.internal", List.of(address("10.0.0.1")));
+        clock = new FakeClock();
+        cache = new DnsCache(new DnsConfig(true, 10_000, 2_000, 60_000), resolver, clock, store);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        BackendPodInMemoryStore.resetInstance();
+    }
+
+    @Test
+    void resolvesPodHostAtRegistration() throws Exception {
+        store.add(new BackendPod(POD_URI, BackendPodStatus.INITIALIZING));
+
+        assertEquals(1, resolver.lookups);
+        assertEquals(List.of(address("10.0.0.1")), cache.lookup("pod-a.internal"));
+        assertNull(cache.lookup("unrelated.internal"));
+    }
+
+    @Test
+    void addressLiteralsAreNotCached() {
+        store.add(new BackendPod(URI.create("http://127.0.0.1:9000"), BackendPodStatus.INITIALIZING));
+
+        assertEquals(0, resolver.lookups);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void refreshesOnlyEntriesCloseToExpiry() throws Exception {
+        store.add(new BackendPod(POD_URI, BackendPodStatus.INITIALIZING));
+
+        clock.sleep(5_000);
+        assertEquals(0, cache.refreshDue());
+        clock.sleep(3_500);
+        assertEquals(1, cache.refreshDue());
+        assertEquals(2, resolver.lookups);
+    }
+
+    @Test
+    void servesStaleEntryWhileResolverFails() throws Exception {
+        store.add(new BackendPod(POD_URI, BackendPodStatus.INITIALIZING));
+        resolver.answers.clear();
+
+        clock.sleep(40_000);
+        cache.refreshDue();
+        assertEquals(List.of(address("10.0.0.1")), cache.lookup("pod-a.internal"));
+
+        clock.sleep(40_000);
+        assertNull(cache.lookup("pod-a.internal"), "entries stale for longer than maxStaleMs are dropped");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void addressChangeIsPublishedAsPodUpdate() throws Exception {
+        var pod = new BackendPod(POD_URI, BackendPodStatus.ALIVE);
+        store.add(pod);
+        EventSubscriber<BackendPodEvent, BackendPodEventContext> subscriber = mock(EventSubscriber.class);
+        store.subscribe(BackendPodEvent.UPDATE_POD, subscriber);
+        var changedPods = new ArrayList<URI>();
+        cache.addAddressChangeListener(changedPods::add);
+
+        clock.sleep(9_000);
+        cache.refreshDue();
+        verify(subscriber, never()).handleEvent(any(), any());
+
+        resolver.answers.put("pod-a.internal", List.of(address("10.0.0.2")));
+        clock.sleep(9_000);
+        cache.refreshDue();
+
+        verify(subscriber).handleEvent(eq(BackendPodEvent.UPDATE_POD), any());
+        assertEquals(List.of(POD_URI), changedPods);
+        assertEquals(List.of(address("10.0.0.2")), cache.lookup("pod-a.internal"));
+    }
+
+    @Test
+    void forgetsHostWhenLastPodIsRemoved() {
+        var other = URI.create("http://pod-a.internal:8081");
+        store.add(new BackendPod(POD_URI, BackendPodStatus.ALIVE));
+        store.add(new BackendPod(other, BackendPodStatus.ALIVE));
+
+        store.remove(POD_URI);
+        assertNotNull(cache.lookup("pod-a.internal"));
+        store.remove(other);
+        assertNull(cache.lookup("pod-a.internal"));
+    }
+
+    @Test
+    void policyFiltersAndOrdersAddressFamilies() throws Exception {
+        var v4 = address("10.0.0.1");
+        var v6 = address("::1");
+        var both = List.of(v4, v6);
+
+        assertEquals(List.of(v6, v4), CachingResolverProvider.applyPolicy(both,
+                IPV4 | IPV6 | IPV6_FIRST));
+        assertEquals(List.of(v4), CachingResolverProvider.applyPolicy(both, IPV4));
+    }
+}